@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Realistic, deterministic fixtures shared by the benchmarks.
+ *
+ * @since 2.0
+ */
+public final class Fixtures {
+
+    /**
+     * A permission string that is never granted by {@link #permissionStrings(int)}.
+     */
+    public static final String DENIED_PERMISSION = "billing:refund:999999";
+
+    private static final int ALL_INSTANCES_INTERVAL = 16;
+
+    private static final int MULTIPLE_ACTIONS_INTERVAL = 64;
+
+    private static final String[] DOMAINS = {
+        "document", "folder", "printer", "user", "group", "report", "invoice", "project",
+        "ticket", "repository", "dashboard", "account", "order", "product", "shipment", "contract",
+    };
+
+    private static final String[] ACTIONS = {"read", "write", "create", "delete", "share", "approve", "export", "audit"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns {@code count} distinct permission strings of the form {@code domain:action:instance}, spread over a
+     * fixed vocabulary of domains and actions the way a realm granting per-instance permissions would.  Every
+     * sixteenth permission grants all instances ({@code domain:action:*}) and every sixty-fourth one combines
+     * several actions ({@code domain:read,write:instance}).
+     *
+     * @param count the number of permission strings to create.
+     * @return the permission strings, in a deterministic order.
+     */
+    public static List<String> permissionStrings(int count) {
+        Set<String> perms = new LinkedHashSet<String>(count * 4 / 3 + 1);
+        int i = 0;
+        while (perms.size() < count) {
+            String domain = DOMAINS[i % DOMAINS.length];
+            String action = ACTIONS[(i / DOMAINS.length) % ACTIONS.length];
+            int instance = i / (DOMAINS.length * ACTIONS.length);
+            if (i % MULTIPLE_ACTIONS_INTERVAL == MULTIPLE_ACTIONS_INTERVAL - 1) {
+                perms.add(domain + ":read,write:" + instance);
+            } else if (i % ALL_INSTANCES_INTERVAL == ALL_INSTANCES_INTERVAL - 1) {
+                perms.add(domain + ":" + action + ":*");
+            } else {
+                perms.add(domain + ":" + action + ":" + instance);
+            }
+            i++;
+        }
+        return new ArrayList<String>(perms);
+    }
+
+    /**
+     * Returns the last (and therefore hardest to find for a linear scan) permission string granted by
+     * {@link #permissionStrings(int) permissionStrings(count)}.
+     *
+     * @param count the number of granted permission strings.
+     * @return the last granted permission string.
+     */
+    public static String lastGrantedPermission(int count) {
+        List<String> perms = permissionStrings(count);
+        return perms.get(perms.size() - 1);
+    }
+
+    /**
+     * An {@link AuthorizingRealm} that grants the same fixed set of permissions to every subject and that does not
+     * support authentication.
+     */
+    public static class FixedAuthorizationRealm extends AuthorizingRealm {
+
+        private final SimpleAuthorizationInfo info;
+
+        public FixedAuthorizationRealm(String name, Collection<String> permissions) {
+            setName(name);
+            this.info = new SimpleAuthorizationInfo();
+            this.info.setStringPermissions(new LinkedHashSet<String>(permissions));
+        }
+
+        @Override
+        public boolean supports(AuthenticationToken token) {
+            return false;
+        }
+
+        @Override
+        protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+            return null;
+        }
+
+        @Override
+        protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+            return info;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks.authz;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.apache.shiro.benchmarks.Fixtures;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AuthorizingRealm#isPermitted(PrincipalCollection, Permission)} against a cached
+ * {@code AuthorizationInfo} granting 1k to 100k permissions, with and without the compiled permission index.
+ *
+ * @since 2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorizingRealmBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int permissionCount;
+
+    @Param({"true", "false"})
+    boolean permissionIndexing;
+
+    private AuthorizingRealm realm;
+    private PrincipalCollection principals;
+    private Permission first;
+    private Permission last;
+    private Permission denied;
+
+    @Setup
+    public void setup() {
+        realm = new Fixtures.FixedAuthorizationRealm("benchmark", Fixtures.permissionStrings(permissionCount));
+        realm.setCacheManager(new MemoryConstrainedCacheManager());
+        realm.setPermissionIndexingEnabled(permissionIndexing);
+        principals = new SimplePrincipalCollection("jsmith", realm.getName());
+        first = new WildcardPermission(Fixtures.permissionStrings(1).get(0));
+        last = new WildcardPermission(Fixtures.lastGrantedPermission(permissionCount));
+        denied = new WildcardPermission(Fixtures.DENIED_PERMISSION);
+        // populate the authorization cache (and the index) outside of the measurement:
+        realm.isPermitted(principals, first);
+    }
+
+    @Benchmark
+    public boolean isPermittedFirst() {
+        return realm.isPermitted(principals, first);
+    }
+
+    @Benchmark
+    public boolean isPermittedLast() {
+        return realm.isPermitted(principals, last);
+    }
+
+    @Benchmark
+    public boolean isPermittedDenied() {
+        return realm.isPermitted(principals, denied);
+    }
+
+    @Benchmark
+    public boolean isPermittedString() {
+        return realm.isPermitted(principals, Fixtures.DENIED_PERMISSION);
+    }
+}
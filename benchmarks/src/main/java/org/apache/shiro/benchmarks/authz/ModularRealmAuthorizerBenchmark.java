@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks.authz;
+
+import org.apache.shiro.authz.ModularRealmAuthorizer;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.apache.shiro.benchmarks.Fixtures;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ModularRealmAuthorizer} consulting several caching realms, each granting its own set of
+ * permissions, for permissions granted by the first realm, granted by the last realm only, and not granted at all.
+ *
+ * @since 2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModularRealmAuthorizerBenchmark {
+
+    @Param({"1", "4"})
+    int realmCount;
+
+    @Param({"1000", "10000"})
+    int permissionsPerRealm;
+
+    private ModularRealmAuthorizer authorizer;
+    private PrincipalCollection principals;
+    private Permission grantedByFirstRealm;
+    private Permission grantedByLastRealm;
+    private Permission denied;
+    private List<Permission> batch;
+
+    @Setup
+    public void setup() {
+        List<Realm> realms = new ArrayList<Realm>(realmCount);
+        SimplePrincipalCollection pc = new SimplePrincipalCollection();
+        for (int i = 0; i < realmCount; i++) {
+            List<String> permissions = new ArrayList<String>();
+            for (String permission : Fixtures.permissionStrings(permissionsPerRealm)) {
+                permissions.add("realm" + i + permission);
+            }
+            AuthorizingRealm realm = new Fixtures.FixedAuthorizationRealm("realm" + i, permissions);
+            realm.setCacheManager(new MemoryConstrainedCacheManager());
+            realms.add(realm);
+            pc.add("jsmith", realm.getName());
+        }
+        authorizer = new ModularRealmAuthorizer(realms);
+        principals = pc;
+        String last = Fixtures.lastGrantedPermission(permissionsPerRealm);
+        grantedByFirstRealm = new WildcardPermission("realm0" + last);
+        grantedByLastRealm = new WildcardPermission("realm" + (realmCount - 1) + last);
+        denied = new WildcardPermission(Fixtures.DENIED_PERMISSION);
+        batch = Arrays.asList(grantedByFirstRealm, grantedByLastRealm, denied);
+        // populate the authorization caches outside of the measurement:
+        authorizer.isPermitted(principals, denied);
+    }
+
+    @Benchmark
+    public boolean isPermittedFirstRealm() {
+        return authorizer.isPermitted(principals, grantedByFirstRealm);
+    }
+
+    @Benchmark
+    public boolean isPermittedLastRealm() {
+        return authorizer.isPermitted(principals, grantedByLastRealm);
+    }
+
+    @Benchmark
+    public boolean isPermittedDenied() {
+        return authorizer.isPermitted(principals, denied);
+    }
+
+    @Benchmark
+    public boolean[] isPermittedBatch() {
+        return authorizer.isPermitted(principals, batch);
+    }
+}
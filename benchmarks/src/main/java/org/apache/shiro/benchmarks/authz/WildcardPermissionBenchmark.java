@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks.authz;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.CompiledWildcardPermission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing and {@code implies} of the classic {@link WildcardPermission} with the pre-tokenized
+ * {@link CompiledWildcardPermission}.
+ *
+ * @since 2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WildcardPermissionBenchmark {
+
+    @Param({"doc:read:42", "Newsletter:View,Edit,Create:12,13,18", "a:b:c:d:e:f:g:h"})
+    String permission;
+
+    private Permission grantedWildcard;
+    private Permission checkedWildcard;
+    private Permission grantedCompiled;
+    private Permission checkedCompiled;
+
+    @Setup
+    public void setup() {
+        String granted = permission.substring(0, permission.indexOf(':')) + ":*";
+        grantedWildcard = new WildcardPermission(granted);
+        checkedWildcard = new WildcardPermission(permission);
+        grantedCompiled = new CompiledWildcardPermission(granted);
+        checkedCompiled = new CompiledWildcardPermission(permission);
+    }
+
+    @Benchmark
+    public Permission parseWildcard() {
+        return new WildcardPermission(permission);
+    }
+
+    @Benchmark
+    public Permission parseCompiled() {
+        return new CompiledWildcardPermission(permission);
+    }
+
+    @Benchmark
+    public boolean impliesWildcard() {
+        return grantedWildcard.implies(checkedWildcard);
+    }
+
+    @Benchmark
+    public boolean impliesCompiled() {
+        return grantedCompiled.implies(checkedCompiled);
+    }
+
+    @Benchmark
+    public boolean parseAndImpliesWildcard() {
+        return grantedWildcard.implies(new WildcardPermission(permission));
+    }
+
+    @Benchmark
+    public boolean parseAndImpliesCompiled() {
+        return grantedCompiled.implies(new CompiledWildcardPermission(permission));
+    }
+
+    @Benchmark
+    public boolean equalsWildcard() {
+        return checkedWildcard.equals(new WildcardPermission(permission));
+    }
+
+    @Benchmark
+    public boolean equalsCompiled() {
+        return checkedCompiled.equals(new CompiledWildcardPermission(permission));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks.session;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.DefaultSessionContext;
+import org.apache.shiro.session.mgt.DefaultSessionKey;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.session.mgt.SessionKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultSessionManager} operations against a {@code MemorySessionDAO} holding a large number of
+ * active sessions: looking up and touching a session, as done on every request, and a full validation sweep.
+ *
+ * @since 2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionManagerBenchmark {
+
+    @Param({"1000", "100000"})
+    int sessionCount;
+
+    private DefaultSessionManager sessionManager;
+    private SessionKey[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionValidationSchedulerEnabled(false);
+        keys = new SessionKey[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            Session session = sessionManager.start(new DefaultSessionContext());
+            session.setAttribute("user", "user" + i);
+            keys[i] = new DefaultSessionKey(session.getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionManager.destroy();
+    }
+
+    private SessionKey nextKey() {
+        int i = next;
+        next = i + 1 < keys.length ? i + 1 : 0;
+        return keys[i];
+    }
+
+    @Benchmark
+    public Session getSession() {
+        return sessionManager.getSession(nextKey());
+    }
+
+    @Benchmark
+    public Object getAttribute() {
+        return sessionManager.getAttribute(nextKey(), "user");
+    }
+
+    @Benchmark
+    public void touch() {
+        sessionManager.touch(nextKey());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void validateSessions() {
+        sessionManager.validateSessions();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks.subject;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.SubjectContext;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.apache.shiro.subject.support.DelegatingSubject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request cost of building a {@link Subject}: constructing a {@link DelegatingSubject} directly,
+ * and {@link DefaultSecurityManager#createSubject(SubjectContext)} for anonymous, stateless (no session) and
+ * session-backed subjects.
+ *
+ * @since 2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubjectCreationBenchmark {
+
+    private DefaultSecurityManager securityManager;
+    private PrincipalCollection principals;
+    private Session session;
+    private Serializable sessionId;
+
+    @Setup
+    public void setup() {
+        SimpleAccountRealm realm = new SimpleAccountRealm("benchmark");
+        realm.addAccount("jsmith", "secret", "user");
+        securityManager = new DefaultSecurityManager(realm);
+        ((DefaultSessionManager) securityManager.getSessionManager()).setSessionValidationSchedulerEnabled(false);
+        principals = new SimplePrincipalCollection("jsmith", realm.getName());
+
+        SubjectContext context = authenticatedContext();
+        Subject subject = securityManager.createSubject(context);
+        session = subject.getSession();
+        sessionId = session.getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        securityManager.destroy();
+    }
+
+    private SubjectContext authenticatedContext() {
+        SubjectContext context = new DefaultSubjectContext();
+        context.setPrincipals(principals);
+        context.setAuthenticated(true);
+        context.setHost("127.0.0.1");
+        return context;
+    }
+
+    @Benchmark
+    public Subject newDelegatingSubject() {
+        return new DelegatingSubject(principals, true, "127.0.0.1", session, securityManager);
+    }
+
+    @Benchmark
+    public Subject createAnonymousSubject() {
+        return securityManager.createSubject(new DefaultSubjectContext());
+    }
+
+    @Benchmark
+    public Subject createStatelessSubject() {
+        SubjectContext context = authenticatedContext();
+        context.setSessionCreationEnabled(false);
+        return securityManager.createSubject(context);
+    }
+
+    @Benchmark
+    public Subject createSubjectFromSessionId() {
+        SubjectContext context = new DefaultSubjectContext();
+        context.setSessionId(sessionId);
+        return securityManager.createSubject(context);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks.web;
+
+import org.apache.shiro.web.filter.mgt.DefaultFilterChainManager;
+import org.apache.shiro.web.filter.mgt.PathMatchingFilterChainResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PathMatchingFilterChainResolver#getChain} for configurations of 10 to 1000 filter chains, each
+ * made up of several filters, for requests matched by the first chain, by a chain in the middle, by the catch-all
+ * chain configured last, and for a request with a trailing slash.
+ *
+ * @since 2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathMatchingFilterChainResolverBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int chainCount;
+
+    private PathMatchingFilterChainResolver resolver;
+    private FilterChain originalChain;
+    private ServletRequest firstChainRequest;
+    private ServletRequest middleChainRequest;
+    private ServletRequest catchAllRequest;
+    private ServletRequest trailingSlashRequest;
+
+    @Setup
+    public void setup() {
+        DefaultFilterChainManager manager = new DefaultFilterChainManager();
+        for (int i = 0; i < chainCount; i++) {
+            switch (i % 3) {
+                case 0:
+                    manager.createChain("/api/v" + (i % 4) + "/module" + i + "/**",
+                            "noSessionCreation, authcBasic[permissive], roles[user], perms[module" + i + ":read]");
+                    break;
+                case 1:
+                    manager.createChain("/static/module" + i + "/**/*.css", "anon");
+                    break;
+                default:
+                    manager.createChain("/admin/module" + i + "/*/settings",
+                            "authc, roles[admin], perms[module" + i + ":admin], rest[module" + i + "]");
+                    break;
+            }
+        }
+        manager.createChain("/**", "authc");
+
+        resolver = new PathMatchingFilterChainResolver();
+        resolver.setFilterChainManager(manager);
+        originalChain = (request, response) -> { };
+
+        int middle = chainCount / 2 - (chainCount / 2) % 3;
+        firstChainRequest = request("/api/v0/module0/items/42");
+        middleChainRequest = request("/api/v" + (middle % 4) + "/module" + middle + "/items/42");
+        catchAllRequest = request("/unmapped/resource/42");
+        trailingSlashRequest = request("/admin/module2/general/settings/");
+    }
+
+    /**
+     * Returns a minimal request exposing only the servlet path, which is all the resolver inspects.
+     */
+    private static ServletRequest request(String servletPath) {
+        return (ServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+                if ("getServletPath".equals(method.getName())) {
+                    return servletPath;
+                }
+                return null;
+            });
+    }
+
+    @Benchmark
+    public FilterChain getChainFirst() {
+        return resolver.getChain(firstChainRequest, null, originalChain);
+    }
+
+    @Benchmark
+    public FilterChain getChainMiddle() {
+        return resolver.getChain(middleChainRequest, null, originalChain);
+    }
+
+    @Benchmark
+    public FilterChain getChainCatchAll() {
+        return resolver.getChain(catchAllRequest, null, originalChain);
+    }
+
+    @Benchmark
+    public FilterChain getChainTrailingSlash() {
+        return resolver.getChain(trailingSlashRequest, null, originalChain);
+    }
+}
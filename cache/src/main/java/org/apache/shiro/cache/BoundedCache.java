@@ -0,0 +1,680 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+import org.apache.shiro.lang.util.Destroyable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe, in-memory {@link Cache Cache} with an explicit size (or weight) limit, optional time-to-live and
+ * time-to-idle expiry and hit, miss, eviction and expiration {@link #getStatistics() statistics}.
+ * <p/>
+ * Entries live in a {@link ConcurrentHashMap}, so lookups never block: a {@link #get get} only records the access in
+ * a small, lossy ring buffer.  The eviction policy's bookkeeping is replayed from that buffer (and from a queue of
+ * additions and removals) by whichever thread next acquires the eviction lock - writers always do, readers only try
+ * to and carry on if another thread is already doing it.
+ * <p/>
+ * The eviction policy is W-TinyLFU: new entries enter a small LRU <em>window</em> (1% of the capacity); entries
+ * leaving the window compete for a place in the <em>main</em> segmented LRU (an 80% <em>protected</em> segment of
+ * entries accessed more than once and a <em>probation</em> segment).  When the cache is over its limit the newest
+ * probation entry and the least recently used probation entry are compared using a {@link FrequencySketch frequency
+ * sketch} of recent accesses and the less popular one is evicted.  Unlike a {@code SoftReference}-based cache, this
+ * keeps frequently used entries cached under memory pressure and is resistant to one-off scans.
+ * <p/>
+ * Expired entries are never returned; they are removed when they are looked up or during the eviction policy's
+ * maintenance.  As a consequence {@link #size()} may briefly include expired entries.  {@code null} values are not
+ * stored: {@link #put put}ting a {@code null} value removes the entry.
+ *
+ * @param <K> the type of the cache keys
+ * @param <V> the type of the cache values
+ * @see BoundedCacheManager
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MethodCount")
+public class BoundedCache<K, V> implements Cache<K, V>, Destroyable {
+
+    private static final int READ_BUFFER_SIZE = 128;
+
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    /**
+     * Readers try to replay the read buffer every 32 reads.
+     */
+    private static final int DRAIN_MASK = 31;
+
+    private static final int WINDOW_PERCENTAGE = 1;
+
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    private static final int PERCENT = 100;
+
+    private static final int NONE = 0;
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private final String name;
+
+    private final long maximumWeight;
+
+    private final Weigher<? super K, ? super V> weigher;
+
+    private final long timeToLiveNanos;
+
+    private final long timeToIdleNanos;
+
+    private final LongSupplier ticker;
+
+    private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+    private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+    private final AtomicInteger readCount = new AtomicInteger();
+
+    /**
+     * Nodes that were added to or removed from {@link #data} and still need to be linked into or unlinked from the
+     * policy's queues.
+     */
+    private final Queue<Node<K, V>> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // the following are guarded by the evictionLock:
+
+    private final FrequencySketch sketch;
+
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+    private final NodeDeque<K, V> protectedSegment = new NodeDeque<>(false);
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private long weightedSize;
+    private long windowWeight;
+    private long protectedWeight;
+
+    /**
+     * Creates a new cache holding at most {@code maximumSize} entries that do not expire.
+     *
+     * @param name        the name of the cache
+     * @param maximumSize the maximum number of entries
+     */
+    public BoundedCache(String name, long maximumSize) {
+        this(name, maximumSize, null, 0, 0);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param name          the name of the cache
+     * @param maximumWeight the maximum total weight of all entries, or their maximum number if {@code weigher} is
+     *                      {@code null}
+     * @param weigher       calculates the weight of each entry, {@code null} to give every entry a weight of one
+     * @param timeToLive    the time, in milliseconds, after which an entry expires once it has been added or
+     *                      replaced, {@code 0} to not expire entries based on their age
+     * @param timeToIdle    the time, in milliseconds, after which an entry expires if it has not been accessed,
+     *                      {@code 0} to not expire entries based on their last access
+     */
+    public BoundedCache(String name, long maximumWeight, Weigher<? super K, ? super V> weigher,
+                        long timeToLive, long timeToIdle) {
+        this(name, maximumWeight, weigher, timeToLive, timeToIdle, 0);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param name            the name of the cache
+     * @param maximumWeight   the maximum total weight of all entries, or their maximum number if {@code weigher} is
+     *                        {@code null}
+     * @param weigher         calculates the weight of each entry, {@code null} to give every entry a weight of one
+     * @param timeToLive      the time, in milliseconds, after which an entry expires once it has been added or
+     *                        replaced, {@code 0} to not expire entries based on their age
+     * @param timeToIdle      the time, in milliseconds, after which an entry expires if it has not been accessed,
+     *                        {@code 0} to not expire entries based on their last access
+     * @param expectedEntries the expected number of entries if a {@code weigher} is used, or {@code 0} if unknown.
+     *                        Used to size the frequency sketch, which otherwise starts small and grows with the
+     *                        number of entries.  Ignored without a {@code weigher}.
+     */
+    public BoundedCache(String name, long maximumWeight, Weigher<? super K, ? super V> weigher,
+                        long timeToLive, long timeToIdle, long expectedEntries) {
+        this(name, maximumWeight, weigher, timeToLive, timeToIdle, expectedEntries, System::nanoTime);
+    }
+
+    BoundedCache(String name, long maximumWeight, Weigher<? super K, ? super V> weigher,
+                 long timeToLive, long timeToIdle, long expectedEntries, LongSupplier ticker) {
+        if (name == null) {
+            throw new IllegalArgumentException("Cache name cannot be null.");
+        }
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Cache maximum size or weight must be greater than zero.");
+        }
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("Cache expected entries cannot be negative.");
+        }
+        if (timeToLive < 0 || timeToIdle < 0) {
+            throw new IllegalArgumentException("Cache expiry times cannot be negative.");
+        }
+        this.name = name;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.timeToIdleNanos = TimeUnit.MILLISECONDS.toNanos(timeToIdle);
+        this.ticker = ticker;
+        // with a weigher, the maximum weight says nothing about the number of entries:
+        this.sketch = new FrequencySketch(weigher != null ? expectedEntries : maximumWeight);
+        this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENTAGE / PERCENT);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * PROTECTED_PERCENTAGE / PERCENT;
+    }
+
+    /**
+     * Returns the name of this cache.
+     *
+     * @return the name of this cache.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the maximum total weight (or number, if no {@link Weigher} is used) of the entries in this cache.
+     *
+     * @return the maximum total weight of the entries in this cache.
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns a snapshot of this cache's hit, miss, eviction and expiration counts.
+     *
+     * @return a snapshot of this cache's statistics.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    public V get(K key) throws CacheException {
+        Node<K, V> node = key != null ? data.get(key) : null;
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        long now = expires() ? ticker.getAsLong() : 0L;
+        if (hasExpired(node, now)) {
+            expireOnRead(node);
+            misses.increment();
+            return null;
+        }
+        if (timeToIdleNanos > 0) {
+            node.accessTime = now;
+        }
+        recordRead(node);
+        hits.increment();
+        return node.value;
+    }
+
+    public V put(K key, V value) throws CacheException {
+        if (key == null) {
+            throw new IllegalArgumentException("Cache key cannot be null.");
+        }
+        if (value == null) {
+            return remove(key);
+        }
+        int weight = weigher != null ? weigher.weigh(key, value) : 1;
+        if (weight < 0) {
+            throw new IllegalArgumentException("Cache entry weight cannot be negative.");
+        }
+        long now = expires() ? ticker.getAsLong() : 0L;
+        Node<K, V> node = new Node<>(key, value, weight, now);
+        Node<K, V> previous = data.put(key, node);
+        writeBuffer.add(node);
+        if (previous != null) {
+            retire(previous);
+        }
+        maintain();
+        return valueOf(previous, now);
+    }
+
+    public V remove(K key) throws CacheException {
+        Node<K, V> previous = key != null ? data.remove(key) : null;
+        if (previous == null) {
+            return null;
+        }
+        retire(previous);
+        maintain();
+        return valueOf(previous, expires() ? ticker.getAsLong() : 0L);
+    }
+
+    public void clear() throws CacheException {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    retire(node);
+                }
+            }
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in this cache, which may include expired entries that have not been removed yet.
+     *
+     * @return the number of entries in this cache.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    public Set<K> keys() {
+        long now = expires() ? ticker.getAsLong() : 0L;
+        Set<K> keys = new LinkedHashSet<>();
+        for (Node<K, V> node : data.values()) {
+            if (!hasExpired(node, now)) {
+                keys.add(node.key);
+            }
+        }
+        return keys.isEmpty() ? Collections.<K>emptySet() : Collections.unmodifiableSet(keys);
+    }
+
+    public Collection<V> values() {
+        long now = expires() ? ticker.getAsLong() : 0L;
+        List<V> values = new ArrayList<>();
+        for (Node<K, V> node : data.values()) {
+            if (!hasExpired(node, now)) {
+                values.add(node.value);
+            }
+        }
+        return values.isEmpty() ? Collections.<V>emptyList() : Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Clears this cache.
+     */
+    public void destroy() {
+        clear();
+    }
+
+    private boolean expires() {
+        return timeToLiveNanos > 0 || timeToIdleNanos > 0;
+    }
+
+    private boolean hasExpired(Node<K, V> node, long now) {
+        return (timeToLiveNanos > 0 && now - node.writeTime >= timeToLiveNanos)
+                || (timeToIdleNanos > 0 && now - node.accessTime >= timeToIdleNanos);
+    }
+
+    private V valueOf(Node<K, V> node, long now) {
+        return node != null && !hasExpired(node, now) ? node.value : null;
+    }
+
+    /**
+     * Marks a node that has been removed from {@link #data} and schedules its removal from the policy's queues.
+     */
+    private void retire(Node<K, V> node) {
+        node.retired = true;
+        writeBuffer.add(node);
+    }
+
+    private void expireOnRead(Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            expirations.increment();
+            retire(node);
+        }
+        tryMaintenance();
+    }
+
+    private void recordRead(Node<K, V> node) {
+        int count = readCount.getAndIncrement();
+        readBuffer.lazySet(count & READ_BUFFER_MASK, node);
+        if ((count & DRAIN_MASK) == DRAIN_MASK) {
+            tryMaintenance();
+        }
+    }
+
+    private void tryMaintenance() {
+        if (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void maintain() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void maintenance() {
+        drainReadBuffer();
+        drainWriteBuffer();
+        if (expires()) {
+            expireEntries(ticker.getAsLong());
+        }
+        evictEntries();
+    }
+
+    private void drainReadBuffer() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node<K, V> node = readBuffer.getAndSet(i, null);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+    }
+
+    private void drainWriteBuffer() {
+        Node<K, V> node;
+        while ((node = writeBuffer.poll()) != null) {
+            if (node.retired) {
+                unlink(node);
+            } else if (node.queue == NONE) {
+                link(node);
+            }
+        }
+    }
+
+    private void link(Node<K, V> node) {
+        if (weigher != null) {
+            sketch.ensureCapacity(data.size());
+        }
+        sketch.increment(node.key);
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        weightedSize += node.weight;
+        if (timeToLiveNanos > 0) {
+            writeOrder.addLast(node);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedSegment.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+        weightedSize -= node.weight;
+        node.queue = NONE;
+        if (timeToLiveNanos > 0) {
+            writeOrder.remove(node);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.retired || node.queue == NONE) {
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROTECTED) {
+            protectedSegment.moveToLast(node);
+        } else {
+            // a second access promotes a probation entry into the protected segment:
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedSegment.addLast(node);
+            protectedWeight += node.weight;
+            demoteProtected();
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> node = protectedSegment.peekFirst();
+            protectedSegment.remove(node);
+            protectedWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    private void expireEntries(long now) {
+        Node<K, V> node;
+        if (timeToLiveNanos > 0) {
+            while ((node = writeOrder.peekFirst()) != null && now - node.writeTime >= timeToLiveNanos) {
+                expire(node);
+            }
+        }
+        if (timeToIdleNanos > 0) {
+            expireIdle(window, now);
+            expireIdle(probation, now);
+            expireIdle(protectedSegment, now);
+        }
+    }
+
+    private void expireIdle(NodeDeque<K, V> deque, long now) {
+        // the queues are (approximately) in access order, so the least recently accessed entries are at the front:
+        Node<K, V> node;
+        while ((node = deque.peekFirst()) != null && now - node.accessTime >= timeToIdleNanos) {
+            expire(node);
+        }
+    }
+
+    private void expire(Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            node.retired = true;
+            expirations.increment();
+        }
+        unlink(node);
+    }
+
+    private void evictEntries() {
+        // entries leaving the window become candidates for the main segments:
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.peekFirst();
+            window.remove(node);
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+        while (weightedSize > maximumWeight) {
+            Node<K, V> victim = selectVictim();
+            if (data.remove(victim.key, victim)) {
+                victim.retired = true;
+                evictions.increment();
+            }
+            unlink(victim);
+        }
+    }
+
+    /**
+     * Applies the TinyLFU admission policy: the newest probation entry (the candidate that just left the window) is
+     * only kept if it is more popular than the least recently used probation entry (the victim).
+     */
+    private Node<K, V> selectVictim() {
+        Node<K, V> victim = probation.peekFirst();
+        if (victim == null) {
+            victim = protectedSegment.peekFirst();
+            return victim != null ? victim : window.peekFirst();
+        }
+        Node<K, V> candidate = probation.peekLast();
+        if (candidate == victim) {
+            return victim;
+        }
+        return sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+    }
+
+    public String toString() {
+        return new StringBuilder("BoundedCache '")
+                .append(name).append("' (")
+                .append(data.size())
+                .append(" entries)")
+                .toString();
+    }
+
+    /**
+     * A cache entry.  Entries are immutable except for their access time and their links, which are only accessed
+     * while holding the eviction lock; replacing a value creates a new entry.
+     */
+    static final class Node<K, V> {
+        final K key;
+        final V value;
+        final int weight;
+        final long writeTime;
+        volatile long accessTime;
+        volatile boolean retired;
+
+        int queue;
+        Node<K, V> previous;
+        Node<K, V> next;
+        Node<K, V> previousWrite;
+        Node<K, V> nextWrite;
+        boolean inWriteOrder;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * An intrusive doubly-linked list of nodes, linked either by their access order or their write order links.
+     */
+    static final class NodeDeque<K, V> {
+        private final boolean writeOrder;
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        NodeDeque(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        Node<K, V> peekLast() {
+            return last;
+        }
+
+        void addLast(Node<K, V> node) {
+            setPrevious(node, last);
+            setNext(node, null);
+            if (last == null) {
+                first = node;
+            } else {
+                setNext(last, node);
+            }
+            last = node;
+            if (writeOrder) {
+                node.inWriteOrder = true;
+            }
+        }
+
+        void remove(Node<K, V> node) {
+            if (writeOrder && !node.inWriteOrder) {
+                return;
+            }
+            Node<K, V> previous = previous(node);
+            Node<K, V> next = next(node);
+            if (previous == null) {
+                first = next;
+            } else {
+                setNext(previous, next);
+            }
+            if (next == null) {
+                last = previous;
+            } else {
+                setPrevious(next, previous);
+            }
+            setPrevious(node, null);
+            setNext(node, null);
+            if (writeOrder) {
+                node.inWriteOrder = false;
+            }
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private Node<K, V> previous(Node<K, V> node) {
+            return writeOrder ? node.previousWrite : node.previous;
+        }
+
+        private Node<K, V> next(Node<K, V> node) {
+            return writeOrder ? node.nextWrite : node.next;
+        }
+
+        private void setPrevious(Node<K, V> node, Node<K, V> previous) {
+            if (writeOrder) {
+                node.previousWrite = previous;
+            } else {
+                node.previous = previous;
+            }
+        }
+
+        private void setNext(Node<K, V> node, Node<K, V> next) {
+            if (writeOrder) {
+                node.nextWrite = next;
+            } else {
+                node.next = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+/**
+ * Memory-only {@link CacheManager CacheManager} producing {@link BoundedCache BoundedCache}s: caches with an explicit
+ * limit on the number (or total {@link #setWeigher(Weigher) weight}) of their entries, a frequency-aware eviction
+ * policy, optional time-to-live and time-to-idle expiry, non-blocking reads and hit, miss and eviction statistics.
+ * <p/>
+ * Unlike the {@link MemoryConstrainedCacheManager}, whose caches are emptied by the garbage collector under memory
+ * pressure and serialize every read through a lock, the caches created here only ever evict entries to stay within
+ * their configured limit and keep the most frequently used entries.  For example, in {@code shiro.ini}:
+ * <pre>
+ * cacheManager = org.apache.shiro.cache.BoundedCacheManager
+ * cacheManager.maximumSize = 50000
+ * cacheManager.timeToLive = 1800000
+ * securityManager.cacheManager = $cacheManager
+ * </pre>
+ * The configuration applies to the caches created after it has been set, so it should be set before the cache
+ * manager is used.
+ *
+ * @since 2.0
+ */
+public class BoundedCacheManager extends AbstractCacheManager {
+
+    /**
+     * The default maximum number of entries per cache, {@value}.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    private long maximumWeight;
+
+    private long expectedEntries;
+
+    private Weigher<Object, Object> weigher;
+
+    private long timeToLive;
+
+    private long timeToIdle;
+
+    public BoundedCacheManager() {
+        super();
+    }
+
+    /**
+     * Returns the maximum number of entries of each cache, ignored if a {@link #getWeigher() weigher} is configured.
+     * Defaults to {@link #DEFAULT_MAXIMUM_SIZE}.
+     *
+     * @return the maximum number of entries of each cache.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the maximum number of entries of each cache, ignored if a {@link #getWeigher() weigher} is configured.
+     *
+     * @param maximumSize the maximum number of entries of each cache.
+     * @throws IllegalArgumentException if {@code maximumSize} is not positive.
+     */
+    public void setMaximumSize(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be greater than zero.");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the maximum total weight of the entries of each cache, only used if a {@link #getWeigher() weigher} is
+     * configured.
+     *
+     * @return the maximum total weight of the entries of each cache.
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Sets the maximum total weight of the entries of each cache, only used (and then required) if a
+     * {@link #getWeigher() weigher} is configured.
+     *
+     * @param maximumWeight the maximum total weight of the entries of each cache.
+     * @throws IllegalArgumentException if {@code maximumWeight} is not positive.
+     */
+    public void setMaximumWeight(long maximumWeight) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be greater than zero.");
+        }
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Returns the expected number of entries of each cache, only used if a {@link #getWeigher() weigher} is
+     * configured.  Defaults to {@code 0} (unknown).
+     *
+     * @return the expected number of entries of each cache, or {@code 0} if unknown.
+     */
+    public long getExpectedEntries() {
+        return expectedEntries;
+    }
+
+    /**
+     * Sets the expected number of entries of each cache, only used if a {@link #getWeigher() weigher} is configured,
+     * to size the caches' frequency sketch up front instead of growing it as the caches fill up.
+     *
+     * @param expectedEntries the expected number of entries of each cache, or {@code 0} if unknown.
+     * @throws IllegalArgumentException if {@code expectedEntries} is negative.
+     */
+    public void setExpectedEntries(long expectedEntries) {
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("expectedEntries cannot be negative.");
+        }
+        this.expectedEntries = expectedEntries;
+    }
+
+    /**
+     * Returns the {@code Weigher} used to calculate the weight of cache entries, or {@code null} (the default) if
+     * caches are limited by their {@link #getMaximumSize() number of entries}.
+     *
+     * @return the {@code Weigher} used to calculate the weight of cache entries, or {@code null}.
+     */
+    public Weigher<Object, Object> getWeigher() {
+        return weigher;
+    }
+
+    /**
+     * Sets the {@code Weigher} used to calculate the weight of cache entries.  When set, caches are limited by the
+     * {@link #setMaximumWeight(long) maximumWeight} of their entries instead of their number.
+     *
+     * @param weigher the {@code Weigher} used to calculate the weight of cache entries.
+     */
+    public void setWeigher(Weigher<Object, Object> weigher) {
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the time in milliseconds after which entries expire once they have been added or replaced, {@code 0}
+     * (the default) if entries do not expire based on their age.
+     *
+     * @return the time-to-live of cache entries in milliseconds.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time in milliseconds after which entries expire once they have been added or replaced, {@code 0} to
+     * not expire entries based on their age.
+     *
+     * @param timeToLive the time-to-live of cache entries in milliseconds.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the time in milliseconds after which entries expire if they have not been accessed, {@code 0}
+     * (the default) if entries do not expire based on their last access.
+     *
+     * @return the time-to-idle of cache entries in milliseconds.
+     */
+    public long getTimeToIdle() {
+        return timeToIdle;
+    }
+
+    /**
+     * Sets the time in milliseconds after which entries expire if they have not been accessed, {@code 0} to not
+     * expire entries based on their last access.
+     *
+     * @param timeToIdle the time-to-idle of cache entries in milliseconds.
+     */
+    public void setTimeToIdle(long timeToIdle) {
+        this.timeToIdle = timeToIdle;
+    }
+
+    /**
+     * Returns a new {@link BoundedCache BoundedCache} reflecting this manager's current configuration.
+     *
+     * @param name the name of the cache
+     * @return a new {@link BoundedCache BoundedCache}.
+     * @throws IllegalStateException if a {@link #setWeigher(Weigher) weigher} is configured without a
+     *                               {@link #setMaximumWeight(long) maximumWeight}.
+     */
+    @Override
+    protected <K, V> Cache<K, V> createCache(String name) {
+        if (weigher != null) {
+            if (maximumWeight <= 0) {
+                throw new IllegalStateException("The maximumWeight property must be set when a weigher is configured.");
+            }
+            return new BoundedCache<K, V>(name, maximumWeight, weigher, timeToLive, timeToIdle, expectedEntries);
+        }
+        return new BoundedCache<K, V>(name, maximumSize, null, timeToLive, timeToIdle);
+    }
+}
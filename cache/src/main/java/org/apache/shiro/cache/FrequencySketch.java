@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+/**
+ * A probabilistic, aging estimate of how often keys have been accessed, used by {@link BoundedCache} to decide
+ * whether a new entry deserves to replace an existing one (the TinyLFU admission policy).
+ * <p/>
+ * This is a count-min sketch of 4-bit counters, sixteen to a {@code long}.  Each key increments four counters
+ * selected by independent hashes and its frequency is the smallest of them, so collisions can only overestimate it.
+ * Once the number of increments reaches ten times the number of counter words, every counter is halved so that the
+ * sketch favors recent popularity over historical popularity.
+ * <p/>
+ * The sketch should have about as many counter words as the cache has entries.  Caches whose number of entries is not
+ * known in advance (because they are limited by weight) start with a small sketch and {@link #ensureCapacity grow}
+ * it as their number of entries rises; growing discards the collected frequencies.
+ * <p/>
+ * Instances are not thread-safe; {@code BoundedCache} only accesses its sketch while holding its eviction lock.
+ *
+ * @since 2.0
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L,
+    };
+
+    private static final int SPREAD_MULTIPLIER = 0x9e3779b9;
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private static final int COUNTER_MASK = 15;
+
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private static final int SAMPLE_FACTOR = 10;
+
+    private long[] table = new long[0];
+
+    private int tableMask;
+
+    private int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(long expectedEntries) {
+        ensureCapacity(Math.max(expectedEntries, MIN_TABLE_SIZE));
+    }
+
+    /**
+     * Grows the sketch to suit the specified number of entries, if it is currently smaller.
+     */
+    void ensureCapacity(long expectedEntries) {
+        if (expectedEntries <= table.length || table.length >= MAX_TABLE_SIZE) {
+            return;
+        }
+        int size = Math.max(MIN_TABLE_SIZE, table.length);
+        while (size < expectedEntries && size < MAX_TABLE_SIZE) {
+            size <<= 1;
+        }
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = SAMPLE_FACTOR * size;
+        this.additions = 0;
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int count = (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & COUNTER_MASK);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int offset = offsetOf(hash, i);
+            if (((table[index] >>> offset) & COUNTER_MASK) != MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> Integer.SIZE;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Selects one of the sixteen 4-bit counters in a table word, using a different nibble of the hash per function.
+     */
+    private static int offsetOf(int hash, int i) {
+        return ((hash >>> (i * Byte.SIZE)) & COUNTER_MASK) * 4;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * SPREAD_MULTIPLIER;
+        return h ^ (h >>> (Integer.SIZE / 2));
+    }
+}
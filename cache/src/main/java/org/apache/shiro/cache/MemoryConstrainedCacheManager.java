@@ -30,7 +30,11 @@ import org.apache.shiro.lang.util.SoftHashMap;
  * cache coherency, optimistic locking, failover or other similar features.  For more enterprise features, consider
  * using a different {@code CacheManager} implementation backed by an enterprise-grade caching product (Hazelcast,
  * EhCache, TerraCotta, Coherence, GigaSpaces, etc., etc.).
+ * <p/>
+ * Because the garbage collector decides when entries are evicted, memory pressure may empty these caches all at
+ * once.  Consider the {@link BoundedCacheManager} for caches with an explicit size limit and expiry.
  *
+ * @see BoundedCacheManager
  * @since 1.0
  */
 public class MemoryConstrainedCacheManager extends AbstractCacheManager {
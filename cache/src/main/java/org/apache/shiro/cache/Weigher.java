@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+/**
+ * Calculates the weight of a cache entry, used by {@link BoundedCache BoundedCache}s to enforce a maximum total
+ * weight instead of a maximum number of entries.
+ *
+ * @param <K> the type of the cache keys
+ * @param <V> the type of the cache values
+ * @see BoundedCacheManager#setWeigher(Weigher)
+ * @since 2.0
+ */
+public interface Weigher<K, V> {
+
+    /**
+     * Returns the weight of the specified entry.  The weight is calculated once, when the entry is added to the cache.
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     * @return the non-negative weight of the entry
+     */
+    int weigh(K key, V value);
+}
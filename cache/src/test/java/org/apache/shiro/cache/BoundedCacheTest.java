@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class BoundedCacheTest {
+
+    private static final int CAPACITY = 100;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testBasicOperationsAndStatistics() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", CAPACITY);
+        assertNull(cache.get("a"));
+        assertNull(cache.put("a", "1"));
+        assertEquals("1", cache.put("a", "2"));
+        assertEquals("2", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals("2", cache.remove("a"));
+        assertNull(cache.remove("a"));
+        assertNull(cache.get("a"));
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(0, statistics.getEvictionCount());
+    }
+
+    @Test
+    void testNullValueRemovesEntry() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", CAPACITY);
+        cache.put("a", "1");
+        assertEquals("1", cache.put("a", null));
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> cache.put(null, "1"));
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>("test", CAPACITY);
+        for (int i = 0; i < CAPACITY * 10; i++) {
+            cache.put(i, i);
+            assertTrue(cache.size() <= CAPACITY, "Cache exceeded its maximum size");
+        }
+        assertEquals(CAPACITY, cache.size());
+        assertEquals(CAPACITY * 9, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    void testFrequentlyUsedEntriesSurviveScan() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", CAPACITY);
+        int hot = CAPACITY / 2;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < hot; i++) {
+                cache.put("hot" + i, "value");
+                cache.get("hot" + i);
+            }
+        }
+        // a one-off scan of many keys must not flush the popular ones:
+        for (int i = 0; i < CAPACITY * 10; i++) {
+            cache.put("scan" + i, "value");
+        }
+        int retained = 0;
+        for (int i = 0; i < hot; i++) {
+            if (cache.get("hot" + i) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= hot * 9 / 10, "Only " + retained + " of " + hot + " hot entries were retained");
+    }
+
+    @Test
+    void testWeightIsBounded() {
+        Weigher<String, String> weigher = (key, value) -> value.length();
+        BoundedCache<String, String> cache = new BoundedCache<>("test", CAPACITY, weigher, 0, 0);
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.put("key" + i, "0123456789");
+        }
+        int weight = 0;
+        for (String value : cache.values()) {
+            weight += value.length();
+        }
+        assertTrue(weight <= CAPACITY, "Cache exceeded its maximum weight");
+        assertEquals(CAPACITY / 10, cache.size());
+    }
+
+    @Test
+    void testTimeToLive() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", CAPACITY, null, 1000, 0, 0, nanos::get);
+        cache.put("a", "1");
+        advance(500);
+        assertEquals("1", cache.get("a"));
+        cache.put("b", "2");
+        advance(500);
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals(1, cache.keys().size());
+        advance(500);
+        cache.put("c", "3");
+        // expired entries are removed by the maintenance performed on writes:
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getStatistics().getExpirationCount());
+    }
+
+    @Test
+    void testTimeToIdle() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", CAPACITY, null, 0, 1000, 0, nanos::get);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        for (int i = 0; i < 3; i++) {
+            advance(600);
+            assertEquals("1", cache.get("a"));
+        }
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.values().size());
+    }
+
+    @Test
+    void testClear() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>("test", CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.put(i, i);
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertTrue(cache.keys().isEmpty());
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(CAPACITY, cache.size());
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>("test", CAPACITY);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        int key = (i * 31 + offset) % (CAPACITY * 3);
+                        Integer value = cache.get(key);
+                        if (value == null) {
+                            cache.put(key, key);
+                        } else {
+                            assertEquals(key, value.intValue());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        cache.put(-1, -1);
+        assertTrue(cache.size() <= CAPACITY, "Cache exceeded its maximum size");
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(80000, statistics.getRequestCount());
+    }
+
+    @Test
+    void testFrequencySketchGrowsWithEntries() {
+        // a weighed cache's sketch is sized by its number of entries, not by its maximum weight:
+        Weigher<String, String> weigher = (key, value) -> 1 << 20;
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 1L << 40, weigher, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value");
+        }
+        assertEquals(100, cache.size());
+
+        FrequencySketch sketch = new FrequencySketch(0);
+        assertEquals(16, sketch.capacity());
+        sketch.ensureCapacity(1000);
+        assertEquals(1024, sketch.capacity());
+        sketch.ensureCapacity(10);
+        assertEquals(1024, sketch.capacity());
+    }
+
+    @Test
+    void testCacheManager() {
+        BoundedCacheManager manager = new BoundedCacheManager();
+        manager.setMaximumSize(2);
+        Cache<String, String> cache = manager.getCache("test");
+        assertTrue(cache instanceof BoundedCache);
+        assertEquals(2, ((BoundedCache<String, String>) cache).getMaximumWeight());
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        assertEquals(2, cache.size());
+
+        manager.setWeigher((key, value) -> 10);
+        assertThrows(IllegalStateException.class, () -> manager.getCache("unweighed"));
+        assertThrows(IllegalArgumentException.class, () -> manager.setMaximumWeight(0));
+        manager.setMaximumWeight(1000);
+        assertEquals(1000, ((BoundedCache<Object, Object>) manager.getCache("weighed")).getMaximumWeight());
+    }
+}
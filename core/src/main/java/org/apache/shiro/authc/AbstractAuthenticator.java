@@ -19,11 +19,17 @@
 package org.apache.shiro.authc;
 
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.lang.util.SharedExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -58,6 +64,11 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
      */
     private Collection<AuthenticationListener> listeners;
 
+    /**
+     * The executor blocking authentication work is run on during asynchronous authentication attempts.
+     */
+    private volatile Executor asyncExecutor;
+
     /*-------------------------------------------
     |         C O N S T R U C T O R S           |
     ============================================*/
@@ -197,45 +208,109 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
         try {
             info = doAuthenticate(token);
             if (info == null) {
-                String msg = "No account information found for authentication token [" + token + "] by this "
-                        + "Authenticator instance.  Please check that it is configured correctly.";
-                throw new AuthenticationException(msg);
+                throw noAccountInformation(token);
             }
         } catch (Throwable t) {
-            AuthenticationException ae = null;
-            if (t instanceof AuthenticationException) {
-                ae = (AuthenticationException) t;
+            throw failed(token, t);
+        }
+
+        LOGGER.debug("Authentication successful for token [{}].  Returned account [{}]", token, info);
+
+        notifySuccess(token, info);
+
+        return info;
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #authenticate(AuthenticationToken) authenticate} that calls the
+     * {@link #doAuthenticateAsync doAuthenticateAsync} template method instead of {@code doAuthenticate}, and then
+     * notifies any registered {@link AuthenticationListener AuthenticationListener}s of the outcome exactly as
+     * {@code authenticate} does.  The returned stage completes exceptionally with the same
+     * {@code AuthenticationException} that {@code authenticate} would throw.
+     *
+     * @param token the submitted token representing the subject's (user's) login principals and credentials.
+     * @return a stage that completes with the AuthenticationInfo referencing the authenticated user's account data.
+     * @since 2.0
+     */
+    @Override
+    public final CompletionStage<AuthenticationInfo> authenticateAsync(AuthenticationToken token) {
+
+        if (token == null) {
+            throw new IllegalArgumentException("Method argument (authentication token) cannot be null.");
+        }
+
+        LOGGER.trace("Asynchronous authentication attempt received for token [{}]", token);
+
+        CompletionStage<AuthenticationInfo> stage;
+        try {
+            stage = doAuthenticateAsync(token);
+        } catch (Throwable t) {
+            stage = CompletableFuture.failedFuture(t);
+        }
+
+        CompletableFuture<AuthenticationInfo> result = new CompletableFuture<AuthenticationInfo>();
+        stage.whenComplete((info, t) -> {
+            if (t == null && info == null) {
+                t = noAccountInformation(token);
             }
-            if (ae == null) {
-                //Exception thrown was not an expected AuthenticationException.  Therefore it is probably a little more
-                //severe or unexpected.  So, wrap in an AuthenticationException, log to warn, and propagate:
-                String msg = "Authentication failed for token submission [" + token + "].  Possible unexpected "
-                        + "error? (Typical or expected login exceptions should extend from AuthenticationException).";
-                ae = new AuthenticationException(msg, t);
-                if (LOGGER.isWarnEnabled()) {
-                    LOGGER.warn(msg, t);
-                }
+            if (t != null) {
+                result.completeExceptionally(failed(token, unwrap(t)));
+                return;
             }
+            LOGGER.debug("Authentication successful for token [{}].  Returned account [{}]", token, info);
             try {
-                notifyFailure(token, ae);
-            } catch (Throwable t2) {
-                if (LOGGER.isWarnEnabled()) {
-                    String msg = "Unable to send notification for failed authentication attempt - listener error?.  "
-                            + "Please check your AuthenticationListener implementation(s).  Logging sending exception "
-                            + "and propagating original AuthenticationException instead...";
-                    LOGGER.warn(msg, t2);
-                }
+                notifySuccess(token, info);
+                result.complete(info);
+            } catch (Throwable listenerError) {
+                result.completeExceptionally(listenerError);
             }
+        });
+        return result;
+    }
 
+    private static AuthenticationException noAccountInformation(AuthenticationToken token) {
+        String msg = "No account information found for authentication token [" + token + "] by this "
+                + "Authenticator instance.  Please check that it is configured correctly.";
+        return new AuthenticationException(msg);
+    }
 
-            throw ae;
+    /**
+     * Converts the specified failure to an {@code AuthenticationException} if necessary and notifies any registered
+     * listeners of it, returning the exception to propagate.
+     */
+    private AuthenticationException failed(AuthenticationToken token, Throwable t) {
+        AuthenticationException ae = null;
+        if (t instanceof AuthenticationException) {
+            ae = (AuthenticationException) t;
         }
+        if (ae == null) {
+            //Exception thrown was not an expected AuthenticationException.  Therefore it is probably a little more
+            //severe or unexpected.  So, wrap in an AuthenticationException, log to warn, and propagate:
+            String msg = "Authentication failed for token submission [" + token + "].  Possible unexpected "
+                    + "error? (Typical or expected login exceptions should extend from AuthenticationException).";
+            ae = new AuthenticationException(msg, t);
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn(msg, t);
+            }
+        }
+        try {
+            notifyFailure(token, ae);
+        } catch (Throwable t2) {
+            if (LOGGER.isWarnEnabled()) {
+                String msg = "Unable to send notification for failed authentication attempt - listener error?.  "
+                        + "Please check your AuthenticationListener implementation(s).  Logging sending exception "
+                        + "and propagating original AuthenticationException instead...";
+                LOGGER.warn(msg, t2);
+            }
+        }
+        return ae;
+    }
 
-        LOGGER.debug("Authentication successful for token [{}].  Returned account [{}]", token, info);
-
-        notifySuccess(token, info);
-
-        return info;
+    /**
+     * Returns the cause of the {@link CompletionException} wrapping a failure propagated through dependent stages.
+     */
+    private static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
     }
 
     /**
@@ -258,5 +333,55 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
     protected abstract AuthenticationInfo doAuthenticate(AuthenticationToken token)
             throws AuthenticationException;
 
+    /**
+     * Template hook for subclasses to implement non-blocking authentication behavior, called by
+     * {@link #authenticateAsync(AuthenticationToken) authenticateAsync}.  The same rules apply as for
+     * {@link #doAuthenticate(AuthenticationToken) doAuthenticate}: the returned stage should complete exceptionally
+     * with some kind of {@code AuthenticationException} if there is a problem during authentication.
+     * <p/>
+     * This default implementation runs {@link #doAuthenticate(AuthenticationToken) doAuthenticate} on the
+     * {@link #getAsyncExecutor() asyncExecutor}.  If the executor rejects the work, for example because it is
+     * saturated, the returned stage fails instead of the work being run on the calling thread.
+     *
+     * @param token the authentication token encapsulating the user's login information.
+     * @return a stage that completes with an {@code AuthenticationInfo} object encapsulating the user's account
+     * information important to Shiro.
+     * @since 2.0
+     */
+    protected CompletionStage<AuthenticationInfo> doAuthenticateAsync(AuthenticationToken token) {
+        try {
+            return CompletableFuture.supplyAsync(() -> doAuthenticate(token), getAsyncExecutor());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the executor that blocking authentication work is run on during an
+     * {@link #authenticateAsync(AuthenticationToken) asynchronous authentication}.  Unless one has been
+     * {@link #setAsyncExecutor(Executor) configured}, blocking work
+     * runs on the shared {@code shiro-async-authentication} pool, which is bounded so that a flood of logins against a
+     * slow account data source cannot create an unbounded number of threads (see {@link SharedExecutors}).
+     *
+     * @return the executor that blocking authentication work is run on during an asynchronous authentication.
+     * @since 2.0
+     */
+    public Executor getAsyncExecutor() {
+        Executor executor = this.asyncExecutor;
+        return executor != null ? executor : SharedExecutors.get("shiro-async-authentication");
+    }
 
+    /**
+     * Sets the executor that blocking authentication work (such as realms that do not implement
+     * {@link org.apache.shiro.realm.AsyncRealm AsyncRealm}) is run on during an
+     * {@link #authenticateAsync(AuthenticationToken) asynchronous authentication}.  Applications are encouraged to
+     * configure a bounded executor sized for their account data sources.
+     *
+     * @param asyncExecutor the executor that blocking authentication work is run on, or {@code null} to use the
+     *                      default shared pool.
+     * @since 2.0
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
 }
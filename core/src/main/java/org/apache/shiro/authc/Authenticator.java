@@ -18,6 +18,9 @@
  */
 package org.apache.shiro.authc;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * An Authenticator is responsible for authenticating accounts in an application.  It
  * is one of the primary entry points into the Shiro API.
@@ -64,4 +67,26 @@ public interface Authenticator {
      */
     AuthenticationInfo authenticate(AuthenticationToken authenticationToken)
             throws AuthenticationException;
+
+    /**
+     * Authenticates a user based on the submitted {@code AuthenticationToken} without blocking the calling thread
+     * (if the implementation supports it), returning a stage that completes with the same
+     * {@link AuthenticationInfo} {@link #authenticate(AuthenticationToken) authenticate} would return, or completes
+     * exceptionally with the same {@link AuthenticationException} it would throw.
+     * <p/>
+     * The default implementation simply calls {@link #authenticate(AuthenticationToken) authenticate} on the calling
+     * thread and returns an already completed stage.
+     *
+     * @param authenticationToken any representation of a user's principals and credentials submitted during an
+     *                            authentication attempt.
+     * @return a stage that completes with the AuthenticationInfo representing the authenticating user's account data.
+     * @since 2.0
+     */
+    default CompletionStage<AuthenticationInfo> authenticateAsync(AuthenticationToken authenticationToken) {
+        try {
+            return CompletableFuture.completedFuture(authenticate(authenticationToken));
+        } catch (AuthenticationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc;
+
+/**
+ * Thrown when submitted credentials could not be verified in time, because the system is configured to bound the
+ * number of concurrent credentials verifications (for example expensive password hash computations) and the
+ * verification either could not be queued or did not complete within the configured timeout.
+ * <p/>
+ * Unlike an {@link IncorrectCredentialsException}, this exception says nothing about the credentials themselves: the
+ * same credentials may well be accepted once the system is under less load.
+ *
+ * @see org.apache.shiro.authc.credential.PasswordHashingExecutor
+ * @since 2.0
+ */
+public class CredentialsVerificationTimeoutException extends AuthenticationException {
+
+    /**
+     * Creates a new CredentialsVerificationTimeoutException.
+     */
+    public CredentialsVerificationTimeoutException() {
+        super();
+    }
+
+    /**
+     * Constructs a new CredentialsVerificationTimeoutException.
+     *
+     * @param message the reason for the exception
+     */
+    public CredentialsVerificationTimeoutException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new CredentialsVerificationTimeoutException.
+     *
+     * @param cause the underlying Throwable that caused this exception to be thrown.
+     */
+    public CredentialsVerificationTimeoutException(Throwable cause) {
+        super(cause);
+    }
+
+    /**
+     * Constructs a new CredentialsVerificationTimeoutException.
+     *
+     * @param message the reason for the exception
+     * @param cause   the underlying Throwable that caused this exception to be thrown.
+     */
+    public CredentialsVerificationTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
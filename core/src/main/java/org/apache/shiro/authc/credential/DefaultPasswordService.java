@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.security.MessageDigest;
+import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
 
@@ -57,6 +58,7 @@ public class DefaultPasswordService implements HashingPasswordService {
     private HashService hashService;
     private HashFormat hashFormat;
     private HashFormatFactory hashFormatFactory;
+    private PasswordHashingExecutor hashingExecutor;
 
     /**
      * used to avoid excessive log noise
@@ -96,7 +98,7 @@ public class DefaultPasswordService implements HashingPasswordService {
             return null;
         }
         HashRequest request = createHashRequest(plaintextBytes);
-        return hashService.computeHash(request);
+        return execute(() -> hashService.computeHash(request));
     }
 
     @Override
@@ -111,7 +113,7 @@ public class DefaultPasswordService implements HashingPasswordService {
             }
         }
 
-        return saved.matchesPassword(plaintextBytes);
+        return execute(() -> saved.matchesPassword(plaintextBytes));
     }
 
     private boolean constantEquals(String savedHash, String computedHash) {
@@ -186,7 +188,7 @@ public class DefaultPasswordService implements HashingPasswordService {
         //The saved text value can't be reconstituted into a Hash instance.  We need to format the
         //submittedPlaintext and then compare this formatted value with the saved value:
         HashRequest request = createHashRequest(plaintextBytes);
-        Hash computed = this.hashService.computeHash(request);
+        Hash computed = execute(() -> this.hashService.computeHash(request));
         String formatted = this.hashFormat.format(computed);
 
         return constantEquals(saved, formatted);
@@ -215,4 +217,37 @@ public class DefaultPasswordService implements HashingPasswordService {
     public void setHashFormatFactory(HashFormatFactory hashFormatFactory) {
         this.hashFormatFactory = hashFormatFactory;
     }
+
+    /**
+     * Returns the executor that password hash computations are dispatched to, or {@code null} (the default) if they
+     * run on the calling thread.
+     *
+     * @return the executor that password hash computations are dispatched to, or {@code null}.
+     * @since 2.0
+     */
+    public PasswordHashingExecutor getHashingExecutor() {
+        return hashingExecutor;
+    }
+
+    /**
+     * Sets the executor that password hash computations are dispatched to, bounding how many of them run at the same
+     * time.  When set, {@link #hashPassword(Object) hashing} or {@link #passwordsMatch(Object, Hash) verifying} a
+     * password fails with a {@link org.apache.shiro.authc.CredentialsVerificationTimeoutException} if the executor is
+     * saturated.  Defaults to {@code null}, in which case hashes are computed on the calling thread.
+     *
+     * @param hashingExecutor the executor that password hash computations are dispatched to, or {@code null}.
+     * @since 2.0
+     */
+    public void setHashingExecutor(PasswordHashingExecutor hashingExecutor) {
+        this.hashingExecutor = hashingExecutor;
+    }
+
+    /**
+     * Runs the specified hash computation on the {@link #getHashingExecutor() hashingExecutor}, if any, or on the
+     * calling thread otherwise.
+     */
+    <T> T execute(Supplier<T> computation) {
+        PasswordHashingExecutor executor = this.hashingExecutor;
+        return executor != null ? executor.execute(computation) : computation.get();
+    }
 }
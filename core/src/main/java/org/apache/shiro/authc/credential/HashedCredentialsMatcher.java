@@ -124,6 +124,7 @@ public class HashedCredentialsMatcher extends SimpleCredentialsMatcher {
     private int hashIterations;
     private boolean hashSalted;
     private boolean storedCredentialsHexEncoded;
+    private PasswordHashingExecutor hashingExecutor;
 
     /**
      * JavaBeans-compatible no-arg constructor intended for use in IoC/Dependency Injection environments.  If you
@@ -295,6 +296,29 @@ public class HashedCredentialsMatcher extends SimpleCredentialsMatcher {
         this.hashIterations = Math.max(hashIterations, 1);
     }
 
+    /**
+     * Returns the executor that submitted credentials are hashed on, or {@code null} (the default) if they are hashed
+     * on the calling thread.
+     *
+     * @return the executor that submitted credentials are hashed on, or {@code null}.
+     * @since 2.0
+     */
+    public PasswordHashingExecutor getHashingExecutor() {
+        return hashingExecutor;
+    }
+
+    /**
+     * Sets the executor that submitted credentials are hashed on, bounding how many hashes are computed at the same
+     * time.  When set, credentials matching fails with a
+     * {@link org.apache.shiro.authc.CredentialsVerificationTimeoutException} if the executor is saturated.
+     *
+     * @param hashingExecutor the executor that submitted credentials are hashed on, or {@code null}.
+     * @since 2.0
+     */
+    public void setHashingExecutor(PasswordHashingExecutor hashingExecutor) {
+        this.hashingExecutor = hashingExecutor;
+    }
+
     /**
      * Returns a salt value used to hash the token's credentials.
      * <p/>
@@ -368,6 +392,9 @@ public class HashedCredentialsMatcher extends SimpleCredentialsMatcher {
      * against the {@code AuthenticationInfo}'s
      * {@link #getCredentials(org.apache.shiro.authc.AuthenticationInfo) already-hashed credentials}.  This method
      * returns {@code true} if those two values are {@link #equals(Object, Object) equal}, {@code false} otherwise.
+     * <p/>
+     * If a {@link #setHashingExecutor(PasswordHashingExecutor) hashingExecutor} is configured, the token's credentials
+     * are hashed on that executor.
      *
      * @param token the {@code AuthenticationToken} submitted during the authentication attempt.
      * @param info  the {@code AuthenticationInfo} stored in the system matching the token principal
@@ -377,7 +404,10 @@ public class HashedCredentialsMatcher extends SimpleCredentialsMatcher {
      */
     @Override
     public boolean doCredentialsMatch(AuthenticationToken token, AuthenticationInfo info) {
-        Object tokenHashedCredentials = hashProvidedCredentials(token, info);
+        PasswordHashingExecutor executor = this.hashingExecutor;
+        Object tokenHashedCredentials = executor != null
+                ? executor.execute(() -> hashProvidedCredentials(token, info))
+                : hashProvidedCredentials(token, info);
         Object accountCredentials = getCredentials(info);
         return equals(tokenHashedCredentials, accountCredentials);
     }
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.credential;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.CredentialsVerificationTimeoutException;
+import org.apache.shiro.lang.util.Destroyable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hash computations on a dedicated, bounded pool of threads instead of on the calling (typically
+ * request-serving) threads, to cap the CPU and memory used by memory-hard algorithms such as argon2 or bcrypt when
+ * many authentication attempts arrive at once.
+ * <p/>
+ * At most {@link #setMaxConcurrency(int) maxConcurrency} computations run at the same time, and at most
+ * {@link #setQueueDepth(int) queueDepth} further computations wait for a free thread, in arrival order.  A computation
+ * that cannot be queued, or whose result is not available within {@link #setTimeout(long) timeout} milliseconds, fails
+ * with a {@link CredentialsVerificationTimeoutException}.  A computation that is already running when its caller
+ * times out is interrupted, but hash algorithms generally run to completion regardless.
+ * <p/>
+ * A computation submitted from one of this executor's own threads (for example a {@link PasswordService} calling
+ * back into itself) runs directly on that thread.
+ * <p/>
+ * The pool is created on first use, its threads are daemon threads that terminate when idle, and the executor keeps
+ * counters of submitted, completed, rejected and timed-out computations as well as of the time spent waiting in the
+ * queue and computing.
+ *
+ * @see DefaultPasswordService#setHashingExecutor(PasswordHashingExecutor)
+ * @see HashedCredentialsMatcher#setHashingExecutor(PasswordHashingExecutor)
+ * @since 2.0
+ */
+public class PasswordHashingExecutor implements Destroyable {
+
+    /**
+     * The default {@link #setQueueDepth(int) queueDepth}.
+     */
+    public static final int DEFAULT_QUEUE_DEPTH = 64;
+
+    /**
+     * The default {@link #setTimeout(long) timeout} in milliseconds.
+     */
+    public static final long DEFAULT_TIMEOUT = 10000L;
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+    private int queueDepth = DEFAULT_QUEUE_DEPTH;
+
+    private volatile long timeout = DEFAULT_TIMEOUT;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder timedOutCount = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0L);
+
+    public PasswordHashingExecutor() {
+    }
+
+    public PasswordHashingExecutor(int maxConcurrency, int queueDepth, long timeout) {
+        setMaxConcurrency(maxConcurrency);
+        setQueueDepth(queueDepth);
+        setTimeout(timeout);
+    }
+
+    /**
+     * Returns the maximum number of hash computations that run at the same time.  Defaults to the number of
+     * available processors.
+     *
+     * @return the maximum number of hash computations that run at the same time.
+     */
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of hash computations that run at the same time.  Defaults to the number of available
+     * processors.
+     *
+     * @param maxConcurrency the maximum number of hash computations that run at the same time.
+     * @throws IllegalArgumentException if {@code maxConcurrency} is less than 1.
+     */
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than zero.");
+        }
+        this.maxConcurrency = maxConcurrency;
+        if (executor != null) {
+            if (maxConcurrency > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(maxConcurrency);
+                executor.setCorePoolSize(maxConcurrency);
+            } else {
+                executor.setCorePoolSize(maxConcurrency);
+                executor.setMaximumPoolSize(maxConcurrency);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of hash computations that wait for a free thread before further computations are
+     * rejected.  Defaults to {@link #DEFAULT_QUEUE_DEPTH}.
+     *
+     * @return the maximum number of hash computations that wait for a free thread.
+     */
+    public synchronized int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Sets the maximum number of hash computations that wait for a free thread before further computations are
+     * rejected.  A depth of {@code 0} rejects any computation that cannot start immediately.  Changing the depth after
+     * the executor has been used only affects a pool created after {@link #destroy()}.
+     *
+     * @param queueDepth the maximum number of hash computations that wait for a free thread.
+     * @throws IllegalArgumentException if {@code queueDepth} is negative.
+     */
+    public synchronized void setQueueDepth(int queueDepth) {
+        if (queueDepth < 0) {
+            throw new IllegalArgumentException("queueDepth cannot be negative.");
+        }
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Returns the number of milliseconds a caller waits for a hash computation (including any time spent in the
+     * queue) before failing with a {@link CredentialsVerificationTimeoutException}.  Defaults to
+     * {@link #DEFAULT_TIMEOUT}.
+     *
+     * @return the number of milliseconds a caller waits for a hash computation.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the number of milliseconds a caller waits for a hash computation (including any time spent in the queue)
+     * before failing with a {@link CredentialsVerificationTimeoutException}.
+     *
+     * @param timeout the number of milliseconds a caller waits for a hash computation.
+     * @throws IllegalArgumentException if {@code timeout} is not positive.
+     */
+    public void setTimeout(long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be greater than zero.");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the specified hash computation on this executor and waits for its result.
+     *
+     * @param computation the hash computation to run.
+     * @param <T>         the type of the computation's result.
+     * @return the result of the computation.
+     * @throws CredentialsVerificationTimeoutException if the computation could not be queued or did not complete
+     *                                                 within the {@link #getTimeout() timeout}.
+     * @throws AuthenticationException                if the calling thread is interrupted while waiting.
+     */
+    public <T> T execute(Supplier<T> computation) throws AuthenticationException {
+        Thread current = Thread.currentThread();
+        if (current instanceof HashingThread && ((HashingThread) current).owner == this) {
+            return computation.get();
+        }
+        ThreadPoolExecutor pool = getExecutor();
+        Future<T> future;
+        try {
+            future = pool.submit(new Computation<T>(computation, System.nanoTime()));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw new CredentialsVerificationTimeoutException("Password hashing queue is full; unable to verify "
+                    + "credentials at this time.", e);
+        }
+        submittedCount.increment();
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            // free the queue slot right away if the computation has not started yet:
+            pool.remove((Runnable) future);
+            timedOutCount.increment();
+            throw new CredentialsVerificationTimeoutException("Password hashing did not complete within "
+                    + timeout + " milliseconds.", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            current.interrupt();
+            throw new AuthenticationException("Interrupted while waiting for password hashing.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AuthenticationException("Password hashing failed.", cause);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            BlockingQueue<Runnable> queue = queueDepth > 0
+                    ? new ArrayBlockingQueue<Runnable>(queueDepth, true) : new SynchronousQueue<Runnable>(true);
+            String prefix = "shiro-password-hashing-" + POOL_COUNT.incrementAndGet() + "-";
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    queue, runnable -> new HashingThread(this, runnable, prefix + threadCount.incrementAndGet()));
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Shuts down the pool, letting computations that are already queued complete.  The executor remains usable; a new
+     * pool is created on next use.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the number of hash computations currently running.
+     *
+     * @return the number of hash computations currently running.
+     */
+    public synchronized int getActiveCount() {
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+
+    /**
+     * Returns the number of hash computations currently waiting for a free thread.
+     *
+     * @return the number of hash computations currently waiting for a free thread.
+     */
+    public synchronized int getQueuedCount() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Returns the number of hash computations accepted since this executor was created.
+     *
+     * @return the number of hash computations accepted since this executor was created.
+     */
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    /**
+     * Returns the number of hash computations that have run to completion (successfully or not).
+     *
+     * @return the number of hash computations that have run to completion.
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * Returns the number of hash computations rejected because the queue was full.
+     *
+     * @return the number of hash computations rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Returns the number of callers that stopped waiting for a hash computation because of the timeout.
+     *
+     * @return the number of callers that timed out.
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, that started hash computations spent waiting in the queue.
+     *
+     * @return the total time that started hash computations spent waiting in the queue.
+     */
+    public long getTotalQueueWaitNanos() {
+        return totalQueueWaitNanos.sum();
+    }
+
+    /**
+     * Returns the longest time, in nanoseconds, that a hash computation spent waiting in the queue.
+     *
+     * @return the longest time that a hash computation spent waiting in the queue.
+     */
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos.get();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, spent computing hashes.
+     *
+     * @return the total time spent computing hashes.
+     */
+    public long getTotalHashNanos() {
+        return totalHashNanos.sum();
+    }
+
+    /**
+     * Wraps a computation to record how long it waited in the queue and how long it ran.
+     */
+    private final class Computation<T> implements Callable<T> {
+
+        private final Supplier<T> computation;
+
+        private final long submittedAt;
+
+        private Computation(Supplier<T> computation, long submittedAt) {
+            this.computation = computation;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public T call() {
+            long start = System.nanoTime();
+            long wait = start - submittedAt;
+            totalQueueWaitNanos.add(wait);
+            maxQueueWaitNanos.accumulate(wait);
+            try {
+                return computation.get();
+            } finally {
+                totalHashNanos.add(System.nanoTime() - start);
+                completedCount.increment();
+            }
+        }
+    }
+
+    private static final class HashingThread extends Thread {
+
+        private final PasswordHashingExecutor owner;
+
+        private HashingThread(PasswordHashingExecutor owner, Runnable runnable, String name) {
+            super(runnable, name);
+            this.owner = owner;
+            setDaemon(true);
+        }
+    }
+}
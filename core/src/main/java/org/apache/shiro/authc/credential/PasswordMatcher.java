@@ -51,7 +51,12 @@ public class PasswordMatcher implements CredentialsMatcher {
 
         if (storedCredentials instanceof Hash) {
             Hash hashedPassword = (Hash) storedCredentials;
-            return hashedPassword.matchesPassword(ByteSource.Util.bytes(submittedPassword));
+            ByteSource submittedBytes = ByteSource.Util.bytes(submittedPassword);
+            if (service instanceof DefaultPasswordService) {
+                // honour the service's hashingExecutor, if any:
+                return ((DefaultPasswordService) service).execute(() -> hashedPassword.matchesPassword(submittedBytes));
+            }
+            return hashedPassword.matchesPassword(submittedBytes);
         }
         //otherwise they are a String (asserted in the 'assertStoredCredentialsType' method call above):
         String formatted = (String) storedCredentials;
@@ -24,13 +24,24 @@ import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.LogoutAware;
 import org.apache.shiro.authc.UnknownAccountException;
+import org.apache.shiro.realm.AsyncRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A {@code ModularRealmAuthenticator} delegates account lookups to a pluggable (modular) collection of
@@ -84,6 +95,11 @@ public class ModularRealmAuthenticator extends AbstractAuthenticator {
      */
     private AuthenticationStrategy authenticationStrategy;
 
+    /**
+     * Whether multi-realm authentication attempts consult the realms concurrently, defaults to {@code false}.
+     */
+    private boolean parallelRealmAuthentication;
+
     /*--------------------------------------------
     |         C O N S T R U C T O R S           |
     ============================================*/
@@ -145,6 +161,42 @@ public class ModularRealmAuthenticator extends AbstractAuthenticator {
         this.authenticationStrategy = authenticationStrategy;
     }
 
+    /**
+     * Returns {@code true} if multi-realm authentication attempts consult all realms that support the submitted token
+     * concurrently, {@code false} (the default) if they are consulted one after another.
+     *
+     * @return {@code true} if multi-realm authentication attempts consult the realms concurrently.
+     * @see #setParallelRealmAuthentication(boolean)
+     * @since 2.0
+     */
+    public boolean isParallelRealmAuthentication() {
+        return parallelRealmAuthentication;
+    }
+
+    /**
+     * Sets whether multi-realm authentication attempts consult all realms that support the submitted token
+     * concurrently instead of one after another.  This reduces the latency of a log-in against several remote
+     * backends (for example an LDAP and a JDBC realm) from the sum of their response times to roughly the longest one.
+     * <p/>
+     * When enabled, every supporting realm except the first is invoked on the
+     * {@link #setAsyncExecutor(Executor) asyncExecutor} as soon as the attempt starts, while the first is invoked on
+     * the calling thread.  The {@link #setAuthenticationStrategy(AuthenticationStrategy) AuthenticationStrategy} is
+     * still called back in realm order with each realm's result, so the aggregated result - and in particular the
+     * semantics of the {@link AllSuccessfulStrategy} - is the same as in sequential mode.  As soon as the strategy
+     * short-circuits (for example the {@link FirstSuccessfulStrategy} after the first successful realm) or fails the
+     * attempt, the realm invocations still in progress are cancelled (interrupted) and their results are discarded.
+     * <p/>
+     * Realms must therefore be safe to invoke concurrently, should not depend on thread-bound state such as the
+     * {@link org.apache.shiro.util.ThreadContext ThreadContext}, and may be invoked even though a preceding realm's
+     * result causes the strategy to skip them.  The default is {@code false}.
+     *
+     * @param parallelRealmAuthentication whether multi-realm authentication attempts consult the realms concurrently.
+     * @since 2.0
+     */
+    public void setParallelRealmAuthentication(boolean parallelRealmAuthentication) {
+        this.parallelRealmAuthentication = parallelRealmAuthentication;
+    }
+
     /*--------------------------------------------
     |               M E T H O D S               |
 
@@ -199,6 +251,10 @@ public class ModularRealmAuthenticator extends AbstractAuthenticator {
      */
     protected AuthenticationInfo doMultiRealmAuthentication(Collection<Realm> realms, AuthenticationToken token) {
 
+        if (isParallelRealmAuthentication()) {
+            return doParallelMultiRealmAuthentication(realms, token);
+        }
+
         AuthenticationStrategy strategy = getAuthenticationStrategy();
 
         AuthenticationInfo aggregate = strategy.beforeAllAttempts(realms, token);
@@ -246,6 +302,113 @@ public class ModularRealmAuthenticator extends AbstractAuthenticator {
     }
 
 
+    /**
+     * Performs the multi-realm authentication attempt when
+     * {@link #setParallelRealmAuthentication(boolean) parallelRealmAuthentication} is enabled: all realms supporting
+     * the token are consulted concurrently, and the {@link AuthenticationStrategy} is called back in realm order with
+     * each result as it becomes available.  Realm invocations that are still pending when the strategy
+     * short-circuits or throws are cancelled.
+     *
+     * @param realms the multiple realms configured on this Authenticator instance.
+     * @param token  the submitted AuthenticationToken representing the subject's (user's) log-in principals and credentials.
+     * @return an aggregated AuthenticationInfo instance representing account data across all the successfully
+     * consulted realms.
+     * @since 2.0
+     */
+    protected AuthenticationInfo doParallelMultiRealmAuthentication(Collection<Realm> realms, AuthenticationToken token) {
+
+        AuthenticationStrategy strategy = getAuthenticationStrategy();
+
+        AuthenticationInfo aggregate = strategy.beforeAllAttempts(realms, token);
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Consulting {} realms in parallel for PAM authentication", realms.size());
+        }
+
+        List<FutureTask<AuthenticationInfo>> attempts = startAttempts(realms, token);
+        try {
+            int i = 0;
+            for (Realm realm : realms) {
+                FutureTask<AuthenticationInfo> attempt = attempts.get(i++);
+                try {
+                    aggregate = strategy.beforeAttempt(realm, token, aggregate);
+                } catch (ShortCircuitIterationException shortCircuitSignal) {
+                    break;
+                }
+                if (attempt != null) {
+                    aggregate = completeAttempt(attempt, realm, token, strategy, aggregate);
+                } else {
+                    LOGGER.debug("Realm [{}] does not support token {}.  Skipping realm.", realm, token);
+                }
+            }
+        } finally {
+            for (FutureTask<AuthenticationInfo> attempt : attempts) {
+                if (attempt != null) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+
+        return strategy.afterAllAttempts(token, aggregate);
+    }
+
+    /**
+     * Creates one task per realm (or {@code null} for realms that do not support the token) and submits all but the
+     * first to the {@link #getAsyncExecutor() asyncExecutor}.  Tasks that are not submitted, or that the executor
+     * rejects, are run by the calling thread when their result is needed.
+     */
+    private List<FutureTask<AuthenticationInfo>> startAttempts(Collection<Realm> realms, AuthenticationToken token) {
+        Executor executor = getAsyncExecutor();
+        List<FutureTask<AuthenticationInfo>> attempts = new ArrayList<FutureTask<AuthenticationInfo>>(realms.size());
+        boolean first = true;
+        for (Realm realm : realms) {
+            if (!realm.supports(token)) {
+                attempts.add(null);
+                continue;
+            }
+            FutureTask<AuthenticationInfo> attempt =
+                    new FutureTask<AuthenticationInfo>(() -> realm.getAuthenticationInfo(token));
+            attempts.add(attempt);
+            if (first) {
+                first = false;
+                continue;
+            }
+            try {
+                executor.execute(attempt);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Executor rejected the attempt for realm [{}], running it on the calling thread.", realm);
+            }
+        }
+        return attempts;
+    }
+
+    private AuthenticationInfo completeAttempt(FutureTask<AuthenticationInfo> attempt, Realm realm,
+                                               AuthenticationToken token, AuthenticationStrategy strategy,
+                                               AuthenticationInfo aggregate) {
+        LOGGER.trace("Awaiting authentication of token [{}] using realm [{}]", token, realm);
+
+        // no-op if the task has already been started by the executor:
+        attempt.run();
+
+        AuthenticationInfo info = null;
+        Throwable t = null;
+        try {
+            info = attempt.get();
+        } catch (ExecutionException e) {
+            t = e.getCause();
+            if (LOGGER.isDebugEnabled()) {
+                String msg = "Realm [" + realm + "] threw an exception during a multi-realm authentication attempt:";
+                LOGGER.debug(msg, t);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException("Interrupted while waiting for realm [" + realm + "] to authenticate "
+                    + "token [" + token + "].", e);
+        }
+
+        return strategy.afterAttempt(realm, token, info, aggregate, t);
+    }
+
     /**
      * Attempts to authenticate the given token by iterating over the internal collection of
      * {@link Realm}s.  For each realm, first the {@link Realm#supports(org.apache.shiro.authc.AuthenticationToken)}
@@ -278,6 +441,109 @@ public class ModularRealmAuthenticator extends AbstractAuthenticator {
         }
     }
 
+    /**
+     * Asynchronous counterpart of {@link #doAuthenticate(AuthenticationToken) doAuthenticate}.
+     * <p/>
+     * If none of the configured realms is an {@link AsyncRealm AsyncRealm}, the whole synchronous authentication
+     * attempt is run on the {@link #getAsyncExecutor() asyncExecutor}.  Otherwise the realms are consulted one after
+     * the other, exactly as during a synchronous attempt (including the calls to the
+     * {@link #getAuthenticationStrategy() authenticationStrategy}), but {@code AsyncRealm}s are consulted through
+     * {@link AsyncRealm#getAuthenticationInfoAsync(AuthenticationToken)} and all other realms are consulted on the
+     * {@code asyncExecutor}, so that the calling thread is never blocked.
+     *
+     * @param authenticationToken the token containing the authentication principal and credentials for the
+     *                            user being authenticated.
+     * @return a stage that completes with the account information attributed to the authenticated user.
+     * @since 2.0
+     */
+    @Override
+    protected CompletionStage<AuthenticationInfo> doAuthenticateAsync(AuthenticationToken authenticationToken) {
+        assertRealmsConfigured();
+        Collection<Realm> realms = getRealms();
+        boolean anyAsync = false;
+        for (Realm realm : realms) {
+            anyAsync |= realm instanceof AsyncRealm;
+        }
+        if (!anyAsync) {
+            return super.doAuthenticateAsync(authenticationToken);
+        }
+        if (realms.size() == 1) {
+            return doSingleRealmAuthenticationAsync((AsyncRealm) realms.iterator().next(), authenticationToken);
+        }
+        AuthenticationStrategy strategy = getAuthenticationStrategy();
+        AuthenticationInfo aggregate = strategy.beforeAllAttempts(realms, authenticationToken);
+        return doMultiRealmAuthenticationAsync(realms.iterator(), authenticationToken, strategy, aggregate);
+    }
+
+    private CompletionStage<AuthenticationInfo> doSingleRealmAuthenticationAsync(AsyncRealm realm,
+                                                                                 AuthenticationToken token) {
+        if (!realm.supports(token)) {
+            String msg = "Realm [" + realm + "] does not support authentication token ["
+                    + token + "].  Please ensure that the appropriate Realm implementation is "
+                    + "configured correctly or that the realm accepts AuthenticationTokens of this type.";
+            throw new UnsupportedTokenException(msg);
+        }
+        return realm.getAuthenticationInfoAsync(token).thenApply(info -> {
+            if (info == null) {
+                String msg = "Realm [" + realm + "] was unable to find account data for the "
+                        + "submitted AuthenticationToken [" + token + "].";
+                throw new UnknownAccountException(msg);
+            }
+            return info;
+        });
+    }
+
+    /**
+     * Consults the remaining realms of a multi-realm attempt one after the other, mirroring
+     * {@link #doMultiRealmAuthentication(Collection, AuthenticationToken) doMultiRealmAuthentication}.
+     */
+    private CompletionStage<AuthenticationInfo> doMultiRealmAuthenticationAsync(Iterator<Realm> realms,
+                                                                                AuthenticationToken token,
+                                                                                AuthenticationStrategy strategy,
+                                                                                AuthenticationInfo aggregate) {
+        while (realms.hasNext()) {
+            Realm realm = realms.next();
+            AuthenticationInfo before;
+            try {
+                before = strategy.beforeAttempt(realm, token, aggregate);
+            } catch (ShortCircuitIterationException shortCircuitSignal) {
+                break;
+            }
+            if (!realm.supports(token)) {
+                LOGGER.debug("Realm [{}] does not support token {}.  Skipping realm.", realm, token);
+                aggregate = before;
+                continue;
+            }
+            LOGGER.trace("Attempting to authenticate token [{}] using realm [{}]", token, realm);
+            return getAuthenticationInfoAsync(realm, token)
+                    .handle((info, t) -> {
+                        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                        if (cause != null && LOGGER.isDebugEnabled()) {
+                            String msg = "Realm [" + realm + "] threw an exception during a multi-realm authentication attempt:";
+                            LOGGER.debug(msg, cause);
+                        }
+                        return strategy.afterAttempt(realm, token, info, before, cause);
+                    })
+                    .thenCompose(after -> doMultiRealmAuthenticationAsync(realms, token, strategy, after));
+        }
+        return CompletableFuture.completedFuture(strategy.afterAllAttempts(token, aggregate));
+    }
+
+    private CompletionStage<AuthenticationInfo> getAuthenticationInfoAsync(Realm realm, AuthenticationToken token) {
+        if (realm instanceof AsyncRealm) {
+            try {
+                return ((AsyncRealm) realm).getAuthenticationInfoAsync(token);
+            } catch (Throwable t) {
+                return CompletableFuture.failedFuture(t);
+            }
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> realm.getAuthenticationInfo(token), getAsyncExecutor());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * First calls <code>super.onLogout(principals)</code> to ensure a logout notification is issued, and for each
      * wrapped {@code Realm} that implements the {@link LogoutAware LogoutAware} interface, calls
@@ -22,19 +22,36 @@ import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.authz.permission.PermissionResolverAware;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
 import org.apache.shiro.authz.permission.RolePermissionResolverAware;
+import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.lang.util.SharedExecutors;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
  * A <tt>ModularRealmAuthorizer</tt> is an <tt>Authorizer</tt> implementation that consults one or more configured
  * {@link Realm Realm}s during an authorization operation.
+ * <p/>
+ * Checks of several permissions or roles at once are batched: each realm is asked once for all entries that have not
+ * yet been granted by a previous realm, instead of once per entry.  If
+ * {@link #setParallelRealmAuthorization(boolean) parallelRealmAuthorization} is enabled, realms that would have to
+ * consult their backing data store are additionally queried concurrently.
  *
  * @since 0.2
  */
+@SuppressWarnings({"checkstyle:MethodCount"})
 public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAware, RolePermissionResolverAware {
 
     /**
@@ -54,6 +71,16 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
      */
     protected RolePermissionResolver rolePermissionResolver;
 
+    /**
+     * Whether batched checks query realms with a cold authorization cache concurrently.
+     */
+    private boolean parallelRealmAuthorization;
+
+    /**
+     * The executor that concurrent realm queries are run on, {@code null} for the default shared pool.
+     */
+    private volatile Executor authorizationExecutor;
+
     /**
      * Default no-argument constructor, does nothing.
      */
@@ -90,6 +117,65 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
         applyRolePermissionResolverToRealms();
     }
 
+    /**
+     * Returns {@code true} if checks of several permissions or roles at once query realms whose authorization data is
+     * not cached concurrently, {@code false} (the default) if all realms are queried one after another.
+     *
+     * @return {@code true} if realms with a cold authorization cache are queried concurrently.
+     * @see #setParallelRealmAuthorization(boolean)
+     * @since 2.0
+     */
+    public boolean isParallelRealmAuthorization() {
+        return parallelRealmAuthorization;
+    }
+
+    /**
+     * Sets whether checks of several permissions or roles at once query realms whose authorization data is not cached
+     * concurrently.
+     * <p/>
+     * When enabled, realms that can answer from memory - every {@code Authorizer} realm that is not an
+     * {@link AuthorizingRealm AuthorizingRealm}, and {@code AuthorizingRealm}s for which
+     * {@link AuthorizingRealm#isAuthorizationInfoCached(PrincipalCollection) isAuthorizationInfoCached} returns
+     * {@code true} - are queried first, in order, on the calling thread.  If any entries are still not granted, the
+     * remaining realms are then queried concurrently on the {@link #setAuthorizationExecutor(Executor)
+     * authorizationExecutor}, and the outstanding queries are cancelled as soon as every entry has been granted.
+     * Single permission and role checks are not affected.  The default is {@code false}.
+     *
+     * @param parallelRealmAuthorization whether realms with a cold authorization cache are queried concurrently.
+     * @since 2.0
+     */
+    public void setParallelRealmAuthorization(boolean parallelRealmAuthorization) {
+        this.parallelRealmAuthorization = parallelRealmAuthorization;
+    }
+
+    /**
+     * Returns the executor that realms are queried on when
+     * {@link #setParallelRealmAuthorization(boolean) parallelRealmAuthorization} is enabled.  Unless
+     * {@link #setAuthorizationExecutor(Executor) configured}, realms are
+     * queried on the shared {@code shiro-authorization} pool, which queries them on the calling thread while all of its
+     * threads are busy (see {@link SharedExecutors}).
+     *
+     * @return the executor that realms are queried on during a parallel authorization check.
+     * @since 2.0
+     */
+    public Executor getAuthorizationExecutor() {
+        Executor executor = this.authorizationExecutor;
+        return executor != null ? executor : SharedExecutors.get("shiro-authorization");
+    }
+
+    /**
+     * Sets the executor that realms are queried on when
+     * {@link #setParallelRealmAuthorization(boolean) parallelRealmAuthorization} is enabled.  If the executor rejects
+     * a query, the query is run on the calling thread instead.
+     *
+     * @param authorizationExecutor the executor that realms are queried on, or {@code null} to use the default shared
+     *                              pool.
+     * @since 2.0
+     */
+    public void setAuthorizationExecutor(Executor authorizationExecutor) {
+        this.authorizationExecutor = authorizationExecutor;
+    }
+
     /**
      * Returns the PermissionResolver to be used on <em>all</em> configured realms, or <code>null</code> (the default)
      * if all realm instances will each configure their own permission resolver.
@@ -253,36 +339,32 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
     }
 
     /**
-     * Returns <code>true</code> if any of the configured realms'
-     * {@link #isPermittedAll(org.apache.shiro.subject.PrincipalCollection, String...)} call returns
-     * <code>true</code>, <code>false</code> otherwise.
+     * For each of the specified permissions, returns <code>true</code> at the respective location in the returned
+     * array if any of the configured realms permits it, <code>false</code> otherwise.  Each realm is asked once, via
+     * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, String...)}, for all permissions that have
+     * not yet been permitted by a previous realm.
      */
     public boolean[] isPermitted(PrincipalCollection principals, String... permissions) {
         assertRealmsConfigured();
         if (permissions != null && permissions.length > 0) {
-            boolean[] isPermitted = new boolean[permissions.length];
-            for (int i = 0; i < permissions.length; i++) {
-                isPermitted[i] = isPermitted(principals, permissions[i]);
-            }
-            return isPermitted;
+            return check(principals, permissions.length,
+                (authorizer, pending) -> authorizer.isPermitted(principals, select(permissions, pending)));
         }
         return new boolean[0];
     }
 
     /**
-     * Returns <code>true</code> if any of the configured realms'
-     * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, List)} call returns <code>true</code>,
-     * <code>false</code> otherwise.
+     * For each of the specified permissions, returns <code>true</code> at the respective location in the returned
+     * array if any of the configured realms permits it, <code>false</code> otherwise.  Each realm is asked once, via
+     * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, List)}, for all permissions that have not
+     * yet been permitted by a previous realm.
      */
     public boolean[] isPermitted(PrincipalCollection principals, List<Permission> permissions) {
         assertRealmsConfigured();
         if (permissions != null && !permissions.isEmpty()) {
-            boolean[] isPermitted = new boolean[permissions.size()];
-            int i = 0;
-            for (Permission p : permissions) {
-                isPermitted[i++] = isPermitted(principals, p);
-            }
-            return isPermitted;
+            List<Permission> all = new ArrayList<Permission>(permissions);
+            return check(principals, all.size(),
+                (authorizer, pending) -> authorizer.isPermitted(principals, select(all, pending)));
         }
 
         return new boolean[0];
@@ -295,14 +377,7 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
      */
     public boolean isPermittedAll(PrincipalCollection principals, String... permissions) {
         assertRealmsConfigured();
-        if (permissions != null && permissions.length > 0) {
-            for (String perm : permissions) {
-                if (!isPermitted(principals, perm)) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return permissions == null || permissions.length == 0 || allTrue(isPermitted(principals, permissions));
     }
 
     /**
@@ -312,14 +387,8 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
      */
     public boolean isPermittedAll(PrincipalCollection principals, Collection<Permission> permissions) {
         assertRealmsConfigured();
-        if (permissions != null && !permissions.isEmpty()) {
-            for (Permission permission : permissions) {
-                if (!isPermitted(principals, permission)) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return permissions == null || permissions.isEmpty()
+                || allTrue(isPermitted(principals, new ArrayList<Permission>(permissions)));
     }
 
     /**
@@ -391,18 +460,17 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
     }
 
     /**
-     * Calls {@link #hasRole(org.apache.shiro.subject.PrincipalCollection, String)} for each role name in the specified
-     * collection and places the return value from each call at the respective location in the returned array.
+     * For each role name in the specified collection, places <code>true</code> at the respective location in the
+     * returned array if any of the configured realms assigns that role, <code>false</code> otherwise.  Each realm is
+     * asked once, via {@link #hasRoles(org.apache.shiro.subject.PrincipalCollection, List)}, for all roles that have
+     * not yet been found in a previous realm.
      */
     public boolean[] hasRoles(PrincipalCollection principals, List<String> roleIdentifiers) {
         assertRealmsConfigured();
         if (roleIdentifiers != null && !roleIdentifiers.isEmpty()) {
-            boolean[] hasRoles = new boolean[roleIdentifiers.size()];
-            int i = 0;
-            for (String roleId : roleIdentifiers) {
-                hasRoles[i++] = hasRole(principals, roleId);
-            }
-            return hasRoles;
+            List<String> all = new ArrayList<String>(roleIdentifiers);
+            return check(principals, all.size(),
+                (authorizer, pending) -> authorizer.hasRoles(principals, select(all, pending)));
         }
 
         return new boolean[0];
@@ -415,12 +483,7 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
      */
     public boolean hasAllRoles(PrincipalCollection principals, Collection<String> roleIdentifiers) {
         assertRealmsConfigured();
-        for (String roleIdentifier : roleIdentifiers) {
-            if (!hasRole(principals, roleIdentifier)) {
-                return false;
-            }
-        }
-        return true;
+        return roleIdentifiers.isEmpty() || allTrue(hasRoles(principals, new ArrayList<String>(roleIdentifiers)));
     }
 
     /**
@@ -456,4 +519,182 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
             }
         }
     }
+
+    /**
+     * Runs a batched check of {@code size} entries against the configured realms.  Each realm is only asked about the
+     * entries that no previous realm has granted, and no further realms are consulted once all entries are granted.
+     */
+    private boolean[] check(PrincipalCollection principals, int size, BatchCheck check) {
+        boolean[] granted = new boolean[size];
+        int[] pending = new int[size];
+        for (int i = 0; i < size; i++) {
+            pending[i] = i;
+        }
+        boolean parallel = isParallelRealmAuthorization();
+        List<Authorizer> deferred = new ArrayList<Authorizer>();
+        for (Realm realm : getRealms()) {
+            if (!(realm instanceof Authorizer)) {
+                continue;
+            }
+            if (parallel && !isAuthorizationInfoCached(realm, principals)) {
+                deferred.add((Authorizer) realm);
+                continue;
+            }
+            pending = merge(check.check((Authorizer) realm, pending), pending, granted);
+            if (pending.length == 0) {
+                return granted;
+            }
+        }
+        if (deferred.size() == 1) {
+            merge(check.check(deferred.get(0), pending), pending, granted);
+        } else if (!deferred.isEmpty()) {
+            checkConcurrently(deferred, pending, granted, check);
+        }
+        return granted;
+    }
+
+    private static boolean isAuthorizationInfoCached(Realm realm, PrincipalCollection principals) {
+        return !(realm instanceof AuthorizingRealm) || ((AuthorizingRealm) realm).isAuthorizationInfoCached(principals);
+    }
+
+    /**
+     * Queries all specified authorizers concurrently for the pending entries, merging each answer as soon as it
+     * arrives and cancelling the outstanding queries once all entries are granted.  The first query, and any query
+     * rejected by the executor, runs on the calling thread.
+     */
+    private void checkConcurrently(List<Authorizer> authorizers, int[] pending, boolean[] granted, BatchCheck check) {
+        Executor executor = getAuthorizationExecutor();
+        BlockingQueue<BatchQuery> completed = new LinkedBlockingQueue<BatchQuery>();
+        List<BatchQuery> queries = new ArrayList<BatchQuery>(authorizers.size());
+        List<BatchQuery> inline = new ArrayList<BatchQuery>(1);
+        for (Authorizer authorizer : authorizers) {
+            BatchQuery query = new BatchQuery(() -> check.check(authorizer, pending), pending, completed);
+            queries.add(query);
+            if (queries.size() == 1) {
+                inline.add(query);
+                continue;
+            }
+            try {
+                executor.execute(query);
+            } catch (RejectedExecutionException e) {
+                inline.add(query);
+            }
+        }
+        try {
+            for (BatchQuery query : inline) {
+                query.run();
+            }
+            int[] remaining = pending;
+            for (int i = 0; i < queries.size() && remaining.length > 0; i++) {
+                BatchQuery query = completed.take();
+                merge(query.answers(), query.pending, granted);
+                remaining = remaining(remaining, granted);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthorizationException("Interrupted while waiting for realms to complete an authorization check.", e);
+        } finally {
+            for (BatchQuery query : queries) {
+                query.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Records the entries granted by a realm's {@code answers} for the {@code pending} entries and returns the entries
+     * that are still not granted.
+     */
+    private static int[] merge(boolean[] answers, int[] pending, boolean[] granted) {
+        for (int i = 0; i < pending.length && i < answers.length; i++) {
+            if (answers[i]) {
+                granted[pending[i]] = true;
+            }
+        }
+        return remaining(pending, granted);
+    }
+
+    private static int[] remaining(int[] pending, boolean[] granted) {
+        int count = 0;
+        int[] remaining = new int[pending.length];
+        for (int index : pending) {
+            if (!granted[index]) {
+                remaining[count++] = index;
+            }
+        }
+        return count == pending.length ? pending : Arrays.copyOf(remaining, count);
+    }
+
+    private static String[] select(String[] all, int[] indices) {
+        if (indices.length == all.length) {
+            return all;
+        }
+        String[] selected = new String[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = all[indices[i]];
+        }
+        return selected;
+    }
+
+    private static <T> List<T> select(List<T> all, int[] indices) {
+        if (indices.length == all.size()) {
+            return all;
+        }
+        List<T> selected = new ArrayList<T>(indices.length);
+        for (int index : indices) {
+            selected.add(all.get(index));
+        }
+        return selected;
+    }
+
+    private static boolean allTrue(boolean[] values) {
+        for (boolean value : values) {
+            if (!value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Asks a single authorizer about the entries at the given indices, returning one answer per index.
+     */
+    private interface BatchCheck {
+        boolean[] check(Authorizer authorizer, int[] pending);
+    }
+
+    /**
+     * A concurrent {@link BatchCheck} invocation that adds itself to a queue once it has completed.
+     */
+    private static final class BatchQuery extends FutureTask<boolean[]> {
+
+        private final int[] pending;
+
+        private final BlockingQueue<BatchQuery> completed;
+
+        private BatchQuery(Callable<boolean[]> callable, int[] pending, BlockingQueue<BatchQuery> completed) {
+            super(callable);
+            this.pending = pending;
+            this.completed = completed;
+        }
+
+        @Override
+        protected void done() {
+            completed.add(this);
+        }
+
+        private boolean[] answers() throws InterruptedException {
+            try {
+                return get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new AuthorizationException(cause);
+            }
+        }
+    }
 }
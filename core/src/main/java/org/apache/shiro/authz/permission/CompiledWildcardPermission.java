@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.lang.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link WildcardPermission WildcardPermission} that is tokenized exactly once, at construction time, into flat
+ * {@code String} arrays and that {@link #implies(Permission) implies} other {@code CompiledWildcardPermission}s
+ * without iterators, collections or boxing.
+ * <p/>
+ * The supported syntax, the parsing rules (including how empty parts and trailing dividers are handled) and the
+ * results of {@link #implies(Permission) implies}, {@link #equals(Object) equals}, {@link #hashCode() hashCode} and
+ * {@link #toString() toString} are identical to those of a {@code WildcardPermission} created from the same string,
+ * and instances of both classes may be freely mixed and compared with one another.  The
+ * {@code List<Set<String>>} representation returned by {@link #getParts()} is only created if it is actually requested
+ * (for example when a plain {@code WildcardPermission} is asked whether it implies this one).
+ * <p/>
+ * Case folding is performed with a single {@link String#toLowerCase()} call on the whole permission string, which
+ * returns the original string itself when it is already lower case, and each token is then a substring of it.
+ * <p/>
+ * Instances are immutable.  Use a {@link CompiledWildcardPermissionResolver} to have realms create
+ * {@code CompiledWildcardPermission}s instead of {@code WildcardPermission}s.
+ *
+ * @see CompiledWildcardPermissionResolver
+ * @since 2.0
+ */
+public final class CompiledWildcardPermission extends WildcardPermission {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final char PART_DIVIDER = ':';
+    private static final char SUBPART_DIVIDER = ',';
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * Each part's distinct sub-parts, in the order they first appear in the permission string.
+     */
+    private final String[][] tokens;
+
+    /**
+     * Whether the part at the same index contains the {@link #WILDCARD_TOKEN wildcard token}.
+     */
+    private final boolean[] wildcards;
+
+    private final int hash;
+
+    private transient volatile List<Set<String>> partsView;
+
+    public CompiledWildcardPermission(String wildcardString) {
+        this(wildcardString, DEFAULT_CASE_SENSITIVE);
+    }
+
+    public CompiledWildcardPermission(String wildcardString, boolean caseSensitive) {
+        super();
+        this.tokens = tokenize(wildcardString, caseSensitive);
+        this.wildcards = new boolean[tokens.length];
+        int h = 1;
+        for (int i = 0; i < tokens.length; i++) {
+            int partHash = 0;
+            for (String token : tokens[i]) {
+                partHash += token.hashCode();
+                if (WILDCARD_TOKEN.equals(token)) {
+                    wildcards[i] = true;
+                }
+            }
+            h = HASH_MULTIPLIER * h + partHash;
+        }
+        this.hash = h;
+    }
+
+    private static String[][] tokenize(String wildcardString, boolean caseSensitive) {
+        String s = StringUtils.clean(wildcardString);
+
+        if (s == null || s.isEmpty()) {
+            throw new IllegalArgumentException("Wildcard string cannot be null or empty."
+                    + "Make sure permission strings are properly formatted.");
+        }
+
+        if (!caseSensitive) {
+            s = s.toLowerCase();
+        }
+
+        // String.split semantics: trailing empty parts are dropped
+        int end = trimTrailing(s, 0, s.length(), PART_DIVIDER);
+        if (end == 0) {
+            throw new IllegalArgumentException("Wildcard string cannot contain only dividers."
+                    + "Make sure permission strings are properly formatted.");
+        }
+
+        String[][] parts = new String[count(s, 0, end, PART_DIVIDER) + 1][];
+        int start = 0;
+        for (int i = 0; i < parts.length; i++) {
+            int stop = indexOf(s, start, end, PART_DIVIDER);
+            parts[i] = subparts(s, start, stop);
+            start = stop + 1;
+        }
+        return parts;
+    }
+
+    private static String[] subparts(String s, int start, int stop) {
+        if (start == stop) {
+            // "".split(",") yields a single empty token
+            return new String[] {""};
+        }
+        int end = trimTrailing(s, start, stop, SUBPART_DIVIDER);
+        if (end == start) {
+            throw new IllegalArgumentException("Wildcard string cannot contain parts with only dividers."
+                    + "Make sure permission strings are properly formatted.");
+        }
+        String[] subparts = new String[count(s, start, end, SUBPART_DIVIDER) + 1];
+        int distinct = 0;
+        int from = start;
+        while (from <= end) {
+            int to = indexOf(s, from, end, SUBPART_DIVIDER);
+            String token = s.substring(from, to);
+            if (!contains(subparts, distinct, token)) {
+                subparts[distinct++] = token;
+            }
+            from = to + 1;
+        }
+        if (distinct < subparts.length) {
+            String[] trimmed = new String[distinct];
+            System.arraycopy(subparts, 0, trimmed, 0, distinct);
+            subparts = trimmed;
+        }
+        return subparts;
+    }
+
+    private static int trimTrailing(String s, int start, int end, char divider) {
+        while (end > start && s.charAt(end - 1) == divider) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int count(String s, int start, int end, char divider) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == divider) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int indexOf(String s, int start, int end, char divider) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == divider) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean contains(String[] tokens, int length, String token) {
+        for (int i = 0; i < length; i++) {
+            if (tokens[i].equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAll(String[] tokens, String[] others) {
+        for (String other : others) {
+            if (!contains(tokens, tokens.length, other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tokenized parts of this permission.  The returned arrays must not be modified.
+     */
+    String[][] getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns {@code true}, as this class matches exactly like a {@code WildcardPermission}.
+     *
+     * @return {@code true}
+     */
+    @Override
+    protected boolean isIndexable() {
+        return true;
+    }
+
+    /**
+     * Returns an unmodifiable {@code List<Set<String>>} view equal to the parts of a {@code WildcardPermission}
+     * created from the same string.  The view is created on first access only.
+     *
+     * @return the parts of this permission.
+     */
+    @Override
+    protected List<Set<String>> getParts() {
+        List<Set<String>> parts = this.partsView;
+        if (parts == null) {
+            List<Set<String>> list = new ArrayList<Set<String>>(tokens.length);
+            for (String[] part : tokens) {
+                Set<String> set;
+                if (part.length == 1) {
+                    set = Collections.singleton(part[0]);
+                } else {
+                    set = new LinkedHashSet<String>(part.length * 4 / 3 + 1);
+                    Collections.addAll(set, part);
+                    set = Collections.unmodifiableSet(set);
+                }
+                list.add(set);
+            }
+            parts = Collections.unmodifiableList(list);
+            this.partsView = parts;
+        }
+        return parts;
+    }
+
+    @Override
+    public boolean implies(Permission p) {
+        if (p instanceof CompiledWildcardPermission) {
+            return implies(((CompiledWildcardPermission) p).tokens);
+        }
+        return super.implies(p);
+    }
+
+    private boolean implies(String[][] otherTokens) {
+        int i = 0;
+        for (; i < otherTokens.length; i++) {
+            // If this permission has less parts than the other permission, everything after the number of parts
+            // contained in this permission is automatically implied
+            if (i >= tokens.length) {
+                return true;
+            }
+            if (!wildcards[i] && !containsAll(tokens[i], otherTokens[i])) {
+                return false;
+            }
+        }
+        // If this permission has more parts than the other parts, only imply it if all of the other parts are wildcards
+        for (; i < tokens.length; i++) {
+            if (!wildcards[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        for (String[] part : tokens) {
+            if (buffer.length() > 0) {
+                buffer.append(PART_DIVIDER);
+            }
+            for (int i = 0; i < part.length; i++) {
+                if (i > 0) {
+                    buffer.append(SUBPART_DIVIDER);
+                }
+                buffer.append(part[i]);
+            }
+        }
+        return buffer.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof CompiledWildcardPermission) {
+            CompiledWildcardPermission other = (CompiledWildcardPermission) o;
+            if (hash != other.hash || tokens.length != other.tokens.length) {
+                return false;
+            }
+            for (int i = 0; i < tokens.length; i++) {
+                if (tokens[i].length != other.tokens[i].length || !containsAll(tokens[i], other.tokens[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (o instanceof WildcardPermission) {
+            return getParts().equals(((WildcardPermission) o).getParts());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+
+/**
+ * Drop-in replacement for the {@link WildcardPermissionResolver} that returns
+ * {@link CompiledWildcardPermission CompiledWildcardPermission}s instead of {@link WildcardPermission}s.  Both
+ * permission types accept the same syntax and produce the same authorization results, so a realm can be switched
+ * over by configuration alone, for example in {@code shiro.ini}:
+ * <pre>
+ * permissionResolver = org.apache.shiro.authz.permission.CompiledWildcardPermissionResolver
+ * myRealm.permissionResolver = $permissionResolver
+ * </pre>
+ *
+ * @since 2.0
+ */
+public class CompiledWildcardPermissionResolver extends WildcardPermissionResolver {
+
+    /**
+     * Constructor to specify case sensitivity for the resolved permissions.
+     *
+     * @param caseSensitive true if permissions should be case sensitive.
+     */
+    public CompiledWildcardPermissionResolver(boolean caseSensitive) {
+        super(caseSensitive);
+    }
+
+    /**
+     * Default constructor.
+     * Equivalent to calling CompiledWildcardPermissionResolver(false)
+     *
+     * @see CompiledWildcardPermissionResolver#CompiledWildcardPermissionResolver(boolean)
+     */
+    public CompiledWildcardPermissionResolver() {
+        super();
+    }
+
+    /**
+     * Returns a new {@link CompiledWildcardPermission CompiledWildcardPermission} instance constructed based on the
+     * specified <tt>permissionString</tt>.
+     *
+     * @param permissionString the permission string to convert to a {@link Permission Permission} instance.
+     * @param caseSensitive    whether the created permission should be case sensitive.
+     * @return a new {@link CompiledWildcardPermission CompiledWildcardPermission} instance constructed based on the
+     * specified <tt>permissionString</tt>
+     */
+    @Override
+    protected Permission createPermission(String permissionString, boolean caseSensitive) {
+        return new CompiledWildcardPermission(permissionString, caseSensitive);
+    }
+}
@@ -137,4 +137,17 @@ public class DomainPermission extends WildcardPermission {
         this.targets = targets;
         setParts(domain, actions, targets);
     }
+
+    /**
+     * Returns {@code true} for plain {@code DomainPermission} instances, which match exactly like a
+     * {@code WildcardPermission}.  Type-safe subclasses that do not override {@code implies} may override this method
+     * to return {@code true} as well.
+     *
+     * @return {@code true} if this permission can be compiled into a {@link PermissionIndex PermissionIndex}.
+     * @since 2.0
+     */
+    @Override
+    protected boolean isIndexable() {
+        return getClass() == DomainPermission.class;
+    }
 }
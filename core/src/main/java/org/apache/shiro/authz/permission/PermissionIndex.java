@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, pre-compiled view of a set of granted {@link Permission Permission}s that can answer
+ * {@link #implies(Permission) implies} checks without scanning every granted permission.
+ * <p/>
+ * {@link WildcardPermission WildcardPermission}s that are {@link WildcardPermission#isIndexable() indexable}, such as
+ * plain {@code WildcardPermission}s and {@link DomainPermission DomainPermission}s, are compiled into a trie keyed
+ * on their parts, using the pre-tokenized form of {@link CompiledWildcardPermission CompiledWildcardPermission}s
+ * directly.  Every node has at most one wildcard branch and any number of literal branches, so a check walks the
+ * trie once per part of the permission being checked instead of calling {@code implies} on every granted permission.
+ * All other {@code Permission} implementations are retained as-is and are evaluated linearly after the trie, exactly
+ * as they would have been without an index.
+ * <p/>
+ * The result of every check is identical to iterating over the granted permissions and returning {@code true} as soon
+ * as one of them {@link Permission#implies(Permission) implies} the checked permission.
+ * <p/>
+ * Instances are thread-safe once created and are intended to be built once per {@code AuthorizationInfo} and then
+ * reused for every subsequent check.
+ *
+ * @see #compile(java.util.Collection)
+ * @since 2.0
+ */
+public final class PermissionIndex {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    private static final PermissionIndex EMPTY = new PermissionIndex(new Node(null), new Permission[0], 0);
+
+    private final Node root;
+
+    private final Permission[] unindexed;
+
+    private final int size;
+
+    private PermissionIndex(Node root, Permission[] unindexed, int size) {
+        this.root = root;
+        this.unindexed = unindexed;
+        this.size = size;
+    }
+
+    /**
+     * Compiles the specified granted permissions into a new {@code PermissionIndex}.
+     *
+     * @param permissions the granted permissions to compile, may be {@code null} or empty.
+     * @return a new {@code PermissionIndex} reflecting the specified permissions.
+     */
+    public static PermissionIndex compile(Collection<? extends Permission> permissions) {
+        if (permissions == null || permissions.isEmpty()) {
+            return EMPTY;
+        }
+
+        Node root = new Node(null);
+        List<Permission> unindexed = new ArrayList<Permission>();
+        int size = 0;
+        for (Permission permission : permissions) {
+            if (permission == null) {
+                continue;
+            }
+            size++;
+            String[][] parts = isIndexable(permission) ? tokensOf((WildcardPermission) permission) : null;
+            if (parts != null) {
+                root.add(parts, 0);
+            } else {
+                unindexed.add(permission);
+            }
+        }
+        root.seal();
+        return new PermissionIndex(root, unindexed.toArray(new Permission[0]), size);
+    }
+
+    /**
+     * Returns {@code true} if this index does not contain any granted permissions, {@code false} otherwise.
+     *
+     * @return {@code true} if this index does not contain any granted permissions, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of granted permissions compiled into this index.
+     *
+     * @return the number of granted permissions compiled into this index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if any of the granted permissions in this index implies the specified permission,
+     * {@code false} otherwise.
+     *
+     * @param permission the permission to check.
+     * @return {@code true} if any of the granted permissions in this index implies the specified permission.
+     */
+    public boolean implies(Permission permission) {
+        if (permission == null || size == 0) {
+            return false;
+        }
+        if (permission instanceof WildcardPermission) {
+            String[][] parts = tokensOf((WildcardPermission) permission);
+            if (parts != null && root.matches(parts, 0)) {
+                return true;
+            }
+        }
+        for (Permission granted : unindexed) {
+            if (granted.implies(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks each of the specified permissions against this index.
+     *
+     * @param permissions the permissions to check.
+     * @return an array of the same size and order as the specified list, where each element reflects whether the
+     * corresponding permission is implied.
+     */
+    public boolean[] implies(List<Permission> permissions) {
+        if (permissions == null || permissions.isEmpty()) {
+            return new boolean[0];
+        }
+        boolean[] result = new boolean[permissions.size()];
+        int i = 0;
+        for (Permission permission : permissions) {
+            result[i++] = implies(permission);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if all of the specified permissions are implied by this index, {@code false} otherwise.
+     * An empty or {@code null} collection is considered implied, consistent with the realm-level semantics.
+     *
+     * @param permissions the permissions to check.
+     * @return {@code true} if all of the specified permissions are implied by this index.
+     */
+    public boolean impliesAll(Collection<Permission> permissions) {
+        if (permissions != null) {
+            for (Permission permission : permissions) {
+                if (!implies(permission)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the parts of the specified permission as arrays of sub-part tokens, using the pre-tokenized form of
+     * {@link CompiledWildcardPermission}s directly.
+     */
+    private static String[][] tokensOf(WildcardPermission permission) {
+        if (permission instanceof CompiledWildcardPermission) {
+            return ((CompiledWildcardPermission) permission).getTokens();
+        }
+        List<Set<String>> parts = permission.getParts();
+        if (parts == null) {
+            return null;
+        }
+        String[][] tokens = new String[parts.size()][];
+        int i = 0;
+        for (Set<String> part : parts) {
+            tokens[i++] = part.toArray(NO_TOKENS);
+        }
+        return tokens;
+    }
+
+    private static boolean isIndexable(Permission permission) {
+        return permission instanceof WildcardPermission && ((WildcardPermission) permission).isIndexable();
+    }
+
+    /**
+     * A single trie node.  Nodes are mutable only while the enclosing index is being compiled and are effectively
+     * immutable once {@link #seal() sealed} and safely published via the index's final {@code root} field.
+     */
+    private static final class Node {
+
+        private static final Node[] NO_NODES = new Node[0];
+
+        /**
+         * The granted part (set of sub-parts) that leads from the parent to this node, {@code null} for the root.
+         */
+        private final Set<String> part;
+
+        /**
+         * Children keyed by their granted part, only used while compiling.
+         */
+        private Map<Set<String>, Node> children;
+
+        /**
+         * Children reachable by each individual sub-part token.  A child whose part has several tokens is listed
+         * under each of them.
+         */
+        private Map<String, Node[]> byToken;
+
+        private Node wildcard;
+
+        /**
+         * {@code true} if a granted permission ends at this node.
+         */
+        private boolean terminal;
+
+        /**
+         * {@code true} if a granted permission ends at this node or continues from it with wildcard parts only.
+         */
+        private boolean wildcardTail;
+
+        Node(Set<String> part) {
+            this.part = part;
+        }
+
+        void add(String[][] parts, int i) {
+            if (i >= parts.length) {
+                this.terminal = true;
+                return;
+            }
+            Set<String> next = new LinkedHashSet<String>(Arrays.asList(parts[i]));
+            Node child;
+            if (next.contains(WildcardPermission.WILDCARD_TOKEN)) {
+                if (wildcard == null) {
+                    wildcard = new Node(Collections.singleton(WildcardPermission.WILDCARD_TOKEN));
+                }
+                child = wildcard;
+            } else {
+                if (children == null) {
+                    children = new HashMap<Set<String>, Node>();
+                }
+                Set<String> key = Collections.unmodifiableSet(next);
+                child = children.get(key);
+                if (child == null) {
+                    child = new Node(key);
+                    children.put(key, child);
+                }
+            }
+            child.add(parts, i + 1);
+        }
+
+        void seal() {
+            if (wildcard != null) {
+                wildcard.seal();
+            }
+            if (children != null) {
+                Map<String, List<Node>> tokens = new HashMap<String, List<Node>>();
+                for (Node child : children.values()) {
+                    child.seal();
+                    for (String token : child.part) {
+                        List<Node> nodes = tokens.get(token);
+                        if (nodes == null) {
+                            nodes = new ArrayList<Node>(1);
+                            tokens.put(token, nodes);
+                        }
+                        nodes.add(child);
+                    }
+                }
+                byToken = new HashMap<String, Node[]>(tokens.size() * 4 / 3 + 1);
+                for (Map.Entry<String, List<Node>> entry : tokens.entrySet()) {
+                    byToken.put(entry.getKey(), entry.getValue().toArray(NO_NODES));
+                }
+                children = null;
+            }
+            wildcardTail = terminal || (wildcard != null && wildcard.wildcardTail);
+        }
+
+        boolean matches(String[][] parts, int i) {
+            // a granted permission with fewer parts implies everything below it:
+            if (terminal) {
+                return true;
+            }
+            // the checked permission has fewer parts - only implied if the remaining granted parts are wildcards:
+            if (i >= parts.length) {
+                return wildcardTail;
+            }
+            if (wildcard != null && wildcard.matches(parts, i + 1)) {
+                return true;
+            }
+            String[] checked = parts[i];
+            if (byToken == null || checked.length == 0) {
+                return checked.length == 0 && matchesAny(parts, i);
+            }
+            Node[] candidates = byToken.get(checked[0]);
+            return candidates != null && matchesAny(candidates, checked, parts, i);
+        }
+
+        private static boolean matchesAny(Node[] candidates, String[] checked, String[][] parts, int i) {
+            for (Node candidate : candidates) {
+                if (candidate.containsAll(checked) && candidate.matches(parts, i + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean containsAll(String[] checked) {
+            // the first token has already been matched via the byToken lookup:
+            for (int i = 1; i < checked.length; i++) {
+                if (!part.contains(checked[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Handles the degenerate case of an empty checked part, which every granted part contains.
+         */
+        private boolean matchesAny(String[][] parts, int i) {
+            if (byToken == null) {
+                return false;
+            }
+            Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+            for (Node[] nodes : byToken.values()) {
+                for (Node candidate : nodes) {
+                    if (visited.add(candidate) && candidate.matches(parts, i + 1)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
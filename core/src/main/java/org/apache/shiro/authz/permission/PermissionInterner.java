@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent map from permission strings to the immutable {@link Permission} instances resolved from
+ * them, used by the {@link WildcardPermissionResolver} so that repeated resolution of the same string returns the same
+ * instance.
+ * <p/>
+ * Entries are kept in two generations: new entries go into the <em>young</em> generation, and when it is half full
+ * it becomes the <em>old</em> generation, replacing (and discarding) the previous old generation.  A hit in the old
+ * generation promotes the entry back into the young generation.  This approximates LRU eviction, never holds more than
+ * {@code capacity} entries and needs no locking on the read path.
+ * <p/>
+ * An interner is bound to a single case-sensitivity setting: the resolver replaces its interner when the setting
+ * changes, so the cache key is effectively the combination of the permission string and the case-sensitivity.
+ *
+ * @since 2.0
+ */
+final class PermissionInterner {
+
+    private final int capacity;
+
+    private final boolean caseSensitive;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private volatile ConcurrentMap<String, Permission> young;
+
+    private volatile ConcurrentMap<String, Permission> old;
+
+    PermissionInterner(int capacity, boolean caseSensitive) {
+        this.capacity = Math.max(capacity, 2);
+        this.caseSensitive = caseSensitive;
+        this.young = new ConcurrentHashMap<String, Permission>();
+        this.old = new ConcurrentHashMap<String, Permission>();
+    }
+
+    boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    Permission get(String permissionString) {
+        Permission permission = young.get(permissionString);
+        if (permission == null) {
+            permission = old.get(permissionString);
+            if (permission == null) {
+                misses.increment();
+                return null;
+            }
+            put(permissionString, permission);
+        }
+        hits.increment();
+        return permission;
+    }
+
+    void put(String permissionString, Permission permission) {
+        ConcurrentMap<String, Permission> current = young;
+        current.put(permissionString, permission);
+        if (current.size() >= capacity / 2) {
+            rotate(current);
+        }
+    }
+
+    private synchronized void rotate(ConcurrentMap<String, Permission> full) {
+        if (young == full) {
+            old = full;
+            young = new ConcurrentHashMap<String, Permission>();
+        }
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    int size() {
+        return young.size() + old.size();
+    }
+}
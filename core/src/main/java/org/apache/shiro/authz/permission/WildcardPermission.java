@@ -198,6 +198,23 @@ public class WildcardPermission implements Permission, Serializable {
     |               M E T H O D S               |
     ============================================*/
 
+    /**
+     * Returns {@code true} if whether this permission {@link #implies(Permission) implies} another one is fully
+     * determined by the {@link #getParts() parts} of both, as implemented by {@code WildcardPermission}, so that it can
+     * be compiled into a {@link PermissionIndex PermissionIndex}.  Permissions that are not indexable are still
+     * evaluated correctly, by calling their {@code implies} method.
+     * <p/>
+     * Only returns {@code true} for plain {@code WildcardPermission} instances by default, as a subclass may override
+     * {@code implies} or {@code getParts}.  Subclasses that leave both unchanged may override this method to return
+     * {@code true}.
+     *
+     * @return {@code true} if this permission can be compiled into a {@code PermissionIndex}.
+     * @since 2.0
+     */
+    protected boolean isIndexable() {
+        return getClass() == WildcardPermission.class;
+    }
+
     public boolean implies(Permission p) {
         // By default only supports comparisons with other WildcardPermissions
         if (!(p instanceof WildcardPermission)) {
@@ -254,7 +271,7 @@ public class WildcardPermission implements Permission, Serializable {
     public boolean equals(Object o) {
         if (o instanceof WildcardPermission) {
             WildcardPermission wp = (WildcardPermission) o;
-            return parts.equals(wp.parts);
+            return parts.equals(wp.getParts());
         }
         return false;
     }
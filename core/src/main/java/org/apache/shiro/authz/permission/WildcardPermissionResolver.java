@@ -22,14 +22,34 @@ import org.apache.shiro.authz.Permission;
 
 
 /**
- * <tt>PermissionResolver</tt> implementation that returns a new {@link WildcardPermission WildcardPermission}
+ * <tt>PermissionResolver</tt> implementation that returns a {@link WildcardPermission WildcardPermission}
  * based on the input string.
+ * <p/>
+ * Because permissions are immutable and the permission strings used by an application usually form a small, bounded
+ * vocabulary, resolved permissions are interned in a bounded, concurrent cache keyed on the permission string (and the
+ * {@link #isCaseSensitive() caseSensitive} setting), so that resolving the same string repeatedly returns the same
+ * {@code Permission} instance instead of parsing it again.  The cache holds at most
+ * {@link #getCacheCapacity() cacheCapacity} entries, evicting the least recently used ones first (approximately), and
+ * its effectiveness can be monitored via {@link #getCacheHitCount()} and {@link #getCacheMissCount()}.  A capacity of
+ * zero disables the cache.
  *
  * @since 0.9
  */
 public class WildcardPermissionResolver implements PermissionResolver {
+
+    /**
+     * The default number of resolved permissions retained by the cache, {@value}.
+     *
+     * @since 2.0
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 1000;
+
     boolean caseSensitive;
 
+    private int cacheCapacity;
+
+    private volatile PermissionInterner cache;
+
     /**
      * Constructor to specify case sensitivity for the resolved permissions.
      *
@@ -37,6 +57,8 @@ public class WildcardPermissionResolver implements PermissionResolver {
      */
     public WildcardPermissionResolver(boolean caseSensitive) {
         this.caseSensitive = caseSensitive;
+        this.cacheCapacity = DEFAULT_CACHE_CAPACITY;
+        resetCache();
     }
 
     /**
@@ -56,6 +78,7 @@ public class WildcardPermissionResolver implements PermissionResolver {
      */
     public void setCaseSensitive(boolean state) {
         this.caseSensitive = state;
+        resetCache();
     }
 
     /**
@@ -68,14 +91,102 @@ public class WildcardPermissionResolver implements PermissionResolver {
     }
 
     /**
-     * Returns a new {@link WildcardPermission WildcardPermission} instance constructed based on the specified
-     * <tt>permissionString</tt>.
+     * Returns the maximum number of resolved permissions retained by the cache.  Defaults to
+     * {@link #DEFAULT_CACHE_CAPACITY}.
+     *
+     * @return the maximum number of resolved permissions retained by the cache, {@code 0} if caching is disabled.
+     * @since 2.0
+     */
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    /**
+     * Sets the maximum number of resolved permissions retained by the cache, discarding any currently cached
+     * permissions and resetting the cache statistics.  A value of {@code 0} disables caching.
+     *
+     * @param cacheCapacity the maximum number of resolved permissions to retain, or {@code 0} to disable caching.
+     * @since 2.0
+     */
+    public void setCacheCapacity(int cacheCapacity) {
+        if (cacheCapacity < 0) {
+            throw new IllegalArgumentException("cacheCapacity cannot be negative.");
+        }
+        this.cacheCapacity = cacheCapacity;
+        resetCache();
+    }
+
+    /**
+     * Returns the number of {@link #resolvePermission(String) resolvePermission} calls that were served from the
+     * cache since it was last reset.
+     *
+     * @return the number of cache hits.
+     * @since 2.0
+     */
+    public long getCacheHitCount() {
+        PermissionInterner interner = this.cache;
+        return interner != null ? interner.getHitCount() : 0;
+    }
+
+    /**
+     * Returns the number of {@link #resolvePermission(String) resolvePermission} calls that had to create a new
+     * permission since the cache was last reset.
+     *
+     * @return the number of cache misses.
+     * @since 2.0
+     */
+    public long getCacheMissCount() {
+        PermissionInterner interner = this.cache;
+        return interner != null ? interner.getMissCount() : 0;
+    }
+
+    /**
+     * Returns the approximate number of resolved permissions currently held by the cache.
+     *
+     * @return the approximate number of resolved permissions currently held by the cache.
+     * @since 2.0
+     */
+    public int getCacheSize() {
+        PermissionInterner interner = this.cache;
+        return interner != null ? interner.size() : 0;
+    }
+
+    private void resetCache() {
+        this.cache = cacheCapacity > 0 ? new PermissionInterner(cacheCapacity, caseSensitive) : null;
+    }
+
+    /**
+     * Returns a {@link WildcardPermission WildcardPermission} instance constructed based on the specified
+     * <tt>permissionString</tt>, reusing a previously resolved instance if one is cached.
      *
      * @param permissionString the permission string to convert to a {@link Permission Permission} instance.
-     * @return a new {@link WildcardPermission WildcardPermission} instance constructed based on the specified
+     * @return a {@link WildcardPermission WildcardPermission} instance constructed based on the specified
      * <tt>permissionString</tt>
      */
     public Permission resolvePermission(String permissionString) {
+        PermissionInterner interner = this.cache;
+        if (interner == null || permissionString == null) {
+            return createPermission(permissionString, caseSensitive);
+        }
+        Permission permission = interner.get(permissionString);
+        if (permission == null) {
+            permission = createPermission(permissionString, interner.isCaseSensitive());
+            interner.put(permissionString, permission);
+        }
+        return permission;
+    }
+
+    /**
+     * Creates a new, immutable permission instance for the specified string.  Subclasses may override this method to
+     * return a different {@code WildcardPermission} implementation while retaining the caching behavior of
+     * {@link #resolvePermission(String)}.
+     *
+     * @param permissionString the permission string to convert to a {@link Permission Permission} instance.
+     * @param caseSensitive    whether the created permission should be case sensitive.
+     * @return a new {@link WildcardPermission WildcardPermission} instance for the specified string.
+     * @since 2.0
+     */
+    protected Permission createPermission(String permissionString, boolean caseSensitive) {
         return new WildcardPermission(permissionString, caseSensitive);
     }
 }
@@ -25,6 +25,8 @@ import org.apache.shiro.authc.Authenticator;
 import org.apache.shiro.authc.pam.ModularRealmAuthenticator;
 import org.apache.shiro.lang.util.LifecycleUtils;
 
+import java.util.concurrent.CompletionStage;
+
 
 /**
  * Shiro support of a {@link SecurityManager} class hierarchy that delegates all
@@ -106,6 +108,17 @@ public abstract class AuthenticatingSecurityManager extends RealmSecurityManager
         return this.authenticator.authenticate(token);
     }
 
+    /**
+     * Delegates to the wrapped {@link org.apache.shiro.authc.Authenticator Authenticator} for asynchronous
+     * authentication.
+     *
+     * @since 2.0
+     */
+    @Override
+    public CompletionStage<AuthenticationInfo> authenticateAsync(AuthenticationToken token) {
+        return this.authenticator.authenticateAsync(token);
+    }
+
     public void destroy() {
         LifecycleUtils.destroy(getAuthenticator());
         this.authenticator = null;
@@ -41,6 +41,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The Shiro framework's default concrete implementation of the {@link SecurityManager} interface,
@@ -295,6 +298,49 @@ public class DefaultSecurityManager extends SessionsSecurityManager {
         return loggedIn;
     }
 
+    /**
+     * Asynchronous counterpart of {@link #login(Subject, AuthenticationToken) login}: authenticates the token via
+     * {@link #authenticateAsync(AuthenticationToken) authenticateAsync} and then, on the thread that completes the
+     * authentication, creates the logged-in {@code Subject} and calls
+     * {@link #onSuccessfulLogin(AuthenticationToken, AuthenticationInfo, Subject) onSuccessfulLogin} or
+     * {@link #onFailedLogin(AuthenticationToken, AuthenticationException, Subject) onFailedLogin} (and thereby the
+     * {@link RememberMeManager RememberMeManager}) exactly as {@code login} does.
+     *
+     * @param subject the subject against which the authentication attempt will occur
+     * @param token   the token representing the Subject's principal(s) and credential(s)
+     * @return a stage that completes with the subject instance reflecting the authenticated state
+     * @since 2.0
+     */
+    @Override
+    public CompletionStage<Subject> loginAsync(Subject subject, AuthenticationToken token) {
+        CompletableFuture<Subject> result = new CompletableFuture<Subject>();
+        authenticateAsync(token).whenComplete((info, t) -> {
+            if (t != null) {
+                Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                if (cause instanceof AuthenticationException) {
+                    try {
+                        onFailedLogin(token, (AuthenticationException) cause, subject);
+                    } catch (Exception e) {
+                        if (LOGGER.isInfoEnabled()) {
+                            LOGGER.info("onFailedLogin method threw an "
+                                    + "exception.  Logging and propagating original AuthenticationException.", e);
+                        }
+                    }
+                }
+                result.completeExceptionally(cause);
+                return;
+            }
+            try {
+                Subject loggedIn = createSubject(token, info, subject);
+                onSuccessfulLogin(token, info, loggedIn);
+                result.complete(loggedIn);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
     protected void onSuccessfulLogin(AuthenticationToken token, AuthenticationInfo info, Subject subject) {
         rememberMeSuccessfulLogin(token, info, subject);
     }
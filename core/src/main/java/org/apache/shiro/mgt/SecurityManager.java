@@ -26,6 +26,9 @@ import org.apache.shiro.session.mgt.SessionManager;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.subject.SubjectContext;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 
 /**
  * A {@code SecurityManager} executes all security operations for <em>all</em> Subjects (aka users) across a
@@ -76,6 +79,29 @@ public interface SecurityManager extends Authenticator, Authorizer, SessionManag
      */
     Subject login(Subject subject, AuthenticationToken authenticationToken) throws AuthenticationException;
 
+    /**
+     * Logs in the specified Subject using the given {@code authenticationToken} without blocking the calling thread
+     * (if the implementation supports it), returning a stage that completes with the same Subject instance
+     * {@link #login(Subject, AuthenticationToken) login} would return, or completes exceptionally with the same
+     * {@code AuthenticationException} it would throw.
+     * <p/>
+     * The default implementation simply calls {@link #login(Subject, AuthenticationToken) login} on the calling thread
+     * and returns an already completed stage.
+     *
+     * @param subject             the subject against which the authentication attempt will occur
+     * @param authenticationToken the token representing the Subject's principal(s) and credential(s)
+     * @return a stage that completes with the subject instance reflecting the authenticated state
+     * @see org.apache.shiro.subject.Subject#loginAsync(AuthenticationToken)
+     * @since 2.0
+     */
+    default CompletionStage<Subject> loginAsync(Subject subject, AuthenticationToken authenticationToken) {
+        try {
+            return CompletableFuture.completedFuture(login(subject, authenticationToken));
+        } catch (AuthenticationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Logs out the specified Subject from the system.
      * <p/>
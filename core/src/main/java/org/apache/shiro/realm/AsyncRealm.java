@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link Realm} that can look up and verify account data without blocking the calling thread, for example by
+ * using a non-blocking database or directory client.
+ * <p/>
+ * The {@link org.apache.shiro.authc.pam.ModularRealmAuthenticator ModularRealmAuthenticator} calls
+ * {@link #getAuthenticationInfoAsync(AuthenticationToken)} instead of
+ * {@link #getAuthenticationInfo(AuthenticationToken)} during an
+ * {@link org.apache.shiro.authc.Authenticator#authenticateAsync(AuthenticationToken) asynchronous authentication}, and
+ * runs realms that do not implement this interface on its
+ * {@link org.apache.shiro.authc.AbstractAuthenticator#setAsyncExecutor(java.util.concurrent.Executor) asyncExecutor}
+ * instead.
+ *
+ * @since 2.0
+ */
+public interface AsyncRealm extends Realm {
+
+    /**
+     * Returns a stage that completes with the same value {@link #getAuthenticationInfo(AuthenticationToken)} would
+     * return for the given token (including {@code null} if no account could be found), or completes exceptionally
+     * with the {@link org.apache.shiro.authc.AuthenticationException AuthenticationException} it would throw.
+     *
+     * @param token the application-specific representation of an account principal and credentials.
+     * @return a stage that completes with the authentication information for the account associated with the
+     * specified {@code token}, or {@code null} if no account could be found.
+     */
+    CompletionStage<AuthenticationInfo> getAuthenticationInfoAsync(AuthenticationToken token);
+}
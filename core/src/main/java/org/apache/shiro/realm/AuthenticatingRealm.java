@@ -33,6 +33,7 @@ import org.apache.shiro.lang.util.Initializable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -107,9 +108,26 @@ import java.util.concurrent.atomic.AtomicInteger;
  * If this lazy eviction capability of the cache product is not sufficient and you want discrete behavior
  * (highly recommended for authentication data), ensure that the return values from those two methods are identical in
  * the subclass implementation.
+ * <h2>Verified Credentials Caching</h2>
+ * Authentication caching avoids repeated data source lookups, but the submitted credentials are still verified by the
+ * {@link #getCredentialsMatcher() credentialsMatcher} on every authentication, which can be very expensive with a
+ * deliberately slow password hashing algorithm.  If
+ * {@link #setVerifiedCredentialsCachingEnabled(boolean) verifiedCredentialsCachingEnabled} is {@code true}, the outcome
+ * of each credentials match is remembered for
+ * {@link #setVerifiedCredentialsCacheTtl(long) verifiedCredentialsCacheTtl} milliseconds when successful, and for
+ * {@link #setFailedCredentialsCacheTtl(long) failedCredentialsCacheTtl} milliseconds when the credentials were
+ * incorrect, so that repeated authentications (or repeated guesses) with the same credentials skip the matcher.
+ * <p/>
+ * Outcomes are held in memory only, keyed on a keyed MAC of the submitted principal and credentials and of the stored
+ * credentials they were matched against, so that no credentials are retained and a change of the stored credentials
+ * takes effect immediately.  Cached outcomes for an account are discarded by
+ * {@link #clearCachedAuthenticationInfo(org.apache.shiro.subject.PrincipalCollection) clearCachedAuthenticationInfo}.
+ * Only enable this feature if the {@code credentialsMatcher} gives the same result for the same submitted and stored
+ * credentials each time it is called (i.e. it does not, for example, count failed attempts itself).
  *
  * @since 0.2
  */
+@SuppressWarnings("checkstyle:MethodCount")
 public abstract class AuthenticatingRealm extends CachingRealm implements Initializable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticatingRealm.class);
@@ -134,6 +152,9 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
     private boolean authenticationCachingEnabled;
     private String authenticationCacheName;
 
+    private volatile boolean verifiedCredentialsCachingEnabled;
+    private volatile VerifiedCredentialsCache verifiedCredentialsCache;
+
     /**
      * The class that this realm supports for authentication tokens.  This is used by the
      * default implementation of the {@link Realm#supports(org.apache.shiro.authc.AuthenticationToken)} method to
@@ -207,6 +228,10 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
      */
     public void setCredentialsMatcher(CredentialsMatcher credentialsMatcher) {
         this.credentialsMatcher = credentialsMatcher;
+        VerifiedCredentialsCache verified = this.verifiedCredentialsCache;
+        if (verified != null) {
+            verified.clear();
+        }
     }
 
     /**
@@ -338,6 +363,123 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
         }
     }
 
+    /**
+     * Returns {@code true} if the outcome of credentials matching is remembered for a limited time, so that repeated
+     * authentications with the same credentials do not invoke the {@link #getCredentialsMatcher() credentialsMatcher}
+     * again, {@code false} otherwise.
+     * <p/>
+     * The default value is {@code false}.
+     *
+     * @return {@code true} if the outcome of credentials matching is remembered for a limited time.
+     * @since 2.0
+     */
+    public boolean isVerifiedCredentialsCachingEnabled() {
+        return verifiedCredentialsCachingEnabled;
+    }
+
+    /**
+     * Sets whether the outcome of credentials matching is remembered for a limited time, so that repeated
+     * authentications with the same credentials do not invoke the {@link #getCredentialsMatcher() credentialsMatcher}
+     * again.  See the class-level JavaDoc for when it is safe to enable this.
+     * <p/>
+     * The default value is {@code false}.
+     *
+     * @param verifiedCredentialsCachingEnabled whether the outcome of credentials matching is remembered.
+     * @since 2.0
+     */
+    public void setVerifiedCredentialsCachingEnabled(boolean verifiedCredentialsCachingEnabled) {
+        if (verifiedCredentialsCachingEnabled) {
+            getVerifiedCredentialsCache();
+        }
+        this.verifiedCredentialsCachingEnabled = verifiedCredentialsCachingEnabled;
+    }
+
+    /**
+     * Returns the number of milliseconds for which a successful credentials match is remembered if
+     * {@link #isVerifiedCredentialsCachingEnabled() verifiedCredentialsCachingEnabled}.  The default is 5 minutes.
+     *
+     * @return the number of milliseconds for which a successful credentials match is remembered.
+     * @since 2.0
+     */
+    public long getVerifiedCredentialsCacheTtl() {
+        return getVerifiedCredentialsCache().getSuccessTtl();
+    }
+
+    /**
+     * Sets the number of milliseconds for which a successful credentials match is remembered if
+     * {@link #isVerifiedCredentialsCachingEnabled() verifiedCredentialsCachingEnabled}.  The default is 5 minutes.
+     *
+     * @param verifiedCredentialsCacheTtl the number of milliseconds for which a successful match is remembered.
+     * @since 2.0
+     */
+    public void setVerifiedCredentialsCacheTtl(long verifiedCredentialsCacheTtl) {
+        getVerifiedCredentialsCache().setSuccessTtl(verifiedCredentialsCacheTtl);
+    }
+
+    /**
+     * Returns the number of milliseconds for which incorrect credentials are remembered if
+     * {@link #isVerifiedCredentialsCachingEnabled() verifiedCredentialsCachingEnabled}.  The default is 30 seconds.
+     *
+     * @return the number of milliseconds for which incorrect credentials are remembered.
+     * @since 2.0
+     */
+    public long getFailedCredentialsCacheTtl() {
+        return getVerifiedCredentialsCache().getFailureTtl();
+    }
+
+    /**
+     * Sets the number of milliseconds for which incorrect credentials are remembered if
+     * {@link #isVerifiedCredentialsCachingEnabled() verifiedCredentialsCachingEnabled}, so that repeated attempts with
+     * the same incorrect credentials are rejected without invoking the {@link #getCredentialsMatcher()
+     * credentialsMatcher}.  A value of {@code 0} or less disables caching of incorrect credentials.  The default is
+     * 30 seconds.
+     *
+     * @param failedCredentialsCacheTtl the number of milliseconds for which incorrect credentials are remembered.
+     * @since 2.0
+     */
+    public void setFailedCredentialsCacheTtl(long failedCredentialsCacheTtl) {
+        getVerifiedCredentialsCache().setFailureTtl(failedCredentialsCacheTtl);
+    }
+
+    /**
+     * Returns the maximum number of credentials matching outcomes remembered if
+     * {@link #isVerifiedCredentialsCachingEnabled() verifiedCredentialsCachingEnabled}.  The default is 10,000.
+     *
+     * @return the maximum number of credentials matching outcomes remembered.
+     * @since 2.0
+     */
+    public int getVerifiedCredentialsCacheMaxSize() {
+        return getVerifiedCredentialsCache().getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of credentials matching outcomes remembered if
+     * {@link #isVerifiedCredentialsCachingEnabled() verifiedCredentialsCachingEnabled}.  The default is 10,000.
+     *
+     * @param verifiedCredentialsCacheMaxSize the maximum number of credentials matching outcomes remembered.
+     * @since 2.0
+     */
+    public void setVerifiedCredentialsCacheMaxSize(int verifiedCredentialsCacheMaxSize) {
+        if (verifiedCredentialsCacheMaxSize < 1) {
+            throw new IllegalArgumentException("verifiedCredentialsCacheMaxSize must be greater than zero.");
+        }
+        getVerifiedCredentialsCache().setMaxSize(verifiedCredentialsCacheMaxSize);
+    }
+
+    private VerifiedCredentialsCache getVerifiedCredentialsCache() {
+        VerifiedCredentialsCache cache = this.verifiedCredentialsCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = this.verifiedCredentialsCache;
+                if (cache == null) {
+                    cache = new VerifiedCredentialsCache();
+                    this.verifiedCredentialsCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     public void setName(String name) {
         super.setName(name);
         String authcCacheName = this.authenticationCacheName;
@@ -576,7 +718,11 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
         }
 
         if (info != null) {
-            assertCredentialsMatch(token, info);
+            if (verifiedCredentialsCachingEnabled) {
+                assertCredentialsMatchUsingCache(token, info);
+            } else {
+                assertCredentialsMatch(token, info);
+            }
         } else {
             LOGGER.debug("No AuthenticationInfo found for submitted AuthenticationToken [{}].  Returning null.", token);
         }
@@ -607,6 +753,36 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
         }
     }
 
+    /**
+     * Asserts that the credentials match like {@link #assertCredentialsMatch(AuthenticationToken, AuthenticationInfo)}
+     * does, reusing a recently remembered outcome for the same submitted and stored credentials if there is one.
+     */
+    private void assertCredentialsMatchUsingCache(AuthenticationToken token, AuthenticationInfo info) {
+        VerifiedCredentialsCache cache = getVerifiedCredentialsCache();
+        ByteBuffer key = cache.keyFor(token, info);
+        if (key == null) {
+            assertCredentialsMatch(token, info);
+            return;
+        }
+        Boolean verified = cache.get(key);
+        if (verified != null) {
+            LOGGER.trace("Using cached credentials matching outcome [{}] for token [{}].", verified, token);
+            if (!verified) {
+                String msg = "Submitted credentials for token [" + token + "] did not match the expected credentials.";
+                throw new IncorrectCredentialsException(msg);
+            }
+            return;
+        }
+        Object accountKey = getAuthenticationCacheKey(token);
+        try {
+            assertCredentialsMatch(token, info);
+        } catch (IncorrectCredentialsException e) {
+            cache.put(key, accountKey, false);
+            throw e;
+        }
+        cache.put(key, accountKey, true);
+    }
+
     /**
      * Returns the key under which {@link AuthenticationInfo} instances are cached if authentication caching is enabled.
      * This implementation defaults to returning the token's
@@ -673,6 +849,9 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
      * {@link #doGetAuthenticationInfo(org.apache.shiro.authc.AuthenticationToken) doGetAuthenticationInfo}, and the
      * resulting return value will be cached before being returned so it can be reused for later authentications.
      * <p/>
+     * Any {@link #setVerifiedCredentialsCachingEnabled(boolean) remembered credentials matching outcomes} for the
+     * account are discarded as well, so that the next authentication verifies the submitted credentials again.
+     * <p/>
      * If you wish to clear out all associated cached data (and not just authentication data), use the
      * {@link #clearCache(org.apache.shiro.subject.PrincipalCollection)} method instead (which will in turn call this
      * method by default).
@@ -689,6 +868,10 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
                 Object key = getAuthenticationCacheKey(principals);
                 cache.remove(key);
             }
+            VerifiedCredentialsCache verified = this.verifiedCredentialsCache;
+            if (verified != null) {
+                verified.remove(getAuthenticationCacheKey(principals));
+            }
         }
     }
 
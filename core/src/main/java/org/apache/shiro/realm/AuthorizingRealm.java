@@ -24,6 +24,7 @@ import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.Authorizer;
 import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.UnauthorizedException;
+import org.apache.shiro.authz.permission.PermissionIndex;
 import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.authz.permission.PermissionResolverAware;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
@@ -98,6 +99,12 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
 
     private RolePermissionResolver permissionRoleResolver;
 
+    /**
+     * Whether compiled {@link PermissionIndex PermissionIndex}es should be kept alongside cached AuthorizationInfo.
+     */
+    private boolean permissionIndexingEnabled;
+    private final PermissionIndexCache permissionIndexCache;
+
     /*-------------------------------------------
     |         C O N S T R U C T O R S           |
     ============================================*/
@@ -124,6 +131,8 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         }
 
         this.authorizationCachingEnabled = true;
+        this.permissionIndexingEnabled = true;
+        this.permissionIndexCache = new PermissionIndexCache();
         this.permissionResolver = new WildcardPermissionResolver();
 
         int instanceNumber = INSTANCE_COUNT.getAndIncrement();
@@ -192,6 +201,58 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         }
     }
 
+    /**
+     * Returns {@code true} if a compiled {@link PermissionIndex PermissionIndex} should be built once for each
+     * cached {@code AuthorizationInfo} and reused for all of its permission checks, {@code false} if every check
+     * should re-resolve and scan all of the account's permissions.
+     * <p/>
+     * Indexing only takes effect when authorization caching is in use, since an index is only worth building for an
+     * {@code AuthorizationInfo} that is reused across checks.  Permissions resolved via the
+     * {@link #getRolePermissionResolver() rolePermissionResolver} are captured when the index is built, so, just as
+     * with any other cached authorization data, changes must be followed by a call to
+     * {@link #clearCachedAuthorizationInfo(org.apache.shiro.subject.PrincipalCollection) clearCachedAuthorizationInfo}.
+     * <p/>
+     * The default value is {@code true}.
+     *
+     * @return {@code true} if compiled permission indexes should be used for cached authorization data.
+     * @since 2.0
+     */
+    public boolean isPermissionIndexingEnabled() {
+        return permissionIndexingEnabled;
+    }
+
+    /**
+     * Sets whether a compiled {@link PermissionIndex PermissionIndex} should be built once for each cached
+     * {@code AuthorizationInfo} and reused for all of its permission checks.
+     * <p/>
+     * The default value is {@code true}.
+     *
+     * @param permissionIndexingEnabled the value to set
+     * @see #isPermissionIndexingEnabled()
+     * @since 2.0
+     */
+    public void setPermissionIndexingEnabled(boolean permissionIndexingEnabled) {
+        this.permissionIndexingEnabled = permissionIndexingEnabled;
+        this.permissionIndexCache.clear();
+    }
+
+    /**
+     * Returns {@code true} if a batch of permission checks against the same {@code AuthorizationInfo}, as performed
+     * by {@link #isPermitted(List, AuthorizationInfo)} and {@link #isPermittedAll(Collection, AuthorizationInfo)}, may
+     * be evaluated against the {@link #getPermissionIndex(AuthorizationInfo) compiled permissions} of that info,
+     * {@code false} if
+     * {@link #isPermitted(Permission, AuthorizationInfo)} must be called for every permission of the batch.
+     * <p/>
+     * Subclasses that override {@link #isPermitted(Permission, AuthorizationInfo)} must override this method to
+     * return {@code false}, so that their checks are also applied to batches.
+     *
+     * @return {@code true} by default.
+     * @since 2.0
+     */
+    protected boolean isPermissionSnapshotSupported() {
+        return true;
+    }
+
     public PermissionResolver getPermissionResolver() {
         return permissionResolver;
     }
@@ -201,6 +262,7 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
             throw new IllegalArgumentException("Null PermissionResolver is not allowed");
         }
         this.permissionResolver = permissionResolver;
+        this.permissionIndexCache.clear();
     }
 
     public RolePermissionResolver getRolePermissionResolver() {
@@ -209,6 +271,7 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
 
     public void setRolePermissionResolver(RolePermissionResolver permissionRoleResolver) {
         this.permissionRoleResolver = permissionRoleResolver;
+        this.permissionIndexCache.clear();
     }
 
     /*--------------------------------------------
@@ -373,6 +436,28 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         return info;
     }
 
+    /**
+     * Returns {@code true} if the {@code AuthorizationInfo} for the specified principals can currently be obtained
+     * without calling {@link #doGetAuthorizationInfo(PrincipalCollection) doGetAuthorizationInfo}, that is, without
+     * consulting the realm's backing data store.  Callers such as the
+     * {@link org.apache.shiro.authz.ModularRealmAuthorizer ModularRealmAuthorizer} use this as a hint to decide
+     * whether a check is cheap enough to perform inline.
+     * <p/>
+     * This implementation returns {@code true} if the authorization cache holds an entry for the principals.
+     * Subclasses that keep all authorization data in memory may override it to always return {@code true}.
+     *
+     * @param principals the principals of the account whose authorization data would be looked up.
+     * @return {@code true} if the account's authorization data is available without consulting the data store.
+     * @since 2.0
+     */
+    public boolean isAuthorizationInfoCached(PrincipalCollection principals) {
+        if (principals == null) {
+            return true;
+        }
+        Cache<Object, AuthorizationInfo> cache = getAvailableAuthorizationCache();
+        return cache != null && cache.get(getAuthorizationCacheKey(principals)) != null;
+    }
+
     protected Object getAuthorizationCacheKey(PrincipalCollection principals) {
         return principals;
     }
@@ -389,6 +474,9 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
      * {@link #getAuthorizationInfo(org.apache.shiro.subject.PrincipalCollection) getAuthorizationInfo}, and the
      * resulting return value will be cached before being returned so it can be reused for later authorization checks.
      * <p/>
+     * This method also discards the {@link #getPermissionIndex(AuthorizationInfo) compiled permissions} of the
+     * removed AuthorizationInfo, and must be called after modifying a cached AuthorizationInfo instance in place.
+     * <p/>
      * If you wish to clear out all associated cached data (and not just authorization data), use the
      * {@link #clearCache(org.apache.shiro.subject.PrincipalCollection)} method instead (which will in turn call this
      * method by default).
@@ -404,7 +492,10 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         //cache instance will be non-null if caching is enabled:
         if (cache != null) {
             Object key = getAuthorizationCacheKey(principals);
-            cache.remove(key);
+            AuthorizationInfo removed = cache.remove(key);
+            if (removed != null) {
+                permissionIndexCache.remove(removed);
+            }
         }
     }
 
@@ -446,6 +537,47 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         }
     }
 
+    /**
+     * Returns the compiled {@link PermissionIndex PermissionIndex} for the specified {@code AuthorizationInfo},
+     * containing all of the permissions returned by {@link #getPermissions(AuthorizationInfo)}.
+     * <p/>
+     * If {@link #isPermissionIndexingEnabled() permission indexing} is enabled and authorization caching is in use,
+     * the index is compiled on first use and then reused for as long as the {@code AuthorizationInfo} instance
+     * itself is retained (typically by the authorization cache).  Otherwise a new index is compiled on every call.
+     *
+     * @param info the AuthorizationInfo for which to return the compiled permissions.
+     * @return the compiled permissions for the specified {@code AuthorizationInfo}, never {@code null}.
+     * @since 2.0
+     */
+    protected PermissionIndex getPermissionIndex(AuthorizationInfo info) {
+        if (info == null || !isPermissionIndexingActive()) {
+            return PermissionIndex.compile(getPermissions(info));
+        }
+        PermissionIndex index = permissionIndexCache.get(info);
+        if (index == null) {
+            index = PermissionIndex.compile(getPermissions(info));
+            permissionIndexCache.put(info, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the permissions of the specified {@code AuthorizationInfo} compiled once for evaluating a batch of
+     * {@code checks} permission checks against, or {@code null} if each check should instead be delegated to
+     * {@link #isPermitted(Permission, AuthorizationInfo)} - because the batch is a single check, or because
+     * {@link #isPermissionSnapshotSupported() snapshots are not supported}.
+     */
+    private PermissionIndex getPermissionSnapshot(AuthorizationInfo info, int checks) {
+        if (checks < 2 || !isPermissionSnapshotSupported()) {
+            return null;
+        }
+        return getPermissionIndex(info);
+    }
+
+    private boolean isPermissionIndexingActive() {
+        return isPermissionIndexingEnabled() && getAvailableAuthorizationCache() != null;
+    }
+
     private Collection<Permission> resolvePermissions(Collection<String> stringPerms) {
         Collection<Permission> perms = Collections.emptySet();
         PermissionResolver resolver = getPermissionResolver();
@@ -488,6 +620,9 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
 
     //visibility changed from private to protected per SHIRO-332
     protected boolean isPermitted(Permission permission, AuthorizationInfo info) {
+        if (info != null && isPermissionIndexingActive()) {
+            return getPermissionIndex(info).implies(permission);
+        }
         Collection<Permission> perms = getPermissions(info);
         if (perms != null && !perms.isEmpty()) {
             for (Permission perm : perms) {
@@ -517,9 +652,10 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         if (permissions != null && !permissions.isEmpty()) {
             int size = permissions.size();
             result = new boolean[size];
+            PermissionIndex snapshot = getPermissionSnapshot(info, size);
             int i = 0;
             for (Permission p : permissions) {
-                result[i++] = isPermitted(p, info);
+                result[i++] = snapshot != null ? snapshot.implies(p) : isPermitted(p, info);
             }
         } else {
             result = new boolean[0];
@@ -545,8 +681,9 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
 
     protected boolean isPermittedAll(Collection<Permission> permissions, AuthorizationInfo info) {
         if (permissions != null && !permissions.isEmpty()) {
+            PermissionIndex snapshot = getPermissionSnapshot(info, permissions.size());
             for (Permission p : permissions) {
-                if (!isPermitted(p, info)) {
+                if (!(snapshot != null ? snapshot.implies(p) : isPermitted(p, info))) {
                     return false;
                 }
             }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.permission.PermissionIndex;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Associates compiled {@link PermissionIndex PermissionIndex} instances with the {@link AuthorizationInfo} instances
+ * they were compiled from, without holding on to those {@code AuthorizationInfo} instances.
+ * <p/>
+ * Entries are keyed on the <em>identity</em> of the {@code AuthorizationInfo} and are weakly referenced, so an index
+ * lives exactly as long as its {@code AuthorizationInfo} remains reachable - typically for as long as the
+ * {@code AuthorizationInfo} is held by the realm's authorization cache.  Lookups are lock-free.
+ * <p/>
+ * Each entry also records the role and permission collections of the {@code AuthorizationInfo} - their identities
+ * and sizes - at the time it was compiled, so that an application replacing these collections or adding or removing
+ * elements causes the index to be rebuilt.  Replacing elements of a collection in place without changing its size
+ * cannot be detected this way; such changes must be followed by
+ * {@link AuthorizingRealm#clearCachedAuthorizationInfo(org.apache.shiro.subject.PrincipalCollection)
+ * clearCachedAuthorizationInfo}, which {@link #remove removes} the index.
+ *
+ * @since 2.0
+ */
+final class PermissionIndexCache {
+
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+
+    private final ReferenceQueue<AuthorizationInfo> queue = new ReferenceQueue<AuthorizationInfo>();
+
+    /**
+     * Returns the index previously {@link #put put} for the specified info, or {@code null} if there is none or if
+     * the info has changed since the index was compiled.
+     */
+    PermissionIndex get(AuthorizationInfo info) {
+        Entry entry = entries.get(new LookupKey(info));
+        if (entry != null && entry.matches(info)) {
+            return entry.index;
+        }
+        return null;
+    }
+
+    void put(AuthorizationInfo info, PermissionIndex index) {
+        expungeStaleEntries();
+        entries.put(new WeakKey(info, queue), new Entry(index, info));
+    }
+
+    void remove(AuthorizationInfo info) {
+        entries.remove(new LookupKey(info));
+        expungeStaleEntries();
+    }
+
+    void clear() {
+        entries.clear();
+        expungeStaleEntries();
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends AuthorizationInfo> ref;
+        while ((ref = queue.poll()) != null) {
+            entries.remove(ref);
+        }
+    }
+
+    private static int size(Collection<?> c) {
+        return c != null ? c.size() : -1;
+    }
+
+    private static final class Entry {
+        private final PermissionIndex index;
+        private final Collection<?> roles;
+        private final Collection<?> stringPermissions;
+        private final Collection<?> objectPermissions;
+        private final int rolesSize;
+        private final int stringPermissionsSize;
+        private final int objectPermissionsSize;
+
+        private Entry(PermissionIndex index, AuthorizationInfo info) {
+            this.index = index;
+            this.roles = info.getRoles();
+            this.stringPermissions = info.getStringPermissions();
+            this.objectPermissions = info.getObjectPermissions();
+            this.rolesSize = size(roles);
+            this.stringPermissionsSize = size(stringPermissions);
+            this.objectPermissionsSize = size(objectPermissions);
+        }
+
+        private boolean matches(AuthorizationInfo info) {
+            return matches(roles, rolesSize, info.getRoles())
+                    && matches(stringPermissions, stringPermissionsSize, info.getStringPermissions())
+                    && matches(objectPermissions, objectPermissionsSize, info.getObjectPermissions());
+        }
+
+        private static boolean matches(Collection<?> compiled, int compiledSize, Collection<?> current) {
+            return compiled == current && compiledSize == size(current);
+        }
+    }
+
+    /**
+     * Map key stored in the map: weakly references the {@code AuthorizationInfo} and compares by identity.
+     */
+    private static final class WeakKey extends WeakReference<AuthorizationInfo> {
+        private final int hash;
+
+        private WeakKey(AuthorizationInfo referent, ReferenceQueue<AuthorizationInfo> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            Object referent = get();
+            if (referent == null) {
+                return false;
+            }
+            if (o instanceof LookupKey) {
+                return ((LookupKey) o).referent == referent;
+            }
+            return o instanceof WeakKey && ((WeakKey) o).get() == referent;
+        }
+    }
+
+    /**
+     * Short-lived key used for lookups only, avoiding the creation of a {@code WeakReference} per lookup.
+     */
+    private static final class LookupKey {
+        private final AuthorizationInfo referent;
+
+        private LookupKey(AuthorizationInfo referent) {
+            this.referent = referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof WeakKey) {
+                return ((WeakKey) o).get() == referent;
+            }
+            return o instanceof LookupKey && ((LookupKey) o).referent == referent;
+        }
+    }
+}
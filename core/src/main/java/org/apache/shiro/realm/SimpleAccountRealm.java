@@ -190,4 +190,14 @@ public class SimpleAccountRealm extends AuthorizingRealm {
             usersLock.readLock().unlock();
         }
     }
+
+    /**
+     * Always returns {@code true}, as all account data of this realm is held in memory.
+     *
+     * @since 2.0
+     */
+    @Override
+    public boolean isAuthorizationInfoCached(PrincipalCollection principals) {
+        return true;
+    }
 }
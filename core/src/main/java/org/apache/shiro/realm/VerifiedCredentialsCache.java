@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SaltedAuthenticationInfo;
+import org.apache.shiro.lang.util.ByteSource;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the outcome of recent credentials matching so that repeated authentications with the same credentials
+ * do not have to run an expensive {@code CredentialsMatcher} (such as a memory-hard password hash) every time.
+ * <p/>
+ * Entries are keyed on an HMAC-SHA256 of the submitted principal and credentials together with the stored credentials
+ * (and salt) they were matched against, under a random key generated for each instance.  Neither the submitted nor the
+ * stored credentials are retained, and changing an account's stored credentials implicitly invalidates its entries.
+ * Successful and failed matches are kept for separate time-to-live periods; a failure time-to-live of zero disables
+ * negative caching.
+ * <p/>
+ * The cache is bounded: once full, expired entries are purged and, if that does not free any room, arbitrary entries
+ * are evicted.  Entries can be removed for an account using the same cache key as the realm's authentication cache.
+ *
+ * @since 2.0
+ */
+final class VerifiedCredentialsCache {
+
+    static final long DEFAULT_SUCCESS_TTL = 5L * 60L * 1000L;
+
+    static final long DEFAULT_FAILURE_TTL = 30L * 1000L;
+
+    static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final int KEY_LENGTH = 32;
+
+    private static final int INT_BYTES = 4;
+
+    private final Mac prototype;
+
+    private final SecretKeySpec key;
+
+    private final ConcurrentMap<ByteBuffer, Entry> entries = new ConcurrentHashMap<ByteBuffer, Entry>();
+
+    private volatile long successTtl = DEFAULT_SUCCESS_TTL;
+
+    private volatile long failureTtl = DEFAULT_FAILURE_TTL;
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    VerifiedCredentialsCache() {
+        byte[] secret = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.prototype = newMac();
+    }
+
+    long getSuccessTtl() {
+        return successTtl;
+    }
+
+    void setSuccessTtl(long successTtl) {
+        this.successTtl = successTtl;
+    }
+
+    long getFailureTtl() {
+        return failureTtl;
+    }
+
+    void setFailureTtl(long failureTtl) {
+        this.failureTtl = failureTtl;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the key for matching the specified token against the specified info, or {@code null} if either's
+     * credentials are not of a type that can be safely converted to bytes (such as an {@code InputStream}).
+     */
+    ByteBuffer keyFor(AuthenticationToken token, AuthenticationInfo info) {
+        byte[] submitted = toBytes(token.getCredentials());
+        byte[] stored = toBytes(info.getCredentials());
+        if (submitted == null || stored == null) {
+            return null;
+        }
+        byte[] salt = null;
+        if (info instanceof SaltedAuthenticationInfo) {
+            ByteSource credentialsSalt = ((SaltedAuthenticationInfo) info).getCredentialsSalt();
+            salt = credentialsSalt != null ? credentialsSalt.getBytes() : null;
+        }
+        Object principal = token.getPrincipal();
+        Mac mac = mac();
+        update(mac, principal != null ? principal.getClass().getName().getBytes(StandardCharsets.UTF_8) : null);
+        update(mac, principal != null ? String.valueOf(principal).getBytes(StandardCharsets.UTF_8) : null);
+        update(mac, submitted);
+        update(mac, stored);
+        update(mac, salt);
+        return ByteBuffer.wrap(mac.doFinal());
+    }
+
+    /**
+     * Returns {@code TRUE} if the credentials with the specified key recently matched, {@code FALSE} if they recently
+     * failed to match, or {@code null} if there is no current entry for them.
+     */
+    Boolean get(ByteBuffer key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.success;
+    }
+
+    void put(ByteBuffer key, Object accountKey, boolean success) {
+        long ttl = success ? successTtl : failureTtl;
+        if (ttl <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxSize) {
+            makeRoom(now);
+        }
+        entries.put(key, new Entry(accountKey, success, now + ttl));
+    }
+
+    /**
+     * Removes all entries recorded for the account with the specified authentication cache key.
+     */
+    void remove(Object accountKey) {
+        entries.values().removeIf(entry -> Objects.equals(entry.accountKey, accountKey));
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private void makeRoom(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        Iterator<Map.Entry<ByteBuffer, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private Mac mac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + MAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Feeds the specified field into the MAC, prefixed with its length so that field boundaries are unambiguous.
+     */
+    private static void update(Mac mac, byte[] field) {
+        int length = field != null ? field.length : -1;
+        mac.update(ByteBuffer.allocate(INT_BYTES).putInt(length).array());
+        if (field != null) {
+            mac.update(field);
+        }
+    }
+
+    private static byte[] toBytes(Object credentials) {
+        if (credentials instanceof byte[]) {
+            return (byte[]) credentials;
+        }
+        if (credentials instanceof char[] || credentials instanceof String || credentials instanceof ByteSource) {
+            return ByteSource.Util.bytes(credentials).getBytes();
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        private final Object accountKey;
+        private final boolean success;
+        private final long expiresAt;
+
+        private Entry(Object accountKey, boolean success, long expiresAt) {
+            this.accountKey = accountKey;
+            this.success = success;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.shiro.session.mgt;
 import org.apache.shiro.authz.AuthorizationException;
 import org.apache.shiro.event.EventBus;
 import org.apache.shiro.event.EventBusAware;
+import org.apache.shiro.lang.util.Destroyable;
 import org.apache.shiro.session.InvalidSessionException;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.SessionException;
@@ -30,20 +31,60 @@ import org.apache.shiro.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Abstract implementation supporting the {@link NativeSessionManager NativeSessionManager} interface, supporting
  * {@link SessionListener SessionListener}s and application of the
  * {@link #getGlobalSessionTimeout() globalSessionTimeout}.
+ * <h3>Touch coalescing</h3>
+ * By default every {@link #touch(SessionKey) touch} is immediately persisted via {@link #onChange(Session)}, which for
+ * a remote session store means one write per request just to update the session's last access time.  When
+ * {@link #setTouchCoalescingEnabled(boolean) touchCoalescingEnabled} is {@code true}, touches of
+ * {@link SimpleSession SimpleSession}s are instead recorded in memory and written to the session store in batches,
+ * every {@link #setTouchFlushInterval(long) touchFlushInterval} milliseconds or as soon as more than
+ * {@link #setTouchFlushThreshold(int) touchFlushThreshold} sessions have pending touches, whichever comes first.
+ * Sessions looked up or validated in the meantime reflect their pending last access time, and attribute changes,
+ * timeout changes, stops and expirations are still written through immediately (including any pending touch).
+ * <h3>Unit of work</h3>
+ * Every call of a {@link DelegatingSession DelegatingSession} method looks the session up again, and every change is
+ * written immediately.  When {@link #setUnitOfWorkEnabled(boolean) unitOfWorkEnabled} is {@code true}, a
+ * {@link SessionUnitOfWork SessionUnitOfWork} can be {@link #beginUnitOfWork() begun} for the current thread (the
+ * {@code ShiroFilter} does so for every web request): each session is then read and validated once, all further
+ * lookups are served from that instance, and all changes and touches are written in a single write when the unit of
+ * work is closed.
  *
  * @since 1.0
  */
 @SuppressWarnings({"checkstyle:MethodCount"})
-public abstract class AbstractNativeSessionManager extends AbstractSessionManager implements NativeSessionManager, EventBusAware {
+public abstract class AbstractNativeSessionManager extends AbstractSessionManager
+        implements NativeSessionManager, EventBusAware, Destroyable {
+
+    /**
+     * The default {@link #setTouchFlushInterval(long) touchFlushInterval}, 10 seconds.
+     *
+     * @since 2.0
+     */
+    public static final long DEFAULT_TOUCH_FLUSH_INTERVAL = 10 * MILLIS_PER_SECOND;
+
+    /**
+     * The default {@link #setTouchFlushThreshold(int) touchFlushThreshold}, {@value}.
+     *
+     * @since 2.0
+     */
+    public static final int DEFAULT_TOUCH_FLUSH_THRESHOLD = 1000;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSessionManager.class);
 
@@ -51,6 +92,27 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
 
     private Collection<SessionListener> listeners;
 
+    private volatile boolean touchCoalescingEnabled;
+
+    private long touchFlushInterval = DEFAULT_TOUCH_FLUSH_INTERVAL;
+
+    private int touchFlushThreshold = DEFAULT_TOUCH_FLUSH_THRESHOLD;
+
+    /**
+     * Last access times, in milliseconds, of sessions that have been touched but not yet written, keyed by session id.
+     */
+    private final ConcurrentMap<Serializable, Long> pendingTouches = new ConcurrentHashMap<Serializable, Long>();
+
+    private final AtomicBoolean touchFlushQueued = new AtomicBoolean();
+
+    private volatile ScheduledExecutorService touchFlusher;
+
+    private volatile boolean destroyed;
+
+    private boolean unitOfWorkEnabled;
+
+    private final ThreadLocal<SessionUnitOfWork> unitOfWork = new ThreadLocal<SessionUnitOfWork>();
+
     public AbstractNativeSessionManager() {
         this.listeners = new ArrayList<SessionListener>();
     }
@@ -96,6 +158,160 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         }
     }
 
+    /**
+     * Returns {@code true} if {@link #touch(SessionKey) touches} are recorded in memory and written to the session
+     * store in batches, {@code false} (the default) if every touch is written immediately.
+     *
+     * @return {@code true} if touches are coalesced, {@code false} if every touch is written immediately.
+     * @since 2.0
+     */
+    public boolean isTouchCoalescingEnabled() {
+        return touchCoalescingEnabled;
+    }
+
+    /**
+     * Sets whether {@link #touch(SessionKey) touches} are recorded in memory and written to the session store in
+     * batches instead of immediately.  Disabling coalescing writes any pending touches.
+     *
+     * @param touchCoalescingEnabled whether touches should be coalesced.
+     * @since 2.0
+     */
+    public void setTouchCoalescingEnabled(boolean touchCoalescingEnabled) {
+        this.touchCoalescingEnabled = touchCoalescingEnabled;
+        if (!touchCoalescingEnabled) {
+            flushTouches();
+        }
+    }
+
+    /**
+     * Returns the maximum time, in milliseconds, a coalesced touch remains pending before it is written to the
+     * session store.  Defaults to {@link #DEFAULT_TOUCH_FLUSH_INTERVAL}.
+     *
+     * @return the maximum time, in milliseconds, a coalesced touch remains pending.
+     * @since 2.0
+     */
+    public long getTouchFlushInterval() {
+        return touchFlushInterval;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, a coalesced touch remains pending before it is written to the session
+     * store.  This should be considerably shorter than the session timeout.
+     *
+     * @param touchFlushInterval the maximum time, in milliseconds, a coalesced touch remains pending.
+     * @since 2.0
+     */
+    public void setTouchFlushInterval(long touchFlushInterval) {
+        if (touchFlushInterval <= 0) {
+            throw new IllegalArgumentException("touchFlushInterval must be greater than zero.");
+        }
+        this.touchFlushInterval = touchFlushInterval;
+    }
+
+    /**
+     * Returns the number of sessions with pending touches that causes the pending touches to be written before the
+     * {@link #getTouchFlushInterval() touchFlushInterval} has elapsed.  Defaults to
+     * {@link #DEFAULT_TOUCH_FLUSH_THRESHOLD}.
+     *
+     * @return the number of sessions with pending touches that triggers a flush.
+     * @since 2.0
+     */
+    public int getTouchFlushThreshold() {
+        return touchFlushThreshold;
+    }
+
+    /**
+     * Sets the number of sessions with pending touches that causes the pending touches to be written before the
+     * {@link #getTouchFlushInterval() touchFlushInterval} has elapsed.
+     *
+     * @param touchFlushThreshold the number of sessions with pending touches that triggers a flush.
+     * @since 2.0
+     */
+    public void setTouchFlushThreshold(int touchFlushThreshold) {
+        if (touchFlushThreshold <= 0) {
+            throw new IllegalArgumentException("touchFlushThreshold must be greater than zero.");
+        }
+        this.touchFlushThreshold = touchFlushThreshold;
+    }
+
+    /**
+     * Returns the number of sessions whose last touch has not been written to the session store yet.
+     *
+     * @return the number of sessions whose last touch has not been written to the session store yet.
+     * @since 2.0
+     */
+    public int getPendingTouchCount() {
+        return pendingTouches.size();
+    }
+
+    /**
+     * Returns {@code true} if {@link #beginUnitOfWork()} begins a {@link SessionUnitOfWork SessionUnitOfWork},
+     * {@code false} (the default) if every session lookup reads the session store and every change is written
+     * immediately.
+     *
+     * @return {@code true} if units of work are enabled, {@code false} otherwise.
+     * @since 2.0
+     */
+    public boolean isUnitOfWorkEnabled() {
+        return unitOfWorkEnabled;
+    }
+
+    /**
+     * Sets whether {@link #beginUnitOfWork()} begins a {@link SessionUnitOfWork SessionUnitOfWork}.  Changes made
+     * during a unit of work only become visible to other threads when it is closed, so this should only be enabled
+     * if concurrent requests of the same session do not rely on seeing each other's changes immediately.
+     *
+     * @param unitOfWorkEnabled whether units of work are enabled.
+     * @since 2.0
+     */
+    public void setUnitOfWorkEnabled(boolean unitOfWorkEnabled) {
+        this.unitOfWorkEnabled = unitOfWorkEnabled;
+    }
+
+    /**
+     * Begins a {@link SessionUnitOfWork SessionUnitOfWork} for the current thread, which must be closed by the same
+     * thread.  If {@link #isUnitOfWorkEnabled() units of work are disabled} or a unit of work is already in progress
+     * on the current thread, the returned instance is not {@link SessionUnitOfWork#isActive() active} and closing it
+     * has no effect.
+     *
+     * @return the unit of work to close once the work is done, never {@code null}.
+     * @since 2.0
+     */
+    public SessionUnitOfWork beginUnitOfWork() {
+        if (!unitOfWorkEnabled || unitOfWork.get() != null) {
+            return SessionUnitOfWork.NONE;
+        }
+        SessionUnitOfWork work = new SessionUnitOfWork(this);
+        unitOfWork.set(work);
+        return work;
+    }
+
+    void endUnitOfWork(SessionUnitOfWork work) {
+        if (unitOfWork.get() != work) {
+            return;
+        }
+        unitOfWork.remove();
+        RuntimeException failure = null;
+        for (SessionUnitOfWork.Entry entry : work.entries()) {
+            try {
+                if (entry.changed) {
+                    writeThrough(entry.session);
+                } else if (entry.touched) {
+                    writeTouch(entry.session);
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     public Session start(SessionContext context) {
         Session session = createSession(context);
         applyGlobalSessionTimeout(session);
@@ -146,7 +362,18 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         if (key == null) {
             throw new NullPointerException("SessionKey argument cannot be null.");
         }
-        return doGetSession(key);
+        SessionUnitOfWork work = unitOfWork.get();
+        if (work == null) {
+            return applyPendingTouch(doGetSession(key));
+        }
+        Session session = work.get(key.getSessionId());
+        if (session == null) {
+            session = applyPendingTouch(doGetSession(key));
+            if (session != null) {
+                work.add(session);
+            }
+        }
+        return session;
     }
 
     private Session lookupRequiredSession(SessionKey key) throws SessionException {
@@ -225,15 +452,147 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
     public void setTimeout(SessionKey key, long maxIdleTimeInMillis) throws InvalidSessionException {
         Session s = lookupRequiredSession(key);
         s.setTimeout(maxIdleTimeInMillis);
-        onChange(s);
+        changed(s);
     }
 
     public void touch(SessionKey key) throws InvalidSessionException {
         Session s = lookupRequiredSession(key);
         s.touch();
+        SessionUnitOfWork work = unitOfWork.get();
+        if (work == null || !work.touched(s)) {
+            writeTouch(s);
+        }
+    }
+
+    private void writeTouch(Session s) {
+        if (touchCoalescingEnabled && !destroyed && s instanceof SimpleSession && s.getId() != null) {
+            deferTouch(s);
+        } else {
+            onChange(s);
+        }
+    }
+
+    private void deferTouch(Session s) {
+        ScheduledExecutorService flusher = ensureTouchFlusher();
+        if (flusher == null) {
+            // destroyed concurrently:
+            onChange(s);
+            return;
+        }
+        pendingTouches.put(s.getId(), SimpleSession.lastAccessTimeMillis(s));
+        if (destroyed) {
+            // destroy() may have flushed before the touch was added:
+            flushTouches();
+        } else if (pendingTouches.size() >= touchFlushThreshold && touchFlushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    touchFlushQueued.set(false);
+                    flushTouches();
+                });
+            } catch (RejectedExecutionException e) {
+                touchFlushQueued.set(false);
+                flushTouches();
+            }
+        }
+    }
+
+    /**
+     * Returns the touch flusher, creating it on first use, or {@code null} once this manager has been destroyed.
+     */
+    private ScheduledExecutorService ensureTouchFlusher() {
+        ScheduledExecutorService flusher = touchFlusher;
+        if (flusher == null) {
+            synchronized (this) {
+                flusher = touchFlusher;
+                if (flusher == null && !destroyed) {
+                    flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "shiro-session-touch-flusher");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    flusher.scheduleWithFixedDelay(this::flushTouches, touchFlushInterval, touchFlushInterval,
+                            TimeUnit.MILLISECONDS);
+                    touchFlusher = flusher;
+                }
+            }
+        }
+        return flusher;
+    }
+
+    /**
+     * Writes all pending {@link #isTouchCoalescingEnabled() coalesced} touches to the session store.  This is
+     * invoked periodically and when the {@link #getTouchFlushThreshold() touchFlushThreshold} is reached, but may
+     * also be called directly, for example before shutting down.
+     * <p/>
+     * Each session with a pending touch is looked up again (and therefore validated, using its pending last access
+     * time) and then written via {@link #onChange(Session)}.  Sessions that have become invalid in the meantime are
+     * skipped.
+     *
+     * @since 2.0
+     */
+    public void flushTouches() {
+        for (Map.Entry<Serializable, Long> entry : pendingTouches.entrySet()) {
+            Serializable sessionId = entry.getKey();
+            try {
+                Session s = applyPendingTouch(doGetSession(new DefaultSessionKey(sessionId)));
+                if (s != null) {
+                    onChange(s);
+                }
+            } catch (InvalidSessionException e) {
+                LOGGER.trace("Discarding pending touch of invalid session with id [{}]", sessionId, e);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to write pending touch of session with id [{}]", sessionId, e);
+                continue;
+            }
+            // keep the entry if the session was touched again while it was being written:
+            pendingTouches.remove(sessionId, entry.getValue());
+        }
+    }
+
+    /**
+     * Applies the pending {@link #isTouchCoalescingEnabled() coalesced} touch of the specified session, if any and
+     * if it is more recent than the session's last access time.  Subclasses that validate sessions based on their
+     * last access time must call this method before doing so.
+     *
+     * @param session the session retrieved from the session store, may be {@code null}.
+     * @return the specified session.
+     * @since 2.0
+     */
+    protected Session applyPendingTouch(Session session) {
+        if (session instanceof SimpleSession && !pendingTouches.isEmpty()) {
+            Long pending = pendingTouches.get(session.getId());
+            if (pending != null && pending > ((SimpleSession) session).getLastAccessTimeMillis()) {
+                ((SimpleSession) session).setLastAccessTime(new Date(pending));
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Discards the pending {@link #isTouchCoalescingEnabled() coalesced} touch of the specified session, if any,
+     * because the session is about to be written in full or has become invalid.
+     *
+     * @param session the session whose pending touch should be discarded.
+     * @since 2.0
+     */
+    protected void discardPendingTouch(Session session) {
+        if (!pendingTouches.isEmpty() && session.getId() != null) {
+            pendingTouches.remove(session.getId());
+        }
+    }
+
+    private void writeThrough(Session s) {
+        discardPendingTouch(s);
         onChange(s);
     }
 
+    private void changed(Session s) {
+        SessionUnitOfWork work = unitOfWork.get();
+        if (work == null || !work.changed(s)) {
+            writeThrough(s);
+        }
+    }
+
     public String getHost(SessionKey key) {
         return lookupRequiredSession(key).getHost();
     }
@@ -256,7 +615,7 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         } else {
             Session s = lookupRequiredSession(sessionKey);
             s.setAttribute(attributeKey, value);
-            onChange(s);
+            changed(s);
         }
     }
 
@@ -264,7 +623,7 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         Session s = lookupRequiredSession(sessionKey);
         Object removed = s.removeAttribute(attributeKey);
         if (removed != null) {
-            onChange(s);
+            changed(s);
         }
         return removed;
     }
@@ -280,11 +639,17 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
 
     public void stop(SessionKey key) throws InvalidSessionException {
         Session session = lookupRequiredSession(key);
+        SessionUnitOfWork work = unitOfWork.get();
+        if (work != null) {
+            // written in full below, including any change made during the unit of work:
+            work.remove(session);
+        }
         try {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Stopping session with id [" + session.getId() + "]");
             }
             session.stop();
+            discardPendingTouch(session);
             onStop(session, key);
             notifyStop(session);
         } finally {
@@ -310,4 +675,23 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
 
     protected void onChange(Session s) {
     }
+
+    /**
+     * Writes any pending {@link #isTouchCoalescingEnabled() coalesced} touches and stops the background thread
+     * writing them.  Touches made after this manager has been destroyed are written immediately.
+     *
+     * @since 2.0
+     */
+    public void destroy() {
+        ScheduledExecutorService flusher;
+        synchronized (this) {
+            destroyed = true;
+            flusher = touchFlusher;
+            touchFlusher = null;
+        }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flushTouches();
+    }
 }
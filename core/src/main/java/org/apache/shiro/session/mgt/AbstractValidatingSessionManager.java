@@ -25,17 +25,43 @@ import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
 import org.apache.shiro.lang.util.Destroyable;
 import org.apache.shiro.lang.util.LifecycleUtils;
+import org.apache.shiro.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 
 /**
  * Default business-tier implementation of the {@link ValidatingSessionManager} interface.
+ * <p/>
+ * By default every {@link #validateSessions() validation run} validates all
+ * {@link #getActiveSessions() active sessions}.  If {@link #setIncrementalSessionValidationEnabled incremental
+ * validation} is enabled, the sessions seen by this manager are additionally tracked in an index ordered by the time
+ * they could expire at the earliest ({@code lastAccessTime + timeout}), and a run only validates the sessions whose
+ * time has passed.  All active sessions are still validated every
+ * {@link #setFullSessionValidationInterval fullSessionValidationInterval} milliseconds (and on the first run), to
+ * pick up sessions this manager has not seen, such as those created by other nodes sharing the same session store.
+ * <p/>
+ * Sessions can be validated in parallel by setting {@link #setSessionValidationThreads sessionValidationThreads},
+ * and the metrics of the last run are available via {@link #getLastSessionValidationSummary()}.
+ * <p/>
+ * A full validation run obtains the active sessions {@link #setSessionValidationBatchSize batchSize} sessions at a
+ * time via {@link #forEachActiveSessionBatch(int, Consumer)}, so that only one batch of sessions is held at once.
  *
  * @since 0.1
  */
+@SuppressWarnings("checkstyle:MethodCount")
 public abstract class AbstractValidatingSessionManager extends AbstractNativeSessionManager
         implements ValidatingSessionManager, Destroyable {
 
@@ -45,6 +71,26 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
      */
     public static final long DEFAULT_SESSION_VALIDATION_INTERVAL = MILLIS_PER_HOUR;
 
+    /**
+     * The default interval at which all active sessions are validated if
+     * {@link #isIncrementalSessionValidationEnabled() incremental validation} is enabled (24 hours).
+     *
+     * @since 2.0
+     */
+    public static final long DEFAULT_FULL_SESSION_VALIDATION_INTERVAL = 24 * MILLIS_PER_HOUR;
+
+    /**
+     * The default number of sessions validated per batch during a full validation run (1000).
+     *
+     * @since 2.0
+     */
+    public static final int DEFAULT_SESSION_VALIDATION_BATCH_SIZE = 1000;
+
+    /**
+     * The resolution of the incremental validation index.
+     */
+    private static final long EXPIRY_INDEX_TICK = MILLIS_PER_SECOND;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractValidatingSessionManager.class);
 
     protected boolean sessionValidationSchedulerEnabled;
@@ -56,6 +102,20 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
 
     protected long sessionValidationInterval;
 
+    private volatile SessionExpiryIndex expiryIndex;
+
+    private long fullSessionValidationInterval = DEFAULT_FULL_SESSION_VALIDATION_INTERVAL;
+
+    private int sessionValidationBatchSize = DEFAULT_SESSION_VALIDATION_BATCH_SIZE;
+
+    private long lastFullSessionValidation;
+
+    private int sessionValidationThreads = 1;
+
+    private ExecutorService sessionValidationExecutor;
+
+    private volatile SessionValidationSummary lastSessionValidationSummary;
+
     public AbstractValidatingSessionManager() {
         this.sessionValidationSchedulerEnabled = true;
         this.sessionValidationInterval = DEFAULT_SESSION_VALIDATION_INTERVAL;
@@ -107,6 +167,137 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
         return sessionValidationInterval;
     }
 
+    /**
+     * Returns {@code true} if validation runs only validate the sessions that could have expired since the previous
+     * run, {@code false} (the default) if every run validates all active sessions.
+     *
+     * @return {@code true} if incremental session validation is enabled, {@code false} otherwise.
+     * @since 2.0
+     */
+    public boolean isIncrementalSessionValidationEnabled() {
+        return expiryIndex != null;
+    }
+
+    /**
+     * Sets whether validation runs only validate the sessions that could have expired since the previous run.
+     * <p/>
+     * The sessions are tracked when they are started or looked up by this manager.  Their deadline is only brought
+     * forward (for example after a reduced timeout) when they are looked up, and is not updated at all when they are
+     * touched: a session found to be still valid is simply tracked again with its new deadline.
+     *
+     * @param incrementalSessionValidationEnabled whether incremental session validation is enabled.
+     * @since 2.0
+     */
+    public synchronized void setIncrementalSessionValidationEnabled(boolean incrementalSessionValidationEnabled) {
+        if (!incrementalSessionValidationEnabled) {
+            this.expiryIndex = null;
+        } else if (this.expiryIndex == null) {
+            this.lastFullSessionValidation = 0;
+            this.expiryIndex = new SessionExpiryIndex(EXPIRY_INDEX_TICK, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Returns the interval in milliseconds at which all active sessions are validated if
+     * {@link #isIncrementalSessionValidationEnabled() incremental validation} is enabled.  The default value is
+     * {@link #DEFAULT_FULL_SESSION_VALIDATION_INTERVAL}.
+     *
+     * @return the interval in milliseconds at which all active sessions are validated.
+     * @since 2.0
+     */
+    public long getFullSessionValidationInterval() {
+        return fullSessionValidationInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds at which all active sessions are validated if
+     * {@link #isIncrementalSessionValidationEnabled() incremental validation} is enabled.  A value of zero or less
+     * disables full validations after the first one.
+     *
+     * @param fullSessionValidationInterval the interval in milliseconds at which all active sessions are validated.
+     * @since 2.0
+     */
+    public void setFullSessionValidationInterval(long fullSessionValidationInterval) {
+        this.fullSessionValidationInterval = fullSessionValidationInterval;
+    }
+
+    /**
+     * Returns the number of threads used to validate sessions.  The default value of {@code 1} validates sessions on
+     * the thread that calls {@link #validateSessions()}.
+     *
+     * @return the number of threads used to validate sessions.
+     * @since 2.0
+     */
+    public int getSessionValidationThreads() {
+        return sessionValidationThreads;
+    }
+
+    /**
+     * Sets the number of threads used to validate sessions.  If greater than {@code 1}, each validation run is split
+     * into that many parts, which are validated in parallel by a pool of daemon threads created on first use.
+     *
+     * @param sessionValidationThreads the number of threads used to validate sessions, must be positive.
+     * @throws IllegalArgumentException if the argument is less than {@code 1}.
+     * @since 2.0
+     */
+    public synchronized void setSessionValidationThreads(int sessionValidationThreads) {
+        if (sessionValidationThreads < 1) {
+            throw new IllegalArgumentException("sessionValidationThreads must be at least 1.");
+        }
+        this.sessionValidationThreads = sessionValidationThreads;
+        shutdownSessionValidationExecutor();
+    }
+
+    /**
+     * Returns the maximum number of sessions obtained and validated at once during a full validation run.  Defaults to
+     * {@link #DEFAULT_SESSION_VALIDATION_BATCH_SIZE}.
+     *
+     * @return the maximum number of sessions obtained and validated at once during a full validation run.
+     * @since 2.0
+     */
+    public int getSessionValidationBatchSize() {
+        return sessionValidationBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of sessions obtained and validated at once during a full validation run.  If
+     * {@link #setSessionValidationThreads sessionValidationThreads} is greater than {@code 1}, each batch is split
+     * across the threads.
+     *
+     * @param sessionValidationBatchSize the maximum number of sessions validated at once, must be positive.
+     * @throws IllegalArgumentException if the argument is less than {@code 1}.
+     * @since 2.0
+     */
+    public void setSessionValidationBatchSize(int sessionValidationBatchSize) {
+        if (sessionValidationBatchSize < 1) {
+            throw new IllegalArgumentException("sessionValidationBatchSize must be at least 1.");
+        }
+        this.sessionValidationBatchSize = sessionValidationBatchSize;
+    }
+
+    /**
+     * Returns the metrics of the last completed {@link #validateSessions() validation run}, or {@code null} if
+     * sessions have not been validated yet.
+     *
+     * @return the metrics of the last completed validation run, or {@code null}.
+     * @since 2.0
+     */
+    public SessionValidationSummary getLastSessionValidationSummary() {
+        return lastSessionValidationSummary;
+    }
+
+    /**
+     * Returns the number of sessions tracked for {@link #isIncrementalSessionValidationEnabled() incremental
+     * validation}, or {@code 0} if incremental validation is disabled.
+     *
+     * @return the number of sessions tracked for incremental validation.
+     * @since 2.0
+     */
+    public int getTrackedSessionCount() {
+        SessionExpiryIndex index = this.expiryIndex;
+        return index != null ? index.size() : 0;
+    }
+
     @Override
     protected final Session doGetSession(final SessionKey key) throws InvalidSessionException {
         enableSessionValidationIfNecessary();
@@ -116,10 +307,32 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
         Session s = retrieveSession(key);
         if (s != null) {
             validate(s, key);
+            trackExpiry(s, false);
         }
         return s;
     }
 
+    /**
+     * Tracks the specified session for incremental validation, if enabled.  Unless {@code replace} is {@code true},
+     * an already tracked session is only updated if its deadline moved forward.
+     */
+    private void trackExpiry(Session session, boolean replace) {
+        SessionExpiryIndex index = this.expiryIndex;
+        if (index == null || session.getId() == null) {
+            return;
+        }
+        long timeout = getTimeout(session);
+        long lastAccessTime = SimpleSession.lastAccessTimeMillis(session);
+        if (timeout < 0 || lastAccessTime == SimpleSession.NO_TIME) {
+            // never expires on its own, found by full validations only:
+            index.remove(session.getId());
+        } else if (replace) {
+            index.reschedule(session.getId(), lastAccessTime + timeout);
+        } else {
+            index.schedule(session.getId(), lastAccessTime + timeout);
+        }
+    }
+
     /**
      * Looks up a session from the underlying data store based on the specified session key.
      *
@@ -131,15 +344,27 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
 
     protected Session createSession(SessionContext context) throws AuthorizationException {
         enableSessionValidationIfNecessary();
-        return doCreateSession(context);
+        Session s = doCreateSession(context);
+        if (s != null) {
+            trackExpiry(s, false);
+        }
+        return s;
+    }
+
+    @Override
+    protected void applyGlobalSessionTimeout(Session session) {
+        super.applyGlobalSessionTimeout(session);
+        trackExpiry(session, false);
     }
 
     protected abstract Session doCreateSession(SessionContext initData) throws AuthorizationException;
 
     protected void validate(Session session, SessionKey key) throws InvalidSessionException {
         try {
-            doValidate(session);
+            doValidate(applyPendingTouch(session));
         } catch (ExpiredSessionException ese) {
+            discardPendingTouch(session);
+            untrackExpiry(session);
             try {
                 onExpiration(session, ese, key);
             } catch (IllegalStateException eise) {
@@ -147,6 +372,8 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
             }
             throw ese;
         } catch (InvalidSessionException ise) {
+            discardPendingTouch(session);
+            untrackExpiry(session);
             try {
                 onInvalidation(session, ise, key);
             } catch (IllegalStateException eise) {
@@ -156,6 +383,13 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
         }
     }
 
+    private void untrackExpiry(Session session) {
+        SessionExpiryIndex index = this.expiryIndex;
+        if (index != null && session.getId() != null) {
+            index.remove(session.getId());
+        }
+    }
+
     protected void onExpiration(Session s, ExpiredSessionException ese, SessionKey key) {
         LOGGER.trace("Session with id [{}] has expired.", s.getId());
         try {
@@ -271,49 +505,188 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
 
     public void destroy() {
         disableSessionValidation();
+        shutdownSessionValidationExecutor();
+        super.destroy();
     }
 
     /**
+     * Validates all active sessions or, if {@link #isIncrementalSessionValidationEnabled() incremental validation} is
+     * enabled and a full validation is not due, only those sessions that could have expired since the previous run.
+     *
      * @see ValidatingSessionManager#validateSessions()
+     * @see #getLastSessionValidationSummary()
      */
     public void validateSessions() {
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        SessionExpiryIndex index = this.expiryIndex;
+        boolean incremental = index != null && !isFullSessionValidationDue(startTime);
+
         if (LOGGER.isInfoEnabled()) {
-            LOGGER.info("Validating all active sessions...");
-        }
-
-        int invalidCount = 0;
-
-        Collection<Session> activeSessions = getActiveSessions();
-
-        if (activeSessions != null && !activeSessions.isEmpty()) {
-            for (Session s : activeSessions) {
-                try {
-                    //simulate a lookup key to satisfy the method signature.
-                    //this could probably stand to be cleaned up in future versions:
-                    SessionKey key = new DefaultSessionKey(s.getId());
-                    validate(s, key);
-                } catch (InvalidSessionException e) {
-                    if (LOGGER.isDebugEnabled()) {
-                        boolean expired = (e instanceof ExpiredSessionException);
-                        String msg = "Invalidated session with id [" + s.getId() + "]"
-                                + (expired ? " (expired)" : " (stopped)");
-                        LOGGER.debug(msg);
-                    }
-                    invalidCount++;
-                }
+            LOGGER.info(incremental ? "Validating expiring sessions..." : "Validating all active sessions...");
+        }
+
+        SweepCounts counts = new SweepCounts();
+        if (index != null) {
+            // sessions that are still valid are tracked again as they are validated:
+            List<Serializable> due = index.advance(startTime);
+            if (incremental) {
+                forEach(due, sessionId -> validateTrackedSession(sessionId, counts));
+            }
+        }
+        if (!incremental) {
+            forEachActiveSessionBatch(sessionValidationBatchSize,
+                    batch -> forEach(batch, s -> validateActiveSession(s, counts)));
+            if (index != null) {
+                lastFullSessionValidation = startTime;
             }
         }
 
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        SessionValidationSummary summary = new SessionValidationSummary(incremental, startTime, duration,
+                counts.scanned.get(), counts.expired.get(), counts.stopped.get());
+        this.lastSessionValidationSummary = summary;
+
         if (LOGGER.isInfoEnabled()) {
             String msg = "Finished session validation.";
-            if (invalidCount > 0) {
-                msg += "  [" + invalidCount + "] sessions were stopped.";
+            if (summary.getInvalidCount() > 0) {
+                msg += "  [" + summary.getInvalidCount() + "] sessions were stopped.";
             } else {
                 msg += "  No sessions were stopped.";
             }
-            LOGGER.info(msg);
+            LOGGER.info(msg + "  (" + summary + ")");
+        }
+    }
+
+    private boolean isFullSessionValidationDue(long now) {
+        return lastFullSessionValidation == 0
+                || (fullSessionValidationInterval > 0 && now - lastFullSessionValidation >= fullSessionValidationInterval);
+    }
+
+    private void validateTrackedSession(Serializable sessionId, SweepCounts counts) {
+        Session s;
+        try {
+            s = retrieveSession(new DefaultSessionKey(sessionId));
+        } catch (UnknownSessionException e) {
+            LOGGER.trace("Tracked session with id [{}] no longer exists.", sessionId);
+            return;
+        }
+        if (s != null) {
+            validateActiveSession(s, counts);
+        }
+    }
+
+    private void validateActiveSession(Session s, SweepCounts counts) {
+        counts.scanned.incrementAndGet();
+        try {
+            //simulate a lookup key to satisfy the method signature.
+            //this could probably stand to be cleaned up in future versions:
+            SessionKey key = new DefaultSessionKey(s.getId());
+            validate(s, key);
+            trackExpiry(s, true);
+        } catch (InvalidSessionException e) {
+            boolean expired = (e instanceof ExpiredSessionException);
+            if (LOGGER.isDebugEnabled()) {
+                String msg = "Invalidated session with id [" + s.getId() + "]"
+                        + (expired ? " (expired)" : " (stopped)");
+                LOGGER.debug(msg);
+            }
+            (expired ? counts.expired : counts.stopped).incrementAndGet();
+        }
+    }
+
+    /**
+     * Applies the action to each element, splitting the elements across the
+     * {@link #getSessionValidationThreads() session validation threads} if there is more than one.
+     */
+    private <T> void forEach(Collection<T> elements, Consumer<T> action) {
+        int threads = Math.min(getSessionValidationThreads(), elements.size());
+        if (threads <= 1) {
+            elements.forEach(action);
+            return;
+        }
+        ExecutorService executor = ensureSessionValidationExecutor();
+        int partSize = (elements.size() + threads - 1) / threads;
+        List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+        List<T> part = new ArrayList<T>(partSize);
+        for (T element : elements) {
+            part.add(element);
+            if (part.size() == partSize) {
+                futures.add(submit(executor, part, action));
+                part = new ArrayList<T>(partSize);
+            }
+        }
+        if (!part.isEmpty()) {
+            futures.add(submit(executor, part, action));
+        }
+        awaitAll(futures);
+    }
+
+    private static <T> Future<?> submit(ExecutorService executor, List<T> part, Consumer<T> action) {
+        return executor.submit(() -> part.forEach(action));
+    }
+
+    private static void awaitAll(List<Future<?>> futures) {
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while validating sessions.", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause();
+                    failure = cause instanceof RuntimeException ? (RuntimeException) cause
+                            : new IllegalStateException("Unable to validate sessions.", cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized ExecutorService ensureSessionValidationExecutor() {
+        if (sessionValidationExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            sessionValidationExecutor = Executors.newFixedThreadPool(sessionValidationThreads, r -> {
+                Thread thread = new Thread(r, "shiro-session-validator-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sessionValidationExecutor;
+    }
+
+    private synchronized void shutdownSessionValidationExecutor() {
+        if (sessionValidationExecutor != null) {
+            sessionValidationExecutor.shutdown();
+            sessionValidationExecutor = null;
         }
     }
 
     protected abstract Collection<Session> getActiveSessions();
+
+    /**
+     * Passes all active sessions to the specified consumer in batches of at most {@code batchSize} sessions.  The
+     * default implementation splits the collection returned by {@link #getActiveSessions()}; subclasses backed by a
+     * store that can fetch sessions page by page should override it.
+     *
+     * @param batchSize the maximum number of sessions per batch.
+     * @param consumer  the consumer of each batch.
+     * @since 2.0
+     */
+    protected void forEachActiveSessionBatch(int batchSize, Consumer<? super List<Session>> consumer) {
+        CollectionUtils.forEachBatch(getActiveSessions(), batchSize, consumer);
+    }
+
+    /**
+     * Counters of a single validation run, updated concurrently when validating in parallel.
+     */
+    private static final class SweepCounts {
+        private final AtomicInteger scanned = new AtomicInteger();
+        private final AtomicInteger expired = new AtomicInteger();
+        private final AtomicInteger stopped = new AtomicInteger();
+    }
 }
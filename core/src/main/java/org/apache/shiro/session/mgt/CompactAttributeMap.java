@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A mutable map for the handful of attributes a session typically holds, storing its keys and values in a single
+ * array that is searched linearly.  Once it holds more than {@link #MAX_ARRAY_SIZE} entries, it moves them into a
+ * {@code HashMap}.  Iteration order is insertion order while the entries are held in the array.
+ * <p/>
+ * Like {@code HashMap} instances, this map is not thread-safe.  {@code null} keys and values are supported.
+ *
+ * @see CompactSession
+ * @since 2.0
+ */
+final class CompactAttributeMap extends AbstractMap<Object, Object> implements Serializable {
+
+    /**
+     * The maximum number of entries held in the array.
+     */
+    static final int MAX_ARRAY_SIZE = 8;
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Keys at even and values at odd indices.
+     */
+    private transient Object[] table = EMPTY;
+
+    private transient int size;
+
+    private transient HashMap<Object, Object> map;
+
+    private transient int modCount;
+
+    private transient Set<Map.Entry<Object, Object>> entrySet;
+
+    CompactAttributeMap() {
+    }
+
+    CompactAttributeMap(Map<?, ?> attributes) {
+        putAll(attributes);
+    }
+
+    @Override
+    public int size() {
+        return map != null ? map.size() : size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map != null ? map.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (map != null) {
+            return map.get(key);
+        }
+        int i = indexOf(key);
+        return i >= 0 ? table[i + 1] : null;
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        if (map != null) {
+            return map.put(key, value);
+        }
+        int i = indexOf(key);
+        if (i >= 0) {
+            Object previous = table[i + 1];
+            table[i + 1] = value;
+            return previous;
+        }
+        modCount++;
+        if (size == MAX_ARRAY_SIZE) {
+            map = new HashMap<Object, Object>(MAX_ARRAY_SIZE * 2 * 4 / 3 + 1);
+            for (int j = 0; j < size * 2; j += 2) {
+                map.put(table[j], table[j + 1]);
+            }
+            map.put(key, value);
+            table = EMPTY;
+            size = 0;
+            return null;
+        }
+        if (size * 2 == table.length) {
+            Object[] grown = new Object[Math.max(INITIAL_CAPACITY, size * 2) * 2];
+            System.arraycopy(table, 0, grown, 0, size * 2);
+            table = grown;
+        }
+        table[size * 2] = key;
+        table[size * 2 + 1] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (map != null) {
+            return map.remove(key);
+        }
+        int i = indexOf(key);
+        return i >= 0 ? removeAt(i) : null;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        map = null;
+        table = EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        Set<Map.Entry<Object, Object>> entries = this.entrySet;
+        if (entries == null) {
+            entries = new EntrySet();
+            this.entrySet = entries;
+        }
+        return entries;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size * 2; i += 2) {
+            if (Objects.equals(table[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object removeAt(int i) {
+        modCount++;
+        Object previous = table[i + 1];
+        int end = size * 2;
+        System.arraycopy(table, i + 2, table, i, end - i - 2);
+        table[end - 2] = null;
+        table[end - 1] = null;
+        size--;
+        return previous;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size());
+        for (Map.Entry<Object, Object> entry : entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.table = EMPTY;
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            put(in.readObject(), in.readObject());
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Object, Object>> {
+
+        @Override
+        public Iterator<Map.Entry<Object, Object>> iterator() {
+            return map != null ? map.entrySet().iterator() : new ArrayIterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactAttributeMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            CompactAttributeMap.this.clear();
+        }
+    }
+
+    private final class ArrayIterator implements Iterator<Map.Entry<Object, Object>> {
+
+        private int next;
+
+        private int last = -1;
+
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return next < size * 2;
+        }
+
+        public Map.Entry<Object, Object> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            return new ArrayEntry(last);
+        }
+
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class ArrayEntry extends SimpleEntry<Object, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        private ArrayEntry(int index) {
+            super(table[index], table[index + 1]);
+            this.index = index;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            super.setValue(value);
+            Object previous = table[index + 1];
+            table[index + 1] = value;
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A {@link SimpleSession SimpleSession} that needs considerably less memory, intended for applications holding large
+ * numbers of sessions in memory, for example in a {@link org.apache.shiro.session.mgt.eis.MemorySessionDAO
+ * MemorySessionDAO} or a local active sessions cache.
+ * <p/>
+ * Its start, stop and last access timestamps are stored as epoch milliseconds instead of {@code Date} objects, so
+ * {@link #touch()} and session validation allocate nothing, and its attributes are held in a single array while there
+ * are only a few of them.
+ * <p/>
+ * As a subclass, a {@code CompactSession} still carries the fields of a {@code SimpleSession}: the three inherited
+ * {@code Date} fields are always {@code null}, while the attribute map and change tracking fields are used exactly as
+ * in a {@code SimpleSession}.  The actual savings therefore come from the attribute map and from not retaining
+ * {@code Date} objects.  On a 64-bit JVM with compressed references:
+ * <ul>
+ * <li>the session object itself is 24 bytes larger (80 instead of 56 bytes), for the three {@code long} fields;</li>
+ * <li>no {@code Date} objects of 24 bytes each are retained: a {@code SimpleSession} holds one when created, two once
+ * touched and three once stopped;</li>
+ * <li>up to four attributes cost 40 bytes plus a 48 byte array (80 bytes for up to eight), instead of
+ * 128 bytes for an empty {@code HashMap} with its table plus 32 bytes per entry.</li>
+ * </ul>
+ * A touched session with four attributes thus retains about 168 instead of 360 bytes, excluding its id, host and
+ * attribute values.
+ * <p/>
+ * A {@code CompactSession} behaves exactly like a {@code SimpleSession}, with one exception: the timestamp getters
+ * return a new {@code Date} on every call, so modifying a returned {@code Date} does not modify the session.
+ * <p/>
+ * Use a {@link CompactSessionFactory CompactSessionFactory} to have session managers create {@code CompactSession}s.
+ *
+ * @see CompactSessionFactory
+ * @since 2.0
+ */
+public class CompactSession extends SimpleSession {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Marks an absent timestamp.
+     */
+    private static final long NONE = NO_TIME;
+
+    private transient long startTimestamp;
+
+    private transient long stopTimestamp = NONE;
+
+    private transient long lastAccessTime;
+
+    public CompactSession() {
+        super();
+        // the timestamps are stored here instead of in the superclass:
+        super.setStartTimestamp(null);
+        super.setLastAccessTime(null);
+        markClean();
+        this.startTimestamp = System.currentTimeMillis();
+        this.lastAccessTime = this.startTimestamp;
+    }
+
+    public CompactSession(String host) {
+        this();
+        setHost(host);
+        markClean();
+    }
+
+    private static Date toDate(long millis) {
+        return millis != NONE ? new Date(millis) : null;
+    }
+
+    private static long toMillis(Date date) {
+        return date != null ? date.getTime() : NONE;
+    }
+
+    @Override
+    public Date getStartTimestamp() {
+        return toDate(startTimestamp);
+    }
+
+    @Override
+    public void setStartTimestamp(Date startTimestamp) {
+        long millis = toMillis(startTimestamp);
+        if (this.startTimestamp != millis) {
+            this.startTimestamp = millis;
+            markFieldDirty(SessionDelta.Field.START_TIMESTAMP);
+        }
+    }
+
+    @Override
+    public Date getStopTimestamp() {
+        return toDate(stopTimestamp);
+    }
+
+    @Override
+    public void setStopTimestamp(Date stopTimestamp) {
+        long millis = toMillis(stopTimestamp);
+        if (this.stopTimestamp != millis) {
+            this.stopTimestamp = millis;
+            markFieldDirty(SessionDelta.Field.STOP_TIMESTAMP);
+        }
+    }
+
+    @Override
+    public Date getLastAccessTime() {
+        return toDate(lastAccessTime);
+    }
+
+    @Override
+    public void setLastAccessTime(Date lastAccessTime) {
+        long millis = toMillis(lastAccessTime);
+        if (this.lastAccessTime != millis) {
+            this.lastAccessTime = millis;
+            markFieldDirty(SessionDelta.Field.LAST_ACCESS_TIME);
+        }
+    }
+
+    @Override
+    long getLastAccessTimeMillis() {
+        return lastAccessTime;
+    }
+
+    @Override
+    public void touch() {
+        this.lastAccessTime = System.currentTimeMillis();
+        markFieldDirty(SessionDelta.Field.LAST_ACCESS_TIME);
+    }
+
+    @Override
+    public void stop() {
+        if (this.stopTimestamp == NONE) {
+            this.stopTimestamp = System.currentTimeMillis();
+            markFieldDirty(SessionDelta.Field.STOP_TIMESTAMP);
+        }
+    }
+
+    @Override
+    protected boolean isStopped() {
+        return stopTimestamp != NONE;
+    }
+
+    @Override
+    protected boolean isTimedOut() {
+        if (isExpired()) {
+            return true;
+        }
+        long timeout = getTimeout();
+        if (timeout < 0L) {
+            return false;
+        }
+        if (lastAccessTime == NONE) {
+            throw new IllegalStateException("session.lastAccessTime for session with id [" + getId() + "] is null.  "
+                    + "This value must be set at least once, preferably at least upon instantiation.");
+        }
+        return lastAccessTime < System.currentTimeMillis() - timeout;
+    }
+
+    /**
+     * Returns a new {@link CompactAttributeMap}, which stores a few attributes in a single array.
+     *
+     * @return a new, empty attribute map.
+     */
+    @Override
+    protected Map<Object, Object> createAttributes() {
+        return new CompactAttributeMap();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeLong(startTimestamp);
+        out.writeLong(stopTimestamp);
+        out.writeLong(lastAccessTime);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.startTimestamp = in.readLong();
+        this.stopTimestamp = in.readLong();
+        this.lastAccessTime = in.readLong();
+    }
+}
@@ -22,8 +22,10 @@ import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.cache.CacheManagerAware;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.eis.DeltaSessionDAO;
 import org.apache.shiro.session.mgt.eis.MemorySessionDAO;
 import org.apache.shiro.session.mgt.eis.SessionDAO;
+import org.apache.shiro.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,6 +33,8 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Default business-tier implementation of a {@link ValidatingSessionManager}.  All session CRUD operations are
@@ -208,7 +212,32 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
         }
     }
 
+    /**
+     * Persists the changed session via the {@link #getSessionDAO() sessionDAO}.
+     * <p/>
+     * If the session is a {@link SimpleSession} and the {@code SessionDAO} is a {@link DeltaSessionDAO}, only the
+     * session's {@link SimpleSession#takeDelta() delta} is passed on, and nothing is written at all if the session is
+     * still valid and did not change since it was last written.
+     *
+     * @param session the changed session.
+     */
     protected void onChange(Session session) {
+        if (session instanceof SimpleSession && sessionDAO instanceof DeltaSessionDAO) {
+            SimpleSession simpleSession = (SimpleSession) session;
+            SessionDelta delta = simpleSession.takeDelta();
+            if (delta != null) {
+                try {
+                    ((DeltaSessionDAO) sessionDAO).update(session, delta);
+                } catch (RuntimeException e) {
+                    simpleSession.markDirty(delta);
+                    throw e;
+                }
+                return;
+            }
+            if (simpleSession.isValid()) {
+                return;
+            }
+        }
         sessionDAO.update(session);
     }
 
@@ -245,4 +274,21 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
         return active != null ? active : Collections.<Session>emptySet();
     }
 
+    /**
+     * Passes all active sessions to the specified consumer in batches, letting the {@link SessionDAO} fetch them a
+     * batch at a time via {@link SessionDAO#forEachActiveSessionBatch(int, Consumer)}.
+     * <p/>
+     * Subclasses that override {@link #getActiveSessions()} must override this method as well, for example to split
+     * the collection they return via {@link CollectionUtils#forEachBatch CollectionUtils.forEachBatch}, so that
+     * session validation sees the same sessions.
+     *
+     * @param batchSize the maximum number of sessions per batch.
+     * @param consumer  the consumer of each batch.
+     * @since 2.0
+     */
+    @Override
+    protected void forEachActiveSessionBatch(int batchSize, Consumer<? super List<Session>> consumer) {
+        sessionDAO.forEachActiveSessionBatch(batchSize, consumer);
+    }
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable description of the persistent changes made to a session since it was loaded from (or last written to)
+ * its {@link org.apache.shiro.session.mgt.eis.SessionDAO SessionDAO}.
+ * <p/>
+ * A delta lists the changed session {@link Field fields}, the attributes that were added or replaced (with their
+ * current values) and the keys of the attributes that were removed.  If the session's entire attribute map was
+ * replaced, {@link #isAttributesReplaced()} returns {@code true} and {@link #getChangedAttributes()} contains every
+ * current attribute.
+ * <p/>
+ * Attribute changes are detected when {@code setAttribute} or {@code removeAttribute} is called.  Mutating an attribute
+ * value in place is not detected: call {@code setAttribute} again with the same value to mark it as changed.
+ *
+ * @see SimpleSession#getDelta()
+ * @see org.apache.shiro.session.mgt.eis.DeltaSessionDAO
+ * @since 2.0
+ */
+public final class SessionDelta {
+
+    /**
+     * The session fields whose changes are tracked.
+     */
+    public enum Field {
+        START_TIMESTAMP,
+        STOP_TIMESTAMP,
+        LAST_ACCESS_TIME,
+        TIMEOUT,
+        EXPIRED,
+        HOST
+    }
+
+    private final Serializable sessionId;
+
+    private final Set<Field> changedFields;
+
+    private final Map<Object, Object> changedAttributes;
+
+    private final Set<Object> removedAttributeKeys;
+
+    private final boolean attributesReplaced;
+
+    SessionDelta(Serializable sessionId, Set<Field> changedFields, Map<Object, Object> changedAttributes,
+                 Set<Object> removedAttributeKeys, boolean attributesReplaced) {
+        this.sessionId = sessionId;
+        this.changedFields = changedFields.isEmpty()
+                ? Collections.<Field>emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(changedFields));
+        this.changedAttributes = Collections.unmodifiableMap(changedAttributes);
+        this.removedAttributeKeys = Collections.unmodifiableSet(removedAttributeKeys);
+        this.attributesReplaced = attributesReplaced;
+    }
+
+    /**
+     * Returns the id of the changed session.
+     *
+     * @return the id of the changed session.
+     */
+    public Serializable getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns {@code true} if nothing persistent changed, {@code false} otherwise.
+     *
+     * @return {@code true} if nothing persistent changed, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        return changedFields.isEmpty() && changedAttributes.isEmpty() && removedAttributeKeys.isEmpty()
+                && !attributesReplaced;
+    }
+
+    /**
+     * Returns the changed session fields, never {@code null}.
+     *
+     * @return the changed session fields, never {@code null}.
+     */
+    public Set<Field> getChangedFields() {
+        return changedFields;
+    }
+
+    /**
+     * Returns {@code true} if the specified field changed, {@code false} otherwise.
+     *
+     * @param field the field to check.
+     * @return {@code true} if the specified field changed, {@code false} otherwise.
+     */
+    public boolean isChanged(Field field) {
+        return changedFields.contains(field);
+    }
+
+    /**
+     * Returns the added or replaced attributes, keyed by attribute key and holding their current values.
+     *
+     * @return the added or replaced attributes, never {@code null}.
+     */
+    public Map<Object, Object> getChangedAttributes() {
+        return changedAttributes;
+    }
+
+    /**
+     * Returns the keys of the removed attributes.
+     *
+     * @return the keys of the removed attributes, never {@code null}.
+     */
+    public Set<Object> getRemovedAttributeKeys() {
+        return removedAttributeKeys;
+    }
+
+    /**
+     * Returns {@code true} if the session's entire attribute map was replaced, in which case
+     * {@link #getChangedAttributes()} holds all of the session's attributes and any stored attribute not contained in
+     * it must be discarded.
+     *
+     * @return {@code true} if the session's entire attribute map was replaced, {@code false} otherwise.
+     */
+    public boolean isAttributesReplaced() {
+        return attributesReplaced;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionDelta[sessionId=" + sessionId + ", fields=" + changedFields
+                + ", changedAttributes=" + changedAttributes.keySet() + ", removedAttributes=" + removedAttributeKeys
+                + (attributesReplaced ? ", attributesReplaced" : "") + "]";
+    }
+}
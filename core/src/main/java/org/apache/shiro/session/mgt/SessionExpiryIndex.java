@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An index of session ids ordered by the time at which each session could expire at the earliest, used by
+ * {@link AbstractValidatingSessionManager} to validate only those sessions that could have expired since the previous
+ * validation instead of all active sessions.
+ * <p/>
+ * The index is a hierarchical timing wheel: {@value #LEVELS} wheels of {@value #SLOTS} slots each, where a slot of the
+ * first wheel spans one tick and a slot of every further wheel spans all slots of the previous one.  Scheduling a
+ * session is O(1), and {@link #advance(long) advancing} the index to the current time only visits the slots that
+ * passed, moving ("cascading") the entries of a coarser wheel to finer wheels as their time approaches.
+ * <p/>
+ * Deadlines are <em>lower bounds</em>: the index is not updated when a session is merely touched, so a returned
+ * session may well still be valid, in which case the caller {@link #reschedule reschedules} it with its new deadline.
+ * This keeps the request path free of index updates.  Only an earlier deadline (for example after the session timeout
+ * was reduced) replaces the scheduled one via {@link #schedule}.
+ * <p/>
+ * Lookups are lock-free; modifications of the wheels are guarded by a single lock.
+ *
+ * @since 2.0
+ */
+final class SessionExpiryIndex {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+
+    private final long tickMillis;
+
+    /**
+     * The authoritative deadline of each tracked session, the wheels may contain stale entries that are skipped.
+     */
+    private final ConcurrentMap<Serializable, Long> deadlines = new ConcurrentHashMap<Serializable, Long>();
+
+    private final List<Set<Serializable>> slots;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The last tick that was advanced to, guarded by {@link #lock}.
+     */
+    private long currentTick;
+
+    SessionExpiryIndex(long tickMillis, long now) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive.");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = now / tickMillis;
+        this.slots = new ArrayList<Set<Serializable>>(LEVELS * SLOTS);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            this.slots.add(null);
+        }
+    }
+
+    /**
+     * Tracks the specified session with the specified deadline, unless it is already tracked with the same or an
+     * earlier deadline.
+     */
+    void schedule(Serializable sessionId, long deadline) {
+        Long current = deadlines.get(sessionId);
+        if (current != null && current <= deadline) {
+            return;
+        }
+        reschedule(sessionId, deadline);
+    }
+
+    /**
+     * Tracks the specified session with the specified deadline, replacing any deadline it was tracked with.
+     */
+    void reschedule(Serializable sessionId, long deadline) {
+        lock.lock();
+        try {
+            deadlines.put(sessionId, deadline);
+            place(sessionId, deadline / tickMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(Serializable sessionId) {
+        deadlines.remove(sessionId);
+    }
+
+    boolean contains(Serializable sessionId) {
+        return deadlines.containsKey(sessionId);
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Advances the index to the specified time and returns (and stops tracking) the ids of all sessions whose
+     * deadline has passed.
+     */
+    List<Serializable> advance(long now) {
+        List<Serializable> due = new ArrayList<Serializable>();
+        lock.lock();
+        try {
+            long target = now / tickMillis;
+            if (deadlines.isEmpty()) {
+                // nothing to visit, any stale entries are skipped when their slots come around again
+                currentTick = Math.max(currentTick, target);
+            }
+            while (currentTick < target) {
+                currentTick++;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    long span = 1L << (SLOT_BITS * level);
+                    if ((currentTick & (span - 1)) == 0) {
+                        drain(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK), due);
+                    }
+                }
+                drain(0, (int) (currentTick & SLOT_MASK), due);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return due;
+    }
+
+    private void drain(int level, int slot, List<Serializable> due) {
+        int index = level * SLOTS + slot;
+        Set<Serializable> ids = slots.get(index);
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        slots.set(index, null);
+        for (Serializable id : ids) {
+            Long deadline = deadlines.get(id);
+            if (deadline == null) {
+                continue;
+            }
+            long tick = deadline / tickMillis;
+            if (tick <= currentTick) {
+                if (deadlines.remove(id, deadline)) {
+                    due.add(id);
+                }
+            } else {
+                place(id, tick);
+            }
+        }
+    }
+
+    private void place(Serializable id, long tick) {
+        long t = Math.max(tick, currentTick + 1);
+        long delta = t - currentTick;
+        int level = 0;
+        while (level < LEVELS && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        if (level == LEVELS) {
+            // beyond the range of the outermost wheel: park it in its farthest slot and re-place it from there
+            level = LEVELS - 1;
+            t = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        }
+        int index = level * SLOTS + (int) ((t >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Set<Serializable> ids = slots.get(index);
+        if (ids == null) {
+            ids = new HashSet<Serializable>();
+            slots.set(index, ids);
+        }
+        ids.add(id);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.apache.shiro.session.Session;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A unit of work, bound to the thread that {@link AbstractNativeSessionManager#beginUnitOfWork() began} it, during
+ * which every session is read from the session store and validated at most once, and all changes to a session are
+ * written in a single coalesced write when the unit of work is {@link #close() closed}.
+ * <p/>
+ * Typically a unit of work spans a single request, for example a web request processed by the {@code ShiroFilter}:
+ * <pre>
+ * try (SessionUnitOfWork unitOfWork = sessionManager.beginUnitOfWork()) {
+ *     // process the request
+ * }</pre>
+ * Sessions {@link org.apache.shiro.session.Session#stop() stopped} during the unit of work are written immediately,
+ * as usual, and are no longer part of it.
+ * <p/>
+ * Instances are not thread-safe and must be closed by the thread that began them.  Closing a unit of work that was
+ * returned while another one was already in progress on the same thread, or while units of work are disabled, has
+ * no effect.
+ *
+ * @see AbstractNativeSessionManager#setUnitOfWorkEnabled(boolean)
+ * @since 2.0
+ */
+public final class SessionUnitOfWork implements AutoCloseable {
+
+    /**
+     * Returned when no new unit of work was begun, closing it does nothing.
+     */
+    static final SessionUnitOfWork NONE = new SessionUnitOfWork(null);
+
+    private final AbstractNativeSessionManager sessionManager;
+
+    private final Map<Serializable, Entry> sessions;
+
+    SessionUnitOfWork(AbstractNativeSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+        this.sessions = sessionManager != null ? new LinkedHashMap<Serializable, Entry>() : null;
+    }
+
+    /**
+     * Returns {@code true} if this unit of work was actually begun and its {@link #close()} writes the changed
+     * sessions, {@code false} if it is a no-op.
+     *
+     * @return {@code true} if this unit of work was actually begun, {@code false} if it is a no-op.
+     */
+    public boolean isActive() {
+        return sessionManager != null;
+    }
+
+    /**
+     * Returns the number of sessions loaded during this unit of work.
+     *
+     * @return the number of sessions loaded during this unit of work.
+     */
+    public int size() {
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    Session get(Serializable sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Entry entry = sessions.get(sessionId);
+        return entry != null ? entry.session : null;
+    }
+
+    void add(Session session) {
+        if (session.getId() != null) {
+            sessions.put(session.getId(), new Entry(session));
+        }
+    }
+
+    /**
+     * Records a change of the specified session, returning {@code false} if the session is not part of this unit of
+     * work and must be written immediately.
+     */
+    boolean changed(Session session) {
+        Entry entry = entryOf(session);
+        if (entry == null) {
+            return false;
+        }
+        entry.changed = true;
+        return true;
+    }
+
+    /**
+     * Records a touch of the specified session, returning {@code false} if the session is not part of this unit of
+     * work and must be written immediately.
+     */
+    boolean touched(Session session) {
+        Entry entry = entryOf(session);
+        if (entry == null) {
+            return false;
+        }
+        entry.touched = true;
+        return true;
+    }
+
+    void remove(Session session) {
+        if (session.getId() != null) {
+            sessions.remove(session.getId());
+        }
+    }
+
+    Collection<Entry> entries() {
+        return sessions.values();
+    }
+
+    private Entry entryOf(Session session) {
+        Entry entry = session.getId() != null ? sessions.get(session.getId()) : null;
+        return entry != null && entry.session == session ? entry : null;
+    }
+
+    /**
+     * Ends this unit of work, writing every session that was changed or touched during it.
+     *
+     * @throws org.apache.shiro.session.SessionException (or another {@code RuntimeException}) if writing a session
+     *                                                   failed.  The remaining sessions are still written.
+     */
+    @Override
+    public void close() {
+        if (sessionManager != null) {
+            sessionManager.endUnitOfWork(this);
+        }
+    }
+
+    static final class Entry {
+        final Session session;
+        boolean changed;
+        boolean touched;
+
+        private Entry(Session session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+/**
+ * Metrics of a single {@link ValidatingSessionManager#validateSessions() session validation} run, as returned by
+ * {@link AbstractValidatingSessionManager#getLastSessionValidationSummary()}.
+ *
+ * @since 2.0
+ */
+public final class SessionValidationSummary {
+
+    private final boolean incremental;
+
+    private final long startTime;
+
+    private final long durationMillis;
+
+    private final int scannedCount;
+
+    private final int expiredCount;
+
+    private final int stoppedCount;
+
+    SessionValidationSummary(boolean incremental, long startTime, long durationMillis, int scannedCount,
+                             int expiredCount, int stoppedCount) {
+        this.incremental = incremental;
+        this.startTime = startTime;
+        this.durationMillis = durationMillis;
+        this.scannedCount = scannedCount;
+        this.expiredCount = expiredCount;
+        this.stoppedCount = stoppedCount;
+    }
+
+    /**
+     * Returns {@code true} if only the sessions that could have expired were validated, {@code false} if all active
+     * sessions were validated.
+     *
+     * @return {@code true} if the run was incremental, {@code false} if it validated all active sessions.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Returns the time the run started, in milliseconds since the epoch.
+     *
+     * @return the time the run started, in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time the run took, in milliseconds.
+     *
+     * @return the time the run took, in milliseconds.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Returns the number of sessions that were validated.
+     *
+     * @return the number of sessions that were validated.
+     */
+    public int getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * Returns the number of sessions that were found to be expired.
+     *
+     * @return the number of sessions that were found to be expired.
+     */
+    public int getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * Returns the number of sessions that were found to be stopped or otherwise invalid, but not expired.
+     *
+     * @return the number of sessions that were found to be stopped.
+     */
+    public int getStoppedCount() {
+        return stoppedCount;
+    }
+
+    /**
+     * Returns the total number of invalid sessions, i.e. the sum of the expired and stopped sessions.
+     *
+     * @return the total number of invalid sessions.
+     */
+    public int getInvalidCount() {
+        return expiredCount + stoppedCount;
+    }
+
+    @Override
+    public String toString() {
+        return (incremental ? "incremental" : "full") + " session validation: scanned [" + scannedCount
+                + "], expired [" + expiredCount + "], stopped [" + stoppedCount + "] in " + durationMillis + " ms";
+    }
+}
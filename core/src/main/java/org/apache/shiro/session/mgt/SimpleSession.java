@@ -20,6 +20,7 @@ package org.apache.shiro.session.mgt;
 
 import org.apache.shiro.session.ExpiredSessionException;
 import org.apache.shiro.session.InvalidSessionException;
+import org.apache.shiro.session.Session;
 import org.apache.shiro.session.StoppedSessionException;
 import org.apache.shiro.util.CollectionUtils;
 import org.slf4j.Logger;
@@ -33,13 +34,24 @@ import java.text.DateFormat;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
  * Simple {@link org.apache.shiro.session.Session} JavaBeans-compatible POJO implementation, intended to be used on the
  * business/server tier.
+ * <p/>
+ * Since 2.0 a {@code SimpleSession} also tracks which of its fields and attributes changed since it was created,
+ * deserialized or last {@link #markClean() marked clean}, so that {@code SessionDAO}s can skip writing sessions that
+ * did not change ({@link #isDirty()}) or write only the {@link #getDelta() delta}.  This state is not serialized: a
+ * session read back from a store is always clean.  The change tracking methods are synchronized, so that a session
+ * shared by concurrent requests can be written with {@link #takeDelta()} without losing changes.
  *
  * @since 0.1
  */
@@ -50,6 +62,11 @@ public class SimpleSession implements ValidatingSession, Serializable {
     protected static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
     protected static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
 
+    /**
+     * Returned by {@link #getLastAccessTimeMillis()} if the session has no last access time.
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
     //serialization bitmask fields. DO NOT CHANGE THE ORDER THEY ARE DECLARED!
     static int bitIndexCounter;
 
@@ -96,6 +113,10 @@ public class SimpleSession implements ValidatingSession, Serializable {
     private transient String host;
     private transient Map<Object, Object> attributes;
 
+    // change tracking only, never serialized:
+    private transient int dirtyFields;
+    private transient Set<Object> dirtyAttributeKeys;
+
     public SimpleSession() {
         //TODO - remove concrete reference to DefaultSessionManager
         this.timeout = DefaultSessionManager.DEFAULT_GLOBAL_SESSION_TIMEOUT;
@@ -121,6 +142,7 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setStartTimestamp(Date startTimestamp) {
+        markFieldDirtyIfChanged(START_TIMESTAMP_BIT_MASK, this.startTimestamp, startTimestamp);
         this.startTimestamp = startTimestamp;
     }
 
@@ -146,6 +168,7 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setStopTimestamp(Date stopTimestamp) {
+        markFieldDirtyIfChanged(STOP_TIMESTAMP_BIT_MASK, this.stopTimestamp, stopTimestamp);
         this.stopTimestamp = stopTimestamp;
     }
 
@@ -154,9 +177,37 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setLastAccessTime(Date lastAccessTime) {
+        markFieldDirtyIfChanged(LAST_ACCESS_TIME_BIT_MASK, this.lastAccessTime, lastAccessTime);
         this.lastAccessTime = lastAccessTime;
     }
 
+    /**
+     * Returns the last access time in milliseconds, or {@link #NO_TIME} if there is none, without allocating a
+     * {@code Date} in subclasses that do not keep one.
+     *
+     * @return the last access time in milliseconds, or {@link #NO_TIME}.
+     * @since 2.0
+     */
+    long getLastAccessTimeMillis() {
+        Date time = getLastAccessTime();
+        return time != null ? time.getTime() : NO_TIME;
+    }
+
+    /**
+     * Returns the last access time of the specified session in milliseconds, or {@link #NO_TIME} if there is none.
+     *
+     * @param session the session to inspect.
+     * @return the last access time of the session in milliseconds, or {@link #NO_TIME}.
+     * @since 2.0
+     */
+    static long lastAccessTimeMillis(Session session) {
+        if (session instanceof SimpleSession) {
+            return ((SimpleSession) session).getLastAccessTimeMillis();
+        }
+        Date time = session.getLastAccessTime();
+        return time != null ? time.getTime() : NO_TIME;
+    }
+
     /**
      * Returns true if this session has expired, false otherwise.  If the session has
      * expired, no further user interaction with the system may be done under this session.
@@ -168,6 +219,9 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setExpired(boolean expired) {
+        if (this.expired != expired) {
+            addDirtyFields(EXPIRED_BIT_MASK);
+        }
         this.expired = expired;
     }
 
@@ -176,6 +230,9 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setTimeout(long timeout) {
+        if (this.timeout != timeout) {
+            addDirtyFields(TIMEOUT_BIT_MASK);
+        }
         this.timeout = timeout;
     }
 
@@ -184,6 +241,7 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setHost(String host) {
+        markFieldDirtyIfChanged(HOST_BIT_MASK, this.host, host);
         this.host = host;
     }
 
@@ -192,16 +250,21 @@ public class SimpleSession implements ValidatingSession, Serializable {
     }
 
     public void setAttributes(Map<Object, Object> attributes) {
+        if (this.attributes != attributes) {
+            addDirtyFields(ATTRIBUTES_BIT_MASK);
+        }
         this.attributes = attributes;
     }
 
     public void touch() {
         this.lastAccessTime = new Date();
+        addDirtyFields(LAST_ACCESS_TIME_BIT_MASK);
     }
 
     public void stop() {
         if (this.stopTimestamp == null) {
             this.stopTimestamp = new Date();
+            addDirtyFields(STOP_TIMESTAMP_BIT_MASK);
         }
     }
 
@@ -211,7 +274,166 @@ public class SimpleSession implements ValidatingSession, Serializable {
 
     protected void expire() {
         stop();
-        this.expired = true;
+        setExpired(true);
+    }
+
+    private void markFieldDirtyIfChanged(int fieldBitMask, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            addDirtyFields(fieldBitMask);
+        }
+    }
+
+    private synchronized void addDirtyFields(int fieldBitMask) {
+        dirtyFields |= fieldBitMask;
+    }
+
+    /**
+     * Marks the specified field as changed, for subclasses that store the field's value themselves instead of
+     * calling the corresponding setter of this class.
+     *
+     * @param field the changed field.
+     * @since 2.0
+     */
+    protected void markFieldDirty(SessionDelta.Field field) {
+        addDirtyFields(bitMaskOf(field));
+    }
+
+    private static int bitMaskOf(SessionDelta.Field field) {
+        switch (field) {
+            case START_TIMESTAMP:
+                return START_TIMESTAMP_BIT_MASK;
+            case STOP_TIMESTAMP:
+                return STOP_TIMESTAMP_BIT_MASK;
+            case LAST_ACCESS_TIME:
+                return LAST_ACCESS_TIME_BIT_MASK;
+            case TIMEOUT:
+                return TIMEOUT_BIT_MASK;
+            case EXPIRED:
+                return EXPIRED_BIT_MASK;
+            default:
+                return HOST_BIT_MASK;
+        }
+    }
+
+    private synchronized void markAttributeDirty(Object attributeKey) {
+        if ((dirtyFields & ATTRIBUTES_BIT_MASK) != 0) {
+            // the whole attribute map is already considered changed
+            return;
+        }
+        if (dirtyAttributeKeys == null) {
+            dirtyAttributeKeys = new HashSet<Object>();
+        }
+        dirtyAttributeKeys.add(attributeKey);
+    }
+
+    /**
+     * Returns {@code true} if any persistent state of this session changed since it was created, deserialized or
+     * last {@link #markClean() marked clean}, {@code false} otherwise.
+     *
+     * @return {@code true} if this session has unsaved changes, {@code false} otherwise.
+     * @since 2.0
+     */
+    public synchronized boolean isDirty() {
+        return dirtyFields != 0 || !CollectionUtils.isEmpty(dirtyAttributeKeys);
+    }
+
+    /**
+     * Returns the changes made to this session since it was created, deserialized or last
+     * {@link #markClean() marked clean}.  The returned delta is a snapshot and is not affected by later changes.
+     *
+     * @return the changes made to this session, never {@code null}.
+     * @since 2.0
+     */
+    public synchronized SessionDelta getDelta() {
+        Set<SessionDelta.Field> fields = EnumSet.noneOf(SessionDelta.Field.class);
+        addIfDirty(fields, START_TIMESTAMP_BIT_MASK, SessionDelta.Field.START_TIMESTAMP);
+        addIfDirty(fields, STOP_TIMESTAMP_BIT_MASK, SessionDelta.Field.STOP_TIMESTAMP);
+        addIfDirty(fields, LAST_ACCESS_TIME_BIT_MASK, SessionDelta.Field.LAST_ACCESS_TIME);
+        addIfDirty(fields, TIMEOUT_BIT_MASK, SessionDelta.Field.TIMEOUT);
+        addIfDirty(fields, EXPIRED_BIT_MASK, SessionDelta.Field.EXPIRED);
+        addIfDirty(fields, HOST_BIT_MASK, SessionDelta.Field.HOST);
+
+        boolean replaced = (dirtyFields & ATTRIBUTES_BIT_MASK) != 0;
+        Map<Object, Object> changed = new LinkedHashMap<Object, Object>();
+        Set<Object> removed = new HashSet<Object>();
+        Map<Object, Object> attributes = getAttributes();
+        if (replaced) {
+            if (attributes != null) {
+                changed.putAll(attributes);
+            }
+        } else if (dirtyAttributeKeys != null) {
+            for (Object key : dirtyAttributeKeys) {
+                Object value = attributes != null ? attributes.get(key) : null;
+                if (value != null) {
+                    changed.put(key, value);
+                } else {
+                    removed.add(key);
+                }
+            }
+        }
+        return new SessionDelta(getId(), fields, changed, removed, replaced);
+    }
+
+    private void addIfDirty(Set<SessionDelta.Field> fields, int fieldBitMask, SessionDelta.Field field) {
+        if ((dirtyFields & fieldBitMask) != 0) {
+            fields.add(field);
+        }
+    }
+
+    /**
+     * Marks this session as clean, i.e. in sync with its persistent representation.  {@code SessionDAO}s call this
+     * method after they successfully wrote the session.
+     *
+     * @see #takeDelta()
+     * @since 2.0
+     */
+    public synchronized void markClean() {
+        dirtyFields = 0;
+        dirtyAttributeKeys = null;
+    }
+
+    /**
+     * Atomically returns the {@link #getDelta() delta} of this session and {@link #markClean() marks it clean}, or
+     * returns {@code null} if this session is not {@link #isDirty() dirty}.
+     * <p/>
+     * Unlike calling {@code getDelta()} and {@code markClean()} separately, this method never discards a change made
+     * by another thread between the two calls: such a change is either part of the returned delta or leaves this
+     * session dirty again.  If writing the returned delta fails, pass it to {@link #markDirty(SessionDelta)} so that
+     * its changes are written by the next attempt.
+     *
+     * @return the changes made to this session since it was last marked clean, or {@code null} if there are none.
+     * @since 2.0
+     */
+    public synchronized SessionDelta takeDelta() {
+        if (!isDirty()) {
+            return null;
+        }
+        SessionDelta delta = getDelta();
+        markClean();
+        return delta;
+    }
+
+    /**
+     * Marks all fields and attributes changed by the specified delta as changed again, typically because writing a
+     * delta obtained via {@link #takeDelta()} failed.
+     *
+     * @param delta the delta whose changes have not been written.
+     * @since 2.0
+     */
+    public synchronized void markDirty(SessionDelta delta) {
+        for (SessionDelta.Field field : delta.getChangedFields()) {
+            dirtyFields |= bitMaskOf(field);
+        }
+        if (delta.isAttributesReplaced()) {
+            dirtyFields |= ATTRIBUTES_BIT_MASK;
+            return;
+        }
+        for (Object key : delta.getChangedAttributes().keySet()) {
+            markAttributeDirty(key);
+        }
+        for (Object key : delta.getRemovedAttributeKeys()) {
+            markAttributeDirty(key);
+        }
     }
 
     /**
@@ -298,10 +520,21 @@ public class SimpleSession implements ValidatingSession, Serializable {
         }
     }
 
+    /**
+     * Creates the map holding this session's attributes when the first attribute is set.  This implementation
+     * returns a new {@code HashMap}.
+     *
+     * @return a new, empty, mutable map.
+     * @since 2.0
+     */
+    protected Map<Object, Object> createAttributes() {
+        return new HashMap<Object, Object>();
+    }
+
     private Map<Object, Object> getAttributesLazy() {
         Map<Object, Object> attributes = getAttributes();
         if (attributes == null) {
-            attributes = new HashMap<Object, Object>();
+            attributes = createAttributes();
             setAttributes(attributes);
         }
         return attributes;
@@ -328,6 +561,7 @@ public class SimpleSession implements ValidatingSession, Serializable {
             removeAttribute(key);
         } else {
             getAttributesLazy().put(key, value);
+            markAttributeDirty(key);
         }
     }
 
@@ -336,7 +570,11 @@ public class SimpleSession implements ValidatingSession, Serializable {
         if (attributes == null) {
             return null;
         } else {
-            return attributes.remove(key);
+            Object removed = attributes.remove(key);
+            if (removed != null) {
+                markAttributeDirty(key);
+            }
+            return removed;
         }
     }
 
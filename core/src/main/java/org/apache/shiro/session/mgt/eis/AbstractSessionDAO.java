@@ -115,6 +115,10 @@ public abstract class AbstractSessionDAO implements SessionDAO {
     public Serializable create(Session session) {
         Serializable sessionId = doCreate(session);
         verifySessionId(sessionId);
+        if (session instanceof SimpleSession) {
+            // the session has just been written in its entirety:
+            ((SimpleSession) session).markClean();
+        }
         return sessionId;
     }
 
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads session attribute values of a single application type, so that a {@link BinarySessionCodec} can
+ * encode them without Java serialization.
+ *
+ * @param <T> the attribute value type.
+ * @see BinarySessionCodec#registerAttributeCodec(int, Class, AttributeCodec)
+ * @since 2.0
+ */
+public interface AttributeCodec<T> {
+
+    /**
+     * Writes the specified attribute value.
+     *
+     * @param value the attribute value to write, never {@code null}.
+     * @param out   the output to write to.
+     * @throws IOException if writing fails.
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads an attribute value previously written by {@link #write(Object, DataOutput)}.
+     *
+     * @param in the input to read from.
+     * @return the attribute value.
+     * @throws IOException if reading fails.
+     */
+    T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.lang.io.DefaultSerializer;
+import org.apache.shiro.lang.io.SerializationException;
+import org.apache.shiro.lang.io.Serializer;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.apache.shiro.subject.support.DelegatingSubject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link SessionCodec} using a compact, versioned binary format instead of Java serialization.
+ * <p/>
+ * Timestamps are written as epoch milliseconds, and absent fields are omitted entirely.  Session ids, attribute keys
+ * and attribute values of the most common types ({@code String}, {@code Boolean}, {@code Integer}, {@code Long},
+ * {@code Date}, {@code UUID} and {@link SimplePrincipalCollection SimplePrincipalCollection}) are written as a one byte
+ * type tag followed by their value, and the attribute keys Shiro itself uses to store the Subject's principals,
+ * authentication state and run-as principals are written as a single tag.  Values of application types can be
+ * written by {@link #registerAttributeCodec(int, Class, AttributeCodec) registering} an {@link AttributeCodec} for them,
+ * all other values are written using the {@link #setFallbackSerializer(Serializer) fallbackSerializer}, a
+ * {@link DefaultSerializer DefaultSerializer} by default.
+ * <p/>
+ * Sessions are always decoded as {@link SimpleSession SimpleSession}s with no pending changes.  Sessions of other types
+ * are encoded based on their {@link Session} interface methods only.
+ * <p/>
+ * Attribute codecs should be registered before the codec is used, and must be registered with the same ids on every
+ * node sharing the encoded sessions.  Instances are thread-safe.
+ *
+ * @since 2.0
+ */
+public class BinarySessionCodec implements SessionCodec {
+
+    /**
+     * The version of the binary format written by this codec, which is the first byte of every encoded session.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int ID_FLAG = 1;
+    private static final int START_TIMESTAMP_FLAG = 1 << 1;
+    private static final int STOP_TIMESTAMP_FLAG = 1 << 2;
+    private static final int LAST_ACCESS_TIME_FLAG = 1 << 3;
+    private static final int TIMEOUT_FLAG = 1 << 4;
+    private static final int EXPIRED_FLAG = 1 << 5;
+    private static final int HOST_FLAG = 1 << 6;
+    private static final int ATTRIBUTES_FLAG = 1 << 7;
+
+    private static final int NULL_TAG = 0;
+    private static final int STRING_TAG = 1;
+    private static final int TRUE_TAG = 2;
+    private static final int FALSE_TAG = 3;
+    private static final int INTEGER_TAG = 4;
+    private static final int LONG_TAG = 5;
+    private static final int DATE_TAG = 6;
+    private static final int UUID_TAG = 7;
+    private static final int PRINCIPALS_TAG = 8;
+    private static final int PRINCIPALS_KEY_TAG = 9;
+    private static final int AUTHENTICATED_KEY_TAG = 10;
+    private static final int RUN_AS_KEY_TAG = 11;
+    private static final int CUSTOM_TAG = 12;
+    private static final int SERIALIZED_TAG = 13;
+
+    private static final String RUN_AS_PRINCIPALS_SESSION_KEY =
+            DelegatingSubject.class.getName() + ".RUN_AS_PRINCIPALS_SESSION_KEY";
+
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION = 0x80;
+    private static final int VARINT_SHIFT = 7;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private final ConcurrentMap<Class<?>, Registration<?>> codecsByType =
+            new ConcurrentHashMap<Class<?>, Registration<?>>();
+
+    private final ConcurrentMap<Integer, Registration<?>> codecsById = new ConcurrentHashMap<Integer, Registration<?>>();
+
+    private Serializer<Object> fallbackSerializer = new DefaultSerializer<Object>();
+
+    /**
+     * Returns the serializer used for attribute values that have no built-in or registered codec.
+     *
+     * @return the serializer used for attribute values that have no built-in or registered codec.
+     */
+    public Serializer<Object> getFallbackSerializer() {
+        return fallbackSerializer;
+    }
+
+    /**
+     * Sets the serializer used for attribute values that have no built-in or registered codec.
+     *
+     * @param fallbackSerializer the serializer used for attribute values that have no built-in or registered codec.
+     */
+    public void setFallbackSerializer(Serializer<Object> fallbackSerializer) {
+        if (fallbackSerializer == null) {
+            throw new IllegalArgumentException("fallbackSerializer cannot be null.");
+        }
+        this.fallbackSerializer = fallbackSerializer;
+    }
+
+    /**
+     * Registers a codec for attribute values (and session ids) whose class is exactly {@code type}.  Values of the
+     * built-in types listed in the class documentation are always written by this codec itself.
+     *
+     * @param id    the non-negative id written instead of the class name, which must identify the same type on every
+     *              node that decodes the sessions.
+     * @param type  the attribute value type.
+     * @param codec the codec writing and reading values of that type.
+     * @param <T>   the attribute value type.
+     * @throws IllegalArgumentException if the id is negative or if the id or the type has already been registered.
+     */
+    public <T> void registerAttributeCodec(int id, Class<T> type, AttributeCodec<T> codec) {
+        if (id < 0 || type == null || codec == null) {
+            throw new IllegalArgumentException("A non-negative id, a type and a codec are required.");
+        }
+        Registration<T> registration = new Registration<T>(id, type, codec);
+        if (codecsById.putIfAbsent(id, registration) != null) {
+            throw new IllegalArgumentException("An attribute codec with id [" + id + "] is already registered.");
+        }
+        if (codecsByType.putIfAbsent(type, registration) != null) {
+            codecsById.remove(id, registration);
+            throw new IllegalArgumentException("An attribute codec for [" + type.getName() + "] is already registered.");
+        }
+    }
+
+    public byte[] encode(Session session) throws SerializationException {
+        if (session == null) {
+            throw new IllegalArgumentException("session argument cannot be null.");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeSession(session, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to encode session [" + session.getId() + "].", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public Session decode(byte[] encoded) throws SerializationException {
+        if (encoded == null) {
+            throw new IllegalArgumentException("encoded argument cannot be null.");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new SerializationException("Unsupported session format version [" + version + "].");
+            }
+            return readSession(in);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // corrupt or truncated input, e.g. an invalid value for a session field or attribute codec:
+            throw new SerializationException("Unable to decode session.", e);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:NPathComplexity")
+    private void writeSession(Session session, DataOutputStream out) throws IOException {
+        Date stopTimestamp = null;
+        boolean expired = false;
+        Map<Object, Object> attributes;
+        if (session instanceof SimpleSession) {
+            SimpleSession simpleSession = (SimpleSession) session;
+            stopTimestamp = simpleSession.getStopTimestamp();
+            expired = simpleSession.isExpired();
+            attributes = simpleSession.getAttributes();
+        } else {
+            attributes = attributesOf(session);
+        }
+        Serializable id = session.getId();
+        Date startTimestamp = session.getStartTimestamp();
+        Date lastAccessTime = session.getLastAccessTime();
+        long timeout = session.getTimeout();
+        String host = session.getHost();
+        boolean hasAttributes = attributes != null && !attributes.isEmpty();
+
+        int flags = flag(id != null, ID_FLAG)
+                + flag(startTimestamp != null, START_TIMESTAMP_FLAG)
+                + flag(stopTimestamp != null, STOP_TIMESTAMP_FLAG)
+                + flag(lastAccessTime != null, LAST_ACCESS_TIME_FLAG)
+                + flag(timeout != 0L, TIMEOUT_FLAG)
+                + flag(expired, EXPIRED_FLAG)
+                + flag(host != null, HOST_FLAG)
+                + flag(hasAttributes, ATTRIBUTES_FLAG);
+
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(flags);
+        if (id != null) {
+            writeValue(id, out);
+        }
+        writeTimestamp(startTimestamp, out);
+        writeTimestamp(stopTimestamp, out);
+        writeTimestamp(lastAccessTime, out);
+        if (timeout != 0L) {
+            out.writeLong(timeout);
+        }
+        if (host != null) {
+            writeString(host, out);
+        }
+        if (hasAttributes) {
+            writeVarInt(attributes.size(), out);
+            for (Map.Entry<Object, Object> entry : attributes.entrySet()) {
+                writeKey(entry.getKey(), out);
+                writeValue(entry.getValue(), out);
+            }
+        }
+    }
+
+    private static int flag(boolean present, int flag) {
+        return present ? flag : 0;
+    }
+
+    private static Map<Object, Object> attributesOf(Session session) {
+        Collection<Object> keys = session.getAttributeKeys();
+        if (keys == null || keys.isEmpty()) {
+            return null;
+        }
+        Map<Object, Object> attributes = new HashMap<Object, Object>(keys.size() * 4 / 3 + 1);
+        for (Object key : keys) {
+            attributes.put(key, session.getAttribute(key));
+        }
+        return attributes;
+    }
+
+    private Session readSession(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        SimpleSession session = new SimpleSession();
+        if ((flags & ID_FLAG) != 0) {
+            session.setId((Serializable) readValue(in));
+        }
+        session.setStartTimestamp(readTimestamp(flags, START_TIMESTAMP_FLAG, in));
+        session.setStopTimestamp(readTimestamp(flags, STOP_TIMESTAMP_FLAG, in));
+        session.setLastAccessTime(readTimestamp(flags, LAST_ACCESS_TIME_FLAG, in));
+        session.setTimeout((flags & TIMEOUT_FLAG) != 0 ? in.readLong() : 0L);
+        session.setExpired((flags & EXPIRED_FLAG) != 0);
+        session.setHost((flags & HOST_FLAG) != 0 ? readString(in) : null);
+        if ((flags & ATTRIBUTES_FLAG) != 0) {
+            int size = readLength(in, 2);
+            Map<Object, Object> attributes = new HashMap<Object, Object>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                Object key = readValue(in);
+                attributes.put(key, readValue(in));
+            }
+            session.setAttributes(attributes);
+        }
+        session.markClean();
+        return session;
+    }
+
+    private static void writeTimestamp(Date timestamp, DataOutput out) throws IOException {
+        if (timestamp != null) {
+            out.writeLong(timestamp.getTime());
+        }
+    }
+
+    private static Date readTimestamp(int flags, int flag, DataInput in) throws IOException {
+        return (flags & flag) != 0 ? new Date(in.readLong()) : null;
+    }
+
+    private void writeKey(Object key, DataOutput out) throws IOException {
+        if (DefaultSubjectContext.PRINCIPALS_SESSION_KEY.equals(key)) {
+            out.writeByte(PRINCIPALS_KEY_TAG);
+        } else if (DefaultSubjectContext.AUTHENTICATED_SESSION_KEY.equals(key)) {
+            out.writeByte(AUTHENTICATED_KEY_TAG);
+        } else if (RUN_AS_PRINCIPALS_SESSION_KEY.equals(key)) {
+            out.writeByte(RUN_AS_KEY_TAG);
+        } else {
+            writeValue(key, out);
+        }
+    }
+
+    private void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_TAG);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_TAG);
+            writeString((String) value, out);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE_TAG : FALSE_TAG);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER_TAG);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG_TAG);
+            out.writeLong((Long) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE_TAG);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof UUID) {
+            out.writeByte(UUID_TAG);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else {
+            writeObject(value, out);
+        }
+    }
+
+    private void writeObject(Object value, DataOutput out) throws IOException {
+        Registration<?> registration = codecsByType.get(value.getClass());
+        if (registration != null) {
+            out.writeByte(CUSTOM_TAG);
+            writeVarInt(registration.id, out);
+            registration.write(value, out);
+        } else if (value.getClass() == SimplePrincipalCollection.class && isEncodable((SimplePrincipalCollection) value)) {
+            out.writeByte(PRINCIPALS_TAG);
+            writePrincipals((SimplePrincipalCollection) value, out);
+        } else {
+            byte[] serialized = fallbackSerializer.serialize(value);
+            out.writeByte(SERIALIZED_TAG);
+            writeVarInt(serialized.length, out);
+            out.write(serialized);
+        }
+    }
+
+    /**
+     * Principal collections with realms without principals cannot be recreated through the public API and are
+     * serialized instead.
+     */
+    private static boolean isEncodable(SimplePrincipalCollection principals) {
+        Set<String> realmNames = principals.getRealmNames();
+        if (realmNames != null) {
+            for (String realmName : realmNames) {
+                if (principals.fromRealm(realmName).isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void writePrincipals(SimplePrincipalCollection principals, DataOutput out) throws IOException {
+        Set<String> realmNames = principals.getRealmNames();
+        if (realmNames == null) {
+            writeVarInt(0, out);
+            return;
+        }
+        writeVarInt(realmNames.size(), out);
+        for (String realmName : realmNames) {
+            Collection<?> realmPrincipals = principals.fromRealm(realmName);
+            writeString(realmName, out);
+            writeVarInt(realmPrincipals.size(), out);
+            for (Object principal : realmPrincipals) {
+                writeValue(principal, out);
+            }
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL_TAG:
+                return null;
+            case STRING_TAG:
+                return readString(in);
+            case TRUE_TAG:
+                return Boolean.TRUE;
+            case FALSE_TAG:
+                return Boolean.FALSE;
+            case INTEGER_TAG:
+                return in.readInt();
+            case LONG_TAG:
+                return in.readLong();
+            case DATE_TAG:
+                return new Date(in.readLong());
+            default:
+                return readObject(tag, in);
+        }
+    }
+
+    private Object readObject(int tag, DataInputStream in) throws IOException {
+        switch (tag) {
+            case UUID_TAG:
+                return new UUID(in.readLong(), in.readLong());
+            case PRINCIPALS_KEY_TAG:
+                return DefaultSubjectContext.PRINCIPALS_SESSION_KEY;
+            case AUTHENTICATED_KEY_TAG:
+                return DefaultSubjectContext.AUTHENTICATED_SESSION_KEY;
+            case RUN_AS_KEY_TAG:
+                return RUN_AS_PRINCIPALS_SESSION_KEY;
+            case PRINCIPALS_TAG:
+                return readPrincipals(in);
+            case CUSTOM_TAG:
+                int id = readVarInt(in);
+                Registration<?> registration = codecsById.get(id);
+                if (registration == null) {
+                    throw new SerializationException("No attribute codec is registered with id [" + id + "].");
+                }
+                return registration.codec.read(in);
+            case SERIALIZED_TAG:
+                byte[] serialized = new byte[readLength(in, 1)];
+                in.readFully(serialized);
+                return fallbackSerializer.deserialize(serialized);
+            default:
+                throw new SerializationException("Unknown value tag [" + tag + "].");
+        }
+    }
+
+    private SimplePrincipalCollection readPrincipals(DataInputStream in) throws IOException {
+        SimplePrincipalCollection principals = new SimplePrincipalCollection();
+        int realms = readLength(in, 2);
+        for (int i = 0; i < realms; i++) {
+            String realmName = readString(in);
+            int count = readLength(in, 1);
+            for (int j = 0; j < count; j++) {
+                principals.add(readValue(in), realmName);
+            }
+        }
+        return principals;
+    }
+
+    private static void writeString(String s, DataOutput out) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length, out);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in, 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(int value, DataOutput out) throws IOException {
+        int v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            out.writeByte((v & VARINT_MASK) | VARINT_CONTINUATION);
+            v >>>= VARINT_SHIFT;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * Reads the length of a string or byte array or the number of elements of a collection, and verifies that the
+     * remaining input can hold that many elements of at least {@code minBytesPerElement} bytes each, so that corrupt
+     * input cannot cause huge allocations.
+     */
+    private static int readLength(DataInputStream in, int minBytesPerElement) throws IOException {
+        int length = readVarInt(in);
+        int remaining = in.available();
+        if ((long) length * minBytesPerElement > remaining) {
+            throw new SerializationException("Length [" + length + "] exceeds the remaining " + remaining
+                    + " bytes of the encoded session.");
+        }
+        return length;
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += VARINT_SHIFT) {
+            int b = in.readUnsignedByte();
+            value |= (b & VARINT_MASK) << shift;
+            if ((b & VARINT_CONTINUATION) == 0) {
+                if (value < 0) {
+                    throw new SerializationException("Invalid length [" + value + "].");
+                }
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed variable-length integer.");
+    }
+
+    private static final class Registration<T> {
+        private final int id;
+        private final Class<T> type;
+        private final AttributeCodec<T> codec;
+
+        private Registration(int id, Class<T> type, AttributeCodec<T> codec) {
+            this.id = id;
+            this.type = type;
+            this.codec = codec;
+        }
+
+        private void write(Object value, DataOutput out) throws IOException {
+            codec.write(type.cast(value), out);
+        }
+    }
+}
@@ -23,11 +23,16 @@ import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.cache.CacheManagerAware;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.SessionDelta;
+import org.apache.shiro.session.mgt.SimpleSession;
 import org.apache.shiro.session.mgt.ValidatingSession;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * An CachingSessionDAO is a SessionDAO that provides a transparent caching layer between the components that
@@ -42,10 +47,14 @@ import java.util.Collections;
  * All {@code SessionDAO} methods are implemented by this class to employ
  * caching behavior and delegates the actual EIS operations to respective do* methods to be implemented by
  * subclasses (doCreate, doRead, etc.).
+ * <p/>
+ * If a {@link #setSessionCodec(SessionCodec) sessionCodec} is configured, sessions are stored in the cache acquired from
+ * the {@code CacheManager} as the {@code byte[]} arrays produced by the codec instead of as {@code Session} objects,
+ * which is typically much cheaper for distributed caches than Java serialization.
  *
  * @since 0.2
  */
-public abstract class CachingSessionDAO extends AbstractSessionDAO implements CacheManagerAware {
+public abstract class CachingSessionDAO extends AbstractSessionDAO implements CacheManagerAware, DeltaSessionDAO {
 
     /**
      * The default active sessions cache name, equal to {@code shiro-activeSessionCache}.
@@ -67,6 +76,11 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
      */
     private String activeSessionsCacheName = ACTIVE_SESSION_CACHE_NAME;
 
+    /**
+     * The codec used to store sessions in the cache acquired from the {@code CacheManager}, if any.
+     */
+    private SessionCodec sessionCodec;
+
     /**
      * Default no-arg constructor.
      */
@@ -114,6 +128,30 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
         this.activeSessionsCacheName = activeSessionsCacheName;
     }
 
+    /**
+     * Returns the codec used to store sessions in the cache acquired from the {@code CacheManager}, or {@code null}
+     * (the default) if {@code Session} objects are stored directly.
+     *
+     * @return the codec used to store sessions in the cache acquired from the {@code CacheManager}, if any.
+     * @since 2.0
+     */
+    public SessionCodec getSessionCodec() {
+        return sessionCodec;
+    }
+
+    /**
+     * Sets the codec used to store sessions in the cache acquired from the {@code CacheManager}, for example a
+     * {@link BinarySessionCodec BinarySessionCodec}.  The acquired cache then holds {@code byte[]} values, and every
+     * lookup decodes a new session instance.  This property must be set before the cache is acquired and has no
+     * effect on a cache set via {@link #setActiveSessionsCache(Cache)}.
+     *
+     * @param sessionCodec the codec used to store sessions in the cache acquired from the {@code CacheManager}.
+     * @since 2.0
+     */
+    public void setSessionCodec(SessionCodec sessionCodec) {
+        this.sessionCodec = sessionCodec;
+    }
+
     /**
      * Returns the cache instance to use for storing active sessions.  If one is not available (it is {@code null}),
      * it will be {@link CacheManager#getCache(String) acquired} from the {@link #setCacheManager configured}
@@ -160,6 +198,7 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
      * cache returned is that resulting from the following call:
      * <pre>       String name = {@link #getActiveSessionsCacheName() getActiveSessionsCacheName()};
      * cacheManager.getCache(name);</pre>
+     * wrapped so that sessions are encoded by the {@link #getSessionCodec() sessionCodec}, if one is configured.
      *
      * @return a cache instance used to store active sessions, or {@code null} if the {@code CacheManager} has
      * not been set.
@@ -169,7 +208,13 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
         CacheManager mgr = getCacheManager();
         if (mgr != null) {
             String name = getActiveSessionsCacheName();
-            cache = mgr.getCache(name);
+            SessionCodec codec = getSessionCodec();
+            if (codec != null) {
+                Cache<Serializable, byte[]> encoded = mgr.getCache(name);
+                cache = new EncodingSessionCache(encoded, codec);
+            } else {
+                cache = mgr.getCache(name);
+            }
         }
         return cache;
     }
@@ -268,13 +313,56 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
      * {@link #doUpdate(org.apache.shiro.session.Session)}.  If the session is a {@link ValidatingSession}, it will
      * be added to the cache only if it is {@link ValidatingSession#isValid()} and if invalid, will be removed from the
      * cache.  If it is not a {@code ValidatingSession} instance, it will be added to the cache in any event.
+     * <p/>
+     * As of 2.0, {@link SimpleSession}s are written via {@link #update(Session, SessionDelta)} instead, passing the
+     * delta {@link SimpleSession#takeDelta() taken} from the session, and the EIS
+     * write is skipped entirely if the session did not change since it was last written (it is still removed from
+     * the cache if invalid, or added to it if valid and not yet cached).
      *
      * @param session the session object to update in the EIS.
      * @throws UnknownSessionException if no existing EIS session record exists with the
      *                                 identifier of {@link Session#getId() session.getId()}
      */
     public void update(Session session) throws UnknownSessionException {
+        if (session instanceof SimpleSession) {
+            SimpleSession simpleSession = (SimpleSession) session;
+            SessionDelta delta = simpleSession.takeDelta();
+            if (delta != null) {
+                try {
+                    update(session, delta);
+                } catch (RuntimeException e) {
+                    simpleSession.markDirty(delta);
+                    throw e;
+                }
+            } else if (!simpleSession.isValid()) {
+                uncache(session);
+            } else if (getCachedSession(session.getId()) == null) {
+                cache(session, session.getId());
+            }
+            return;
+        }
         doUpdate(session);
+        cacheOrUncache(session);
+    }
+
+    /**
+     * Updates the state of the given session to the EIS by delegating to
+     * {@link #doUpdate(Session, SessionDelta)} and then caches or uncaches it exactly as {@link #update(Session)} does.
+     * The caller is responsible for the session's change tracking, typically by having obtained the delta via
+     * {@link SimpleSession#takeDelta()}.
+     *
+     * @param session the session object to update in the EIS.
+     * @param delta   the changes made to the session since it was last written.
+     * @throws UnknownSessionException if no existing EIS session record exists with the
+     *                                 identifier of {@link Session#getId() session.getId()}
+     * @since 2.0
+     */
+    public void update(Session session, SessionDelta delta) throws UnknownSessionException {
+        doUpdate(session, delta);
+        cacheOrUncache(session);
+    }
+
+    private void cacheOrUncache(Session session) {
         if (session instanceof ValidatingSession) {
             if (((ValidatingSession) session).isValid()) {
                 cache(session, session.getId());
@@ -293,6 +381,19 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
      */
     protected abstract void doUpdate(Session session);
 
+    /**
+     * Subclass implementation hook to persist only the specified changes of the {@code Session} to the underlying EIS.
+     * <p/>
+     * The default implementation writes the whole session by calling {@link #doUpdate(Session)}.
+     *
+     * @param session the session object whose state will be propagated to the EIS.
+     * @param delta   the changes made to the session since it was last written.
+     * @since 2.0
+     */
+    protected void doUpdate(Session session, SessionDelta delta) {
+        doUpdate(session);
+    }
+
     /**
      * Removes the specified session from any cache and then permanently deletes the session from the EIS by
      * delegating to {@link #doDelete}.
@@ -347,4 +448,45 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
             return Collections.emptySet();
         }
     }
+
+    /**
+     * Passes the sessions found in the activeSessions cache to the consumer a batch at a time.
+     * <p/>
+     * This implementation obtains the {@link Cache#keys() keys} of the cache and then
+     * {@link #getCachedSession(Serializable, Cache) looks up} the sessions of one batch at a time, so that at most one
+     * batch of sessions is transferred from a distributed cache (and decoded, if a
+     * {@link #setSessionCodec(SessionCodec) sessionCodec} is configured) at once.  Sessions removed from the cache since
+     * the keys were obtained are skipped.  Note that as the {@link Cache} interface has no bulk lookup, every
+     * session is looked up with its own {@link Cache#get(Object) get}, which is one round-trip per session for a
+     * distributed cache.
+     *
+     * @param batchSize the maximum number of sessions per batch, must be positive.
+     * @param consumer  the consumer of each batch.
+     * @since 2.0
+     */
+    @Override
+    public void forEachActiveSessionBatch(int batchSize, Consumer<? super List<Session>> consumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        Cache<Serializable, Session> cache = getActiveSessionsCacheLazy();
+        Collection<Serializable> keys = cache != null ? cache.keys() : null;
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        List<Session> batch = new ArrayList<Session>(Math.min(batchSize, keys.size()));
+        for (Serializable key : keys) {
+            Session session = getCachedSession(key, cache);
+            if (session != null) {
+                batch.add(session);
+            }
+            if (batch.size() == batchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<Session>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
 }
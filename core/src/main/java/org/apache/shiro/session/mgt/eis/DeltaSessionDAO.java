@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.SessionDelta;
+
+/**
+ * A {@link SessionDAO} that can persist just the changes made to a session instead of the entire session.
+ * <p/>
+ * Session managers call {@link #update(Session, SessionDelta)} instead of {@link #update(Session)} for sessions that
+ * track their changes (such as {@link org.apache.shiro.session.mgt.SimpleSession SimpleSession}s), and do not call
+ * either method at all if nothing persistent changed.  Implementations that write to a remote store can use the delta
+ * to write only the changed fields and attributes.
+ *
+ * @see SessionDelta
+ * @since 2.0
+ */
+public interface DeltaSessionDAO extends SessionDAO {
+
+    /**
+     * Persists the specified changes of the given session.  The {@code session} argument reflects the complete
+     * current state of the session and may be used by implementations that cannot write partial updates.
+     *
+     * @param session the session whose changes should be persisted.
+     * @param delta   the changes made to the session since it was loaded or last written, never empty.
+     * @throws UnknownSessionException if no existing EIS session record exists with the
+     *                                 identifier of {@link Session#getId() session.getId()}
+     */
+    void update(Session session, SessionDelta delta) throws UnknownSessionException;
+}
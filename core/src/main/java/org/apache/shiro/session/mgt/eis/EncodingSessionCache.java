@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.apache.shiro.lang.io.SerializationException;
+import org.apache.shiro.session.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@code Cache} of sessions that stores every session in an underlying {@code Cache} of bytes, encoded by a
+ * {@link SessionCodec}.  Every {@link #get(Serializable) get} therefore returns a new session instance.
+ * <p/>
+ * Entries that cannot be decoded, for example because they are corrupt or truncated, are treated as absent and are
+ * removed when looked up.
+ *
+ * @see CachingSessionDAO#setSessionCodec(SessionCodec)
+ * @since 2.0
+ */
+final class EncodingSessionCache implements Cache<Serializable, Session> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EncodingSessionCache.class);
+
+    private final Cache<Serializable, byte[]> encoded;
+
+    private final SessionCodec codec;
+
+    EncodingSessionCache(Cache<Serializable, byte[]> encoded, SessionCodec codec) {
+        this.encoded = encoded;
+        this.codec = codec;
+    }
+
+    public Session get(Serializable key) throws CacheException {
+        byte[] value = encoded.get(key);
+        Session session = decode(value);
+        if (session == null && value != null) {
+            encoded.remove(key);
+        }
+        return session;
+    }
+
+    public Session put(Serializable key, Session value) throws CacheException {
+        return decode(encoded.put(key, codec.encode(value)));
+    }
+
+    public Session remove(Serializable key) throws CacheException {
+        return decode(encoded.remove(key));
+    }
+
+    public void clear() throws CacheException {
+        encoded.clear();
+    }
+
+    public int size() {
+        return encoded.size();
+    }
+
+    public Set<Serializable> keys() {
+        return encoded.keys();
+    }
+
+    public Collection<Session> values() {
+        Collection<byte[]> values = encoded.values();
+        if (values == null || values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Session> sessions = new ArrayList<Session>(values.size());
+        for (byte[] value : values) {
+            Session session = decode(value);
+            if (session != null) {
+                sessions.add(session);
+            }
+        }
+        return Collections.unmodifiableList(sessions);
+    }
+
+    private Session decode(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return codec.decode(value);
+        } catch (SerializationException e) {
+            LOGGER.warn("Unable to decode cached session, treating it as absent.", e);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EncodingSessionCache[" + encoded + "]";
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.lang.io.SerializationException;
+import org.apache.shiro.lang.util.Destroyable;
+import org.apache.shiro.lang.util.Initializable;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.SessionException;
+import org.apache.shiro.session.mgt.SessionDelta;
+import org.apache.shiro.session.mgt.ValidatingSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@code SessionDAO} that keeps its sessions outside of the Java heap, in a memory-mapped file, so that an
+ * application can host far more sessions than would fit in its heap and so that sessions survive a restart of the
+ * process.
+ * <p/>
+ * Sessions are encoded with a {@link SessionCodec} (a {@link BinarySessionCodec} by default) and stored in fixed-size
+ * slots of the {@link #setFilePath(String) file}; sessions larger than a single slot span several slots.  Only an index
+ * from session id to slot is kept on the heap, and every {@link #readSession(Serializable) read} decodes a new session
+ * instance.  The file grows by one segment of {@link #setSlotsPerSegment(int) slotsPerSegment} slots at a time
+ * whenever it is full.
+ * <h2>Concurrency</h2>
+ * Reads and writes of different sessions only contend on one of {@link #setLockStripes(int) lockStripes} read/write
+ * locks and on the (very short) slot allocation.  An updated session is written to new slots before its old slots are
+ * released, so a read never observes a partially written session.
+ * <h2>Expiration</h2>
+ * Every stored session records the time at which it expires.  Expired sessions are released by {@link #compact()},
+ * which is also called automatically before the file is grown, so the file only grows if it is full of live sessions.
+ * Session managers still validate and delete sessions as usual; compaction merely reclaims the space of sessions that
+ * were never explicitly deleted.
+ * <h2>Restarts</h2>
+ * When the file is opened, all complete sessions found in it are indexed again and all other slots are released.
+ * Writes are made to the operating system's page cache and are therefore retained when the process terminates, but not
+ * necessarily when the machine fails before they have been {@link #destroy() flushed}.  A file is locked while it is
+ * open, so it can only be used by one {@code MappedFileSessionDAO} at a time.
+ * <p/>
+ * The file is opened by {@link #init()} or, if this DAO is not initialized by its environment, on first use.
+ *
+ * @see BinarySessionCodec
+ * @since 2.0
+ */
+public class MappedFileSessionDAO extends AbstractSessionDAO implements DeltaSessionDAO, Initializable, Destroyable {
+
+    /**
+     * The default {@link #setSlotSize(int) slotSize}, equal to {@code 1024} bytes.
+     */
+    public static final int DEFAULT_SLOT_SIZE = 1024;
+
+    /**
+     * The default {@link #setSlotsPerSegment(int) slotsPerSegment}, equal to {@code 8192} (8 MiB segments with the
+     * default slot size).
+     */
+    public static final int DEFAULT_SLOTS_PER_SEGMENT = 8192;
+
+    /**
+     * The default {@link #setLockStripes(int) lockStripes}, equal to {@code 64}.
+     */
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileSessionDAO.class);
+
+    private static final int MIN_SLOT_SIZE = 2 * MappedSessionStore.SLOT_HEADER_SIZE;
+
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    private final ConcurrentMap<Serializable, Integer> index = new ConcurrentHashMap<Serializable, Integer>();
+
+    private final Object storeMonitor = new Object();
+
+    private String filePath;
+
+    private int slotSize = DEFAULT_SLOT_SIZE;
+
+    private int slotsPerSegment = DEFAULT_SLOTS_PER_SEGMENT;
+
+    private SessionCodec sessionCodec = new BinarySessionCodec();
+
+    private ReadWriteLock[] locks = createLocks(DEFAULT_LOCK_STRIPES);
+
+    private volatile MappedSessionStore store;
+
+    private volatile boolean destroyed;
+
+    public MappedFileSessionDAO() {
+    }
+
+    /**
+     * Returns the path of the file the sessions are stored in.
+     *
+     * @return the path of the file the sessions are stored in.
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Sets the path of the file the sessions are stored in.  The file is created if it does not exist yet.  This
+     * property is required.
+     *
+     * @param filePath the path of the file the sessions are stored in.
+     */
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Returns the size in bytes of each slot of a newly created file.  Defaults to {@link #DEFAULT_SLOT_SIZE}.
+     *
+     * @return the size in bytes of each slot of a newly created file.
+     */
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /**
+     * Sets the size in bytes of each slot of a newly created file.  Sessions that do not fit into a single slot span
+     * several slots, so this should be slightly larger than the typical encoded session.  Existing files retain the
+     * slot size they were created with.
+     *
+     * @param slotSize the size in bytes of each slot of a newly created file.
+     * @throws IllegalArgumentException if {@code slotSize} is less than {@code 64}.
+     */
+    public void setSlotSize(int slotSize) {
+        if (slotSize < MIN_SLOT_SIZE) {
+            throw new IllegalArgumentException("slotSize must be at least " + MIN_SLOT_SIZE + ".");
+        }
+        this.slotSize = slotSize;
+    }
+
+    /**
+     * Returns the number of slots by which the file grows when it is full.  Defaults to
+     * {@link #DEFAULT_SLOTS_PER_SEGMENT}.
+     *
+     * @return the number of slots by which the file grows when it is full.
+     */
+    public int getSlotsPerSegment() {
+        return slotsPerSegment;
+    }
+
+    /**
+     * Sets the number of slots by which a newly created file grows when it is full.  Existing files retain the
+     * value they were created with.
+     *
+     * @param slotsPerSegment the number of slots by which the file grows when it is full.
+     * @throws IllegalArgumentException if {@code slotsPerSegment} is not positive.
+     */
+    public void setSlotsPerSegment(int slotsPerSegment) {
+        if (slotsPerSegment <= 0) {
+            throw new IllegalArgumentException("slotsPerSegment must be positive.");
+        }
+        this.slotsPerSegment = slotsPerSegment;
+    }
+
+    /**
+     * Returns the number of locks that concurrent accesses to different sessions are distributed over.
+     *
+     * @return the number of locks that concurrent accesses to different sessions are distributed over.
+     */
+    public int getLockStripes() {
+        return locks.length;
+    }
+
+    /**
+     * Sets the number of locks that concurrent accesses to different sessions are distributed over, rounded up to
+     * the next power of two.  Defaults to {@link #DEFAULT_LOCK_STRIPES}.  This property must be set before the DAO is
+     * used.
+     *
+     * @param lockStripes the number of locks that concurrent accesses to different sessions are distributed over.
+     * @throws IllegalArgumentException if {@code lockStripes} is not positive.
+     */
+    public void setLockStripes(int lockStripes) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("lockStripes must be positive.");
+        }
+        this.locks = createLocks(lockStripes);
+    }
+
+    /**
+     * Returns the codec used to store sessions.  Defaults to a {@link BinarySessionCodec}.
+     *
+     * @return the codec used to store sessions.
+     */
+    public SessionCodec getSessionCodec() {
+        return sessionCodec;
+    }
+
+    /**
+     * Sets the codec used to store sessions.  A file must always be used with the same codec.
+     *
+     * @param sessionCodec the codec used to store sessions.
+     */
+    public void setSessionCodec(SessionCodec sessionCodec) {
+        if (sessionCodec == null) {
+            throw new IllegalArgumentException("sessionCodec argument cannot be null.");
+        }
+        this.sessionCodec = sessionCodec;
+    }
+
+    private static ReadWriteLock[] createLocks(int stripes) {
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) {
+            count <<= 1;
+        }
+        ReadWriteLock[] locks = new ReadWriteLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        return locks;
+    }
+
+    private ReadWriteLock lockFor(Serializable sessionId) {
+        int h = sessionId.hashCode();
+        return locks[(h ^ (h >>> HASH_SPREAD_SHIFT)) & (locks.length - 1)];
+    }
+
+    /**
+     * Opens the {@link #setFilePath(String) file} and indexes the sessions stored in it.
+     *
+     * @throws IllegalStateException if the {@code filePath} property has not been set.
+     * @throws SessionException      if the file cannot be opened or is already in use.
+     */
+    public void init() {
+        store();
+    }
+
+    /**
+     * Flushes all changes to the storage device and closes the file.  The DAO cannot be used anymore afterwards.
+     */
+    public void destroy() throws Exception {
+        synchronized (storeMonitor) {
+            this.destroyed = true;
+            MappedSessionStore current = this.store;
+            if (current != null) {
+                this.store = null;
+                index.clear();
+                current.close();
+            }
+        }
+    }
+
+    private MappedSessionStore store() {
+        MappedSessionStore current = this.store;
+        if (current == null) {
+            synchronized (storeMonitor) {
+                if (destroyed) {
+                    throw new IllegalStateException("This MappedFileSessionDAO has been destroyed.");
+                }
+                current = this.store;
+                if (current == null) {
+                    current = open();
+                    this.store = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private MappedSessionStore open() {
+        if (filePath == null) {
+            throw new IllegalStateException("The filePath property must be set.");
+        }
+        MappedSessionStore opened;
+        try {
+            opened = MappedSessionStore.open(Paths.get(filePath), slotSize, slotsPerSegment);
+        } catch (IOException e) {
+            throw new SessionException("Unable to open session store file [" + filePath + "].", e);
+        }
+        for (int head : opened.recover()) {
+            recover(opened, head);
+        }
+        LOGGER.debug("Opened session store file [{}] with {} sessions.", filePath, index.size());
+        return opened;
+    }
+
+    private void recover(MappedSessionStore opened, int head) {
+        Serializable sessionId;
+        try {
+            sessionId = sessionCodec.decode(opened.read(head)).getId();
+        } catch (SerializationException e) {
+            LOGGER.warn("Unable to decode stored session, discarding it.", e);
+            opened.free(head);
+            return;
+        }
+        Integer existing = index.get(sessionId);
+        if (existing == null) {
+            index.put(sessionId, head);
+        } else if (opened.getSequence(existing) < opened.getSequence(head)) {
+            // the process terminated before the previous version of a rewritten session was released:
+            index.put(sessionId, head);
+            opened.free(existing);
+        } else {
+            opened.free(head);
+        }
+    }
+
+    protected Serializable doCreate(Session session) {
+        Serializable sessionId = generateSessionId(session);
+        assignSessionId(session, sessionId);
+        write(session);
+        return sessionId;
+    }
+
+    protected Session doReadSession(Serializable sessionId) {
+        byte[] encoded = readEncoded(sessionId);
+        return encoded != null ? sessionCodec.decode(encoded) : null;
+    }
+
+    private byte[] readEncoded(Serializable sessionId) {
+        MappedSessionStore current = store();
+        Lock lock = lockFor(sessionId).readLock();
+        lock.lock();
+        try {
+            Integer head = index.get(sessionId);
+            return head != null ? current.read(head) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the complete session, storing it if it has not been stored before.
+     *
+     * @param session the session to write.
+     */
+    public void update(Session session) {
+        write(session);
+    }
+
+    /**
+     * Writes the complete session, as slots cannot be partially rewritten.
+     *
+     * @param session the session whose changes should be persisted.
+     * @param delta   the changes made to the session since it was loaded or last written.
+     */
+    public void update(Session session, SessionDelta delta) {
+        write(session);
+    }
+
+    private void write(Session session) {
+        Serializable sessionId = session.getId();
+        if (sessionId == null) {
+            throw new NullPointerException("session id cannot be null.");
+        }
+        byte[] encoded = sessionCodec.encode(session);
+        MappedSessionStore current = store();
+        if (current.getFreeSlotCount() < current.slotsFor(encoded.length)) {
+            compact();
+        }
+        Lock lock = lockFor(sessionId).writeLock();
+        lock.lock();
+        try {
+            Integer previous = index.put(sessionId, current.write(encoded, deadlineOf(session)));
+            if (previous != null) {
+                current.free(previous);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long deadlineOf(Session session) {
+        if (session instanceof ValidatingSession && !((ValidatingSession) session).isValid()) {
+            return 0L;
+        }
+        long timeout = session.getTimeout();
+        Date lastAccessTime = session.getLastAccessTime();
+        if (timeout < 0 || lastAccessTime == null) {
+            return Long.MAX_VALUE;
+        }
+        return lastAccessTime.getTime() + timeout;
+    }
+
+    public void delete(Session session) {
+        if (session == null) {
+            throw new NullPointerException("session argument cannot be null.");
+        }
+        Serializable sessionId = session.getId();
+        if (sessionId == null) {
+            return;
+        }
+        MappedSessionStore current = store();
+        Lock lock = lockFor(sessionId).writeLock();
+        lock.lock();
+        try {
+            Integer head = index.remove(sessionId);
+            if (head != null) {
+                current.free(head);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the slots of all sessions that have expired (or that were stopped or expired when they were last
+     * written).  This method is called automatically before the file is grown, but may also be called periodically.
+     *
+     * @return the number of sessions released.
+     */
+    public int compact() {
+        MappedSessionStore current = store();
+        long now = System.currentTimeMillis();
+        int released = 0;
+        for (Map.Entry<Serializable, Integer> entry : index.entrySet()) {
+            if (current.getDeadline(entry.getValue()) < now && release(current, entry.getKey(), entry.getValue(), now)) {
+                released++;
+            }
+        }
+        if (released > 0) {
+            LOGGER.debug("Released {} expired sessions from session store file [{}].", released, filePath);
+        }
+        return released;
+    }
+
+    private boolean release(MappedSessionStore current, Serializable sessionId, Integer head, long now) {
+        Lock lock = lockFor(sessionId).writeLock();
+        lock.lock();
+        try {
+            // the session may have been rewritten or deleted since the deadline was checked:
+            if (current.getDeadline(head) < now && index.remove(sessionId, head)) {
+                current.free(head);
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a view of the stored sessions.  The sessions are decoded one at a time while iterating, so that
+     * iterating over all sessions does not require them to fit into the heap at once.  Sessions deleted during the
+     * iteration are skipped.
+     *
+     * @return a view of the stored sessions.
+     */
+    public Collection<Session> getActiveSessions() {
+        store();
+        return new AbstractCollection<Session>() {
+            @Override
+            public Iterator<Session> iterator() {
+                return new SessionIterator(index.keySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return index.size();
+            }
+        };
+    }
+
+    private final class SessionIterator implements Iterator<Session> {
+
+        private final Iterator<Serializable> ids;
+
+        private Session next;
+
+        private SessionIterator(Iterator<Serializable> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && ids.hasNext()) {
+                next = doReadSession(ids.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public Session next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Session session = next;
+            next = null;
+            return session;
+        }
+    }
+}
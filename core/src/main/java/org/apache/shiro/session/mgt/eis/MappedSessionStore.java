@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.session.SessionException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The slab-allocated, memory-mapped file backing a {@link MappedFileSessionDAO}.
+ * <p/>
+ * The file starts with a {@value #FILE_HEADER_SIZE} byte header followed by fixed-size slots, mapped in segments of
+ * {@code slotsPerSegment} slots each.  A record is stored in a chain of slots: a head slot followed by as many
+ * continuation slots as its length requires.  Every slot starts with a {@value #SLOT_HEADER_SIZE} byte header holding
+ * its state and the index of the next slot of the chain; head slots also hold the record's length, a sequence number
+ * that increases with every write and the record's deadline.
+ * <p/>
+ * Head slots are marked as such only after the rest of the record has been written, so a record whose write was
+ * interrupted is never visible.  A rewritten record is written to newly allocated slots before the old record's slots
+ * are freed, and {@link #open opening} a file frees every slot not belonging to a complete record.
+ * <p/>
+ * This class does not synchronize access to individual records: callers must ensure that a record is not
+ * {@link #read read} while or after it is {@link #free freed}.  Allocation and freeing are thread-safe.
+ *
+ * @since 2.0
+ */
+final class MappedSessionStore implements Closeable {
+
+    static final int FILE_HEADER_SIZE = 64;
+
+    static final int SLOT_HEADER_SIZE = 32;
+
+    private static final int MAGIC = 0x5348524F;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOT_SIZE_OFFSET = 8;
+    private static final int SLOTS_PER_SEGMENT_OFFSET = 12;
+
+    private static final int STATE_OFFSET = 0;
+    private static final int NEXT_OFFSET = 4;
+    private static final int LENGTH_OFFSET = 8;
+    private static final int SEQUENCE_OFFSET = 12;
+    private static final int DEADLINE_OFFSET = 20;
+
+    private static final byte FREE = 0;
+    private static final byte HEAD = 1;
+    private static final byte CONTINUATION = 2;
+
+    private static final int NO_SLOT = -1;
+
+    private final FileChannel channel;
+
+    private final int slotSize;
+
+    private final int slotsPerSegment;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Object allocationMonitor = new Object();
+
+    private volatile MappedByteBuffer[] segments;
+
+    // guarded by allocationMonitor:
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+
+    private MappedSessionStore(FileChannel channel, int slotSize, int slotsPerSegment, MappedByteBuffer[] segments) {
+        this.channel = channel;
+        this.slotSize = slotSize;
+        this.slotsPerSegment = slotsPerSegment;
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the specified file, creating it with the specified geometry if it does not exist yet.  The geometry of
+     * an existing file is retained.  Fails if the file is already locked by another store, in this or another process.
+     */
+    static MappedSessionStore open(Path file, int slotSize, int slotsPerSegment) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            lock(channel, file);
+            int actualSlotSize = slotSize;
+            int actualSlotsPerSegment = slotsPerSegment;
+            if (channel.size() >= FILE_HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                channel.read(header, 0);
+                if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != FORMAT_VERSION) {
+                    throw new IOException("[" + file + "] is not a session store file of version " + FORMAT_VERSION);
+                }
+                actualSlotSize = header.getInt(SLOT_SIZE_OFFSET);
+                actualSlotsPerSegment = header.getInt(SLOTS_PER_SEGMENT_OFFSET);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC_OFFSET, MAGIC);
+                header.putInt(VERSION_OFFSET, FORMAT_VERSION);
+                header.putInt(SLOT_SIZE_OFFSET, slotSize);
+                header.putInt(SLOTS_PER_SEGMENT_OFFSET, slotsPerSegment);
+                channel.write(header, 0);
+            }
+            long segmentBytes = (long) actualSlotSize * actualSlotsPerSegment;
+            int segmentCount = (int) ((channel.size() - FILE_HEADER_SIZE) / segmentBytes);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, FILE_HEADER_SIZE + i * segmentBytes,
+                        segmentBytes);
+            }
+            return new MappedSessionStore(channel, actualSlotSize, actualSlotsPerSegment, segments);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes an exclusive lock on the whole file, which is released when the channel is closed, so that the file is
+     * never used by two stores at once.
+     */
+    private static void lock(FileChannel channel, Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("[" + file + "] is already in use by another session store.");
+        }
+    }
+
+    int getSlotSize() {
+        return slotSize;
+    }
+
+    int getSlotCount() {
+        return segments.length * slotsPerSegment;
+    }
+
+    int getFreeSlotCount() {
+        synchronized (allocationMonitor) {
+            return freeCount;
+        }
+    }
+
+    /**
+     * Scans the file, frees every slot that is not part of a complete record and returns the head slots of all
+     * complete records.
+     */
+    int[] recover() {
+        int slotCount = getSlotCount();
+        BitSet used = new BitSet(slotCount);
+        List<Integer> heads = new ArrayList<Integer>();
+        long maxSequence = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (state(slot) == HEAD && claimChain(slot, used)) {
+                heads.add(slot);
+                maxSequence = Math.max(maxSequence, buffer(slot).getLong(offset(slot) + SEQUENCE_OFFSET));
+            }
+        }
+        synchronized (allocationMonitor) {
+            freeSlots = new int[slotCount];
+            freeCount = 0;
+            // push in reverse so that the lowest slots are allocated first:
+            for (int slot = slotCount - 1; slot >= 0; slot--) {
+                if (!used.get(slot)) {
+                    setState(slot, FREE);
+                    freeSlots[freeCount++] = slot;
+                }
+            }
+        }
+        sequence.set(maxSequence);
+        int[] result = new int[heads.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = heads.get(i);
+        }
+        return result;
+    }
+
+    private boolean claimChain(int head, BitSet used) {
+        int slotCount = getSlotCount();
+        int length = buffer(head).getInt(offset(head) + LENGTH_OFFSET);
+        int slots = slotsFor(length);
+        if (length < 0 || slots > slotCount) {
+            return false;
+        }
+        int[] chain = new int[slots];
+        int slot = head;
+        for (int i = 0; i < slots; i++) {
+            if (slot < 0 || slot >= slotCount || used.get(slot) || (i > 0 && state(slot) != CONTINUATION)) {
+                return false;
+            }
+            chain[i] = slot;
+            slot = next(slot);
+        }
+        for (int s : chain) {
+            used.set(s);
+        }
+        return true;
+    }
+
+    long getSequence(int head) {
+        return buffer(head).getLong(offset(head) + SEQUENCE_OFFSET);
+    }
+
+    long getDeadline(int head) {
+        return buffer(head).getLong(offset(head) + DEADLINE_OFFSET);
+    }
+
+    /**
+     * Writes a new record and returns its head slot.
+     */
+    int write(byte[] payload, long deadline) {
+        int[] chain = allocate(slotsFor(payload.length));
+        int capacity = slotSize - SLOT_HEADER_SIZE;
+        for (int i = chain.length - 1; i >= 0; i--) {
+            int slot = chain[i];
+            ByteBuffer buffer = buffer(slot).duplicate();
+            int offset = offset(slot);
+            buffer.putInt(offset + NEXT_OFFSET, i + 1 < chain.length ? chain[i + 1] : NO_SLOT);
+            buffer.position(offset + SLOT_HEADER_SIZE);
+            int from = i * capacity;
+            buffer.put(payload, from, Math.min(capacity, payload.length - from));
+            if (i > 0) {
+                buffer.put(offset + STATE_OFFSET, CONTINUATION);
+            } else {
+                buffer.putInt(offset + LENGTH_OFFSET, payload.length);
+                buffer.putLong(offset + SEQUENCE_OFFSET, sequence.incrementAndGet());
+                buffer.putLong(offset + DEADLINE_OFFSET, deadline);
+                // published last, see the class documentation:
+                buffer.put(offset + STATE_OFFSET, HEAD);
+            }
+        }
+        return chain[0];
+    }
+
+    /**
+     * Reads the record starting at the specified head slot.
+     */
+    byte[] read(int head) {
+        int length = buffer(head).getInt(offset(head) + LENGTH_OFFSET);
+        byte[] payload = new byte[length];
+        int capacity = slotSize - SLOT_HEADER_SIZE;
+        int slot = head;
+        for (int from = 0; from < length; from += capacity) {
+            ByteBuffer buffer = buffer(slot).duplicate();
+            buffer.position(offset(slot) + SLOT_HEADER_SIZE);
+            buffer.get(payload, from, Math.min(capacity, length - from));
+            slot = next(slot);
+        }
+        return payload;
+    }
+
+    /**
+     * Frees the record starting at the specified head slot.
+     */
+    void free(int head) {
+        int length = buffer(head).getInt(offset(head) + LENGTH_OFFSET);
+        int[] chain = new int[slotsFor(length)];
+        int slot = head;
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = slot;
+            slot = next(slot);
+        }
+        // the head first, so that the record disappears as a whole:
+        for (int s : chain) {
+            setState(s, FREE);
+        }
+        synchronized (allocationMonitor) {
+            for (int i = chain.length - 1; i >= 0; i--) {
+                freeSlots[freeCount++] = chain[i];
+            }
+        }
+    }
+
+    private int[] allocate(int count) {
+        synchronized (allocationMonitor) {
+            while (freeCount < count) {
+                grow();
+            }
+            int[] chain = new int[count];
+            for (int i = 0; i < count; i++) {
+                chain[i] = freeSlots[--freeCount];
+            }
+            return chain;
+        }
+    }
+
+    private void grow() {
+        MappedByteBuffer[] current = segments;
+        long segmentBytes = (long) slotSize * slotsPerSegment;
+        MappedByteBuffer segment;
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                    FILE_HEADER_SIZE + current.length * segmentBytes, segmentBytes);
+        } catch (IOException e) {
+            throw new SessionException("Unable to grow the session store file.", e);
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = segment;
+        int first = current.length * slotsPerSegment;
+        int[] free = Arrays.copyOf(freeSlots, first + slotsPerSegment);
+        for (int slot = first + slotsPerSegment - 1; slot >= first; slot--) {
+            free[freeCount++] = slot;
+        }
+        freeSlots = free;
+        segments = grown;
+    }
+
+    /**
+     * Returns the number of slots a record of the specified length occupies.
+     */
+    int slotsFor(int length) {
+        int capacity = slotSize - SLOT_HEADER_SIZE;
+        return Math.max(1, (length + capacity - 1) / capacity);
+    }
+
+    private MappedByteBuffer buffer(int slot) {
+        return segments[slot / slotsPerSegment];
+    }
+
+    private int offset(int slot) {
+        return (slot % slotsPerSegment) * slotSize;
+    }
+
+    private byte state(int slot) {
+        return buffer(slot).get(offset(slot) + STATE_OFFSET);
+    }
+
+    private void setState(int slot, byte state) {
+        buffer(slot).put(offset(slot) + STATE_OFFSET, state);
+    }
+
+    private int next(int slot) {
+        return buffer(slot).getInt(offset(slot) + NEXT_OFFSET);
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
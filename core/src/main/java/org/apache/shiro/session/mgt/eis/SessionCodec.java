@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.lang.io.SerializationException;
+import org.apache.shiro.session.Session;
+
+/**
+ * Converts {@link Session Session}s to and from the bytes stored by a distributed {@link SessionDAO SessionDAO}, for
+ * example the active sessions cache of a {@link CachingSessionDAO CachingSessionDAO} backed by Hazelcast or JCache.
+ *
+ * @see BinarySessionCodec
+ * @see CachingSessionDAO#setSessionCodec(SessionCodec)
+ * @since 2.0
+ */
+public interface SessionCodec {
+
+    /**
+     * Encodes the specified session.
+     *
+     * @param session the session to encode.
+     * @return the encoded session, which can be turned back into an equivalent session via {@link #decode(byte[])}.
+     * @throws SerializationException if the session cannot be encoded.
+     */
+    byte[] encode(Session session) throws SerializationException;
+
+    /**
+     * Decodes a session previously {@link #encode(Session) encoded} by this codec.
+     *
+     * @param encoded the encoded session.
+     * @return the decoded session.
+     * @throws SerializationException if the bytes cannot be decoded.
+     */
+    Session decode(byte[] encoded) throws SerializationException;
+}
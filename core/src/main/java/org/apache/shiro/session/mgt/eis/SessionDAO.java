@@ -20,9 +20,12 @@ package org.apache.shiro.session.mgt.eis;
 
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.util.CollectionUtils;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 
 /**
@@ -36,6 +39,10 @@ import java.util.Collection;
  * be as efficient as possible, especially if there are thousands of active sessions.  Large scale/high performance
  * implementations will often return a subset of the total active sessions and perform validation a little more
  * frequently, rather than return a massive set and infrequently validate.
+ * <p/>
+ * Callers that can process the active sessions a batch at a time, such as session validation, use
+ * {@link #forEachActiveSessionBatch(int, Consumer)} instead, which implementations backed by remote or large stores
+ * can override to avoid loading every session at once.
  *
  * @since 0.1
  */
@@ -126,4 +133,23 @@ public interface SessionDAO {
      * empty collection or {@code null} if there are no active sessions.
      */
     Collection<Session> getActiveSessions();
+
+    /**
+     * Passes all active sessions to the specified consumer in consecutive batches of at most {@code batchSize}
+     * sessions, so that callers never need to hold every active session at once.  Sessions created or deleted while
+     * the batches are being passed may or may not be included.  The consumer may update and delete the sessions it is
+     * passed.
+     * <p/>
+     * The default implementation splits the collection returned by {@link #getActiveSessions()} into batches, which
+     * only avoids loading all sessions at once if that collection is evaluated lazily.  Implementations should
+     * override this method if they can fetch active sessions page by page.
+     *
+     * @param batchSize the maximum number of sessions per batch, must be positive.
+     * @param consumer  the consumer of each batch.
+     * @throws IllegalArgumentException if {@code batchSize} is not positive.
+     * @since 2.0
+     */
+    default void forEachActiveSessionBatch(int batchSize, Consumer<? super List<Session>> consumer) {
+        CollectionUtils.forEachBatch(getActiveSessions(), batchSize, consumer);
+    }
 }
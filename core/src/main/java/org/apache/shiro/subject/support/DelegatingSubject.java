@@ -43,6 +43,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.StringJoiner;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -260,7 +263,38 @@ public class DelegatingSubject implements Subject {
     public void login(AuthenticationToken token) throws AuthenticationException {
         clearRunAsIdentitiesInternal();
         Subject subject = securityManager.login(this, token);
+        loggedIn(token, subject);
+    }
 
+    /**
+     * Logs in this subject via {@link SecurityManager#loginAsync(Subject, AuthenticationToken)}, updating this
+     * subject's state exactly as {@link #login(AuthenticationToken) login} does once the returned stage completes.
+     *
+     * @since 2.0
+     */
+    @Override
+    public CompletionStage<Void> loginAsync(AuthenticationToken token) {
+        clearRunAsIdentitiesInternal();
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        securityManager.loginAsync(this, token).whenComplete((subject, t) -> {
+            if (t != null) {
+                result.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                return;
+            }
+            try {
+                loggedIn(token, subject);
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Copies the state of the logged-in subject returned by the {@code SecurityManager} to this subject.
+     */
+    private void loggedIn(AuthenticationToken token, Subject subject) {
         PrincipalCollection principals;
 
         String host = null;
@@ -20,7 +20,6 @@ package org.apache.shiro.subject.support;
 
 import org.apache.shiro.mgt.SecurityManager;
 import org.apache.shiro.subject.Subject;
-import org.apache.shiro.util.CollectionUtils;
 import org.apache.shiro.util.ThreadContext;
 import org.apache.shiro.util.ThreadState;
 
@@ -92,13 +91,8 @@ public class SubjectThreadState implements ThreadState {
             //try just in case the constructor didn't find one at the time:
             securityManager = ThreadContext.getSecurityManager();
         }
-        this.originalResources = ThreadContext.getResources();
-        ThreadContext.remove();
-
-        ThreadContext.bind(this.subject);
-        if (securityManager != null) {
-            ThreadContext.bind(securityManager);
-        }
+        // swaps the thread's resources instead of copying them, so binding and restoring allocate very little:
+        this.originalResources = ThreadContext.replaceResources(this.subject, securityManager);
     }
 
     /**
@@ -107,10 +101,7 @@ public class SubjectThreadState implements ThreadState {
      * {@code ThreadContext} to ensure the thread state is exactly as it was before binding.
      */
     public void restore() {
-        ThreadContext.remove();
-        if (!CollectionUtils.isEmpty(this.originalResources)) {
-            ThreadContext.setResources(this.originalResources);
-        }
+        ThreadContext.restoreResources(this.originalResources);
     }
 
     /**
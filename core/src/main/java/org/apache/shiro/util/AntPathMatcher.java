@@ -20,6 +20,9 @@ package org.apache.shiro.util;
 
 import org.apache.shiro.lang.util.StringUtils;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * <p>PathMatcher implementation for Ant-style path patterns.
  * Examples are provided below.</p>
@@ -68,8 +71,16 @@ public class AntPathMatcher implements PatternMatcher {
      */
     public static final String DEFAULT_PATH_SEPARATOR = "/";
 
+    /**
+     * The maximum number of compiled patterns cached per instance.  Patterns are usually configured and therefore
+     * few, the limit merely protects against unbounded growth if arbitrary patterns are matched.
+     */
+    private static final int MAX_COMPILED_PATTERNS = 4096;
+
     private String pathSeparator = DEFAULT_PATH_SEPARATOR;
 
+    private final ConcurrentMap<String, CompiledPattern> compiledPatterns = new ConcurrentHashMap<String, CompiledPattern>();
+
 
     /**
      * Set the path separator to use for pattern parsing.
@@ -77,6 +88,18 @@ public class AntPathMatcher implements PatternMatcher {
      */
     public void setPathSeparator(String pathSeparator) {
         this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
+        this.compiledPatterns.clear();
+    }
+
+    /**
+     * Returns the path separator used for pattern parsing, "/" unless changed via
+     * {@link #setPathSeparator(String)}.
+     *
+     * @return the path separator used for pattern parsing.
+     * @since 2.0
+     */
+    public String getPathSeparator() {
+        return pathSeparator;
     }
 
     /**
@@ -107,6 +130,9 @@ public class AntPathMatcher implements PatternMatcher {
 
     /**
      * Actually match the given <code>path</code> against the given <code>pattern</code>.
+     * <p/>
+     * As of 2.0, each pattern is split into its segments and compiled only once and then cached by this instance, and
+     * paths are matched against the compiled pattern in place, without being tokenized into substrings.
      *
      * @param pattern   the pattern to match against
      * @param path      the path String to test
@@ -115,285 +141,229 @@ public class AntPathMatcher implements PatternMatcher {
      * @return <code>true</code> if the supplied <code>path</code> matched,
      * <code>false</code> if it didn't
      */
-    @SuppressWarnings({"checkstyle:ReturnCount", "checkstyle:CyclomaticComplexity",
-            "checkstyle:NPathComplexity", "checkstyle:MethodLength"})
     protected boolean doMatch(String pattern, String path, boolean fullMatch) {
-        if (path == null || path.startsWith(this.pathSeparator) != pattern.startsWith(this.pathSeparator)) {
+        if (path == null) {
             return false;
         }
+        return compile(pattern).matches(path, fullMatch);
+    }
 
-        String[] pattDirs = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator, false, true);
-        String[] pathDirs = StringUtils.tokenizeToStringArray(path, this.pathSeparator, false, true);
-
-        int pattIdxStart = 0;
-        int pattIdxEnd = pattDirs.length - 1;
-        int pathIdxStart = 0;
-        int pathIdxEnd = pathDirs.length - 1;
-
-        // Match all elements up to the first **
-        while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-            String patDir = pattDirs[pattIdxStart];
-            if ("**".equals(patDir)) {
-                break;
-            }
-            if (!matchStrings(patDir, pathDirs[pathIdxStart])) {
-                return false;
+    /**
+     * Returns the compiled form of the specified pattern, from the cache if it has been compiled before.
+     */
+    private CompiledPattern compile(String pattern) {
+        CompiledPattern compiled = compiledPatterns.get(pattern);
+        if (compiled == null) {
+            compiled = new CompiledPattern(pattern, this.pathSeparator);
+            if (compiledPatterns.size() < MAX_COMPILED_PATTERNS) {
+                compiledPatterns.put(pattern, compiled);
             }
-            pattIdxStart++;
-            pathIdxStart++;
         }
+        return compiled;
+    }
 
-        if (pathIdxStart > pathIdxEnd) {
-            // Path is exhausted, only match if rest of pattern is * or **'s
-            if (pattIdxStart > pattIdxEnd) {
-                return (pattern.endsWith(this.pathSeparator)
-                        ? path.endsWith(this.pathSeparator) : !path.endsWith(this.pathSeparator));
-            }
-            if (!fullMatch) {
-                return true;
-            }
-            if (pattIdxStart == pattIdxEnd && "*".equals(pattDirs[pattIdxStart])
-                    && path.endsWith(this.pathSeparator)) {
-                return true;
-            }
-            for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-                if (!"**".equals(pattDirs[i])) {
-                    return false;
-                }
+    /**
+     * A pattern split into its segments once, with each segment compiled into a {@link AntPathSegment}.  Paths are matched
+     * against it in place, without tokenizing them into substrings.  The matching rules are exactly those of the
+     * original, tokenizing implementation of {@link AntPathMatcher#doMatch}.
+     */
+    private static final class CompiledPattern {
+
+        private final String separator;
+        private final boolean absolute;
+        private final boolean trailingSeparator;
+        private final AntPathSegment[] segments;
+        private final boolean hasDoubleStar;
+
+        private CompiledPattern(String pattern, String separator) {
+            this.separator = separator;
+            this.absolute = pattern.startsWith(separator);
+            this.trailingSeparator = pattern.endsWith(separator);
+            String[] tokens = StringUtils.tokenizeToStringArray(pattern, separator, false, true);
+            this.segments = new AntPathSegment[tokens.length];
+            boolean doubleStar = false;
+            for (int i = 0; i < tokens.length; i++) {
+                segments[i] = new AntPathSegment(tokens[i]);
+                doubleStar |= segments[i].doubleStar;
             }
-            return true;
-        } else if (pattIdxStart > pattIdxEnd) {
-            // String not exhausted, but pattern is. Failure.
-            return false;
-        } else if (!fullMatch && "**".equals(pattDirs[pattIdxStart])) {
-            // Path start definitely matches due to "**" part in pattern.
-            return true;
+            this.hasDoubleStar = doubleStar;
         }
 
-        // up to last '**'
-        while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-            String patDir = pattDirs[pattIdxEnd];
-            if (patDir.equals("**")) {
-                break;
-            }
-            if (!matchStrings(patDir, pathDirs[pathIdxEnd])) {
-                return false;
-            }
-            pattIdxEnd--;
-            pathIdxEnd--;
+        private boolean isSeparator(char c) {
+            // like StringTokenizer, every character of the separator is a delimiter on its own
+            return separator.indexOf(c) >= 0;
         }
-        if (pathIdxStart > pathIdxEnd) {
-            // String is exhausted
-            for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-                if (!pattDirs[i].equals("**")) {
-                    return false;
-                }
+
+        private int skipSeparators(String path, int from) {
+            int i = from;
+            while (i < path.length() && isSeparator(path.charAt(i))) {
+                i++;
             }
-            return true;
+            return i;
         }
 
-        while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-            int patIdxTmp = -1;
-            for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
-                if (pattDirs[i].equals("**")) {
-                    patIdxTmp = i;
-                    break;
-                }
+        private int segmentEnd(String path, int from) {
+            int i = from;
+            while (i < path.length() && !isSeparator(path.charAt(i))) {
+                i++;
             }
-            if (patIdxTmp == pattIdxStart + 1) {
-                // '**/**' situation, so skip one
-                pattIdxStart++;
-                continue;
+            return i;
+        }
+
+        private boolean matches(String path, boolean fullMatch) {
+            if (path.startsWith(separator) != absolute) {
+                return false;
             }
-            // Find the pattern between padIdxStart & padIdxTmp in str between
-            // strIdxStart & strIdxEnd
-            int patLength = (patIdxTmp - pattIdxStart - 1);
-            int strLength = (pathIdxEnd - pathIdxStart + 1);
-            int foundIdx = -1;
+            return hasDoubleStar ? matchesWithDoubleStar(path, fullMatch) : matchesSegmentBySegment(path, fullMatch);
+        }
 
-            strLoop:
-            for (int i = 0; i <= strLength - patLength; i++) {
-                for (int j = 0; j < patLength; j++) {
-                    String subPat = (String) pattDirs[pattIdxStart + j + 1];
-                    String subStr = (String) pathDirs[pathIdxStart + i + j];
-                    if (!matchStrings(subPat, subStr)) {
-                        continue strLoop;
-                    }
+        /**
+         * Patterns without {@code **} are matched in a single pass from left to right.
+         */
+        private boolean matchesSegmentBySegment(String path, boolean fullMatch) {
+            int patternIdx = 0;
+            int start = skipSeparators(path, 0);
+            while (patternIdx < segments.length && start < path.length()) {
+                int end = segmentEnd(path, start);
+                if (!segments[patternIdx].matches(path, start, end)) {
+                    return false;
                 }
-                foundIdx = pathIdxStart + i;
-                break;
+                patternIdx++;
+                start = skipSeparators(path, end);
             }
-
-            if (foundIdx == -1) {
+            if (start < path.length()) {
+                // path not exhausted, but pattern is
                 return false;
             }
-
-            pattIdxStart = patIdxTmp;
-            pathIdxStart = foundIdx + patLength;
+            if (patternIdx == segments.length) {
+                return trailingSeparator == path.endsWith(separator);
+            }
+            if (!fullMatch) {
+                return true;
+            }
+            return patternIdx == segments.length - 1 && segments[patternIdx].star && path.endsWith(separator);
         }
 
-        for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-            if (!pattDirs[i].equals("**")) {
-                return false;
+        /**
+         * Returns the start and end offsets of all segments of the specified path.
+         */
+        private int[] segmentBounds(String path) {
+            int count = 0;
+            for (int start = skipSeparators(path, 0); start < path.length();
+                 start = skipSeparators(path, segmentEnd(path, start))) {
+                count++;
+            }
+            int[] bounds = new int[count * 2];
+            int i = 0;
+            for (int start = skipSeparators(path, 0); start < path.length(); ) {
+                int end = segmentEnd(path, start);
+                bounds[i++] = start;
+                bounds[i++] = end;
+                start = skipSeparators(path, end);
             }
+            return bounds;
         }
 
-        return true;
-    }
-
-    /**
-     * Tests whether or not a string matches against a pattern.
-     * The pattern may contain two special characters:<br>
-     * '*' means zero or more characters<br>
-     * '?' means one and only one character
-     *
-     * @param pattern pattern to match against.
-     *                Must not be <code>null</code>.
-     * @param str     string which must be matched against the pattern.
-     *                Must not be <code>null</code>.
-     * @return <code>true</code> if the string matches against the
-     * pattern, or <code>false</code> otherwise.
-     */
-    @SuppressWarnings({"checkstyle:ReturnCount", "checkstyle:CyclomaticComplexity",
-            "checkstyle:NPathComplexity", "checkstyle:MethodLength"})
-    private boolean matchStrings(String pattern, String str) {
-        char[] patArr = pattern.toCharArray();
-        char[] strArr = str.toCharArray();
-        int patIdxStart = 0;
-        int patIdxEnd = patArr.length - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strArr.length - 1;
-        char ch;
-
-        boolean containsStar = false;
-        for (char aPatArr : patArr) {
-            if (aPatArr == '*') {
-                containsStar = true;
-                break;
-            }
+        private boolean segmentMatches(int patternIdx, String path, int[] bounds, int pathIdx) {
+            return segments[patternIdx].matches(path, bounds[pathIdx * 2], bounds[pathIdx * 2 + 1]);
         }
 
-        if (!containsStar) {
-            // No '*'s, so we make a shortcut
-            if (patIdxEnd != strIdxEnd) {
-                // Pattern and string do not have the same size
-                return false;
-            }
-            for (int i = 0; i <= patIdxEnd; i++) {
-                ch = patArr[i];
-                if (ch != '?') {
-                    if (ch != strArr[i]) {
-                        // Character mismatch
-                        return false;
-                    }
+        private boolean onlyDoubleStars(int from, int to) {
+            for (int i = from; i <= to; i++) {
+                if (!segments[i].doubleStar) {
+                    return false;
                 }
             }
-            // String matches against pattern
             return true;
         }
 
+        @SuppressWarnings({"checkstyle:ReturnCount", "checkstyle:CyclomaticComplexity", "checkstyle:NPathComplexity"})
+        private boolean matchesWithDoubleStar(String path, boolean fullMatch) {
+            int[] bounds = segmentBounds(path);
 
-        if (patIdxEnd == 0) {
-            // Pattern contains only '*', which matches anything
-            return true;
-        }
+            int pattIdxStart = 0;
+            int pattIdxEnd = segments.length - 1;
+            int pathIdxStart = 0;
+            int pathIdxEnd = bounds.length / 2 - 1;
 
-        // Process characters before first star
-        while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
-            if (ch != '?') {
-                if (ch != strArr[strIdxStart]) {
-                    // Character mismatch
+            // Match all elements up to the first **
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd && !segments[pattIdxStart].doubleStar) {
+                if (!segmentMatches(pattIdxStart, path, bounds, pathIdxStart)) {
                     return false;
                 }
+                pattIdxStart++;
+                pathIdxStart++;
             }
-            patIdxStart++;
-            strIdxStart++;
-        }
-        if (strIdxStart > strIdxEnd) {
-            // All characters in the string are used. Check if only '*'s are
-            // left in the pattern. If so, we succeeded. Otherwise failure.
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (patArr[i] != '*') {
-                    return false;
-                }
+
+            if (pathIdxStart > pathIdxEnd) {
+                // Path is exhausted, only match if rest of pattern is **'s (the pattern cannot be exhausted as it
+                // contains at least one **)
+                return !fullMatch || onlyDoubleStars(pattIdxStart, pattIdxEnd);
+            } else if (pattIdxStart > pattIdxEnd) {
+                return false;
+            } else if (!fullMatch) {
+                // Path start definitely matches due to "**" part in pattern.
+                return true;
             }
-            return true;
-        }
 
-        // Process characters after last star
-        while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
-            if (ch != '?') {
-                if (ch != strArr[strIdxEnd]) {
-                    // Character mismatch
+            // up to last '**'
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd && !segments[pattIdxEnd].doubleStar) {
+                if (!segmentMatches(pattIdxEnd, path, bounds, pathIdxEnd)) {
                     return false;
                 }
+                pattIdxEnd--;
+                pathIdxEnd--;
             }
-            patIdxEnd--;
-            strIdxEnd--;
-        }
-        if (strIdxStart > strIdxEnd) {
-            // All characters in the string are used. Check if only '*'s are
-            // left in the pattern. If so, we succeeded. Otherwise failure.
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (patArr[i] != '*') {
+            if (pathIdxStart > pathIdxEnd) {
+                // String is exhausted
+                return onlyDoubleStars(pattIdxStart, pattIdxEnd);
+            }
+
+            while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                int patIdxTmp = -1;
+                for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+                    if (segments[i].doubleStar) {
+                        patIdxTmp = i;
+                        break;
+                    }
+                }
+                if (patIdxTmp == pattIdxStart + 1) {
+                    // '**/**' situation, so skip one
+                    pattIdxStart++;
+                    continue;
+                }
+                // Find the pattern between padIdxStart & padIdxTmp in str between
+                // strIdxStart & strIdxEnd
+                int patLength = patIdxTmp - pattIdxStart - 1;
+                int foundIdx = find(path, bounds, pattIdxStart + 1, patLength, pathIdxStart, pathIdxEnd);
+                if (foundIdx == -1) {
                     return false;
                 }
+
+                pattIdxStart = patIdxTmp;
+                pathIdxStart = foundIdx + patLength;
             }
-            return true;
+
+            return onlyDoubleStars(pattIdxStart, pattIdxEnd);
         }
 
-        // process pattern between stars. padIdxStart and patIdxEnd point
-        // always to a '*'.
-        while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
-            int patIdxTmp = -1;
-            for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
-                if (patArr[i] == '*') {
-                    patIdxTmp = i;
-                    break;
-                }
-            }
-            if (patIdxTmp == patIdxStart + 1) {
-                // Two stars next to each other, skip the first one.
-                patIdxStart++;
-                continue;
-            }
-            // Find the pattern between padIdxStart & padIdxTmp in str between
-            // strIdxStart & strIdxEnd
-            int patLength = (patIdxTmp - patIdxStart - 1);
-            int strLength = (strIdxEnd - strIdxStart + 1);
-            int foundIdx = -1;
+        /**
+         * Returns the index of the first path segment at which the {@code patLength} pattern segments starting at
+         * {@code patternIdx} match, or {@code -1}.
+         */
+        private int find(String path, int[] bounds, int patternIdx, int patLength, int pathIdxStart, int pathIdxEnd) {
+            int strLength = pathIdxEnd - pathIdxStart + 1;
             strLoop:
             for (int i = 0; i <= strLength - patLength; i++) {
                 for (int j = 0; j < patLength; j++) {
-                    ch = patArr[patIdxStart + j + 1];
-                    if (ch != '?') {
-                        if (ch != strArr[strIdxStart + i + j]) {
-                            continue strLoop;
-                        }
+                    if (!segmentMatches(patternIdx + j, path, bounds, pathIdxStart + i + j)) {
+                        continue strLoop;
                     }
                 }
-
-                foundIdx = strIdxStart + i;
-                break;
-            }
-
-            if (foundIdx == -1) {
-                return false;
-            }
-
-            patIdxStart = patIdxTmp;
-            strIdxStart = foundIdx + patLength;
-        }
-
-        // All characters in the string are used. Check if only '*'s are left
-        // in the pattern. If so, we succeeded. Otherwise failure.
-        for (int i = patIdxStart; i <= patIdxEnd; i++) {
-            if (patArr[i] != '*') {
-                return false;
+                return pathIdxStart + i;
             }
+            return -1;
         }
-
-        return true;
     }
 
     /**
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single segment of an {@link AntPathMatcher AntPathMatcher} pattern (the text between two path separators),
+ * compiled once so that it can be matched against many path segments without creating substrings.
+ * <p/>
+ * '?' matches any single character and '*' matches any number of characters within the segment.  A segment
+ * containing '*' is split into the literal parts around its stars: the part before the first star must match the
+ * start of the path segment, the part after the last star its end, and the parts in between are searched for from
+ * left to right.  The special segment {@code **}, which matches any number of path segments, is only meaningful to
+ * the caller matching whole paths; as a single segment it matches like {@code *}.
+ * <p/>
+ * Instances are immutable and thread-safe.
+ *
+ * @since 2.0
+ */
+public final class AntPathSegment {
+
+    private static final String[] NO_PARTS = new String[0];
+
+    final boolean doubleStar;
+    final boolean star;
+
+    private final String text;
+    private final boolean hasStar;
+    private final boolean hasQuestionMark;
+    private final String prefix;
+    private final String suffix;
+    private final String[] innerParts;
+
+    /**
+     * Compiles the specified pattern segment.
+     *
+     * @param text the pattern segment, without path separators.
+     */
+    public AntPathSegment(String text) {
+        this.text = text;
+        this.doubleStar = "**".equals(text);
+        this.star = "*".equals(text);
+        this.hasQuestionMark = text.indexOf('?') >= 0;
+        int first = text.indexOf('*');
+        this.hasStar = first >= 0;
+        if (hasStar) {
+            int last = text.lastIndexOf('*');
+            this.prefix = text.substring(0, first);
+            this.suffix = text.substring(last + 1);
+            List<String> parts = new ArrayList<String>();
+            for (String part : text.substring(first + 1, last + 1).split("\\*")) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            this.innerParts = parts.toArray(NO_PARTS);
+        } else {
+            this.prefix = text;
+            this.suffix = "";
+            this.innerParts = NO_PARTS;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this pattern segment matches the specified path segment.
+     *
+     * @param segment the path segment, without path separators.
+     * @return {@code true} if this pattern segment matches the path segment.
+     */
+    public boolean matches(String segment) {
+        return matches(segment, 0, segment.length());
+    }
+
+    /**
+     * Returns {@code true} if this pattern segment matches the region of the specified path from {@code start}
+     * (inclusive) to {@code end} (exclusive).
+     *
+     * @param path  the path containing the segment.
+     * @param start the index of the first character of the segment.
+     * @param end   the index after the last character of the segment.
+     * @return {@code true} if this pattern segment matches the path segment.
+     */
+    public boolean matches(String path, int start, int end) {
+        int length = end - start;
+        if (!hasStar) {
+            return length == text.length() && regionMatches(path, start, text);
+        }
+        if (length < prefix.length() + suffix.length()
+                || !regionMatches(path, start, prefix)
+                || !regionMatches(path, end - suffix.length(), suffix)) {
+            return false;
+        }
+        int from = start + prefix.length();
+        int to = end - suffix.length();
+        for (String part : innerParts) {
+            from = indexOf(path, part, from, to);
+            if (from < 0) {
+                return false;
+            }
+            from += part.length();
+        }
+        return true;
+    }
+
+    private boolean regionMatches(String path, int offset, String part) {
+        if (!hasQuestionMark) {
+            return path.regionMatches(offset, part, 0, part.length());
+        }
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            if (c != '?' && c != path.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(String path, String part, int from, int to) {
+        for (int i = from; i <= to - part.length(); i++) {
+            if (regionMatches(path, i, part)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
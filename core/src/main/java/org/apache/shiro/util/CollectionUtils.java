@@ -20,6 +20,7 @@ package org.apache.shiro.util;
 
 import org.apache.shiro.subject.PrincipalCollection;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -27,6 +28,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Static helper class for use dealing with Collections.
@@ -127,6 +129,39 @@ public final class CollectionUtils {
         return Arrays.asList(elements);
     }
 
+    /**
+     * Passes the elements of the specified {@code Iterable} to the consumer in consecutive batches of at most
+     * {@code batchSize} elements, in iteration order.  Only one batch is held at a time, so a lazily evaluated
+     * {@code Iterable} is never fully materialized.  Nothing is passed if the {@code Iterable} is {@code null} or empty.
+     *
+     * @param elements  the elements to pass, may be {@code null}.
+     * @param batchSize the maximum number of elements per batch, must be positive.
+     * @param consumer  the consumer of each batch.
+     * @param <E>       the type of the elements.
+     * @throws IllegalArgumentException if {@code batchSize} is not positive.
+     * @since 2.0
+     */
+    public static <E> void forEachBatch(Iterable<? extends E> elements, int batchSize,
+                                        Consumer<? super List<E>> consumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        if (elements == null) {
+            return;
+        }
+        List<E> batch = new ArrayList<E>();
+        for (E element : elements) {
+            batch.add(element);
+            if (batch.size() == batchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<E>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
     /*public static <E> Deque<E> asDeque(E... elements) {
         if (elements == null || elements.length == 0) {
             return new ArrayDeque<E>();
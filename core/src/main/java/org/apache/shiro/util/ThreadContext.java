@@ -23,9 +23,12 @@ import org.apache.shiro.subject.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -33,7 +36,11 @@ import java.util.Map;
  * current thread based on key/value pairs.
  * <p/>
  * <p>An internal {@link java.util.HashMap} is used to maintain the key/value pairs
- * for each thread.</p>
+ * for each thread.  If the {@value #STORAGE_PROPERTY} system property is set to {@code compact} when this class is
+ * initialized, a compact map with dedicated slots for the {@link #SUBJECT_KEY Subject} and the
+ * {@link #SECURITY_MANAGER_KEY SecurityManager} is used instead, which only allocates a general purpose map if other
+ * keys are bound.  This reduces the memory held per thread in applications running very many (for example virtual)
+ * threads.</p>
  * <p/>
  * <p>If the desired behavior is to ensure that bound data is not shared across
  * threads in a pooled or reusable threaded environment, the application (or more likely a framework) must
@@ -55,6 +62,13 @@ public abstract class ThreadContext {
      */
     public static final String SUBJECT_KEY = ThreadContext.class.getName() + "_SUBJECT_KEY";
 
+    /**
+     * System property selecting the per-thread storage, either {@code map} (the default) or {@code compact}.
+     *
+     * @since 2.0
+     */
+    public static final String STORAGE_PROPERTY = "shiro.threadContext.storage";
+
     /**
      * Private internal log instance.
      */
@@ -62,6 +76,8 @@ public abstract class ThreadContext {
 
     private static final ThreadLocal<Map<Object, Object>> RESOURCES = new ThreadLocal<>();
 
+    private static final boolean COMPACT = "compact".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY));
+
     /**
      * Default no-argument constructor.
      */
@@ -115,7 +131,50 @@ public abstract class ThreadContext {
 
     private static void ensureResourcesInitialized() {
         if (RESOURCES.get() == null) {
-            RESOURCES.set(new HashMap<Object, Object>());
+            RESOURCES.set(newResources());
+        }
+    }
+
+    private static Map<Object, Object> newResources() {
+        return COMPACT ? new CompactResources() : new HashMap<Object, Object>();
+    }
+
+    /**
+     * Replaces everything bound to the current thread with just the specified {@code Subject} and
+     * {@code SecurityManager} and returns the previously bound resources, without copying them.  The returned map must
+     * be treated as opaque and passed to {@link #restoreResources(Map)} to reinstate the previous state, as done by
+     * {@link org.apache.shiro.subject.support.SubjectThreadState SubjectThreadState}.
+     *
+     * @param subject         the subject to bind, may be {@code null}.
+     * @param securityManager the security manager to bind, may be {@code null}.
+     * @return the previously bound resources, or {@code null} if there were none.
+     * @since 2.0
+     */
+    public static Map<Object, Object> replaceResources(Subject subject, SecurityManager securityManager) {
+        Map<Object, Object> previous = RESOURCES.get();
+        Map<Object, Object> resources = newResources();
+        if (subject != null) {
+            resources.put(SUBJECT_KEY, subject);
+        }
+        if (securityManager != null) {
+            resources.put(SECURITY_MANAGER_KEY, securityManager);
+        }
+        RESOURCES.set(resources);
+        return previous;
+    }
+
+    /**
+     * Reinstates resources previously returned by {@link #replaceResources(Subject, SecurityManager)}, discarding
+     * everything currently bound to the thread.
+     *
+     * @param previous the resources to reinstate, may be {@code null}.
+     * @since 2.0
+     */
+    public static void restoreResources(Map<Object, Object> previous) {
+        if (CollectionUtils.isEmpty(previous)) {
+            RESOURCES.remove();
+        } else {
+            RESOURCES.set(previous);
         }
     }
 
@@ -327,5 +386,98 @@ public abstract class ThreadContext {
     public static Subject unbindSubject() {
         return (Subject) remove(SUBJECT_KEY);
     }
-}
 
+    /**
+     * Per-thread resources with dedicated slots for the {@link #SUBJECT_KEY Subject} and
+     * {@link #SECURITY_MANAGER_KEY SecurityManager}.  Any other key is kept in a map that is only created when needed.
+     */
+    static final class CompactResources extends AbstractMap<Object, Object> {
+
+        private Object subject;
+
+        private Object securityManager;
+
+        private Map<Object, Object> others;
+
+        @Override
+        public Object get(Object key) {
+            if (SUBJECT_KEY.equals(key)) {
+                return subject;
+            }
+            if (SECURITY_MANAGER_KEY.equals(key)) {
+                return securityManager;
+            }
+            return others != null ? others.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            Object previous;
+            if (SUBJECT_KEY.equals(key)) {
+                previous = subject;
+                subject = value;
+            } else if (SECURITY_MANAGER_KEY.equals(key)) {
+                previous = securityManager;
+                securityManager = value;
+            } else {
+                if (others == null) {
+                    others = new HashMap<Object, Object>();
+                }
+                previous = others.put(key, value);
+            }
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            Object previous;
+            if (SUBJECT_KEY.equals(key)) {
+                previous = subject;
+                subject = null;
+            } else if (SECURITY_MANAGER_KEY.equals(key)) {
+                previous = securityManager;
+                securityManager = null;
+            } else {
+                previous = others != null ? others.remove(key) : null;
+            }
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            subject = null;
+            securityManager = null;
+            others = null;
+        }
+
+        @Override
+        public int size() {
+            return (subject != null ? 1 : 0) + (securityManager != null ? 1 : 0) + (others != null ? others.size() : 0);
+        }
+
+        /**
+         * Returns an unmodifiable snapshot of the entries, used for copying (see {@link ThreadContext#getResources()}).
+         */
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            Set<Entry<Object, Object>> entries = new LinkedHashSet<Entry<Object, Object>>();
+            if (subject != null) {
+                entries.add(new SimpleImmutableEntry<Object, Object>(SUBJECT_KEY, subject));
+            }
+            if (securityManager != null) {
+                entries.add(new SimpleImmutableEntry<Object, Object>(SECURITY_MANAGER_KEY, securityManager));
+            }
+            if (others != null) {
+                for (Entry<Object, Object> entry : others.entrySet()) {
+                    entries.add(new SimpleImmutableEntry<Object, Object>(entry));
+                }
+            }
+            return Collections.unmodifiableSet(entries);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.credential;
+
+import org.apache.shiro.authc.CredentialsVerificationTimeoutException;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.crypto.hash.DefaultHashService;
+import org.apache.shiro.crypto.hash.Sha512Hash;
+import org.apache.shiro.crypto.hash.format.Shiro1CryptFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the {@link PasswordHashingExecutor} class.
+ *
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class PasswordHashingExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void testRunsOnDedicatedThread() {
+        executor = new PasswordHashingExecutor();
+        String name = executor.execute(() -> Thread.currentThread().getName());
+        assertTrue(name.startsWith("shiro-password-hashing-"), name);
+        // nested computations run on the same thread instead of waiting for another one:
+        assertEquals(name, executor.execute(() -> executor.execute(() -> Thread.currentThread().getName())));
+        assertEquals(2, executor.getSubmittedCount());
+        assertEquals(2, executor.getCompletedCount());
+    }
+
+    @Test
+    void testConcurrencyIsBounded() throws Exception {
+        executor = new PasswordHashingExecutor(2, 10, 5000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Thread> callers = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread caller = new Thread(() -> executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(20);
+                return running.decrementAndGet();
+            }));
+            caller.start();
+            callers.add(caller);
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(8, executor.getCompletedCount());
+        assertTrue(executor.getTotalHashNanos() >= TimeUnit.MILLISECONDS.toNanos(8 * 20));
+        assertTrue(executor.getMaxQueueWaitNanos() > 0);
+    }
+
+    @Test
+    void testFullQueueIsRejected() throws Exception {
+        executor = new PasswordHashingExecutor(1, 0, 5000);
+        occupy();
+        assertThrows(CredentialsVerificationTimeoutException.class, () -> executor.execute(() -> true));
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        executor = new PasswordHashingExecutor(1, 1, 50);
+        occupy();
+        assertThrows(CredentialsVerificationTimeoutException.class, () -> executor.execute(() -> true));
+        // the caller occupying the thread times out as well:
+        assertTrue(executor.getTimedOutCount() >= 1);
+        assertEquals(0, executor.getQueuedCount());
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        executor = new PasswordHashingExecutor();
+        assertThrows(IllegalArgumentException.class, () -> executor.setMaxConcurrency(0));
+        assertThrows(IllegalArgumentException.class, () -> executor.setQueueDepth(-1));
+        assertThrows(IllegalArgumentException.class, () -> executor.setTimeout(0));
+    }
+
+    @Test
+    void testHashedCredentialsMatcher() {
+        executor = new PasswordHashingExecutor();
+        HashedCredentialsMatcher matcher = new HashedCredentialsMatcher(Sha512Hash.ALGORITHM_NAME);
+        matcher.setHashingExecutor(executor);
+        SimpleAuthenticationInfo account = new SimpleAuthenticationInfo("username", new Sha512Hash("password"), "realm");
+        assertTrue(matcher.doCredentialsMatch(new UsernamePasswordToken("username", "password"), account));
+        assertFalse(matcher.doCredentialsMatch(new UsernamePasswordToken("username", "wrong"), account));
+        assertEquals(2, executor.getCompletedCount());
+    }
+
+    @Test
+    void testDefaultPasswordService() {
+        executor = new PasswordHashingExecutor();
+        DefaultPasswordService service = new DefaultPasswordService();
+        ((DefaultHashService) service.getHashService()).setDefaultAlgorithmName(Sha512Hash.ALGORITHM_NAME);
+        service.setHashFormat(new Shiro1CryptFormat());
+        service.setHashingExecutor(executor);
+        String encrypted = service.encryptPassword("password");
+        assertTrue(service.passwordsMatch("password", encrypted));
+        assertFalse(service.passwordsMatch("wrong", encrypted));
+        assertEquals(3, executor.getCompletedCount());
+
+        PasswordMatcher matcher = new PasswordMatcher();
+        matcher.setPasswordService(service);
+        assertTrue(matcher.doCredentialsMatch(new UsernamePasswordToken("username", "password"),
+                new SimpleAuthenticationInfo("username", service.hashPassword("password"), "realm")));
+        assertEquals(5, executor.getCompletedCount());
+    }
+
+    /**
+     * Occupies the single hashing thread until the test ends, ignoring interrupts like a hash computation would.
+     */
+    private void occupy() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread caller = new Thread(() -> executor.execute(() -> {
+            started.countDown();
+            while (true) {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // keep running
+                }
+            }
+        }));
+        caller.setDaemon(true);
+        caller.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
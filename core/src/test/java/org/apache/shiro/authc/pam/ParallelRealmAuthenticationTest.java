@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.pam;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+public class ParallelRealmAuthenticationTest {
+
+    private static final long TIMEOUT = 10;
+
+    private static final UsernamePasswordToken TOKEN = new UsernamePasswordToken("user", "secret");
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ModularRealmAuthenticator authenticator(AuthenticationStrategy strategy, boolean parallel, Realm... realms) {
+        ModularRealmAuthenticator authenticator = new ModularRealmAuthenticator();
+        authenticator.setAuthenticationStrategy(strategy);
+        authenticator.setParallelRealmAuthentication(parallel);
+        authenticator.setAsyncExecutor(executor);
+        authenticator.setRealms(Arrays.asList(realms));
+        return authenticator;
+    }
+
+    private static SimpleAccountRealm realm(String name, String password) {
+        SimpleAccountRealm realm = new SimpleAccountRealm(name);
+        realm.addAccount("user", password);
+        return realm;
+    }
+
+    @Test
+    void testRealmsAreConsultedConcurrently() {
+        // each realm only succeeds once the other one has been invoked, which cannot happen sequentially:
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        Realm a = new RendezvousRealm("a", first, second);
+        Realm b = new RendezvousRealm("b", second, first);
+
+        AuthenticationInfo info = authenticator(new AtLeastOneSuccessfulStrategy(), true, a, b).authenticate(TOKEN);
+        assertEquals(1, info.getPrincipals().fromRealm("a").size());
+        assertEquals(1, info.getPrincipals().fromRealm("b").size());
+    }
+
+    @Test
+    void testSameResultsAsSequential() {
+        Realm[][] configurations = {
+            {realm("a", "secret"), realm("b", "secret")},
+            {realm("a", "wrong"), realm("b", "secret")},
+            {realm("a", "secret"), realm("b", "wrong")},
+            {realm("a", "wrong"), realm("b", "wrong")},
+            {realm("a", "secret"), new SimpleAccountRealm("unknown"), realm("b", "secret")},
+        };
+        for (Realm[] realms : configurations) {
+            for (int s = 0; s < 3; s++) {
+                String sequential = outcome(authenticator(strategy(s), false, realms));
+                String parallel = outcome(authenticator(strategy(s), true, realms));
+                assertEquals(sequential, parallel, "Strategy " + s + " with realms " + Arrays.toString(realms));
+            }
+        }
+    }
+
+    private static AuthenticationStrategy strategy(int i) {
+        switch (i) {
+            case 0:
+                return new AllSuccessfulStrategy();
+            case 1:
+                FirstSuccessfulStrategy first = new FirstSuccessfulStrategy();
+                first.setStopAfterFirstSuccess(true);
+                return first;
+            default:
+                return new AtLeastOneSuccessfulStrategy();
+        }
+    }
+
+    private static String outcome(ModularRealmAuthenticator authenticator) {
+        try {
+            Collection<?> principals = authenticator.authenticate(TOKEN).getPrincipals().getRealmNames();
+            return "success " + principals;
+        } catch (AuthenticationException e) {
+            return "failure " + e.getClass().getName();
+        }
+    }
+
+    @Test
+    void testShortCircuitCancelsPendingRealms() throws Exception {
+        BlockingRealm slow = new BlockingRealm();
+        FirstSuccessfulStrategy strategy = new FirstSuccessfulStrategy();
+        strategy.setStopAfterFirstSuccess(true);
+
+        Realm fast = new RendezvousRealm("fast", new CountDownLatch(1), slow.started);
+
+        AuthenticationInfo info = authenticator(strategy, true, fast, slow).authenticate(TOKEN);
+        assertEquals("fast", info.getPrincipals().getRealmNames().iterator().next());
+        assertTrue(slow.interrupted.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAllSuccessfulFailureCancelsPendingRealms() throws Exception {
+        BlockingRealm slow = new BlockingRealm();
+        ModularRealmAuthenticator authenticator =
+                authenticator(new AllSuccessfulStrategy(), true, new UnknownAccountRealm(slow.started), slow);
+        assertThrows(AuthenticationException.class, () -> authenticator.authenticate(TOKEN));
+        assertTrue(slow.interrupted.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRejectedAttemptsRunOnCallingThread() {
+        ModularRealmAuthenticator authenticator =
+                authenticator(new AtLeastOneSuccessfulStrategy(), true, realm("a", "secret"), realm("b", "secret"));
+        executor.shutdown();
+        AuthenticationInfo info = authenticator.authenticate(TOKEN);
+        assertNotNull(info);
+        assertEquals(2, info.getPrincipals().getRealmNames().size());
+    }
+
+    private static class RendezvousRealm extends SimpleAccountRealm {
+
+        private final CountDownLatch arrived;
+
+        private final CountDownLatch other;
+
+        private RendezvousRealm(String name, CountDownLatch arrived, CountDownLatch other) {
+            super(name);
+            this.arrived = arrived;
+            this.other = other;
+            addAccount("user", "secret");
+        }
+
+        @Override
+        protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+            arrived.countDown();
+            try {
+                if (!other.await(TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new AuthenticationException("Realms were not consulted concurrently");
+                }
+            } catch (InterruptedException e) {
+                throw new AuthenticationException(e);
+            }
+            return super.doGetAuthenticationInfo(token);
+        }
+    }
+
+    private static final class UnknownAccountRealm extends RendezvousRealm {
+
+        private UnknownAccountRealm(CountDownLatch other) {
+            super("unknown", new CountDownLatch(1), other);
+        }
+
+        @Override
+        protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+            super.doGetAuthenticationInfo(token);
+            return null;
+        }
+    }
+
+    private static final class BlockingRealm extends SimpleAccountRealm {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        private BlockingRealm() {
+            super("blocking");
+            addAccount("user", "secret");
+        }
+
+        @Override
+        protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new AuthenticationException(e);
+            }
+            return super.doGetAuthenticationInfo(token);
+        }
+    }
+}
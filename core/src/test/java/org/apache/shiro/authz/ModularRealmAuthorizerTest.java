@@ -18,23 +18,44 @@
  */
 package org.apache.shiro.authz;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
+import org.apache.shiro.authz.permission.WildcardPermission;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.junit.jupiter.api.Test;
 
+@SuppressWarnings("checkstyle:MagicNumber")
 public class ModularRealmAuthorizerTest {
 
+    private static final long TIMEOUT = 10;
+
+    private static final PrincipalCollection PRINCIPALS = new SimplePrincipalCollection("user", "test");
+
+    private static final String[] PERMISSIONS = {"a:read", "a:write", "b:read", "b:*", "c:read:1", "c:read:2", "d"};
+
+    private static final String[] ROLES = {"admin", "user", "guest", "auditor"};
+
     @Test
     void testSettingOfRolePermissionResolver() {
         Collection<Realm> realms = new ArrayList<Realm>();
@@ -87,6 +108,197 @@ public class ModularRealmAuthorizerTest {
 
     }
 
+    @Test
+    void testBatchedChecksMatchPerEntryChecks() {
+        Random random = new Random(42);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (int round = 0; round < 50; round++) {
+                List<Realm> realms = new ArrayList<Realm>();
+                for (int r = 0; r < 3; r++) {
+                    StaticRealm realm = new StaticRealm(random.nextBoolean());
+                    for (String p : PERMISSIONS) {
+                        if (random.nextInt(4) == 0) {
+                            realm.info.addStringPermission(p);
+                        }
+                    }
+                    for (String role : ROLES) {
+                        if (random.nextInt(4) == 0) {
+                            realm.info.addRole(role);
+                        }
+                    }
+                    realms.add(realm);
+                }
+                for (boolean parallel : new boolean[] {false, true}) {
+                    ModularRealmAuthorizer authorizer = new ModularRealmAuthorizer(realms);
+                    authorizer.setParallelRealmAuthorization(parallel);
+                    authorizer.setAuthorizationExecutor(executor);
+                    assertBatchMatchesSingleChecks(authorizer);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertBatchMatchesSingleChecks(ModularRealmAuthorizer authorizer) {
+        boolean[] expected = new boolean[PERMISSIONS.length];
+        List<Permission> permissions = new ArrayList<Permission>();
+        boolean all = true;
+        for (int i = 0; i < PERMISSIONS.length; i++) {
+            expected[i] = authorizer.isPermitted(PRINCIPALS, PERMISSIONS[i]);
+            all &= expected[i];
+            permissions.add(new WildcardPermission(PERMISSIONS[i]));
+        }
+        assertArrayEquals(expected, authorizer.isPermitted(PRINCIPALS, PERMISSIONS));
+        assertArrayEquals(expected, authorizer.isPermitted(PRINCIPALS, permissions));
+        assertEquals(all, authorizer.isPermittedAll(PRINCIPALS, PERMISSIONS));
+        assertEquals(all, authorizer.isPermittedAll(PRINCIPALS, permissions));
+
+        boolean[] expectedRoles = new boolean[ROLES.length];
+        boolean allRoles = true;
+        for (int i = 0; i < ROLES.length; i++) {
+            expectedRoles[i] = authorizer.hasRole(PRINCIPALS, ROLES[i]);
+            allRoles &= expectedRoles[i];
+        }
+        assertArrayEquals(expectedRoles, authorizer.hasRoles(PRINCIPALS, Arrays.asList(ROLES)));
+        assertEquals(allRoles, authorizer.hasAllRoles(PRINCIPALS, Arrays.asList(ROLES)));
+    }
+
+    @Test
+    void testEachRealmIsAskedOnceForPendingEntriesOnly() {
+        StaticRealm first = new StaticRealm(true);
+        first.info.addStringPermission("a:*");
+        StaticRealm second = new StaticRealm(true);
+        second.info.addStringPermission("b:read");
+        StaticRealm third = new StaticRealm(true);
+
+        ModularRealmAuthorizer authorizer = new ModularRealmAuthorizer(Arrays.<Realm>asList(first, second, third));
+        assertArrayEquals(new boolean[] {true, true, true, false},
+                authorizer.isPermitted(PRINCIPALS, "a:read", "a:write", "b:read", "c:read"));
+        assertEquals(Arrays.asList(4), first.batches);
+        assertEquals(Arrays.asList(2), second.batches);
+        assertEquals(Arrays.asList(1), third.batches);
+
+        // once everything is granted, later realms are not consulted at all:
+        assertTrue(authorizer.isPermittedAll(PRINCIPALS, "a:read", "a:write"));
+        assertEquals(Arrays.asList(2), second.batches);
+    }
+
+    @Test
+    void testColdRealmsAreQueriedConcurrently() {
+        // each realm only answers once the other one has been queried, which cannot happen sequentially:
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        StaticRealm a = new RendezvousRealm(first, second);
+        a.info.addStringPermission("a");
+        StaticRealm b = new RendezvousRealm(second, first);
+        b.info.addStringPermission("b");
+
+        ModularRealmAuthorizer authorizer = new ModularRealmAuthorizer(Arrays.<Realm>asList(a, b));
+        authorizer.setParallelRealmAuthorization(true);
+        assertArrayEquals(new boolean[] {true, true, false}, authorizer.isPermitted(PRINCIPALS, "a", "b", "c"));
+    }
+
+    @Test
+    void testGrantingAllEntriesCancelsOutstandingQueries() throws Exception {
+        BlockingRealm slow = new BlockingRealm();
+        StaticRealm fast = new RendezvousRealm(new CountDownLatch(1), slow.started);
+        fast.info.addStringPermission("*");
+
+        ModularRealmAuthorizer authorizer = new ModularRealmAuthorizer(Arrays.<Realm>asList(fast, slow));
+        authorizer.setParallelRealmAuthorization(true);
+        assertTrue(authorizer.isPermittedAll(PRINCIPALS, "a", "b"));
+        assertTrue(slow.interrupted.await(TIMEOUT, TimeUnit.SECONDS));
+        assertFalse(slow.completed);
+    }
+
+    private static class StaticRealm extends AuthorizingRealm {
+
+        protected final SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+
+        private final boolean cached;
+
+        private final List<Integer> batches = new ArrayList<Integer>();
+
+        StaticRealm(boolean cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public boolean isAuthorizationInfoCached(PrincipalCollection principals) {
+            return cached;
+        }
+
+        @Override
+        public boolean[] isPermitted(PrincipalCollection subjectIdentifier, String... permissions) {
+            batches.add(permissions.length);
+            return super.isPermitted(subjectIdentifier, permissions);
+        }
+
+        @Override
+        protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+            return info;
+        }
+
+        @Override
+        protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+            return null;
+        }
+    }
+
+    private static class RendezvousRealm extends StaticRealm {
+
+        private final CountDownLatch arrived;
+
+        private final CountDownLatch other;
+
+        RendezvousRealm(CountDownLatch arrived, CountDownLatch other) {
+            super(false);
+            this.arrived = arrived;
+            this.other = other;
+        }
+
+        @Override
+        protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+            arrived.countDown();
+            try {
+                if (!other.await(TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new AuthorizationException("Realms were not queried concurrently");
+                }
+            } catch (InterruptedException e) {
+                throw new AuthorizationException(e);
+            }
+            return super.doGetAuthorizationInfo(principals);
+        }
+    }
+
+    private static final class BlockingRealm extends StaticRealm {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        private volatile boolean completed;
+
+        BlockingRealm() {
+            super(false);
+        }
+
+        @Override
+        protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new AuthorizationException(e);
+            }
+            completed = true;
+            return super.doGetAuthorizationInfo(principals);
+        }
+    }
+
     class MockAuthorizingRealm extends AuthorizingRealm {
 
         @Override
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.lang.util.ByteSource;
+import org.apache.shiro.lang.util.SimpleByteSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that {@link CompiledWildcardPermission} behaves exactly like {@link WildcardPermission}.
+ *
+ * @since 2.0
+ */
+public class CompiledWildcardPermissionTest {
+
+    private static final String[] PERMISSIONS = {
+        "something", "SOMETHING", "else", "one,two", "two,one", "one,one,two", "newsletter:view,edit",
+        "newsletter:edit,view", "newsletter:*:13", "newsletter:view:*", "*", "*:*", "*:view", "a:b:c:d",
+        "a:b:c", "a:*:c", "a::c", ":a", "a:", "a:b:", "a,:b", ",a:b", "a,,b", "a:b,*", "  padded:value  ",
+        "a: b", "Mixed:CASE,values", "printer:print,query:lp7200,epsoncolor", "x:y:z:*:*",
+    };
+
+    private static final String[] INVALID = {"", "   ", ":", "::,,::,:", "a:,:b", ",", "a:,"};
+
+    @Test
+    void testParityWithWildcardPermission() {
+        for (boolean caseSensitive : new boolean[] {false, true}) {
+            for (String s : PERMISSIONS) {
+                WildcardPermission expected = new WildcardPermission(s, caseSensitive);
+                CompiledWildcardPermission actual = new CompiledWildcardPermission(s, caseSensitive);
+                assertEquals(expected.toString(), actual.toString(), "toString of [" + s + "]");
+                assertEquals(expected.hashCode(), actual.hashCode(), "hashCode of [" + s + "]");
+                assertEquals(expected.getParts(), actual.getParts(), "parts of [" + s + "]");
+                assertTrue(expected.equals(actual), "equals of [" + s + "]");
+                assertTrue(actual.equals(expected), "equals of [" + s + "]");
+            }
+        }
+    }
+
+    @Test
+    void testImpliesParity() {
+        for (String granted : PERMISSIONS) {
+            WildcardPermission w1 = new WildcardPermission(granted);
+            CompiledWildcardPermission c1 = new CompiledWildcardPermission(granted);
+            for (String checked : PERMISSIONS) {
+                WildcardPermission w2 = new WildcardPermission(checked);
+                CompiledWildcardPermission c2 = new CompiledWildcardPermission(checked);
+                boolean expected = w1.implies(w2);
+                String msg = "[" + granted + "] implies [" + checked + "]";
+                assertEquals(expected, c1.implies(c2), msg);
+                assertEquals(expected, c1.implies(w2), msg);
+                assertEquals(expected, w1.implies(c2), msg);
+                assertEquals(w1.equals(w2), c1.equals(c2), "[" + granted + "] equals [" + checked + "]");
+            }
+        }
+    }
+
+    @Test
+    void testInvalid() {
+        for (final String s : INVALID) {
+            assertThrows(IllegalArgumentException.class, () -> new WildcardPermission(s), s);
+            assertThrows(IllegalArgumentException.class, () -> new CompiledWildcardPermission(s), s);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new CompiledWildcardPermission(null));
+    }
+
+    @Test
+    void testNonWildcardPermission() {
+        Permission all = new AllPermission();
+        assertFalse(new CompiledWildcardPermission("*").implies(all));
+        assertTrue(all.implies(new CompiledWildcardPermission("foo")));
+        assertFalse(new CompiledWildcardPermission("*").equals(all));
+    }
+
+    @Test
+    void testSerialization() throws IOException, ClassNotFoundException {
+        CompiledWildcardPermission p = new CompiledWildcardPermission("newsletter:view,edit:*");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(p);
+        }
+        ByteSource source = new SimpleByteSource(bytes.toByteArray());
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(source.getBytes()))) {
+            Object read = in.readObject();
+            assertEquals(p, read);
+            assertEquals(p.getParts(), ((CompiledWildcardPermission) read).getParts());
+            assertTrue(((Permission) read).implies(new CompiledWildcardPermission("newsletter:edit:12")));
+        }
+    }
+
+    @Test
+    void testResolver() {
+        CompiledWildcardPermissionResolver resolver = new CompiledWildcardPermissionResolver();
+        assertFalse(resolver.isCaseSensitive());
+        Permission p = resolver.resolvePermission("Foo:*");
+        assertTrue(p instanceof CompiledWildcardPermission);
+        assertEquals("foo:*", p.toString());
+        assertEquals("Foo:*", new CompiledWildcardPermissionResolver(true).resolvePermission("Foo:*").toString());
+    }
+}
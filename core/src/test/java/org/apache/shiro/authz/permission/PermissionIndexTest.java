@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+public class PermissionIndexTest {
+
+    private static final String[] GRANTED = {
+        "newsletter:view,edit",
+        "newsletter:*:13",
+        "printer:print:lp7200,epsoncolor",
+        "*:view",
+        "file:read:*:*",
+        "doc",
+        "report:*",
+        "a:b:c:d:e",
+        "Mixed:Case",
+    };
+
+    private static final String[] CHECKED = {
+        "newsletter", "newsletter:view", "newsletter:view,edit", "newsletter:edit:12", "newsletter:delete",
+        "newsletter:delete:13", "newsletter:delete:13:x", "newsletter:*", "newsletter:*:13",
+        "printer:print:lp7200", "printer:print:lp7200,epsoncolor", "printer:print:lp7200,hp", "printer:print",
+        "printer:query:lp7200", "anything:view", "anything:view:42", "anything:edit", "*", "*:*", "file:read",
+        "file:read:a", "file:read:a:b", "file:read:a:b:c", "file:write", "doc", "doc:read:42", "report",
+        "report:x:y", "a:b:c:d", "a:b:c:d:e", "a:b:c:d:e:f", "a:b:c:d:x", "mixed:case", "Mixed:Case", "other",
+    };
+
+    private static boolean scan(Collection<? extends Permission> granted, Permission checked) {
+        for (Permission p : granted) {
+            if (p.implies(checked)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Permission> permissions(boolean caseSensitive, String... strings) {
+        List<Permission> perms = new ArrayList<Permission>(strings.length);
+        for (String s : strings) {
+            perms.add(new WildcardPermission(s, caseSensitive));
+        }
+        return perms;
+    }
+
+    @Test
+    void testMatchesLinearScan() {
+        for (boolean caseSensitive : new boolean[] {false, true}) {
+            List<Permission> granted = permissions(caseSensitive, GRANTED);
+            PermissionIndex index = PermissionIndex.compile(granted);
+            assertEquals(granted.size(), index.size());
+            for (Permission checked : permissions(caseSensitive, CHECKED)) {
+                assertEquals(scan(granted, checked), index.implies(checked), "Mismatch for [" + checked + "]");
+            }
+        }
+    }
+
+    @Test
+    void testCompiledPermissionsMatchLinearScan() {
+        List<Permission> granted = new ArrayList<Permission>();
+        List<Permission> checks = new ArrayList<Permission>();
+        for (String s : GRANTED) {
+            granted.add(new CompiledWildcardPermission(s));
+        }
+        for (String s : CHECKED) {
+            checks.add(new CompiledWildcardPermission(s));
+            checks.add(new WildcardPermission(s));
+        }
+        PermissionIndex index = PermissionIndex.compile(granted);
+        for (Permission checked : checks) {
+            assertEquals(scan(granted, checked), index.implies(checked), "Mismatch for [" + checked + "]");
+        }
+    }
+
+    @Test
+    void testEachGrantedPermissionAloneMatchesLinearScan() {
+        List<Permission> checks = permissions(false, CHECKED);
+        for (String s : GRANTED) {
+            List<Permission> granted = permissions(false, s);
+            PermissionIndex index = PermissionIndex.compile(granted);
+            for (Permission checked : checks) {
+                assertEquals(scan(granted, checked), index.implies(checked),
+                        "Mismatch for [" + s + "] implies [" + checked + "]");
+            }
+        }
+    }
+
+    @Test
+    void testMultiValuedPartsRequireSingleGrant() {
+        PermissionIndex index = PermissionIndex.compile(permissions(false, "a:b:x", "a:c:x"));
+        assertTrue(index.implies(new WildcardPermission("a:b:x")));
+        assertTrue(index.implies(new WildcardPermission("a:c:x")));
+        // neither granted permission alone implies both sub-parts:
+        assertFalse(index.implies(new WildcardPermission("a:b,c:x")));
+
+        index = PermissionIndex.compile(permissions(false, "a:b,c,d:x"));
+        assertTrue(index.implies(new WildcardPermission("a:c,b:x")));
+        assertFalse(index.implies(new WildcardPermission("a:c,e:x")));
+    }
+
+    @Test
+    void testEmpty() {
+        PermissionIndex index = PermissionIndex.compile(null);
+        assertTrue(index.isEmpty());
+        assertFalse(index.implies(new WildcardPermission("*")));
+        assertTrue(PermissionIndex.compile(Collections.<Permission>emptySet()).isEmpty());
+    }
+
+    @Test
+    void testNonWildcardPermissions() {
+        PermissionIndex index = PermissionIndex.compile(Arrays.<Permission>asList(new AllPermission()));
+        assertTrue(index.implies(new WildcardPermission("anything:at:all")));
+        assertTrue(index.implies(new AllPermission()));
+
+        index = PermissionIndex.compile(permissions(false, "*"));
+        assertFalse(index.implies(new AllPermission()));
+    }
+
+    @Test
+    void testSubclassOverridingImpliesIsNotIndexed() {
+        Permission denyAll = new WildcardPermission("*") {
+            @Override
+            public boolean implies(Permission p) {
+                return false;
+            }
+        };
+        PermissionIndex index = PermissionIndex.compile(Arrays.asList(denyAll));
+        assertFalse(index.implies(new WildcardPermission("foo")));
+    }
+
+    @Test
+    void testDomainPermissions() {
+        PermissionIndex index = PermissionIndex.compile(
+                Arrays.<Permission>asList(new DomainPermission("read,write", "1,2")));
+        assertTrue(index.implies(new WildcardPermission("domain:read:1")));
+        assertTrue(index.implies(new DomainPermission("write", "2")));
+        assertFalse(index.implies(new WildcardPermission("domain:delete:1")));
+    }
+
+    @Test
+    void testBulkChecks() {
+        PermissionIndex index = PermissionIndex.compile(permissions(false, "doc:read:*", "doc:write:1"));
+        List<Permission> checks = permissions(false, "doc:read:1", "doc:write:1", "doc:write:2");
+        assertArrayEquals(new boolean[] {true, true, false}, index.implies(checks));
+        assertFalse(index.impliesAll(checks));
+        assertTrue(index.impliesAll(checks.subList(0, 2)));
+    }
+}
@@ -20,12 +20,20 @@ package org.apache.shiro.authz.permission;
 
 import org.junit.jupiter.api.Test;
 
+import org.apache.shiro.authz.Permission;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class WildcardPermissionResolverTest {
 
+    private static final int CAPACITY = 10;
+    private static final int RESOLVED = 100;
+
     @Test
     void testDefaultIsNonCaseSensitive() {
         WildcardPermissionResolver resolver = new WildcardPermissionResolver();
@@ -66,4 +74,58 @@ public class WildcardPermissionResolverTest {
         assertFalse(resolver.isCaseSensitive(), "Sensitivity should be false");
     }
 
+    @Test
+    void testResolvedPermissionsAreCached() {
+        WildcardPermissionResolver resolver = new WildcardPermissionResolver();
+        Permission first = resolver.resolvePermission("printer:print:lp7200");
+        Permission second = resolver.resolvePermission("printer:print:lp7200");
+        assertSame(first, second);
+        assertEquals(1, resolver.getCacheMissCount());
+        assertEquals(1, resolver.getCacheHitCount());
+        assertEquals(1, resolver.getCacheSize());
+    }
+
+    @Test
+    void testCaseSensitivityChangeInvalidatesCache() {
+        WildcardPermissionResolver resolver = new WildcardPermissionResolver();
+        Permission insensitive = resolver.resolvePermission("Foo:Bar");
+        resolver.setCaseSensitive(true);
+        Permission sensitive = resolver.resolvePermission("Foo:Bar");
+        assertNotSame(insensitive, sensitive);
+        assertEquals("foo:bar", insensitive.toString());
+        assertEquals("Foo:Bar", sensitive.toString());
+        assertEquals(0, resolver.getCacheHitCount());
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        WildcardPermissionResolver resolver = new WildcardPermissionResolver();
+        resolver.setCacheCapacity(CAPACITY);
+        for (int i = 0; i < RESOLVED; i++) {
+            resolver.resolvePermission("document:read:" + i);
+            assertTrue(resolver.getCacheSize() <= CAPACITY, "Cache exceeded its capacity");
+        }
+        assertEquals(RESOLVED, resolver.getCacheMissCount());
+        // recently resolved permissions are retained:
+        Permission recent = resolver.resolvePermission("document:read:99");
+        assertSame(recent, resolver.resolvePermission("document:read:99"));
+    }
+
+    @Test
+    void testCacheCanBeDisabled() {
+        WildcardPermissionResolver resolver = new WildcardPermissionResolver();
+        resolver.setCacheCapacity(0);
+        assertNotSame(resolver.resolvePermission("foo:bar"), resolver.resolvePermission("foo:bar"));
+        assertEquals(0, resolver.getCacheSize());
+        assertEquals(0, resolver.getCacheMissCount());
+        assertThrows(IllegalArgumentException.class, () -> resolver.setCacheCapacity(-1));
+    }
+
+    @Test
+    void testCompiledResolverIsCached() {
+        WildcardPermissionResolver resolver = new CompiledWildcardPermissionResolver();
+        Permission permission = resolver.resolvePermission("foo:bar");
+        assertTrue(permission instanceof CompiledWildcardPermission);
+        assertSame(permission, resolver.resolvePermission("foo:bar"));
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.mgt;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationListener;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.IncorrectCredentialsException;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authc.pam.ModularRealmAuthenticator;
+import org.apache.shiro.realm.AsyncRealm;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+public class AsyncLoginTest {
+
+    private static final long TIMEOUT = 10;
+
+    private ExecutorService executor;
+
+    private DefaultSecurityManager sm;
+
+    private final AtomicInteger successes = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        SimpleAccountRealm realm = new SimpleAccountRealm("sync");
+        realm.addAccount("guest", "guest");
+        sm = new DefaultSecurityManager(realm);
+        ModularRealmAuthenticator authenticator = (ModularRealmAuthenticator) sm.getAuthenticator();
+        authenticator.setAsyncExecutor(executor);
+        authenticator.getAuthenticationListeners().add(new AuthenticationListener() {
+            @Override
+            public void onSuccess(AuthenticationToken token, AuthenticationInfo info) {
+                successes.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(AuthenticationToken token, AuthenticationException ae) {
+                failures.incrementAndGet();
+            }
+
+            @Override
+            public void onLogout(PrincipalCollection principals) {
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void await(CompletionStage<?> stage) throws Exception {
+        stage.toCompletableFuture().get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private Throwable failureOf(CompletionStage<?> stage) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> await(stage));
+        return e.getCause();
+    }
+
+    @Test
+    void testLoginAsyncWithSynchronousRealm() throws Exception {
+        Subject subject = new Subject.Builder(sm).buildSubject();
+        await(subject.loginAsync(new UsernamePasswordToken("guest", "guest")));
+        assertTrue(subject.isAuthenticated());
+        assertEquals("guest", subject.getPrincipal());
+        assertEquals(1, successes.get());
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    void testLoginAsyncFailureIsNotWrapped() {
+        Subject subject = new Subject.Builder(sm).buildSubject();
+        Throwable cause = failureOf(subject.loginAsync(new UsernamePasswordToken("guest", "wrong")));
+        assertTrue(cause instanceof IncorrectCredentialsException, String.valueOf(cause));
+        assertFalse(subject.isAuthenticated());
+        assertEquals(0, successes.get());
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    void testLoginAsyncFailsWhenExecutorIsSaturated() {
+        ((ModularRealmAuthenticator) sm.getAuthenticator()).setAsyncExecutor(task -> {
+            throw new RejectedExecutionException("saturated");
+        });
+        Subject subject = new Subject.Builder(sm).buildSubject();
+        Throwable cause = failureOf(subject.loginAsync(new UsernamePasswordToken("guest", "guest")));
+        assertTrue(cause instanceof AuthenticationException, String.valueOf(cause));
+        assertTrue(cause.getCause() instanceof RejectedExecutionException, String.valueOf(cause.getCause()));
+        assertFalse(subject.isAuthenticated());
+        assertEquals(0, successes.get());
+    }
+
+    @Test
+    void testRememberMeHooksAreCalled() throws Exception {
+        AtomicInteger loginSuccesses = new AtomicInteger();
+        AtomicInteger loginFailures = new AtomicInteger();
+        DefaultSecurityManager manager = new DefaultSecurityManager(sm.getRealms().iterator().next()) {
+            @Override
+            protected void onSuccessfulLogin(AuthenticationToken token, AuthenticationInfo info, Subject subject) {
+                loginSuccesses.incrementAndGet();
+            }
+
+            @Override
+            protected void onFailedLogin(AuthenticationToken token, AuthenticationException ae, Subject subject) {
+                loginFailures.incrementAndGet();
+            }
+        };
+        Subject subject = new Subject.Builder(manager).buildSubject();
+        await(subject.loginAsync(new UsernamePasswordToken("guest", "guest")));
+        failureOf(subject.loginAsync(new UsernamePasswordToken("guest", "wrong")));
+        assertEquals(1, loginSuccesses.get());
+        assertEquals(1, loginFailures.get());
+    }
+
+    @Test
+    void testAsyncRealms() throws Exception {
+        TestAsyncRealm async = new TestAsyncRealm();
+        sm.setRealm(async);
+        Subject subject = new Subject.Builder(sm).buildSubject();
+        await(subject.loginAsync(new UsernamePasswordToken("async", "async")));
+        assertEquals("async", subject.getPrincipal());
+        assertEquals(1, async.calls.get());
+
+        // mixed realms, the default AtLeastOneSuccessfulStrategy aggregates both results:
+        SimpleAccountRealm sync = new SimpleAccountRealm("sync");
+        sync.addAccount("async", "async");
+        sm.setRealms(Arrays.asList(async, sync));
+        subject = new Subject.Builder(sm).buildSubject();
+        await(subject.loginAsync(new UsernamePasswordToken("async", "async")));
+        assertEquals(2, subject.getPrincipals().fromRealm("async").size()
+                + subject.getPrincipals().fromRealm("sync").size());
+        assertEquals(2, async.calls.get());
+
+        Throwable cause = failureOf(new Subject.Builder(sm).buildSubject()
+                .loginAsync(new UsernamePasswordToken("unknown", "unknown")));
+        assertTrue(cause instanceof AuthenticationException, String.valueOf(cause));
+    }
+
+    private static final class TestAsyncRealm extends SimpleAccountRealm implements AsyncRealm {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private TestAsyncRealm() {
+            super("async");
+            addAccount("async", "async");
+        }
+
+        @Override
+        public CompletionStage<AuthenticationInfo> getAuthenticationInfoAsync(AuthenticationToken token) {
+            calls.incrementAndGet();
+            CompletableFuture<AuthenticationInfo> future = new CompletableFuture<AuthenticationInfo>();
+            new Thread(() -> {
+                try {
+                    AuthenticationInfo info = getAuthenticationInfo(token);
+                    future.complete(info != null ? new SimpleAuthenticationInfo(info.getPrincipals(),
+                            info.getCredentials()) : null);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }).start();
+            return future;
+        }
+    }
+}
@@ -36,9 +36,11 @@ import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.authz.UnauthorizedException;
+import org.apache.shiro.authz.permission.PermissionIndex;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
 import org.apache.shiro.authz.permission.WildcardPermission;
 import org.apache.shiro.authz.permission.WildcardPermissionResolver;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.junit.jupiter.api.AfterEach;
@@ -49,6 +51,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.fail;
 
 
@@ -257,6 +261,99 @@ public class AuthorizingRealmTest {
         assertEquals(4, permissions.size());
     }
 
+    @Test
+    void testPermissionIndexReusedForCachedAuthorizationInfo() {
+        PrincipalCollection pCollection = new SimplePrincipalCollection(new UsernamePrincipal("indexed"), "indexed");
+        final List<String> granted = new ArrayList<String>();
+        granted.add("doc:read:*");
+        granted.add("doc:write:1,2");
+        AuthorizingRealm realm = new AllowAllRealm() {
+            @Override
+            protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+                SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+                info.addStringPermissions(granted);
+                return info;
+            }
+        };
+        realm.setCacheManager(new MemoryConstrainedCacheManager());
+
+        assertTrue(realm.isPermitted(pCollection, "doc:read:42"));
+        assertTrue(realm.isPermitted(pCollection, "doc:write:2"));
+        assertFalse(realm.isPermitted(pCollection, "doc:write:3"));
+        assertArrayEquals(new boolean[] {true, false}, realm.isPermitted(pCollection, "doc:write:1", "doc:delete"));
+        assertTrue(realm.isPermittedAll(pCollection, "doc:read:1", "doc:write:1"));
+
+        AuthorizationInfo info = realm.getAuthorizationInfo(pCollection);
+        PermissionIndex index = realm.getPermissionIndex(info);
+        assertEquals(2, index.size());
+        assertSame(index, realm.getPermissionIndex(info));
+
+        // mutating the cached info in place must not serve stale results:
+        ((SimpleAuthorizationInfo) info).addStringPermission("doc:delete");
+        assertTrue(realm.isPermitted(pCollection, "doc:delete"));
+        // ... and neither must replacing a collection with one of the same size:
+        Set<String> replaced = new HashSet<String>(info.getStringPermissions());
+        replaced.remove("doc:delete");
+        replaced.add("doc:archive");
+        ((SimpleAuthorizationInfo) info).setStringPermissions(replaced);
+        assertFalse(realm.isPermitted(pCollection, "doc:delete"));
+        assertTrue(realm.isPermitted(pCollection, "doc:archive"));
+
+        granted.clear();
+        realm.clearCachedAuthorizationInfo(pCollection);
+        assertFalse(realm.isPermitted(pCollection, "doc:read:42"));
+        assertNotSame(index, realm.getPermissionIndex(realm.getAuthorizationInfo(pCollection)));
+
+        realm.setPermissionIndexingEnabled(false);
+        granted.add("doc:*");
+        realm.clearCachedAuthorizationInfo(pCollection);
+        assertTrue(realm.isPermitted(pCollection, "doc:read:42"));
+    }
+
+    @Test
+    void testBatchedChecksCompilePermissionsOnce() {
+        final int[] compilations = new int[1];
+        final int[] singleChecks = new int[1];
+        AuthorizingRealm counting = new AllowAllRealm() {
+            @Override
+            protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+                SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+                info.addStringPermission("doc:read:1,3,5");
+                info.addStringPermission("doc:write:*");
+                return info;
+            }
+
+            @Override
+            protected Collection<Permission> getPermissions(AuthorizationInfo info) {
+                compilations[0]++;
+                return super.getPermissions(info);
+            }
+        };
+        AuthorizingRealm overriding = new AllowAllRealm() {
+            @Override
+            protected boolean isPermitted(Permission permission, AuthorizationInfo info) {
+                singleChecks[0]++;
+                return true;
+            }
+
+            @Override
+            protected boolean isPermissionSnapshotSupported() {
+                return false;
+            }
+        };
+        PrincipalCollection pc = new SimplePrincipalCollection("user", counting.getName());
+        String[] permissions = {"doc:read:1", "doc:read:2", "doc:read:3", "doc:write:2", "doc:delete:1"};
+
+        assertArrayEquals(new boolean[] {true, false, true, true, false}, counting.isPermitted(pc, permissions));
+        assertEquals(1, compilations[0]);
+        assertFalse(counting.isPermittedAll(pc, permissions));
+        assertEquals(2, compilations[0]);
+
+        // subclasses customizing single permission checks without snapshots are called for every permission:
+        assertTrue(overriding.isPermittedAll(pc, permissions));
+        assertEquals(permissions.length, singleChecks[0]);
+    }
+
     private void assertArrayEquals(boolean[] expected, boolean[] actual) {
         if (expected.length != actual.length) {
             fail("Expected array of length [" + expected.length + "] but received array of length [" + actual.length + "]");
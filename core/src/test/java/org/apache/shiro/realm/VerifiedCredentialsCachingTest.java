@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.IncorrectCredentialsException;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authc.credential.SimpleCredentialsMatcher;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the verified credentials caching of {@link AuthenticatingRealm}.
+ *
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class VerifiedCredentialsCachingTest {
+
+    private final Map<String, String> passwords = new HashMap<String, String>();
+
+    private final AtomicInteger matches = new AtomicInteger();
+
+    private AuthenticatingRealm realm;
+
+    @BeforeEach
+    void setup() {
+        passwords.put("jsmith", "secret");
+        passwords.put("bjones", "hunter2");
+        realm = new AuthenticatingRealm() {
+            @Override
+            protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+                String username = (String) token.getPrincipal();
+                String password = passwords.get(username);
+                return password != null ? new SimpleAuthenticationInfo(username, password, getName()) : null;
+            }
+        };
+        realm.setCredentialsMatcher(new SimpleCredentialsMatcher() {
+            @Override
+            public boolean doCredentialsMatch(AuthenticationToken token, AuthenticationInfo info) {
+                matches.incrementAndGet();
+                return super.doCredentialsMatch(token, info);
+            }
+        });
+        realm.setVerifiedCredentialsCachingEnabled(true);
+    }
+
+    @Test
+    void testSuccessfulMatchIsCached() {
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertEquals(1, matches.get());
+
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("bjones", "hunter2")));
+        assertEquals(2, matches.get());
+    }
+
+    @Test
+    void testFailedMatchIsCached() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IncorrectCredentialsException.class,
+                    () -> realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "guess")));
+        }
+        assertEquals(1, matches.get());
+
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertEquals(2, matches.get());
+    }
+
+    @Test
+    void testNegativeCachingCanBeDisabled() {
+        realm.setFailedCredentialsCacheTtl(0);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IncorrectCredentialsException.class,
+                    () -> realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "guess")));
+        }
+        assertEquals(3, matches.get());
+    }
+
+    @Test
+    void testChangedStoredCredentialsAreVerifiedAgain() {
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        passwords.put("jsmith", "changed");
+        assertThrows(IncorrectCredentialsException.class,
+                () -> realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertEquals(2, matches.get());
+    }
+
+    @Test
+    void testClearCachedAuthenticationInfoDiscardsOutcomes() {
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("bjones", "hunter2")));
+        realm.clearCachedAuthenticationInfo(new SimplePrincipalCollection("jsmith", realm.getName()));
+
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("bjones", "hunter2")));
+        assertEquals(3, matches.get());
+    }
+
+    @Test
+    void testOutcomesExpire() throws InterruptedException {
+        realm.setVerifiedCredentialsCacheTtl(1);
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        Thread.sleep(5);
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertEquals(2, matches.get());
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        realm.setVerifiedCredentialsCacheMaxSize(2);
+        for (int i = 0; i < 10; i++) {
+            String guess = "guess" + i;
+            assertThrows(IncorrectCredentialsException.class,
+                    () -> realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", guess)));
+        }
+        assertEquals(2, realm.getVerifiedCredentialsCacheMaxSize());
+        assertThrows(IllegalArgumentException.class, () -> realm.setVerifiedCredentialsCacheMaxSize(0));
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        realm.setVerifiedCredentialsCachingEnabled(false);
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("jsmith", "secret")));
+        assertEquals(2, matches.get());
+    }
+}
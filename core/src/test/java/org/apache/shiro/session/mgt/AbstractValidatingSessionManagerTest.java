@@ -23,6 +23,7 @@ import org.apache.shiro.session.Session;
 import org.apache.shiro.session.SessionListener;
 import org.apache.shiro.session.SessionListenerAdapter;
 import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.eis.MemorySessionDAO;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
@@ -30,15 +31,23 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Unit tests for the {@link org.apache.shiro.session.mgt.AbstractValidatingSessionManager} class.
  */
+@SuppressWarnings("checkstyle:MagicNumber")
 public class AbstractValidatingSessionManagerTest {
 
+    private static final long EXPIRING_TIMEOUT = 1000;
+
     /**
      * Tests that both SessionListeners are called and that invalid sessions are deleted by default.
      * Verifies <a href="https://issues.apache.org/jira/browse/SHIRO-199">SHIRO-199</a>.
@@ -135,4 +144,96 @@ public class AbstractValidatingSessionManagerTest {
 
         assertEquals(0, sessionManager.getActiveSessions().size());
     }
+
+    @Test
+    void testIncrementalValidation() throws Exception {
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionValidationSchedulerEnabled(false);
+        sessionManager.setIncrementalSessionValidationEnabled(true);
+        try {
+            Session expiring = sessionManager.start(null);
+            sessionManager.start(null);
+            sessionManager.start(null);
+            expiring.setTimeout(EXPIRING_TIMEOUT);
+            // a lookup brings the tracked deadline forward:
+            expiring.getTimeout();
+            assertEquals(3, sessionManager.getTrackedSessionCount());
+
+            // the first run validates all sessions:
+            sessionManager.validateSessions();
+            SessionValidationSummary summary = sessionManager.getLastSessionValidationSummary();
+            assertFalse(summary.isIncremental());
+            assertEquals(3, summary.getScannedCount());
+            assertEquals(0, summary.getInvalidCount());
+
+            sessionManager.validateSessions();
+            summary = sessionManager.getLastSessionValidationSummary();
+            assertTrue(summary.isIncremental());
+            assertEquals(0, summary.getScannedCount());
+
+            Thread.sleep(EXPIRING_TIMEOUT * 2);
+            sessionManager.validateSessions();
+            summary = sessionManager.getLastSessionValidationSummary();
+            assertTrue(summary.isIncremental());
+            assertEquals(1, summary.getScannedCount());
+            assertEquals(1, summary.getExpiredCount());
+            assertEquals(2, sessionManager.getActiveSessions().size());
+            assertEquals(2, sessionManager.getTrackedSessionCount());
+        } finally {
+            sessionManager.destroy();
+        }
+    }
+
+    @Test
+    void testParallelValidation() {
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionValidationSchedulerEnabled(false);
+        sessionManager.setSessionValidationThreads(4);
+        try {
+            for (int i = 0; i < 10; i++) {
+                Session session = sessionManager.start(null);
+                if (i % 2 == 0) {
+                    session.stop();
+                }
+            }
+            sessionManager.validateSessions();
+            SessionValidationSummary summary = sessionManager.getLastSessionValidationSummary();
+            assertEquals(5, summary.getScannedCount());
+            assertEquals(0, summary.getInvalidCount());
+            assertThrows(IllegalArgumentException.class, () -> sessionManager.setSessionValidationThreads(0));
+        } finally {
+            sessionManager.destroy();
+        }
+    }
+
+    @Test
+    void testBatchedValidation() {
+        List<Integer> batchSizes = new ArrayList<Integer>();
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionDAO(new MemorySessionDAO() {
+            @Override
+            public void forEachActiveSessionBatch(int batchSize, Consumer<? super List<Session>> consumer) {
+                super.forEachActiveSessionBatch(batchSize, batch -> {
+                    batchSizes.add(batch.size());
+                    consumer.accept(batch);
+                });
+            }
+        });
+        sessionManager.setSessionValidationSchedulerEnabled(false);
+        sessionManager.setSessionValidationBatchSize(4);
+        try {
+            for (int i = 0; i < 10; i++) {
+                Session session = sessionManager.start(null);
+                if (i % 2 == 0) {
+                    session.stop();
+                }
+            }
+            sessionManager.validateSessions();
+            assertEquals(Arrays.asList(4, 1), batchSizes);
+            assertEquals(5, sessionManager.getLastSessionValidationSummary().getScannedCount());
+            assertThrows(IllegalArgumentException.class, () -> sessionManager.setSessionValidationBatchSize(0));
+        } finally {
+            sessionManager.destroy();
+        }
+    }
 }
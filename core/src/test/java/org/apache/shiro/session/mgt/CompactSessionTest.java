@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.apache.shiro.session.ExpiredSessionException;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.StoppedSessionException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class CompactSessionTest {
+
+    private static final int ITERATIONS = 2000;
+
+    private static final int SESSIONS = 1000;
+
+    @SuppressWarnings("unchecked")
+    private static <T> T serializeAndDeserialize(T object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    private static void assertSameState(SimpleSession expected, SimpleSession actual) {
+        assertEquals(expected.getStartTimestamp(), actual.getStartTimestamp());
+        assertEquals(expected.getStopTimestamp(), actual.getStopTimestamp());
+        assertEquals(expected.getLastAccessTime(), actual.getLastAccessTime());
+        assertEquals(expected.getTimeout(), actual.getTimeout());
+        assertEquals(expected.isExpired(), actual.isExpired());
+        assertEquals(expected.getHost(), actual.getHost());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        assertEquals(expected.isValid(), actual.isValid());
+    }
+
+    @Test
+    void testBehavesLikeSimpleSession() {
+        Random random = new Random(42);
+        SimpleSession simple = new SimpleSession("localhost");
+        CompactSession compact = new CompactSession("localhost");
+        compact.setStartTimestamp(simple.getStartTimestamp());
+        compact.setLastAccessTime(simple.getLastAccessTime());
+        simple.markClean();
+        compact.markClean();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            Object key = "key" + random.nextInt(12);
+            switch (random.nextInt(7)) {
+                case 0:
+                    Object value = random.nextBoolean() ? i : null;
+                    simple.setAttribute(key, value);
+                    compact.setAttribute(key, value);
+                    break;
+                case 1:
+                    assertEquals(simple.removeAttribute(key), compact.removeAttribute(key));
+                    break;
+                case 2:
+                    Date date = random.nextBoolean() ? new Date(random.nextInt(1000)) : null;
+                    simple.setLastAccessTime(date);
+                    compact.setLastAccessTime(date);
+                    break;
+                case 3:
+                    Date stop = random.nextInt(4) == 0 ? new Date(random.nextInt(1000)) : null;
+                    simple.setStopTimestamp(stop);
+                    compact.setStopTimestamp(stop);
+                    break;
+                case 4:
+                    long timeout = random.nextInt(3) * 1000L;
+                    simple.setTimeout(timeout);
+                    compact.setTimeout(timeout);
+                    break;
+                case 5:
+                    assertEquals(simple.getDelta().toString(), compact.getDelta().toString());
+                    simple.markClean();
+                    compact.markClean();
+                    break;
+                default:
+                    assertEquals(simple.getAttribute(key), compact.getAttribute(key));
+                    break;
+            }
+            assertSameState(simple, compact);
+            assertEquals(simple.isDirty(), compact.isDirty());
+            assertEquals(simple.getDelta().getChangedFields(), compact.getDelta().getChangedFields());
+        }
+    }
+
+    @Test
+    void testTimestamps() {
+        CompactSession session = new CompactSession();
+        assertFalse(session.isDirty());
+        Date start = session.getStartTimestamp();
+        assertEquals(start, session.getLastAccessTime());
+        assertNotSame(start, session.getStartTimestamp());
+        assertNull(session.getStopTimestamp());
+
+        session.touch();
+        assertTrue(session.getDelta().isChanged(SessionDelta.Field.LAST_ACCESS_TIME));
+        session.stop();
+        assertTrue(session.getDelta().isChanged(SessionDelta.Field.STOP_TIMESTAMP));
+        assertFalse(session.isValid());
+        assertThrows(StoppedSessionException.class, session::validate);
+    }
+
+    @Test
+    void testExpiration() {
+        CompactSession session = new CompactSession();
+        session.setTimeout(1000L);
+        session.setLastAccessTime(new Date(System.currentTimeMillis() - 2000L));
+        assertThrows(ExpiredSessionException.class, session::validate);
+        assertTrue(session.isExpired());
+        assertTrue(session.getStopTimestamp() != null);
+
+        session = new CompactSession();
+        session.setTimeout(-1L);
+        session.setLastAccessTime(new Date(0L));
+        session.validate();
+    }
+
+    @Test
+    void testLastAccessTimeMillis() {
+        CompactSession compact = new CompactSession();
+        SimpleSession simple = new SimpleSession();
+        Date time = new Date(1000L);
+        compact.setLastAccessTime(time);
+        simple.setLastAccessTime(time);
+        assertEquals(1000L, SimpleSession.lastAccessTimeMillis(compact));
+        assertEquals(1000L, SimpleSession.lastAccessTimeMillis(simple));
+
+        compact.setLastAccessTime(null);
+        simple.setLastAccessTime(null);
+        assertEquals(SimpleSession.NO_TIME, SimpleSession.lastAccessTimeMillis(compact));
+        assertEquals(SimpleSession.NO_TIME, SimpleSession.lastAccessTimeMillis(simple));
+    }
+
+    @Test
+    void testSerialization() throws Exception {
+        CompactSession session = new CompactSession("localhost");
+        session.setId("id");
+        session.setAttribute("foo", "bar");
+        session.stop();
+        CompactSession deserialized = serializeAndDeserialize(session);
+        assertSameState(session, deserialized);
+        assertFalse(deserialized.isDirty());
+        assertTrue(deserialized.getAttributes() instanceof CompactAttributeMap);
+    }
+
+    @Test
+    void testSessionFactory() {
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionFactory(new CompactSessionFactory());
+        try {
+            DefaultSessionContext context = new DefaultSessionContext();
+            context.setHost("localhost");
+            Session session = sessionManager.start(context);
+            session.setAttribute("foo", "bar");
+            session.touch();
+            Session stored = sessionManager.getSessionDAO().readSession(session.getId());
+            assertTrue(stored instanceof CompactSession);
+            assertEquals("localhost", stored.getHost());
+            assertEquals("bar", session.getAttribute("foo"));
+        } finally {
+            sessionManager.destroy();
+        }
+    }
+
+    @Test
+    void testFootprintIsSmallerThanSimpleSession() {
+        assumeTrue(isAllocationCounterAvailable());
+        String[] keys = {"user", "locale", "csrfToken", "savedRequest"};
+        SimpleSession[] sessions = new SimpleSession[SESSIONS];
+
+        // what a session allocates over its lifetime is an upper bound of what it retains:
+        long simple = allocatedBytes(() -> {
+            for (int i = 0; i < SESSIONS; i++) {
+                sessions[i] = populate(new SimpleSession(), keys);
+            }
+        });
+        long compact = allocatedBytes(() -> {
+            for (int i = 0; i < SESSIONS; i++) {
+                sessions[i] = populate(new CompactSession(), keys);
+            }
+        });
+        long savedPerSession = (simple - compact) / SESSIONS;
+        assertTrue(savedPerSession >= 100, "saved " + savedPerSession + " bytes per session");
+    }
+
+    @Test
+    void testTouchDoesNotAllocate() {
+        assumeTrue(isAllocationCounterAvailable());
+        SimpleSession simple = new SimpleSession();
+        CompactSession compact = new CompactSession();
+        long simpleTouches = allocatedBytes(() -> touch(simple));
+        long compactTouches = allocatedBytes(() -> touch(compact));
+        assertTrue(simpleTouches >= 16L * SESSIONS, "touches allocated " + simpleTouches + " bytes");
+        assertTrue(compactTouches < SESSIONS, "touches allocated " + compactTouches + " bytes");
+    }
+
+    private static SimpleSession populate(SimpleSession session, String[] keys) {
+        for (String key : keys) {
+            session.setAttribute(key, Boolean.TRUE);
+        }
+        return session;
+    }
+
+    private static void touch(SimpleSession session) {
+        for (int i = 0; i < SESSIONS; i++) {
+            session.touch();
+        }
+    }
+
+    private static boolean isAllocationCounterAvailable() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+    }
+
+    private static long allocatedBytes(Runnable task) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // warm up, so that class loading and compilation are not counted:
+        task.run();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        task.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    @Test
+    void testCompactAttributeMapBehavesLikeMap() throws Exception {
+        Random random = new Random(7);
+        Map<Object, Object> expected = new LinkedHashMap<Object, Object>();
+        CompactAttributeMap actual = new CompactAttributeMap();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int size = random.nextInt(3) == 0 ? CompactAttributeMap.MAX_ARRAY_SIZE * 2 : CompactAttributeMap.MAX_ARRAY_SIZE;
+            Object key = random.nextInt(10) == 0 ? null : random.nextInt(size);
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    assertEquals(expected.put(key, i), actual.put(key, i));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), actual.remove(key));
+                    break;
+                case 3:
+                    removeViaIterator(expected, key);
+                    removeViaIterator(actual, key);
+                    break;
+                case 4:
+                    if (random.nextInt(20) == 0) {
+                        expected.clear();
+                        actual.clear();
+                    }
+                    break;
+                default:
+                    assertEquals(expected.containsKey(key), actual.containsKey(key));
+                    assertEquals(expected.get(key), actual.get(key));
+                    break;
+            }
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected, actual);
+            assertEquals(expected.hashCode(), actual.hashCode());
+        }
+        assertEquals(new HashMap<Object, Object>(actual), serializeAndDeserialize(actual));
+    }
+
+    @Test
+    void testCompactAttributeMapKeepsInsertionOrder() {
+        CompactAttributeMap map = new CompactAttributeMap();
+        List<Object> keys = new ArrayList<Object>();
+        for (int i = CompactAttributeMap.MAX_ARRAY_SIZE; i > 0; i--) {
+            map.put(i, i);
+            keys.add(i);
+        }
+        map.remove(3);
+        keys.remove((Object) 3);
+        assertEquals(keys, new ArrayList<Object>(map.keySet()));
+    }
+
+    private static void removeViaIterator(Map<Object, Object> map, Object key) {
+        for (Iterator<Map.Entry<Object, Object>> it = map.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Object, Object> entry = it.next();
+            if (entry.getKey() == null ? key == null : entry.getKey().equals(key)) {
+                it.remove();
+            }
+        }
+    }
+}
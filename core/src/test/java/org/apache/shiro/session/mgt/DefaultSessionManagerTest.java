@@ -23,6 +23,7 @@ import org.apache.shiro.session.InvalidSessionException;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.SessionListener;
 import org.apache.shiro.session.SessionListenerAdapter;
+import org.apache.shiro.session.mgt.eis.AbstractSessionDAO;
 import org.apache.shiro.session.mgt.eis.SessionDAO;
 import org.apache.shiro.util.ThreadContext;
 import org.easymock.EasyMock;
@@ -32,7 +33,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Isolated;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.eq;
@@ -42,7 +52,9 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -157,6 +169,22 @@ public class DefaultSessionManagerTest {
         assertTrue(expired[0]);
     }
 
+    @Test
+    void testActiveSessionBatchesAreFetchedFromSessionDAO() {
+        Session first = sm.start(null);
+        Session second = sm.start(null);
+        Session third = sm.start(null);
+        List<Integer> batchSizes = new ArrayList<Integer>();
+        List<Serializable> batched = new ArrayList<Serializable>();
+        sm.forEachActiveSessionBatch(2, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(s -> batched.add(s.getId()));
+        });
+        assertEquals(2, batchSizes.size());
+        assertEquals(3, batched.size());
+        assertTrue(batched.contains(first.getId()) && batched.contains(second.getId()) && batched.contains(third.getId()));
+    }
+
     @SuppressWarnings("checkstyle:MagicNumber")
     @Test
     void testSessionDeleteOnExpiration() {
@@ -236,6 +264,246 @@ public class DefaultSessionManagerTest {
         }
     }
 
+    @Test
+    void testCoalescedTouchesAreWrittenInBatches() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setTouchCoalescingEnabled(true);
+        Session session = sm.start(null);
+        DefaultSessionKey key = new DefaultSessionKey(session.getId());
+        int updates = sessionDAO.updates.get();
+
+        sm.touch(key);
+        Date lastAccessTime = sm.getLastAccessTime(key);
+        sm.touch(key);
+        sm.touch(key);
+        assertEquals(updates, sessionDAO.updates.get(), "touches should not have been written");
+        assertEquals(1, sm.getPendingTouchCount());
+        // the pending touch is visible although the session store still holds the old last access time:
+        assertFalse(sm.getLastAccessTime(key).before(lastAccessTime));
+
+        sm.flushTouches();
+        assertEquals(updates + 1, sessionDAO.updates.get());
+        assertEquals(0, sm.getPendingTouchCount());
+        assertFalse(sessionDAO.readSession(session.getId()).getLastAccessTime().before(lastAccessTime));
+    }
+
+    @Test
+    void testCoalescedTouchIsWrittenWithAttributeChange() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setTouchCoalescingEnabled(true);
+        Session session = sm.start(null);
+        DefaultSessionKey key = new DefaultSessionKey(session.getId());
+        int updates = sessionDAO.updates.get();
+
+        sm.touch(key);
+        Date lastAccessTime = sm.getLastAccessTime(key);
+        sm.setAttribute(key, "foo", "bar");
+        assertEquals(updates + 1, sessionDAO.updates.get());
+        assertEquals(0, sm.getPendingTouchCount());
+        Session stored = sessionDAO.readSession(session.getId());
+        assertEquals("bar", stored.getAttribute("foo"));
+        assertFalse(stored.getLastAccessTime().before(lastAccessTime));
+
+        sm.touch(key);
+        sm.stop(key);
+        assertEquals(0, sm.getPendingTouchCount());
+    }
+
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    void testTouchFlushThreshold() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setTouchCoalescingEnabled(true);
+        sm.setTouchFlushThreshold(2);
+        DefaultSessionKey first = new DefaultSessionKey(sm.start(null).getId());
+        DefaultSessionKey second = new DefaultSessionKey(sm.start(null).getId());
+        int updates = sessionDAO.updates.get();
+
+        sm.touch(first);
+        sm.touch(second);
+        // the threshold triggers an asynchronous flush:
+        for (int i = 0; i < 100 && sessionDAO.updates.get() < updates + 2; i++) {
+            sleep(10);
+        }
+        assertEquals(updates + 2, sessionDAO.updates.get());
+    }
+
+    @Test
+    void testTouchAfterDestroyWritesThrough() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setTouchCoalescingEnabled(true);
+        DefaultSessionKey key = new DefaultSessionKey(sm.start(null).getId());
+        sm.destroy();
+        int updates = sessionDAO.updates.get();
+
+        sm.touch(key);
+        assertEquals(updates + 1, sessionDAO.updates.get());
+        assertEquals(0, sm.getPendingTouchCount());
+    }
+
+    @Test
+    void testTouchWithoutCoalescingWritesThrough() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        DefaultSessionKey key = new DefaultSessionKey(sm.start(null).getId());
+        int updates = sessionDAO.updates.get();
+        sm.touch(key);
+        assertEquals(updates + 1, sessionDAO.updates.get());
+        assertEquals(0, sm.getPendingTouchCount());
+    }
+
+    @Test
+    void testUnitOfWorkReadsAndWritesOnce() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setUnitOfWorkEnabled(true);
+        Serializable sessionId = sm.start(null).getId();
+        DefaultSessionKey key = new DefaultSessionKey(sessionId);
+        int reads = sessionDAO.reads.get();
+        int updates = sessionDAO.updates.get();
+
+        try (SessionUnitOfWork unitOfWork = sm.beginUnitOfWork()) {
+            assertTrue(unitOfWork.isActive());
+            assertFalse(sm.beginUnitOfWork().isActive(), "units of work must not nest");
+            sm.touch(key);
+            sm.setAttribute(key, "foo", "bar");
+            sm.setAttribute(key, "baz", "qux");
+            sm.removeAttribute(key, "baz");
+            assertEquals("bar", sm.getAttribute(key, "foo"));
+            sm.getLastAccessTime(key);
+            sm.checkValid(key);
+            assertEquals(1, unitOfWork.size());
+            assertEquals(reads + 1, sessionDAO.reads.get());
+            assertEquals(updates, sessionDAO.updates.get());
+            assertNull(sessionDAO.readSession(sessionId).getAttribute("foo"));
+        }
+        assertEquals(updates + 1, sessionDAO.updates.get());
+        Session stored = sessionDAO.readSession(sessionId);
+        assertEquals("bar", stored.getAttribute("foo"));
+        assertNull(stored.getAttribute("baz"));
+
+        // the unit of work has ended, every call reads the session store again:
+        reads = sessionDAO.reads.get();
+        sm.getAttribute(key, "foo");
+        sm.getAttribute(key, "foo");
+        assertEquals(reads + 2, sessionDAO.reads.get());
+    }
+
+    @Test
+    void testUnitOfWorkWritesTouchOnce() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setUnitOfWorkEnabled(true);
+        DefaultSessionKey key = new DefaultSessionKey(sm.start(null).getId());
+        int updates = sessionDAO.updates.get();
+        Date lastAccessTime;
+        try (SessionUnitOfWork unitOfWork = sm.beginUnitOfWork()) {
+            sm.touch(key);
+            sm.touch(key);
+            lastAccessTime = sm.getLastAccessTime(key);
+        }
+        assertEquals(updates + 1, sessionDAO.updates.get());
+        assertEquals(lastAccessTime, sessionDAO.readSession(key.getSessionId()).getLastAccessTime());
+    }
+
+    @Test
+    void testUnitOfWorkDisabledByDefault() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        DefaultSessionKey key = new DefaultSessionKey(sm.start(null).getId());
+        int updates = sessionDAO.updates.get();
+        try (SessionUnitOfWork unitOfWork = sm.beginUnitOfWork()) {
+            assertFalse(unitOfWork.isActive());
+            sm.setAttribute(key, "foo", "bar");
+            assertEquals(updates + 1, sessionDAO.updates.get());
+        }
+        assertEquals(updates + 1, sessionDAO.updates.get());
+    }
+
+    @Test
+    void testStopDuringUnitOfWorkWritesImmediately() {
+        CopyingSessionDAO sessionDAO = new CopyingSessionDAO();
+        sm.setSessionDAO(sessionDAO);
+        sm.setUnitOfWorkEnabled(true);
+        DefaultSessionKey key = new DefaultSessionKey(sm.start(null).getId());
+        int updates = sessionDAO.updates.get();
+        try (SessionUnitOfWork unitOfWork = sm.beginUnitOfWork()) {
+            sm.setAttribute(key, "foo", "bar");
+            sm.stop(key);
+            assertEquals(updates + 1, sessionDAO.updates.get());
+            assertEquals(0, unitOfWork.size());
+            assertFalse(sm.isValid(key));
+        }
+        assertEquals(updates + 1, sessionDAO.updates.get());
+    }
+
+    /**
+     * Stores and returns copies of sessions, like a remote session store would, and counts updates.
+     */
+    private static final class CopyingSessionDAO extends AbstractSessionDAO {
+
+        private final Map<Serializable, Session> sessions = new ConcurrentHashMap<Serializable, Session>();
+
+        private final AtomicInteger updates = new AtomicInteger();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        protected Serializable doCreate(Session session) {
+            Serializable sessionId = generateSessionId(session);
+            assignSessionId(session, sessionId);
+            sessions.put(sessionId, copy(session));
+            return sessionId;
+        }
+
+        @Override
+        protected Session doReadSession(Serializable sessionId) {
+            reads.incrementAndGet();
+            Session session = sessions.get(sessionId);
+            return session != null ? copy(session) : null;
+        }
+
+        @Override
+        public void update(Session session) {
+            updates.incrementAndGet();
+            sessions.put(session.getId(), copy(session));
+        }
+
+        @Override
+        public void delete(Session session) {
+            sessions.remove(session.getId());
+        }
+
+        @Override
+        public Collection<Session> getActiveSessions() {
+            List<Session> active = new ArrayList<Session>();
+            for (Session session : sessions.values()) {
+                active.add(copy(session));
+            }
+            return active;
+        }
+
+        private static Session copy(Session session) {
+            SimpleSession source = (SimpleSession) session;
+            SimpleSession copy = new SimpleSession();
+            copy.setId(source.getId());
+            copy.setStartTimestamp(source.getStartTimestamp());
+            copy.setStopTimestamp(source.getStopTimestamp());
+            copy.setLastAccessTime(source.getLastAccessTime());
+            copy.setTimeout(source.getTimeout());
+            copy.setExpired(source.isExpired());
+            copy.setHost(source.getHost());
+            if (source.getAttributes() != null) {
+                copy.setAttributes(new LinkedHashMap<Object, Object>(source.getAttributes()));
+            }
+            return copy;
+        }
+    }
+
     public static <T extends Session> T eqSessionTimeout(long timeout) {
         EasyMock.reportMatcher(new SessionTimeoutMatcher(timeout));
         return null;
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class SessionExpiryIndexTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    void testReturnsSessionsOnceDue() {
+        SessionExpiryIndex index = new SessionExpiryIndex(TICK, 0);
+        index.schedule("a", 5_000);
+        index.schedule("b", 90_000);
+        index.schedule("c", 10 * 3_600_000L);
+        assertEquals(3, index.size());
+
+        assertTrue(index.advance(4_999).isEmpty());
+        assertEquals(Collections.singletonList("a"), index.advance(5_000));
+        assertFalse(index.contains("a"));
+        assertTrue(index.advance(89_000).isEmpty());
+        assertEquals(Collections.singletonList("b"), index.advance(120_000));
+        assertTrue(index.advance(10 * 3_600_000L - TICK).isEmpty());
+        assertEquals(Collections.singletonList("c"), index.advance(10 * 3_600_000L));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testScheduleOnlyBringsDeadlinesForward() {
+        SessionExpiryIndex index = new SessionExpiryIndex(TICK, 0);
+        index.schedule("a", 60_000);
+        index.schedule("a", 120_000);
+        index.schedule("b", 60_000);
+        index.schedule("b", 30_000);
+        index.reschedule("c", 60_000);
+        index.reschedule("c", 120_000);
+
+        assertEquals(Collections.singletonList("b"), index.advance(30_000));
+        assertEquals(Collections.singletonList("a"), index.advance(60_000));
+        assertEquals(Collections.singletonList("c"), index.advance(120_000));
+        assertTrue(index.advance(1_000_000).isEmpty());
+    }
+
+    @Test
+    void testRemoveAndPastDeadlines() {
+        SessionExpiryIndex index = new SessionExpiryIndex(TICK, 100_000);
+        index.schedule("removed", 200_000);
+        index.schedule("past", 50_000);
+        index.remove("removed");
+        assertEquals(Collections.singletonList("past"), index.advance(101_000));
+        assertTrue(index.advance(300_000).isEmpty());
+    }
+
+    @Test
+    void testDeadlinesBeyondOutermostWheel() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1, 0);
+        long far = 1L << 40;
+        index.schedule("far", far);
+        assertTrue(index.advance(1L << 30).isEmpty());
+        index = new SessionExpiryIndex(TICK, 0);
+        index.schedule("far", Long.MAX_VALUE);
+        assertTrue(index.advance(1000L * 3_600_000L).isEmpty());
+        assertTrue(index.contains("far"));
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        Random random = new Random(42);
+        SessionExpiryIndex index = new SessionExpiryIndex(TICK, 0);
+        Map<Serializable, Long> expected = new HashMap<Serializable, Long>();
+        long now = 0;
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 50; i++) {
+                Integer id = random.nextInt(2_000);
+                long deadline = now + random.nextInt(5 * 3_600_000);
+                index.reschedule(id, deadline);
+                expected.put(id, deadline);
+            }
+            now += random.nextInt(600_000);
+            List<Serializable> due = new ArrayList<Serializable>();
+            for (Map.Entry<Serializable, Long> entry : expected.entrySet()) {
+                if (entry.getValue() / TICK <= now / TICK) {
+                    due.add(entry.getKey());
+                }
+            }
+            expected.keySet().removeAll(due);
+            List<Serializable> actual = index.advance(now);
+            assertEquals(new HashSet<Serializable>(due), new HashSet<Serializable>(actual));
+            assertEquals(due.size(), actual.size());
+            assertEquals(expected.size(), index.size());
+        }
+    }
+
+    @Test
+    void testInvalidTick() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionExpiryIndex(0, 0));
+    }
+}
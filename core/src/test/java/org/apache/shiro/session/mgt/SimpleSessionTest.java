@@ -25,9 +25,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SimpleSessionTest {
@@ -60,6 +65,103 @@ public class SimpleSessionTest {
         assertTrue(serializeAndDeserialize(session).isExpired());
     }
 
+    @Test
+    void testNewSessionIsClean() {
+        SimpleSession session = new SimpleSession("localhost");
+        assertFalse(session.isDirty());
+        assertTrue(session.getDelta().isEmpty());
+    }
+
+    @Test
+    void testTracksChangedFields() {
+        SimpleSession session = new SimpleSession();
+        session.setTimeout(session.getTimeout());
+        session.setHost(null);
+        session.removeAttribute("missing");
+        assertFalse(session.isDirty());
+
+        session.touch();
+        session.setTimeout(1L);
+        assertTrue(session.isDirty());
+        SessionDelta delta = session.getDelta();
+        assertEquals(2, delta.getChangedFields().size());
+        assertTrue(delta.isChanged(SessionDelta.Field.LAST_ACCESS_TIME));
+        assertTrue(delta.isChanged(SessionDelta.Field.TIMEOUT));
+        assertTrue(delta.getChangedAttributes().isEmpty());
+
+        session.markClean();
+        assertFalse(session.isDirty());
+        session.stop();
+        delta = session.getDelta();
+        assertEquals(Collections.singleton(SessionDelta.Field.STOP_TIMESTAMP), delta.getChangedFields());
+    }
+
+    @Test
+    void testTracksChangedAttributeKeys() {
+        Map<Object, Object> attributes = new HashMap<Object, Object>();
+        attributes.put("kept", "value");
+        attributes.put("removed", "value");
+        SimpleSession session = new SimpleSession();
+        session.setAttributes(attributes);
+        session.markClean();
+
+        session.setAttribute("added", "new");
+        session.removeAttribute("removed");
+        session.setAttribute("transient", "value");
+        session.removeAttribute("transient");
+
+        SessionDelta delta = session.getDelta();
+        assertFalse(delta.isAttributesReplaced());
+        assertTrue(delta.getChangedFields().isEmpty());
+        assertEquals(Collections.singletonMap("added", "new"), delta.getChangedAttributes());
+        assertEquals(2, delta.getRemovedAttributeKeys().size());
+        assertTrue(delta.getRemovedAttributeKeys().contains("removed"));
+        assertTrue(delta.getRemovedAttributeKeys().contains("transient"));
+    }
+
+    @Test
+    void testReplacedAttributes() {
+        SimpleSession session = new SimpleSession();
+        session.setAttributes(new HashMap<Object, Object>(Collections.singletonMap("key", "value")));
+        session.setAttribute("other", "value");
+
+        SessionDelta delta = session.getDelta();
+        assertTrue(delta.isAttributesReplaced());
+        assertEquals(2, delta.getChangedAttributes().size());
+    }
+
+    @Test
+    void testTakeDelta() {
+        SimpleSession session = new SimpleSession();
+        session.markClean();
+        assertNull(session.takeDelta());
+
+        session.setAttribute("first", "value");
+        SessionDelta delta = session.takeDelta();
+        assertEquals(Collections.singletonMap("first", "value"), delta.getChangedAttributes());
+        assertFalse(session.isDirty());
+
+        // a change made while the taken delta is being written is not lost:
+        session.setAttribute("second", "value");
+        assertTrue(session.isDirty());
+        assertEquals(Collections.singletonMap("second", "value"), session.takeDelta().getChangedAttributes());
+
+        // a delta that could not be written is restored:
+        session.setTimeout(1L);
+        delta = session.takeDelta();
+        session.markDirty(delta);
+        assertEquals(delta.toString(), session.getDelta().toString());
+    }
+
+    @Test
+    void testDeserializedSessionIsClean() throws Exception {
+        SimpleSession session = new SimpleSession();
+        session.setAttribute("key", "value");
+        session.touch();
+        assertTrue(session.isDirty());
+        assertFalse(serializeAndDeserialize(session).isDirty());
+    }
+
     private SimpleSession serializeAndDeserialize(SimpleSession session) throws IOException, ClassNotFoundException {
         ByteArrayOutputStream serialized = new ByteArrayOutputStream();
         ObjectOutputStream serializer = new ObjectOutputStream(serialized);
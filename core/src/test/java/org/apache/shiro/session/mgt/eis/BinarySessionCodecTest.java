@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.apache.shiro.lang.io.DefaultSerializer;
+import org.apache.shiro.lang.io.SerializationException;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class BinarySessionCodecTest {
+
+    private static BinarySessionCodec newCodec() {
+        BinarySessionCodec codec = new BinarySessionCodec();
+        codec.registerAttributeCodec(1, Money.class, new MoneyCodec());
+        return codec;
+    }
+
+    private static SimpleSession newSession() {
+        SimpleSession session = new SimpleSession("192.168.1.1");
+        session.setId(UUID.randomUUID().toString());
+        session.setTimeout(1800000L);
+        SimplePrincipalCollection principals = new SimplePrincipalCollection("jsmith", "ldap");
+        principals.add(42L, "ldap");
+        principals.add("jsmith@example.com", "jdbc");
+        session.setAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY, principals);
+        session.setAttribute(DefaultSubjectContext.AUTHENTICATED_SESSION_KEY, Boolean.TRUE);
+        session.setAttribute("locale", "en_US");
+        session.setAttribute("visits", 7);
+        session.setAttribute("since", new Date(1234567890L));
+        session.setAttribute(UUID.randomUUID(), Boolean.FALSE);
+        session.setAttribute("balance", new Money("EUR", 1999));
+        session.setAttribute("history", new ArrayList<String>(Arrays.asList("/home", "/account")));
+        session.markClean();
+        return session;
+    }
+
+    private static void assertSameState(SimpleSession expected, Session decoded) {
+        assertTrue(decoded instanceof SimpleSession);
+        SimpleSession actual = (SimpleSession) decoded;
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getStartTimestamp(), actual.getStartTimestamp());
+        assertEquals(expected.getStopTimestamp(), actual.getStopTimestamp());
+        assertEquals(expected.getLastAccessTime(), actual.getLastAccessTime());
+        assertEquals(expected.getTimeout(), actual.getTimeout());
+        assertEquals(expected.isExpired(), actual.isExpired());
+        assertEquals(expected.getHost(), actual.getHost());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        assertFalse(actual.isDirty());
+    }
+
+    @Test
+    void testRoundTrip() {
+        BinarySessionCodec codec = newCodec();
+        SimpleSession session = newSession();
+        assertSameState(session, codec.decode(codec.encode(session)));
+
+        SimplePrincipalCollection principals = (SimplePrincipalCollection) codec.decode(codec.encode(session))
+                .getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY);
+        assertEquals(Arrays.asList("jsmith", 42L, "jsmith@example.com"), principals.asList());
+        assertEquals("jsmith", principals.getPrimaryPrincipal());
+    }
+
+    @Test
+    void testRoundTripOfStoppedAndEmptySessions() {
+        BinarySessionCodec codec = newCodec();
+        SimpleSession stopped = newSession();
+        stopped.stop();
+        stopped.setExpired(true);
+        assertSameState(stopped, codec.decode(codec.encode(stopped)));
+
+        SimpleSession empty = new SimpleSession();
+        empty.setStartTimestamp(null);
+        empty.setLastAccessTime(null);
+        assertSameState(empty, codec.decode(codec.encode(empty)));
+    }
+
+    @Test
+    void testMoreCompactThanJavaSerialization() {
+        SimpleSession session = newSession();
+        int serialized = new DefaultSerializer<Session>().serialize(session).length;
+        int encoded = newCodec().encode(session).length;
+        assertTrue(encoded * 2 < serialized, "encoded " + encoded + " bytes, serialized " + serialized + " bytes");
+    }
+
+    @Test
+    void testUnknownAttributeCodec() {
+        byte[] encoded = newCodec().encode(newSession());
+        assertThrows(SerializationException.class, () -> new BinarySessionCodec().decode(encoded));
+    }
+
+    @Test
+    void testCorruptLengthsAreRejected() {
+        BinarySessionCodec codec = newCodec();
+        // a host of 2^31 - 1 bytes:
+        byte[] hugeString = {BinarySessionCodec.FORMAT_VERSION, 1 << 6, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, 0x07};
+        assertThrows(SerializationException.class, () -> codec.decode(hugeString));
+        // 2^28 attributes:
+        byte[] hugeMap = {BinarySessionCodec.FORMAT_VERSION, (byte) (1 << 7), (byte) 0x80, (byte) 0x80, (byte) 0x80,
+                (byte) 0x80, 0x01};
+        assertThrows(SerializationException.class, () -> codec.decode(hugeMap));
+    }
+
+    @Test
+    void testTruncatedOrCorruptInputOnlyThrowsSerializationException() {
+        BinarySessionCodec codec = newCodec();
+        byte[] encoded = codec.encode(newSession());
+        for (int length = 0; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(SerializationException.class, () -> codec.decode(truncated));
+        }
+        for (int i = 1; i < encoded.length; i++) {
+            byte[] corrupt = encoded.clone();
+            corrupt[i] = (byte) 0xFF;
+            try {
+                codec.decode(corrupt);
+            } catch (SerializationException expected) {
+                // a corrupt entry is reported as such, never as an OutOfMemoryError or other runtime exception
+            }
+        }
+    }
+
+    @Test
+    void testUnsupportedVersion() {
+        byte[] encoded = newCodec().encode(newSession());
+        encoded[0] = (byte) (BinarySessionCodec.FORMAT_VERSION + 1);
+        assertThrows(SerializationException.class, () -> newCodec().decode(encoded));
+    }
+
+    @Test
+    void testDuplicateRegistration() {
+        BinarySessionCodec codec = newCodec();
+        assertThrows(IllegalArgumentException.class, () -> codec.registerAttributeCodec(1, Date.class, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.registerAttributeCodec(1, StringBuilder.class, new StringBuilderCodec()));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.registerAttributeCodec(2, Money.class, new MoneyCodec()));
+        codec.registerAttributeCodec(2, StringBuilder.class, new StringBuilderCodec());
+    }
+
+    @Test
+    void testCachingSessionDAOStoresEncodedSessions() {
+        MemoryConstrainedCacheManager cacheManager = new MemoryConstrainedCacheManager();
+        EnterpriseCacheSessionDAO sessionDAO = new EnterpriseCacheSessionDAO();
+        sessionDAO.setSessionCodec(newCodec());
+        sessionDAO.setCacheManager(cacheManager);
+
+        SimpleSession session = newSession();
+        Serializable id = sessionDAO.create(session);
+        Cache<Serializable, Object> raw = cacheManager.getCache(sessionDAO.getActiveSessionsCacheName());
+        assertTrue(raw.get(id) instanceof byte[]);
+
+        Session read = sessionDAO.readSession(id);
+        assertNotSame(session, read);
+        assertSameState(session, read);
+
+        read.setAttribute("locale", "de_DE");
+        sessionDAO.update(read);
+        assertEquals("de_DE", sessionDAO.readSession(id).getAttribute("locale"));
+        assertEquals(1, sessionDAO.getActiveSessions().size());
+
+        sessionDAO.delete(read);
+        assertNull(raw.get(id));
+
+        // a corrupt entry is a cache miss rather than an error:
+        Serializable corruptId = sessionDAO.create(newSession());
+        byte[] corrupt = Arrays.copyOf((byte[]) raw.get(corruptId), 3);
+        raw.put(corruptId, corrupt);
+        assertThrows(UnknownSessionException.class, () -> sessionDAO.readSession(corruptId));
+        assertNull(raw.get(corruptId));
+    }
+
+    private static final class Money implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String currency;
+        private final long cents;
+
+        private Money(String currency, long cents) {
+            this.currency = currency;
+            this.cents = cents;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Money && ((Money) o).currency.equals(currency) && ((Money) o).cents == cents;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(currency, cents);
+        }
+    }
+
+    private static final class MoneyCodec implements AttributeCodec<Money> {
+        public void write(Money value, DataOutput out) throws IOException {
+            out.writeUTF(value.currency);
+            out.writeLong(value.cents);
+        }
+
+        public Money read(DataInput in) throws IOException {
+            return new Money(in.readUTF(), in.readLong());
+        }
+    }
+
+    private static final class StringBuilderCodec implements AttributeCodec<StringBuilder> {
+        public void write(StringBuilder value, DataOutput out) throws IOException {
+            out.writeUTF(value.toString());
+        }
+
+        public StringBuilder read(DataInput in) throws IOException {
+            return new StringBuilder(in.readUTF());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.DefaultSessionKey;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.session.mgt.SessionDelta;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+public class CachingSessionDAOTest {
+
+    private RecordingSessionDAO sessionDAO;
+
+    @BeforeEach
+    void setUp() {
+        sessionDAO = new RecordingSessionDAO();
+        sessionDAO.setCacheManager(new MemoryConstrainedCacheManager());
+    }
+
+    @Test
+    void testUnchangedSessionIsNotWritten() {
+        SimpleSession session = new SimpleSession();
+        sessionDAO.create(session);
+        assertFalse(session.isDirty());
+
+        sessionDAO.update(session);
+        assertTrue(sessionDAO.deltas.isEmpty());
+
+        session.setAttribute("key", "value");
+        sessionDAO.update(session);
+        assertEquals(1, sessionDAO.deltas.size());
+        assertEquals("value", sessionDAO.deltas.get(0).getChangedAttributes().get("key"));
+        assertFalse(session.isDirty());
+
+        sessionDAO.update(session);
+        assertEquals(1, sessionDAO.deltas.size());
+    }
+
+    @Test
+    void testUnchangedInvalidSessionIsUncached() {
+        SimpleSession session = new SimpleSession();
+        Serializable id = sessionDAO.create(session);
+        session.stop();
+        session.markClean();
+
+        sessionDAO.update(session);
+        assertTrue(sessionDAO.deltas.isEmpty());
+        assertNull(sessionDAO.getCachedSession(id));
+    }
+
+    @Test
+    void testSessionManagerWritesDeltasOnly() {
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionDAO(sessionDAO);
+        try {
+            Session session = sessionManager.start(null);
+            DefaultSessionKey key = new DefaultSessionKey(session.getId());
+            // applying the (unchanged) global timeout on start must not cause a write:
+            assertTrue(sessionDAO.deltas.isEmpty());
+
+            session.setAttribute("key", "value");
+            assertEquals(1, sessionDAO.deltas.size());
+            session.setTimeout(sessionManager.getGlobalSessionTimeout());
+            assertEquals(1, sessionDAO.deltas.size());
+
+            session.touch();
+            assertEquals(2, sessionDAO.deltas.size());
+            assertTrue(sessionDAO.deltas.get(1).isChanged(SessionDelta.Field.LAST_ACCESS_TIME));
+            assertEquals("value", sessionManager.getAttribute(key, "key"));
+        } finally {
+            sessionManager.destroy();
+        }
+    }
+
+    @Test
+    void testForEachActiveSessionBatch() {
+        Set<Serializable> ids = new HashSet<Serializable>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(sessionDAO.create(new SimpleSession()));
+        }
+        List<Integer> batchSizes = new ArrayList<Integer>();
+        Set<Serializable> passed = new HashSet<Serializable>();
+        sessionDAO.forEachActiveSessionBatch(2, batch -> {
+            batchSizes.add(batch.size());
+            for (Session session : batch) {
+                passed.add(session.getId());
+            }
+        });
+        assertEquals(Arrays.asList(2, 2, 1), batchSizes);
+        assertEquals(ids, passed);
+    }
+
+    private static final class RecordingSessionDAO extends CachingSessionDAO {
+
+        private final List<SessionDelta> deltas = new ArrayList<SessionDelta>();
+
+        @Override
+        protected Serializable doCreate(Session session) {
+            Serializable sessionId = generateSessionId(session);
+            assignSessionId(session, sessionId);
+            return sessionId;
+        }
+
+        @Override
+        protected Session doReadSession(Serializable sessionId) {
+            return null;
+        }
+
+        @Override
+        protected void doUpdate(Session session) {
+        }
+
+        @Override
+        protected void doUpdate(Session session, SessionDelta delta) {
+            deltas.add(delta);
+        }
+
+        @Override
+        protected void doDelete(Session session) {
+        }
+    }
+}
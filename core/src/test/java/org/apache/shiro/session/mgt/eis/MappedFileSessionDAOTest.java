@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.SessionException;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.DefaultSessionContext;
+import org.apache.shiro.session.mgt.DefaultSessionKey;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.session.mgt.SessionContext;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.apache.shiro.session.mgt.SimpleSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class MappedFileSessionDAOTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<MappedFileSessionDAO> daos = new ArrayList<MappedFileSessionDAO>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (MappedFileSessionDAO dao : daos) {
+            dao.destroy();
+        }
+    }
+
+    private MappedFileSessionDAO newDao() {
+        MappedFileSessionDAO dao = new MappedFileSessionDAO();
+        dao.setFilePath(dir.resolve("sessions.dat").toString());
+        dao.setSlotSize(128);
+        dao.setSlotsPerSegment(16);
+        dao.init();
+        daos.add(dao);
+        return dao;
+    }
+
+    private static SimpleSession newSession() {
+        SimpleSession session = new SimpleSession("localhost");
+        session.setAttribute("name", "value");
+        return session;
+    }
+
+    @Test
+    void testCreateReadUpdateDelete() {
+        MappedFileSessionDAO dao = newDao();
+        SimpleSession session = newSession();
+        Serializable id = dao.create(session);
+
+        Session read = dao.readSession(id);
+        assertNotSame(session, read);
+        assertEquals("value", read.getAttribute("name"));
+        assertEquals("localhost", read.getHost());
+
+        session.setAttribute("name", "changed");
+        dao.update(session);
+        assertEquals("changed", dao.readSession(id).getAttribute("name"));
+
+        dao.delete(session);
+        assertThrows(UnknownSessionException.class, () -> dao.readSession(id));
+    }
+
+    @Test
+    void testSessionSpanningSeveralSlots() {
+        MappedFileSessionDAO dao = newDao();
+        SimpleSession session = newSession();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            large.append(i);
+        }
+        session.setAttribute("large", large.toString());
+        Serializable id = dao.create(session);
+        assertEquals(large.toString(), dao.readSession(id).getAttribute("large"));
+    }
+
+    @Test
+    void testSessionsSurviveReopening() throws Exception {
+        MappedFileSessionDAO dao = newDao();
+        Set<Serializable> ids = new HashSet<Serializable>();
+        for (int i = 0; i < 50; i++) {
+            SimpleSession session = newSession();
+            ids.add(dao.create(session));
+            session.setAttribute("index", i);
+            dao.update(session);
+        }
+        dao.destroy();
+
+        MappedFileSessionDAO reopened = newDao();
+        assertEquals(ids.size(), reopened.getActiveSessions().size());
+        for (Serializable id : ids) {
+            assertNotNull(reopened.readSession(id).getAttribute("index"));
+        }
+    }
+
+    @Test
+    void testFileCannotBeOpenedTwice() {
+        newDao();
+        assertThrows(SessionException.class, this::newDao);
+    }
+
+    @Test
+    void testUseAfterDestroyIsRejected() throws Exception {
+        MappedFileSessionDAO dao = newDao();
+        Serializable id = dao.create(newSession());
+        dao.destroy();
+        assertThrows(IllegalStateException.class, () -> dao.readSession(id));
+        assertThrows(IllegalStateException.class, () -> dao.create(newSession()));
+    }
+
+    @Test
+    void testCompactReleasesExpiredSessions() {
+        MappedFileSessionDAO dao = newDao();
+        SimpleSession expired = newSession();
+        expired.setLastAccessTime(new Date(System.currentTimeMillis() - 10000));
+        expired.setTimeout(1000);
+        dao.create(expired);
+        SimpleSession stopped = newSession();
+        dao.create(stopped);
+        stopped.stop();
+        dao.update(stopped);
+        SimpleSession live = newSession();
+        Serializable liveId = dao.create(live);
+
+        assertEquals(2, dao.compact());
+        assertEquals(1, dao.getActiveSessions().size());
+        assertEquals(liveId, dao.getActiveSessions().iterator().next().getId());
+    }
+
+    @Test
+    void testGetActiveSessions() {
+        MappedFileSessionDAO dao = newDao();
+        Set<Serializable> ids = new HashSet<Serializable>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(dao.create(newSession()));
+        }
+        Set<Serializable> iterated = new HashSet<Serializable>();
+        for (Session session : dao.getActiveSessions()) {
+            iterated.add(session.getId());
+        }
+        assertEquals(ids, iterated);
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        MappedFileSessionDAO dao = newDao();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        SimpleSession session = newSession();
+                        Serializable id = dao.create(session);
+                        session.setAttribute("i", i);
+                        dao.update(session);
+                        assertEquals(i, dao.readSession(id).getAttribute("i"));
+                        if (i % 2 == 0) {
+                            dao.delete(session);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(400, dao.getActiveSessions().size());
+    }
+
+    @Test
+    void testWithSessionManager() {
+        MappedFileSessionDAO dao = newDao();
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionDAO(dao);
+        sessionManager.setSessionFactory(new SimpleSessionFactory());
+        SessionContext context = new DefaultSessionContext();
+        Session session = sessionManager.start(context);
+        session.setAttribute("name", "value");
+
+        assertEquals("value", dao.readSession(session.getId()).getAttribute("name"));
+        assertEquals("value", sessionManager.getSession(new DefaultSessionKey(session.getId())).getAttribute("name"));
+
+        session.stop();
+        assertTrue(dao.getActiveSessions().isEmpty());
+    }
+}
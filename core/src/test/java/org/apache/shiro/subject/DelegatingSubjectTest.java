@@ -20,10 +20,13 @@ package org.apache.shiro.subject;
 
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
 import org.apache.shiro.config.Ini;
 import org.apache.shiro.env.BasicIniEnvironment;
 import org.apache.shiro.mgt.DefaultSecurityManager;
 import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.realm.SimpleAccountRealm;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.subject.support.DelegatingSubject;
 import org.apache.shiro.lang.util.LifecycleUtils;
@@ -33,6 +36,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import static org.apache.shiro.env.BasicIniEnvironment.INI_REALM_NAME;
@@ -87,6 +93,22 @@ public class DelegatingSubjectTest {
         sm.destroy();
     }
 
+    @Test
+    void testFilterPermitted() {
+        SimpleAccountRealm realm = new SimpleAccountRealm("testRealm");
+        realm.addAccount("jsmith", "secret", "reader");
+        realm.setRolePermissionResolver(role -> Collections.<Permission>singleton(new WildcardPermission("doc:read:1,3")));
+        DefaultSecurityManager sm = new DefaultSecurityManager(realm);
+
+        List<Integer> ids = Arrays.asList(1, 2, 3, 4);
+        Subject subject = new Subject.Builder(sm).buildSubject();
+        assertTrue(subject.filterPermitted(ids, id -> new WildcardPermission("doc:read:" + id)).isEmpty());
+
+        subject.login(new UsernamePasswordToken("jsmith", "secret"));
+        assertEquals(Arrays.asList(1, 3), subject.filterPermitted(ids, id -> new WildcardPermission("doc:read:" + id)));
+        assertTrue(subject.filterPermitted(null, id -> new WildcardPermission("doc:read:" + id)).isEmpty());
+    }
+
     @Test
     void testExecuteCallable() {
 
@@ -19,13 +19,16 @@
 
 package org.apache.shiro.util;
 
+import org.apache.shiro.lang.util.StringUtils;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SuppressWarnings("checkstyle:LineLength")
+@SuppressWarnings({"checkstyle:LineLength", "checkstyle:MagicNumber"})
 /**
  * Unit tests for {@link AntPathMatcher}.
  * <p>
@@ -332,4 +335,356 @@ public class AntPathMatcherTests {
     void isPatternWithNullPath() {
         assertFalse(pathMatcher.isPattern(null));
     }
+
+    @Test
+    void compiledPatternsMatchTokenizingImplementation() {
+        String[] patternSegments = {"a", "b", "ab", "*", "**", "a*", "?b", "*.jsp", "x.jsp", "*b*", "***", "a*b?", "?"};
+        String[] pathSegments = {"a", "b", "ab", "bb", "x.jsp", "y.jsp", "c", "aab", "abab", "acbd"};
+        Random random = new Random(13);
+        for (String separator : new String[] {"/", "."}) {
+            AntPathMatcher compiled = new AntPathMatcher();
+            compiled.setPathSeparator(separator);
+            TokenizingAntPathMatcher tokenizing = new TokenizingAntPathMatcher(separator);
+            for (int i = 0; i < 20000; i++) {
+                String pattern = randomPath(random, patternSegments, separator);
+                String path = randomPath(random, pathSegments, separator);
+                assertEquals(tokenizing.match(pattern, path), compiled.match(pattern, path),
+                        "match(" + pattern + ", " + path + ")");
+                assertEquals(tokenizing.matchStart(pattern, path), compiled.matchStart(pattern, path),
+                        "matchStart(" + pattern + ", " + path + ")");
+            }
+        }
+    }
+
+    @Test
+    void compiledPatternsAreReused() {
+        AntPathMatcher matcher = new AntPathMatcher();
+        assertTrue(matcher.match("/a/*/c", "/a/b/c"));
+        assertTrue(matcher.match("/a/*/c", "/a/x/c"));
+        matcher.setPathSeparator(".");
+        assertFalse(matcher.match("a.*.c", "a/x/c"));
+        assertTrue(matcher.match("a.*.c", "a.x.c"));
+    }
+
+    @Test
+    void segmentsMatchSingleSegments() {
+        assertTrue(new AntPathSegment("*.jsp").matches("index.jsp"));
+        assertTrue(new AntPathSegment("a?c*").matches("abcdef"));
+        assertTrue(new AntPathSegment("**").matches("x"));
+        assertTrue(new AntPathSegment("a*b*c").matches("xabyc", 1, 5));
+        assertFalse(new AntPathSegment("*.jsp").matches("index.html"));
+        assertFalse(new AntPathSegment("a?c").matches("ac"));
+    }
+
+    private static String randomPath(Random random, String[] segments, String separator) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextInt(4) > 0) {
+            sb.append(separator);
+        }
+        int count = random.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(random.nextInt(10) == 0 ? separator + separator : separator);
+            }
+            sb.append(segments[random.nextInt(segments.length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            sb.append(separator);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The tokenizing implementation used before patterns were compiled, as a reference.
+     */
+    private static final class TokenizingAntPathMatcher extends AntPathMatcher {
+
+        private final String separator;
+
+        private TokenizingAntPathMatcher(String separator) {
+            this.separator = separator;
+        }
+
+        @Override
+        @SuppressWarnings({"checkstyle:ReturnCount", "checkstyle:CyclomaticComplexity",
+                "checkstyle:NPathComplexity", "checkstyle:MethodLength"})
+        protected boolean doMatch(String pattern, String path, boolean fullMatch) {
+            if (path == null || path.startsWith(separator) != pattern.startsWith(separator)) {
+                return false;
+            }
+
+            String[] pattDirs = StringUtils.tokenizeToStringArray(pattern, separator, false, true);
+            String[] pathDirs = StringUtils.tokenizeToStringArray(path, separator, false, true);
+
+            int pattIdxStart = 0;
+            int pattIdxEnd = pattDirs.length - 1;
+            int pathIdxStart = 0;
+            int pathIdxEnd = pathDirs.length - 1;
+
+            // Match all elements up to the first **
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                String patDir = pattDirs[pattIdxStart];
+                if ("**".equals(patDir)) {
+                    break;
+                }
+                if (!matchStrings(patDir, pathDirs[pathIdxStart])) {
+                    return false;
+                }
+                pattIdxStart++;
+                pathIdxStart++;
+            }
+
+            if (pathIdxStart > pathIdxEnd) {
+                // Path is exhausted, only match if rest of pattern is * or **'s
+                if (pattIdxStart > pattIdxEnd) {
+                    return (pattern.endsWith(separator)
+                            ? path.endsWith(separator) : !path.endsWith(separator));
+                }
+                if (!fullMatch) {
+                    return true;
+                }
+                if (pattIdxStart == pattIdxEnd && "*".equals(pattDirs[pattIdxStart])
+                        && path.endsWith(separator)) {
+                    return true;
+                }
+                for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
+                    if (!"**".equals(pattDirs[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (pattIdxStart > pattIdxEnd) {
+                // String not exhausted, but pattern is. Failure.
+                return false;
+            } else if (!fullMatch && "**".equals(pattDirs[pattIdxStart])) {
+                // Path start definitely matches due to "**" part in pattern.
+                return true;
+            }
+
+            // up to last '**'
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                String patDir = pattDirs[pattIdxEnd];
+                if (patDir.equals("**")) {
+                    break;
+                }
+                if (!matchStrings(patDir, pathDirs[pathIdxEnd])) {
+                    return false;
+                }
+                pattIdxEnd--;
+                pathIdxEnd--;
+            }
+            if (pathIdxStart > pathIdxEnd) {
+                // String is exhausted
+                for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
+                    if (!pattDirs[i].equals("**")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                int patIdxTmp = -1;
+                for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+                    if (pattDirs[i].equals("**")) {
+                        patIdxTmp = i;
+                        break;
+                    }
+                }
+                if (patIdxTmp == pattIdxStart + 1) {
+                    // '**/**' situation, so skip one
+                    pattIdxStart++;
+                    continue;
+                }
+                // Find the pattern between padIdxStart & padIdxTmp in str between
+                // strIdxStart & strIdxEnd
+                int patLength = (patIdxTmp - pattIdxStart - 1);
+                int strLength = (pathIdxEnd - pathIdxStart + 1);
+                int foundIdx = -1;
+
+                strLoop:
+                for (int i = 0; i <= strLength - patLength; i++) {
+                    for (int j = 0; j < patLength; j++) {
+                        String subPat = (String) pattDirs[pattIdxStart + j + 1];
+                        String subStr = (String) pathDirs[pathIdxStart + i + j];
+                        if (!matchStrings(subPat, subStr)) {
+                            continue strLoop;
+                        }
+                    }
+                    foundIdx = pathIdxStart + i;
+                    break;
+                }
+
+                if (foundIdx == -1) {
+                    return false;
+                }
+
+                pattIdxStart = patIdxTmp;
+                pathIdxStart = foundIdx + patLength;
+            }
+
+            for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
+                if (!pattDirs[i].equals("**")) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Tests whether or not a string matches against a pattern.
+         * The pattern may contain two special characters:<br>
+         * '*' means zero or more characters<br>
+         * '?' means one and only one character
+         *
+         * @param pattern pattern to match against.
+         *                Must not be <code>null</code>.
+         * @param str     string which must be matched against the pattern.
+         *                Must not be <code>null</code>.
+         * @return <code>true</code> if the string matches against the
+         * pattern, or <code>false</code> otherwise.
+         */
+        @SuppressWarnings({"checkstyle:ReturnCount", "checkstyle:CyclomaticComplexity",
+                "checkstyle:NPathComplexity", "checkstyle:MethodLength"})
+        private boolean matchStrings(String pattern, String str) {
+            char[] patArr = pattern.toCharArray();
+            char[] strArr = str.toCharArray();
+            int patIdxStart = 0;
+            int patIdxEnd = patArr.length - 1;
+            int strIdxStart = 0;
+            int strIdxEnd = strArr.length - 1;
+            char ch;
+
+            boolean containsStar = false;
+            for (char aPatArr : patArr) {
+                if (aPatArr == '*') {
+                    containsStar = true;
+                    break;
+                }
+            }
+
+            if (!containsStar) {
+                // No '*'s, so we make a shortcut
+                if (patIdxEnd != strIdxEnd) {
+                    // Pattern and string do not have the same size
+                    return false;
+                }
+                for (int i = 0; i <= patIdxEnd; i++) {
+                    ch = patArr[i];
+                    if (ch != '?') {
+                        if (ch != strArr[i]) {
+                            // Character mismatch
+                            return false;
+                        }
+                    }
+                }
+                // String matches against pattern
+                return true;
+            }
+
+
+            if (patIdxEnd == 0) {
+                // Pattern contains only '*', which matches anything
+                return true;
+            }
+
+            // Process characters before first star
+            while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
+                if (ch != '?') {
+                    if (ch != strArr[strIdxStart]) {
+                        // Character mismatch
+                        return false;
+                    }
+                }
+                patIdxStart++;
+                strIdxStart++;
+            }
+            if (strIdxStart > strIdxEnd) {
+                // All characters in the string are used. Check if only '*'s are
+                // left in the pattern. If so, we succeeded. Otherwise failure.
+                for (int i = patIdxStart; i <= patIdxEnd; i++) {
+                    if (patArr[i] != '*') {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            // Process characters after last star
+            while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
+                if (ch != '?') {
+                    if (ch != strArr[strIdxEnd]) {
+                        // Character mismatch
+                        return false;
+                    }
+                }
+                patIdxEnd--;
+                strIdxEnd--;
+            }
+            if (strIdxStart > strIdxEnd) {
+                // All characters in the string are used. Check if only '*'s are
+                // left in the pattern. If so, we succeeded. Otherwise failure.
+                for (int i = patIdxStart; i <= patIdxEnd; i++) {
+                    if (patArr[i] != '*') {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            // process pattern between stars. padIdxStart and patIdxEnd point
+            // always to a '*'.
+            while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
+                int patIdxTmp = -1;
+                for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
+                    if (patArr[i] == '*') {
+                        patIdxTmp = i;
+                        break;
+                    }
+                }
+                if (patIdxTmp == patIdxStart + 1) {
+                    // Two stars next to each other, skip the first one.
+                    patIdxStart++;
+                    continue;
+                }
+                // Find the pattern between padIdxStart & padIdxTmp in str between
+                // strIdxStart & strIdxEnd
+                int patLength = (patIdxTmp - patIdxStart - 1);
+                int strLength = (strIdxEnd - strIdxStart + 1);
+                int foundIdx = -1;
+                strLoop:
+                for (int i = 0; i <= strLength - patLength; i++) {
+                    for (int j = 0; j < patLength; j++) {
+                        ch = patArr[patIdxStart + j + 1];
+                        if (ch != '?') {
+                            if (ch != strArr[strIdxStart + i + j]) {
+                                continue strLoop;
+                            }
+                        }
+                    }
+
+                    foundIdx = strIdxStart + i;
+                    break;
+                }
+
+                if (foundIdx == -1) {
+                    return false;
+                }
+
+                patIdxStart = patIdxTmp;
+                strIdxStart = foundIdx + patLength;
+            }
+
+            // All characters in the string are used. Check if only '*'s are left
+            // in the pattern. If so, we succeeded. Otherwise failure.
+            for (int i = patIdxStart; i <= patIdxEnd; i++) {
+                if (patArr[i] != '*') {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.support.SubjectThreadState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+public class ThreadContextTest {
+
+    @AfterEach
+    void tearDown() {
+        ThreadContext.remove();
+    }
+
+    @Test
+    void testCompactResourcesBehaveLikeHashMap() {
+        Map<Object, Object> compact = new ThreadContext.CompactResources();
+        Map<Object, Object> expected = new HashMap<Object, Object>();
+        Object[] keys = {ThreadContext.SUBJECT_KEY, ThreadContext.SECURITY_MANAGER_KEY, "custom", "other"};
+
+        for (Map<Object, Object> map : Arrays.asList(compact, expected)) {
+            assertNull(map.put(keys[0], "subject"));
+            assertNull(map.put(keys[2], "value"));
+            assertEquals("subject", map.put(keys[0], "subject2"));
+            assertNull(map.put(keys[1], "securityManager"));
+            assertNull(map.remove(keys[3]));
+            assertEquals("value", map.remove(keys[2]));
+            assertNull(map.put(keys[3], "other"));
+        }
+        assertEquals(expected, compact);
+        assertEquals(expected, new HashMap<Object, Object>(compact));
+        assertEquals(expected.size(), compact.size());
+        for (Object key : keys) {
+            assertEquals(expected.get(key), compact.get(key));
+            assertEquals(expected.containsKey(key), compact.containsKey(key));
+        }
+
+        compact.clear();
+        assertTrue(compact.isEmpty());
+        assertNull(compact.get(ThreadContext.SUBJECT_KEY));
+    }
+
+    @Test
+    void testReplaceAndRestoreResources() {
+        SecurityManager original = new DefaultSecurityManager();
+        ThreadContext.bind(original);
+        ThreadContext.put("custom", "value");
+
+        SecurityManager replacement = new DefaultSecurityManager();
+        Subject subject = new Subject.Builder(replacement).buildSubject();
+        Map<Object, Object> previous = ThreadContext.replaceResources(subject, replacement);
+        assertSame(subject, ThreadContext.getSubject());
+        assertSame(replacement, ThreadContext.getSecurityManager());
+        assertNull(ThreadContext.get("custom"));
+
+        ThreadContext.put("custom", "changed");
+        ThreadContext.restoreResources(previous);
+        assertSame(original, ThreadContext.getSecurityManager());
+        assertNull(ThreadContext.getSubject());
+        assertEquals("value", ThreadContext.get("custom"));
+
+        ThreadContext.restoreResources(ThreadContext.replaceResources(null, null));
+        assertEquals(2, ThreadContext.getResources().size());
+
+        ThreadContext.remove();
+        ThreadContext.restoreResources(ThreadContext.replaceResources(subject, null));
+        assertTrue(ThreadContext.getResources().isEmpty());
+    }
+
+    @Test
+    void testSubjectThreadStateRestoresPreviousState() {
+        SecurityManager securityManager = new DefaultSecurityManager();
+        Subject subject = new Subject.Builder(securityManager).buildSubject();
+        ThreadContext.put("custom", "value");
+
+        SubjectThreadState state = new SubjectThreadState(subject);
+        state.bind();
+        assertSame(subject, ThreadContext.getSubject());
+        assertSame(securityManager, ThreadContext.getSecurityManager());
+        assertFalse(ThreadContext.getResources().containsKey("custom"));
+
+        state.restore();
+        assertNull(ThreadContext.getSubject());
+        assertEquals("value", ThreadContext.get("custom"));
+    }
+}
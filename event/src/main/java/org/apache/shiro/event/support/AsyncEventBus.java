@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.event.support;
+
+import org.apache.shiro.lang.util.SharedExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An event bus that delivers published events to listeners on other threads, so that slow listeners (such as audit
+ * writers or forwarders to external systems) do not add their latency to the operation that published the event.
+ * <p/>
+ * Subscribers are registered and resolved exactly as with the {@link DefaultEventBus} (by default via the
+ * {@link AnnotationEventListenerResolver AnnotationEventListenerResolver} and
+ * {@link org.apache.shiro.event.Subscribe Subscribe} annotations), and each event reaches the same listeners.  The only
+ * difference is when and on which thread they receive it:
+ * <ul>
+ * <li>Every listener has its own bounded queue (of {@link #setQueueCapacity(int) queueCapacity} events) and receives
+ * its events one at a time, in the order they were published.  Different listeners receive events concurrently.</li>
+ * <li>Events are delivered on an {@link Executor}: the one configured for the subscriber's type in
+ * {@link #setSubscriberExecutors(Map) subscriberExecutors} if any, otherwise the one configured for the listener's
+ * event type in {@link #setEventTypeExecutors(Map) eventTypeExecutors} if any, otherwise the default
+ * {@link #setExecutor(Executor) executor}.</li>
+ * <li>When a listener's queue is full, the {@link #setOverflowPolicy(OverflowPolicy) overflowPolicy} decides what
+ * happens to the new event.</li>
+ * </ul>
+ * The {@code get...Count}, {@link #getQueueDepth() queueDepth} and delivery lag methods expose metrics about the
+ * events handled by this bus.
+ *
+ * @since 2.0
+ */
+public class AsyncEventBus extends DefaultEventBus {
+
+    /**
+     * Determines what happens to an event published while the queue of a listener that should receive it is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The publishing thread blocks until the listener's queue has room for the event.  Listeners must therefore
+         * never publish events that they receive themselves, or wait for events published by the same thread.
+         */
+        BLOCK,
+
+        /**
+         * The oldest event in the listener's queue is discarded to make room for the new event.
+         */
+        DROP_OLDEST,
+
+        /**
+         * The publishing thread delivers all queued events to the listener, and then the new event, itself.  This
+         * throttles publishers to the speed of the listener while preserving the order of delivery.
+         */
+        CALLER_RUNS
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncEventBus.class);
+
+    private static final String EVENT_LISTENER_ERROR_MSG = "Event listener processing failed.  Listeners should "
+            + "generally handle exceptions directly and not propagate to the event bus.";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The maximum number of events a listener receives in one task before yielding the executor thread.
+     */
+    private static final int MAX_BATCH = 64;
+
+    private final ConcurrentMap<EventListener, Mailbox> mailboxes = new ConcurrentHashMap<EventListener, Mailbox>();
+
+    private volatile Executor executor;
+
+    private volatile Map<Class<?>, Executor> eventTypeExecutors = Collections.emptyMap();
+
+    private volatile Map<Class<?>, Executor> subscriberExecutors = Collections.emptyMap();
+
+    private volatile int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder callerRuns = new LongAdder();
+
+    private final LongAdder totalDeliveryLagNanos = new LongAdder();
+
+    private final AtomicLong maxDeliveryLagNanos = new AtomicLong();
+
+    public AsyncEventBus() {
+        super();
+    }
+
+    /**
+     * Returns the executor that events are delivered on unless a more specific one is configured.  Unless
+     * {@link #setExecutor(Executor) configured}, events are delivered on the shared
+     * {@code shiro-event} pool, which delivers them on the publishing thread once its threads and queue are saturated
+     * (see {@link SharedExecutors}).
+     *
+     * @return the executor that events are delivered on by default.
+     */
+    public Executor getExecutor() {
+        Executor executor = this.executor;
+        return executor != null ? executor : SharedExecutors.get("shiro-event");
+    }
+
+    /**
+     * Sets the executor that events are delivered on unless a more specific one is configured.  If the executor
+     * rejects a delivery task, the events are delivered on the publishing thread instead.
+     *
+     * @param executor the executor that events are delivered on by default, or {@code null} to use the default
+     *                 shared pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Map<Class<?>, Executor> getEventTypeExecutors() {
+        return eventTypeExecutors;
+    }
+
+    /**
+     * Sets the executors to deliver events on per event type.  A listener uses the executor mapped to the event type
+     * it declares (for example the argument type of a {@code Subscribe}-annotated method), or to its closest
+     * superclass that is mapped.  Only affects subscribers registered after this call.
+     *
+     * @param eventTypeExecutors the executors to deliver events on per event type, may be {@code null}.
+     */
+    public void setEventTypeExecutors(Map<Class<?>, Executor> eventTypeExecutors) {
+        this.eventTypeExecutors = eventTypeExecutors != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<Class<?>, Executor>(eventTypeExecutors))
+                : Collections.<Class<?>, Executor>emptyMap();
+    }
+
+    public Map<Class<?>, Executor> getSubscriberExecutors() {
+        return subscriberExecutors;
+    }
+
+    /**
+     * Sets the executors to deliver events on per subscriber type, for example to give an audit log writer a
+     * dedicated thread.  All listeners of a subscriber that is an instance of a mapped type use that type's executor,
+     * taking precedence over the {@link #setEventTypeExecutors(Map) eventTypeExecutors}.  If a subscriber is an
+     * instance of several mapped types, the first one in the map's iteration order is used.  Only affects
+     * subscribers registered after this call.
+     *
+     * @param subscriberExecutors the executors to deliver events on per subscriber type, may be {@code null}.
+     */
+    public void setSubscriberExecutors(Map<Class<?>, Executor> subscriberExecutors) {
+        this.subscriberExecutors = subscriberExecutors != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<Class<?>, Executor>(subscriberExecutors))
+                : Collections.<Class<?>, Executor>emptyMap();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of events that may be queued for a single listener before the
+     * {@link #setOverflowPolicy(OverflowPolicy) overflowPolicy} applies.  Defaults to {@code 1024}.  Only affects
+     * subscribers registered after this call.
+     *
+     * @param queueCapacity the maximum number of events queued per listener, must be positive.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be greater than zero.");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets what happens to an event published while the queue of a listener that should receive it is full.
+     * Defaults to {@link OverflowPolicy#BLOCK BLOCK}, so that no event is ever lost.
+     *
+     * @param overflowPolicy the policy for events that do not fit into a listener's queue.
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy cannot be null.");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void unregister(Object instance) {
+        super.unregister(instance);
+        if (instance != null) {
+            // events already queued are still delivered by their (now unreachable) mailbox:
+            mailboxes.values().removeIf(mailbox -> mailbox.subscriber == instance);
+        }
+    }
+
+    /**
+     * Queues the event for the listener, applying the {@link #getOverflowPolicy() overflowPolicy} if its queue is
+     * full, and schedules delivery on the listener's executor.
+     */
+    @Override
+    protected void deliver(Object subscriber, EventListener listener, Object event) {
+        published.increment();
+        Mailbox mailbox = mailboxes.get(listener);
+        if (mailbox == null) {
+            Mailbox created = new Mailbox(subscriber, listener, getExecutor(subscriber, listener), queueCapacity);
+            mailbox = mailboxes.putIfAbsent(listener, created);
+            if (mailbox == null) {
+                mailbox = created;
+            }
+        }
+        mailbox.offer(new Envelope(event));
+    }
+
+    private Executor getExecutor(Object subscriber, EventListener listener) {
+        for (Map.Entry<Class<?>, Executor> entry : subscriberExecutors.entrySet()) {
+            if (entry.getKey().isInstance(subscriber)) {
+                return entry.getValue();
+            }
+        }
+        if (listener instanceof TypedEventListener && !eventTypeExecutors.isEmpty()) {
+            for (Class<?> c = ((TypedEventListener) listener).getEventType(); c != null; c = c.getSuperclass()) {
+                Executor executor = eventTypeExecutors.get(c);
+                if (executor != null) {
+                    return executor;
+                }
+            }
+        }
+        return getExecutor();
+    }
+
+    /**
+     * Returns the number of events currently queued for all listeners.
+     *
+     * @return the number of events currently queued for all listeners.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            depth += mailbox.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of times an event has been handed to a listener's queue (an event received by three
+     * listeners counts three times).
+     *
+     * @return the number of events queued for listeners.
+     */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * Returns the number of events that listeners have received, including those whose listener threw an exception.
+     *
+     * @return the number of events that listeners have received.
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * Returns the number of events whose listener threw an exception.
+     *
+     * @return the number of events whose listener threw an exception.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of events that were discarded because a listener's queue was full (with the
+     * {@link OverflowPolicy#DROP_OLDEST DROP_OLDEST} policy) or because the publishing thread was interrupted while
+     * waiting for room (with the {@link OverflowPolicy#BLOCK BLOCK} policy).
+     *
+     * @return the number of events that were discarded.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of times a publishing thread delivered events itself, because a listener's queue was full
+     * with the {@link OverflowPolicy#CALLER_RUNS CALLER_RUNS} policy or because the executor rejected a delivery task.
+     *
+     * @return the number of times a publishing thread delivered events itself.
+     */
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, between events being published and their listeners receiving them.
+     * Divide by the {@link #getDeliveredCount() deliveredCount} for the average delivery lag.
+     *
+     * @return the total delivery lag in nanoseconds.
+     */
+    public long getTotalDeliveryLagNanos() {
+        return totalDeliveryLagNanos.sum();
+    }
+
+    /**
+     * Returns the longest time, in nanoseconds, between an event being published and its listener receiving it.
+     *
+     * @return the maximum delivery lag in nanoseconds.
+     */
+    public long getMaxDeliveryLagNanos() {
+        return maxDeliveryLagNanos.get();
+    }
+
+    private void onEvent(EventListener listener, Envelope envelope) {
+        long lag = System.nanoTime() - envelope.publishedAt;
+        totalDeliveryLagNanos.add(lag);
+        maxDeliveryLagNanos.accumulateAndGet(lag, Math::max);
+        delivered.increment();
+        try {
+            listener.onEvent(envelope.event);
+        } catch (Throwable t) {
+            failed.increment();
+            LOGGER.warn(EVENT_LISTENER_ERROR_MSG, t);
+        }
+    }
+
+    private static final class Envelope {
+
+        private final Object event;
+
+        private final long publishedAt;
+
+        Envelope(Object event) {
+            this.event = event;
+            this.publishedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * The queue of a single listener.  Events are taken off the queue and delivered while holding the delivery lock,
+     * so that the listener receives them one at a time and in queue order, whether delivered by the executor or by a
+     * publishing thread.  At most one delivery task per mailbox is scheduled on the executor at any time.
+     */
+    private final class Mailbox implements Runnable {
+
+        private final Object subscriber;
+
+        private final EventListener listener;
+
+        private final Executor executor;
+
+        private final BlockingQueue<Envelope> queue;
+
+        private final ReentrantLock deliveryLock = new ReentrantLock();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox(Object subscriber, EventListener listener, Executor executor, int capacity) {
+            this.subscriber = subscriber;
+            this.listener = listener;
+            this.executor = executor;
+            this.queue = new ArrayBlockingQueue<Envelope>(capacity);
+        }
+
+        void offer(Envelope envelope) {
+            if (!queue.offer(envelope) && !overflow(envelope)) {
+                return;
+            }
+            schedule();
+        }
+
+        /**
+         * Applies the overflow policy, returning {@code true} if the event has been queued.
+         */
+        private boolean overflow(Envelope envelope) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    while (!queue.offer(envelope)) {
+                        if (queue.poll() != null) {
+                            dropped.increment();
+                        }
+                    }
+                    return true;
+                case CALLER_RUNS:
+                    callerRuns.increment();
+                    deliveryLock.lock();
+                    try {
+                        drain(Integer.MAX_VALUE);
+                        onEvent(listener, envelope);
+                    } finally {
+                        deliveryLock.unlock();
+                    }
+                    return false;
+                default:
+                    try {
+                        queue.put(envelope);
+                        return true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.increment();
+                        LOGGER.warn("Interrupted while waiting to queue event [{}] for listener [{}].  The event has "
+                                + "been discarded.", envelope.event, listener);
+                        return false;
+                    }
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.debug("Executor rejected delivery to listener [{}], delivering on the calling thread.",
+                            listener);
+                    callerRuns.increment();
+                    run();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                deliveryLock.lock();
+                try {
+                    drain(MAX_BATCH);
+                } finally {
+                    deliveryLock.unlock();
+                }
+            } finally {
+                scheduled.set(false);
+                // an event queued after the last poll but before the flag was cleared must not be left behind:
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void drain(int max) {
+            Envelope envelope;
+            for (int i = 0; i < max && (envelope = queue.poll()) != null; i++) {
+                onEvent(listener, envelope);
+            }
+        }
+    }
+}
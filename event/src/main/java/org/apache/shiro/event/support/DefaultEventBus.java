@@ -23,13 +23,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A default event bus implementation that synchronously publishes events to registered listeners.  Listeners can be
@@ -67,7 +68,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * concept, although no code was shared/imported (even though Guava is Apache 2.0 licensed and could have
  * been used).
  * <p>
- * This implementation is thread-safe and may be used concurrently.
+ * This implementation is thread-safe and may be used concurrently.  Use an {@link AsyncEventBus} to deliver events
+ * on other threads instead of the publishing thread.  Publishing is lock-free: registrations are held in
+ * an immutable snapshot that is replaced on every {@link #register register} and {@link #unregister unregister} call,
+ * and for each event class the listeners that receive events of that class are computed once per snapshot, so that
+ * publishing an event costs a single map lookup followed by direct listener invocations.
  *
  * @since 1.3
  */
@@ -81,32 +86,25 @@ public class DefaultEventBus implements EventBus {
     //this is stateless, we can retain a static final reference:
     private static final EventListenerComparator EVENT_LISTENER_COMPARATOR = new EventListenerComparator();
 
+    private static final EventListener[] NO_LISTENERS = new EventListener[0];
+
+    private static final Dispatch NO_DISPATCH = new Dispatch(new Object[0], NO_LISTENERS);
+
     private EventListenerResolver eventListenerResolver;
 
     //We want to preserve registration order to deliver events to objects in the order that they are registered
     //with the event bus.  This has the nice effect that any Shiro system-level components that are registered first
     //(likely to happen upon startup) have precedence over those registered by end-user components later.
     //
-    //One might think that this could have been done by just using a ConcurrentSkipListMap (which is available only on
-    //JDK 6 or later).  However, this approach requires the implementation of a Comparator to sort elements, and this
-    //surfaces a problem: for any given random event listener, there isn't any guaranteed property to exist that can be
-    //inspected to determine order of registration, since registration order is an artifact of this EventBus
-    //implementation, not the listeners themselves.
-    //
-    //Therefore, we use a simple concurrent lock to wrap a LinkedHashMap - the LinkedHashMap retains insertion order
-    //and the lock provides thread-safety in probably a much simpler mechanism than attempting to write a
-    //EventBus-specific Comparator.  This technique is also likely to be faster than a ConcurrentSkipListMap, which
-    //is about 3-5 times slower than a standard ConcurrentMap.
-    private final Map<Object, Subscription> registry;
-    private final Lock registryReadLock;
-    private final Lock registryWriteLock;
+    //Registrations are very rare compared to published events, so the registry is an immutable snapshot (retaining
+    //registration order via a LinkedHashMap) that is copied and swapped on every registration change.  Publishing
+    //only reads the volatile reference and never blocks; writers are serialized on the registryMonitor.
+    private volatile Registry registry;
+    private final Object registryMonitor;
 
     public DefaultEventBus() {
-        //not thread safe, so we need locks:
-        this.registry = new LinkedHashMap<Object, Subscription>();
-        ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
-        this.registryReadLock = rwl.readLock();
-        this.registryWriteLock = rwl.writeLock();
+        this.registry = new Registry(Collections.<Object, Subscription>emptyMap());
+        this.registryMonitor = new Object();
         this.eventListenerResolver = new AnnotationEventListenerResolver();
     }
 
@@ -124,26 +122,27 @@ public class DefaultEventBus implements EventBus {
             return;
         }
 
-        registryReadLock.lock();
+        Dispatch dispatch = this.registry.getDispatchTable(event.getClass());
+        for (int i = 0; i < dispatch.listeners.length; i++) {
+            deliver(dispatch.subscribers[i], dispatch.listeners[i], event);
+        }
+    }
+
+    /**
+     * Delivers a published event to one of the listeners of a registered subscriber.  This implementation invokes
+     * the listener on the calling thread and logs (rather than propagates) any exception it throws.  Subclasses may
+     * override this method to change how and where events are delivered, as the {@link AsyncEventBus} does.
+     *
+     * @param subscriber the registered instance the listener belongs to.
+     * @param listener   the listener to deliver the event to.
+     * @param event      the published event.
+     * @since 2.0
+     */
+    protected void deliver(Object subscriber, EventListener listener, Object event) {
         try {
-            //performing the entire iteration within the lock will be a slow operation if the registry has a lot of
-            //contention.  However, it is expected that the very large majority of cases the registry will be
-            //read-mostly with very little writes (registrations or removals) occurring during a typical application
-            //lifetime.
-            //
-            //The alternative would be to copy the registry.values() collection to a new LinkedHashSet within the lock
-            //only and the iteration on this new collection could be outside the lock.  This has the performance penalty
-            //however of always creating a new collection every time an event is published,  which could be more
-            //costly for the majority of applications, especially if the number of listeners is large.
-            //
-            //Finally, the read lock is re-entrant, so multiple publish calls will be
-            //concurrent without penalty since publishing is a read-only operation on the registry.
-
-            for (Subscription subscription : this.registry.values()) {
-                subscription.onEvent(event);
-            }
-        } finally {
-            registryReadLock.unlock();
+            listener.onEvent(event);
+        } catch (Throwable t) {
+            LOGGER.warn(EVENT_LISTENER_ERROR_MSG, t);
         }
     }
 
@@ -165,11 +164,10 @@ public class DefaultEventBus implements EventBus {
 
         Subscription subscription = new Subscription(listeners);
 
-        this.registryWriteLock.lock();
-        try {
-            this.registry.put(instance, subscription);
-        } finally {
-            this.registryWriteLock.unlock();
+        synchronized (this.registryMonitor) {
+            Map<Object, Subscription> subscriptions = new LinkedHashMap<Object, Subscription>(this.registry.subscriptions);
+            subscriptions.put(instance, subscription);
+            this.registry = new Registry(subscriptions);
         }
     }
 
@@ -177,22 +175,117 @@ public class DefaultEventBus implements EventBus {
         if (instance == null) {
             return;
         }
-        this.registryWriteLock.lock();
-        try {
-            this.registry.remove(instance);
-        } finally {
-            this.registryWriteLock.unlock();
+        synchronized (this.registryMonitor) {
+            if (this.registry.subscriptions.containsKey(instance)) {
+                Map<Object, Subscription> subscriptions =
+                        new LinkedHashMap<Object, Subscription>(this.registry.subscriptions);
+                subscriptions.remove(instance);
+                this.registry = new Registry(subscriptions);
+            }
         }
     }
 
-    private static class Subscription {
+    /**
+     * An immutable snapshot of all subscriptions, in registration order, together with the dispatch tables computed
+     * from it so far.
+     */
+    private static final class Registry {
+
+        private final Map<Object, Subscription> subscriptions;
+
+        private final ConcurrentMap<Class<?>, Dispatch> dispatchTables;
+
+        Registry(Map<Object, Subscription> subscriptions) {
+            this.subscriptions = subscriptions;
+            this.dispatchTables = new ConcurrentHashMap<Class<?>, Dispatch>();
+        }
+
+        int size() {
+            return subscriptions.size();
+        }
+
+        /**
+         * Returns the listeners to invoke, in order, for an event of the specified class.  Listeners of subscriptions
+         * whose acceptance depends only on the event class are resolved to exactly those that receive the event;
+         * subscriptions with any other listener are included as a whole and evaluated per event.
+         */
+        Dispatch getDispatchTable(Class<?> eventClass) {
+            Dispatch table = dispatchTables.get(eventClass);
+            if (table == null) {
+                List<Object> subscribers = new ArrayList<Object>();
+                List<EventListener> listeners = new ArrayList<EventListener>();
+                for (Map.Entry<Object, Subscription> entry : subscriptions.entrySet()) {
+                    entry.getValue().collectDispatch(eventClass, listeners);
+                    while (subscribers.size() < listeners.size()) {
+                        subscribers.add(entry.getKey());
+                    }
+                }
+                table = listeners.isEmpty() ? NO_DISPATCH
+                        : new Dispatch(subscribers.toArray(), listeners.toArray(NO_LISTENERS));
+                Dispatch existing = dispatchTables.putIfAbsent(eventClass, table);
+                if (existing != null) {
+                    table = existing;
+                }
+            }
+            return table;
+        }
+    }
+
+    /**
+     * The listeners receiving events of one class, in delivery order, each with the subscriber it belongs to.
+     */
+    private static final class Dispatch {
+
+        private final Object[] subscribers;
+
+        private final EventListener[] listeners;
+
+        Dispatch(Object[] subscribers, EventListener[] listeners) {
+            this.subscribers = subscribers;
+            this.listeners = listeners;
+        }
+    }
+
+    private static class Subscription implements EventListener {
 
         private final List<EventListener> listeners;
 
+        /**
+         * Whether every listener accepts events based solely on their class, so that the listeners receiving a given
+         * event can be determined from its class alone.
+         */
+        private final boolean typed;
+
         Subscription(List<EventListener> listeners) {
             List<EventListener> toSort = new ArrayList<EventListener>(listeners);
             toSort.sort(EVENT_LISTENER_COMPARATOR);
             this.listeners = toSort;
+            boolean typed = true;
+            for (EventListener listener : toSort) {
+                //subclasses may override accepts(), so only the exact class is known to be purely type-based:
+                typed &= listener.getClass() == SingleArgumentMethodEventListener.class;
+            }
+            this.typed = typed;
+        }
+
+        void collectDispatch(Class<?> eventClass, List<EventListener> dispatch) {
+            if (!typed) {
+                dispatch.add(this);
+                return;
+            }
+            Set<Object> delivered = new HashSet<Object>();
+            for (EventListener listener : this.listeners) {
+                SingleArgumentMethodEventListener typedListener = (SingleArgumentMethodEventListener) listener;
+                Class<?> eventType = typedListener.getEventType();
+                if (eventType.isAssignableFrom(eventClass)
+                        && delivered.add(typedListener.getTarget())) {
+                    dispatch.add(listener);
+                }
+            }
+        }
+
+        public boolean accepts(Object event) {
+            return true;
         }
 
         public void onEvent(Object event) {
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.event.support
+
+import org.apache.shiro.event.Subscribe
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+import static org.junit.jupiter.api.Assertions.*
+
+/**
+ * @since 2.0
+ */
+class AsyncEventBusTest {
+
+    AsyncEventBus bus
+
+    ManualExecutor manual
+
+    @BeforeEach
+    void setUp() {
+        bus = new AsyncEventBus()
+        manual = new ManualExecutor()
+    }
+
+    @Test
+    void testEventsAreDeliveredOnOtherThreadsInOrder() {
+        def subscriber = new SequenceSubscriber(1000)
+        bus.register(subscriber)
+
+        for (int i = 0; i < 1000; i++) {
+            bus.publish(new SequenceEvent(i))
+        }
+
+        assertTrue subscriber.done.await(10, TimeUnit.SECONDS)
+        assertEquals((0..<1000).toList(), subscriber.received)
+        assertFalse subscriber.threads.contains(Thread.currentThread())
+        assertEquals 1000, bus.deliveredCount
+        assertEquals 1000, bus.publishedCount
+        assertTrue bus.maxDeliveryLagNanos >= 0
+    }
+
+    @Test
+    void testSameListenersAsDefaultEventBus() {
+        def subscriber = new TestSubscriber()
+        bus.executor = manual
+        bus.register(subscriber)
+
+        bus.publish(new BarEvent(this))
+        bus.publish(new SimpleEvent())
+        assertEquals 1, bus.queueDepth
+        manual.runAll()
+
+        assertEquals 0, subscriber.fooCount
+        assertEquals 1, subscriber.barCount
+        assertEquals 0, bus.queueDepth
+    }
+
+    @Test
+    void testDropOldest() {
+        def subscriber = new SequenceSubscriber(2)
+        bus.executor = manual
+        bus.queueCapacity = 2
+        bus.overflowPolicy = AsyncEventBus.OverflowPolicy.DROP_OLDEST
+        bus.register(subscriber)
+
+        for (int i = 0; i < 5; i++) {
+            bus.publish(new SequenceEvent(i))
+        }
+        assertEquals 3, bus.droppedCount
+        assertEquals 2, bus.queueDepth
+
+        manual.runAll()
+        assertEquals([3, 4], subscriber.received)
+    }
+
+    @Test
+    void testCallerRunsPreservesOrder() {
+        def subscriber = new SequenceSubscriber(3)
+        bus.executor = manual
+        bus.queueCapacity = 1
+        bus.overflowPolicy = AsyncEventBus.OverflowPolicy.CALLER_RUNS
+        bus.register(subscriber)
+
+        bus.publish(new SequenceEvent(0))
+        bus.publish(new SequenceEvent(1))
+        assertEquals([0, 1], subscriber.received)
+        assertEquals([Thread.currentThread(), Thread.currentThread()], subscriber.threads)
+        assertEquals 1, bus.callerRunsCount
+
+        bus.publish(new SequenceEvent(2))
+        manual.runAll()
+        assertEquals([0, 1, 2], subscriber.received)
+        assertEquals 0, bus.droppedCount
+    }
+
+    @Test
+    void testSubscriberAndEventTypeExecutors() {
+        def byType = new ManualExecutor()
+        def bySubscriber = new ManualExecutor()
+        bus.executor = manual
+        bus.eventTypeExecutors = [(FooEvent): byType]
+        bus.subscriberExecutors = [(SequenceSubscriber): bySubscriber]
+
+        def typed = new TestSubscriber()
+        def sequence = new SequenceSubscriber(1)
+        bus.register(typed)
+        bus.register(sequence)
+
+        bus.publish(new BarEvent(this))
+        bus.publish(new SequenceEvent(0))
+
+        // BarEvent extends FooEvent, so the listener for BarEvent uses the FooEvent executor:
+        assertEquals 1, byType.tasks.size()
+        assertEquals 1, bySubscriber.tasks.size()
+        assertEquals 0, manual.tasks.size()
+
+        byType.runAll()
+        bySubscriber.runAll()
+        assertEquals 1, typed.barCount
+        assertEquals([0], sequence.received)
+    }
+
+    @Test
+    void testRejectedDeliveryRunsOnCallingThread() {
+        def subscriber = new SequenceSubscriber(1)
+        bus.executor = { Runnable r -> throw new java.util.concurrent.RejectedExecutionException() } as Executor
+        bus.register(subscriber)
+
+        bus.publish(new SequenceEvent(7))
+        assertEquals([7], subscriber.received)
+        assertEquals 1, bus.callerRunsCount
+    }
+
+    @Test
+    void testListenerExceptionsAreCounted() {
+        bus.executor = manual
+        bus.register(new ExceptionThrowingSubscriber())
+        bus.publish(new ErrorCausingEvent())
+        manual.runAll()
+        assertEquals 1, bus.failedCount
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException, { bus.queueCapacity = 0 })
+        assertThrows(IllegalArgumentException, { bus.overflowPolicy = null })
+    }
+
+    static class SequenceEvent {
+        final int n
+
+        SequenceEvent(int n) {
+            this.n = n
+        }
+    }
+
+    static class SequenceSubscriber {
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>())
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>())
+        final CountDownLatch done
+
+        SequenceSubscriber(int expected) {
+            done = new CountDownLatch(expected)
+        }
+
+        @Subscribe
+        void onEvent(SequenceEvent event) {
+            received.add(event.n)
+            threads.add(Thread.currentThread())
+            done.countDown()
+        }
+    }
+
+    static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<Runnable>()
+
+        void execute(Runnable command) {
+            tasks.add(command)
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run()
+            }
+        }
+    }
+}
@@ -188,4 +188,70 @@ class DefaultEventBusTest {
         assertEquals 0, error.count
     }
 
+    @Test
+    void testRegistrationChangesAreVisibleToSubsequentEvents() {
+        def first = new TestSubscriber()
+        bus.register(first)
+        bus.publish(new FooEvent(this))
+
+        def second = new TestSubscriber()
+        bus.register(second)
+        bus.publish(new FooEvent(this))
+
+        bus.unregister(first)
+        bus.publish(new FooEvent(this))
+
+        assertEquals 2, first.fooCount
+        assertEquals 2, second.fooCount
+    }
+
+    @Test
+    void testRegisterFromWithinListener() {
+        def late = new TestSubscriber()
+        def registering = new Object() {
+            int count
+
+            @org.apache.shiro.event.Subscribe
+            void onEvent(SimpleEvent event) {
+                count++
+                bus.register(late)
+            }
+        }
+        bus.register(registering)
+
+        bus.publish(new SimpleEvent())
+        bus.publish(new FooEvent(this))
+
+        assertEquals 1, registering.count
+        assertEquals 1, late.fooCount
+    }
+
+    @Test
+    void testCustomListenersAreEvaluatedPerEvent() {
+        int received = 0
+        boolean enabled = false
+        def listener = new EventListener() {
+            boolean accepts(Object event) {
+                return enabled && event instanceof SimpleEvent
+            }
+
+            void onEvent(Object event) {
+                received++
+            }
+        }
+        bus.eventListenerResolver = new EventListenerResolver() {
+            List<EventListener> getEventListeners(Object instance) {
+                return [listener]
+            }
+        }
+        bus.register(new Object())
+
+        bus.publish(new SimpleEvent())
+        assertEquals 0, received
+
+        enabled = true
+        bus.publish(new FooEvent(this))
+        bus.publish(new SimpleEvent())
+        assertEquals 1, received
+    }
 }
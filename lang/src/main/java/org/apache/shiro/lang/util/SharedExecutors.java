@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.lang.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the shared, bounded default executors that Shiro components run background work on when the application
+ * has not configured an executor of its own.
+ * <p/>
+ * Each {@link #get(String) named} executor is created on first use and has at most as many daemon threads as there
+ * are available processors (but at least two), which are released after a minute without work, and a bounded queue.
+ * Once the threads are busy and the queue is full, further tasks are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException RejectedExecutionException} rather than run on the
+ * submitting thread, which may be an event loop or other thread that must not block.  Callers decide how to handle a
+ * rejection: asynchronous operations fail the stage they return, while callers that wait for the result anyway run
+ * the task themselves.
+ *
+ * @since 2.0
+ */
+public final class SharedExecutors {
+
+    private static final int MIN_THREADS = 2;
+
+    private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private static final ConcurrentMap<String, Executor> EXECUTORS = new ConcurrentHashMap<String, Executor>();
+
+    private SharedExecutors() {
+    }
+
+    /**
+     * Returns the shared executor with the specified name, creating it if necessary.  The name is used as the prefix
+     * of the names of the executor's threads, for example {@code shiro-event}.
+     *
+     * @param name the name of the executor.
+     * @return the shared executor with the specified name.
+     */
+    public static Executor get(String name) {
+        Executor executor = EXECUTORS.get(name);
+        return executor != null ? executor : EXECUTORS.computeIfAbsent(name, SharedExecutors::create);
+    }
+
+    private static Executor create(String name) {
+        int threads = Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors());
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_CAPACITY_PER_THREAD), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
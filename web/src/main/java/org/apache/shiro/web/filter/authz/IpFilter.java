@@ -24,7 +24,9 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Collection;
 
@@ -44,6 +46,19 @@ import java.util.Collection;
  * # override for just this path:
  * /another/path/** = localLan
  * </pre>
+ * <p/>
+ * The statically configured ranges and the ranges obtained from the {@link IpSource} are compiled into
+ * {@link IpRangeTrie}s, so each request parses the remote address once and checks it in time proportional to the
+ * address length rather than to the number of ranges.  The ranges obtained from the {@code IpSource} are compiled into
+ * a snapshot that is rebuilt and swapped in atomically whenever the source returns different ranges, at most once per
+ * {@link #setIpSourceRefreshInterval(long) ipSourceRefreshInterval} if one is set, or immediately when
+ * {@link #refreshIpSource()} is called, for example by whatever watches the file or service the ranges come from.
+ * <p/>
+ * Whenever the {@code IpSource} is read, the ranges it returns are compared with the ones of the current snapshot,
+ * so ranges added to or removed from the collections it holds take effect with the next read.  Comparing costs time
+ * proportional to the number of ranges; an {@code IpSource} with many ranges can avoid it by returning a
+ * {@link IpSource#getVersion() version} that changes with its ranges, in which case checking it costs a single
+ * comparison per request.
  *
  * @since 2.0
  */
@@ -61,8 +76,12 @@ public class IpFilter extends AuthorizationFilter {
 
     private IpSource ipSource = DEFAULT_IP_SOURCE;
 
-    private List<IpAddressMatcher> authorizedIpMatchers = Collections.emptyList();
-    private List<IpAddressMatcher> deniedIpMatchers = Collections.emptyList();
+    private volatile IpRangeTrie authorizedIpRanges = IpRangeTrie.empty();
+    private volatile IpRangeTrie deniedIpRanges = IpRangeTrie.empty();
+
+    private volatile long ipSourceRefreshInterval;
+
+    private volatile IpSourceSnapshot ipSourceSnapshot;
 
     /**
      * Specifies a set of (comma, tab or space-separated) strings representing
@@ -74,10 +93,7 @@ public class IpFilter extends AuthorizationFilter {
     public void setAuthorizedIps(String authorizedIps) {
         String[] ips = StringUtils.tokenizeToStringArray(authorizedIps, ", \t");
         if (ips != null && ips.length > 0) {
-            authorizedIpMatchers = new ArrayList<IpAddressMatcher>();
-            for (String ip : ips) {
-                authorizedIpMatchers.add(new IpAddressMatcher(ip));
-            }
+            authorizedIpRanges = IpRangeTrie.compile(Arrays.asList(ips));
         }
     }
 
@@ -89,15 +105,49 @@ public class IpFilter extends AuthorizationFilter {
     public void setDeniedIps(String deniedIps) {
         String[] ips = StringUtils.tokenizeToStringArray(deniedIps, ", \t");
         if (ips != null && ips.length > 0) {
-            deniedIpMatchers = new ArrayList<IpAddressMatcher>();
-            for (String ip : ips) {
-                deniedIpMatchers.add(new IpAddressMatcher(ip));
-            }
+            deniedIpRanges = IpRangeTrie.compile(Arrays.asList(ips));
         }
     }
 
     public void setIpSource(IpSource source) {
         this.ipSource = source;
+        this.ipSourceSnapshot = null;
+    }
+
+    /**
+     * Returns the minimum number of milliseconds between two reads of the {@link IpSource}, or {@code 0} (the default)
+     * if the source is read on every request.
+     *
+     * @return the minimum number of milliseconds between two reads of the {@code IpSource}.
+     * @since 2.0
+     */
+    public long getIpSourceRefreshInterval() {
+        return ipSourceRefreshInterval;
+    }
+
+    /**
+     * Sets the minimum number of milliseconds between two reads of the {@link IpSource}.  The default of {@code 0}
+     * reads the source on every request.  Whenever the source is read, the ranges it returns are compared with the
+     * ones last read, whether or not they are held by the same collections, and are only compiled again if they
+     * changed; a source that {@link IpSource#getVersion() tracks its version} is only compared when its version
+     * changed.  A positive interval avoids even reading the source, at the cost of changes taking up to that long to
+     * take effect (unless {@link #refreshIpSource()} is called).
+     *
+     * @param ipSourceRefreshInterval the minimum number of milliseconds between two reads of the {@code IpSource}.
+     * @since 2.0
+     */
+    public void setIpSourceRefreshInterval(long ipSourceRefreshInterval) {
+        this.ipSourceRefreshInterval = ipSourceRefreshInterval;
+    }
+
+    /**
+     * Reads the {@link IpSource} immediately and atomically replaces the ranges compiled from it.  Requests being
+     * checked concurrently see either the previous or the new ranges, never a mix of both.
+     *
+     * @since 2.0
+     */
+    public void refreshIpSource() {
+        this.ipSourceSnapshot = loadIpSource(null);
     }
 
     /**
@@ -112,28 +162,99 @@ public class IpFilter extends AuthorizationFilter {
 
     protected boolean isAccessAllowed(ServletRequest request, ServletResponse response, Object mappedValue) throws Exception {
         String remoteIp = getHostFromRequest(request);
-        for (IpAddressMatcher matcher : deniedIpMatchers) {
-            if (matcher.matches(remoteIp)) {
-                return false;
-            }
+        IpRangeTrie denied = deniedIpRanges;
+        IpRangeTrie authorized = authorizedIpRanges;
+        IpSourceSnapshot source = currentIpSource();
+        if (authorized.isEmpty() && source.authorized.isEmpty()) {
+            return false;
+        }
+        byte[] address = IpRangeTrie.toBytes(remoteIp);
+        if (denied.matches(address) || source.denied.matches(address)) {
+            return false;
+        }
+        return authorized.matches(address) || source.authorized.matches(address);
+    }
+
+    private IpSourceSnapshot currentIpSource() {
+        IpSourceSnapshot snapshot = this.ipSourceSnapshot;
+        long interval = ipSourceRefreshInterval;
+        if (snapshot != null && interval > 0 && System.currentTimeMillis() - snapshot.loadedAt < interval) {
+            return snapshot;
+        }
+        IpSourceSnapshot loaded = loadIpSource(snapshot);
+        if (loaded != snapshot) {
+            this.ipSourceSnapshot = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads the {@code IpSource}, reusing the specified previous snapshot if the source reports an unchanged version,
+     * or its tries if the source returned the same ranges.  Ranges are always compared by content, so changes made to
+     * the collections held by the source are picked up as well.
+     */
+    private IpSourceSnapshot loadIpSource(IpSourceSnapshot previous) {
+        IpSource source = this.ipSource;
+        long version = source.getVersion();
+        boolean refreshDue = ipSourceRefreshInterval > 0;
+        if (previous != null && version >= 0 && version == previous.version && !refreshDue) {
+            return previous;
+        }
+        Collection<String> authorizedIps = source.getAuthorizedIps();
+        Collection<String> deniedIps = source.getDeniedIps();
+        if (previous != null && sameRanges(previous.authorizedIps, authorizedIps)
+                && sameRanges(previous.deniedIps, deniedIps)) {
+            return version == previous.version && !refreshDue
+                    ? previous : new IpSourceSnapshot(previous, version, System.currentTimeMillis());
+        }
+        return new IpSourceSnapshot(authorizedIps, deniedIps, version, System.currentTimeMillis());
+    }
+
+    private static boolean sameRanges(List<String> snapshot, Collection<String> ranges) {
+        if (ranges == null || snapshot.size() != ranges.size()) {
+            return ranges == null && snapshot.isEmpty();
         }
-        for (String ip : ipSource.getDeniedIps()) {
-            IpAddressMatcher matcher = new IpAddressMatcher(ip);
-            if (matcher.matches(remoteIp)) {
+        Iterator<String> it = ranges.iterator();
+        for (String range : snapshot) {
+            if (!range.equals(it.next())) {
                 return false;
             }
         }
-        for (IpAddressMatcher matcher : authorizedIpMatchers) {
-            if (matcher.matches(remoteIp)) {
-                return true;
-            }
+        return true;
+    }
+
+    /**
+     * The ranges obtained from the {@code IpSource} at one point in time, together with the tries compiled from them.
+     */
+    private static final class IpSourceSnapshot {
+        private final List<String> authorizedIps;
+        private final List<String> deniedIps;
+        private final IpRangeTrie authorized;
+        private final IpRangeTrie denied;
+        private final long version;
+        private final long loadedAt;
+
+        private IpSourceSnapshot(Collection<String> authorizedIps, Collection<String> deniedIps, long version,
+                                 long loadedAt) {
+            this.authorizedIps = copy(authorizedIps);
+            this.deniedIps = copy(deniedIps);
+            this.authorized = IpRangeTrie.compile(this.authorizedIps);
+            this.denied = IpRangeTrie.compile(this.deniedIps);
+            this.version = version;
+            this.loadedAt = loadedAt;
         }
-        for (String ip : ipSource.getAuthorizedIps()) {
-            IpAddressMatcher matcher = new IpAddressMatcher(ip);
-            if (matcher.matches(remoteIp)) {
-                return true;
-            }
+
+        private IpSourceSnapshot(IpSourceSnapshot previous, long version, long loadedAt) {
+            this.authorizedIps = previous.authorizedIps;
+            this.deniedIps = previous.deniedIps;
+            this.authorized = previous.authorized;
+            this.denied = previous.denied;
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+
+        private static List<String> copy(Collection<String> ranges) {
+            return ranges != null ? new ArrayList<String>(ranges) : Collections.<String>emptyList();
         }
-        return false;
     }
 }
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.authz;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+
+/**
+ * An immutable set of IPv4 and IPv6 address ranges compiled into a binary prefix trie, answering whether an address
+ * falls within any of the ranges in time proportional to the address length (32 or 128 bits), regardless of the
+ * number of ranges.
+ * <p/>
+ * Ranges use the same syntax and have the same semantics as an {@link IpAddressMatcher}: either a single address or
+ * an {@code address/prefixLength} CIDR block, where an IPv4 range never matches an IPv6 address and vice-versa.
+ * {@link #matches(String) matches} returns exactly what testing each range's {@code IpAddressMatcher} in turn would,
+ * but parses the address only once, and parses dotted-quad IPv4 literals without going through
+ * {@link InetAddress#getByName(String)}.
+ * <p/>
+ * Ranges that are already covered by a shorter prefix are discarded while compiling, so the trie never holds more than
+ * one terminal node on any path.  Instances are thread-safe, and are meant to be compiled off the request path and then
+ * swapped in atomically (see {@link IpFilter}).
+ *
+ * @since 2.0
+ */
+public final class IpRangeTrie {
+
+    private static final IpRangeTrie EMPTY = new IpRangeTrie(new Node(), new Node(), 0);
+
+    private static final int IPV4_BYTES = 4;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int MAX_OCTET = 255;
+    private static final int MAX_OCTET_DIGITS = 3;
+    private static final int DECIMAL = 10;
+    private static final int HIGH_BIT = 0x80;
+
+    private final Node ipv4;
+
+    private final Node ipv6;
+
+    private final int size;
+
+    private IpRangeTrie(Node ipv4, Node ipv6, int size) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.size = size;
+    }
+
+    /**
+     * Returns an {@code IpRangeTrie} that does not match any address.
+     *
+     * @return an {@code IpRangeTrie} that does not match any address.
+     */
+    public static IpRangeTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles the specified address ranges into a new {@code IpRangeTrie}.
+     *
+     * @param ranges addresses or CIDR blocks such as {@code 192.168.1.0/24} or {@code 2001:db8::/32}, may be
+     *               {@code null} or empty.
+     * @return a new {@code IpRangeTrie} matching every address within any of the specified ranges.
+     * @throws IllegalArgumentException if any of the ranges cannot be parsed or has an invalid prefix length.
+     */
+    public static IpRangeTrie compile(Collection<String> ranges) {
+        if (ranges == null || ranges.isEmpty()) {
+            return EMPTY;
+        }
+        Node ipv4 = new Node();
+        Node ipv6 = new Node();
+        int size = 0;
+        for (String range : ranges) {
+            int i = range.indexOf('/');
+            int prefixLength = -1;
+            String address = range;
+            if (i > 0) {
+                prefixLength = Integer.parseInt(range.substring(i + 1));
+                address = range.substring(0, i);
+            }
+            byte[] bytes = parseAddress(address).getAddress();
+            int bits = bytes.length * BITS_PER_BYTE;
+            if (prefixLength < 0) {
+                prefixLength = bits;
+            } else if (prefixLength > bits) {
+                throw new IllegalArgumentException("Invalid prefix length in IP range " + range);
+            }
+            (bytes.length == IPV4_BYTES ? ipv4 : ipv6).add(bytes, prefixLength);
+            size++;
+        }
+        return new IpRangeTrie(ipv4, ipv6, size);
+    }
+
+    /**
+     * Returns the number of ranges this trie was compiled from.
+     *
+     * @return the number of ranges this trie was compiled from.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this trie does not match any address, {@code false} otherwise.
+     *
+     * @return {@code true} if this trie does not match any address, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if the specified address falls within any of the ranges of this trie.
+     *
+     * @param address the IPv4 or IPv6 address to check.
+     * @return {@code true} if the specified address falls within any of the ranges of this trie.
+     * @throws IllegalArgumentException if this trie is not empty and the address cannot be parsed.
+     */
+    public boolean matches(String address) {
+        return size > 0 && matches(toBytes(address));
+    }
+
+    /**
+     * Returns {@code true} if the specified address, as returned by {@link #toBytes(String)}, falls within any of the
+     * ranges of this trie.  Allows several tries to be checked while parsing the address only once.
+     */
+    boolean matches(byte[] address) {
+        Node node = address.length == IPV4_BYTES ? ipv4 : ipv6;
+        int bits = address.length * BITS_PER_BYTE;
+        for (int i = 0; node != null; i++) {
+            if (node.terminal) {
+                return true;
+            }
+            if (i == bits) {
+                return false;
+            }
+            node = bit(address, i) ? node.one : node.zero;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the raw bytes of the specified address: 4 bytes for IPv4 (including IPv4-mapped IPv6) addresses and 16
+     * bytes for IPv6 addresses.
+     */
+    static byte[] toBytes(String address) {
+        byte[] bytes = parseDottedQuad(address);
+        return bytes != null ? bytes : parseAddress(address).getAddress();
+    }
+
+    /**
+     * Parses a strict {@code a.b.c.d} literal of decimal octets without leading zeros, returning {@code null} for
+     * anything else, which is then left to {@link InetAddress#getByName(String)}.
+     */
+    private static byte[] parseDottedQuad(String address) {
+        if (address == null) {
+            return null;
+        }
+        byte[] bytes = new byte[IPV4_BYTES];
+        int start = 0;
+        for (int octet = 0; octet < IPV4_BYTES; octet++) {
+            int end = address.indexOf('.', start);
+            if (end < 0) {
+                end = address.length();
+            } else if (octet == IPV4_BYTES - 1) {
+                return null;
+            }
+            int value = parseOctet(address, start, end);
+            if (value < 0) {
+                return null;
+            }
+            bytes[octet] = (byte) value;
+            start = end + 1;
+        }
+        return bytes;
+    }
+
+    private static int parseOctet(String address, int start, int end) {
+        int length = end - start;
+        if (length < 1 || length > MAX_OCTET_DIGITS || (length > 1 && address.charAt(start) == '0')) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = address.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * DECIMAL + (c - '0');
+        }
+        return value <= MAX_OCTET ? value : -1;
+    }
+
+    private static InetAddress parseAddress(String address) {
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Failed to parse address " + address, e);
+        }
+    }
+
+    private static boolean bit(byte[] address, int i) {
+        return (address[i / BITS_PER_BYTE] & (HIGH_BIT >>> (i % BITS_PER_BYTE))) != 0;
+    }
+
+    /**
+     * A trie node, only mutated while its trie is being compiled and safely published via the trie's final fields.
+     */
+    private static final class Node {
+
+        private Node zero;
+
+        private Node one;
+
+        /**
+         * {@code true} if a range ends at this node, i.e. every address below it matches.
+         */
+        private boolean terminal;
+
+        void add(byte[] address, int prefixLength) {
+            Node node = this;
+            for (int i = 0; i < prefixLength; i++) {
+                if (node.terminal) {
+                    // already covered by a shorter prefix
+                    return;
+                }
+                if (bit(address, i)) {
+                    if (node.one == null) {
+                        node.one = new Node();
+                    }
+                    node = node.one;
+                } else {
+                    if (node.zero == null) {
+                        node.zero = new Node();
+                    }
+                    node = node.zero;
+                }
+            }
+            node.terminal = true;
+            // longer prefixes below this node are now redundant
+            node.zero = null;
+            node.one = null;
+        }
+    }
+}
@@ -42,4 +42,16 @@ public interface IpSource {
      */
     Collection<String> getDeniedIps();
 
+    /**
+     * Returns a number that changes whenever the authorized or denied IPs change, or {@code -1} if this source does
+     * not track its changes.  A source returning a version lets the {@link IpFilter} skip comparing the IPs with the
+     * ones it last read as long as the version is unchanged.  The default implementation returns {@code -1}.
+     *
+     * @return a number that changes whenever the IPs change, or {@code -1} if changes are not tracked.
+     * @since 2.0
+     */
+    default long getVersion() {
+        return -1L;
+    }
+
 }
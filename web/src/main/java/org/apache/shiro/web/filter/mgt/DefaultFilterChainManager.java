@@ -31,10 +31,12 @@ import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Default {@link FilterChainManager} implementation maintaining a map of {@link Filter Filter} instances
@@ -66,6 +68,11 @@ public class DefaultFilterChainManager implements FilterChainManager {
      */
     private Map<String, NamedFilterList> filterChains;
 
+    /**
+     * Incremented whenever a chain is added or the chains are replaced.
+     */
+    private final AtomicLong modificationCount = new AtomicLong();
+
     public DefaultFilterChainManager() {
         this.filters = new LinkedHashMap<String, Filter>();
         this.filterChains = new LinkedHashMap<String, NamedFilterList>();
@@ -108,13 +115,26 @@ public class DefaultFilterChainManager implements FilterChainManager {
         this.filters = filters;
     }
 
+    /**
+     * Returns an unmodifiable view of the configured chains, keyed by chain name.  Chains are added by
+     * {@link #createChain(String, String) createChain} and {@link #addToChain(String, String) addToChain}, or replaced
+     * as a whole by {@link #setFilterChains(Map) setFilterChains}.
+     *
+     * @return an unmodifiable view of the configured chains, keyed by chain name.
+     */
     public Map<String, NamedFilterList> getFilterChains() {
-        return filterChains;
+        return filterChains != null ? Collections.unmodifiableMap(filterChains) : null;
     }
 
+    /**
+     * Replaces all configured chains with a copy of the specified chains, keyed by chain name.
+     *
+     * @param filterChains the chains to configure, keyed by chain name.
+     */
     @SuppressWarnings({"UnusedDeclaration"})
     public void setFilterChains(Map<String, NamedFilterList> filterChains) {
-        this.filterChains = filterChains;
+        this.filterChains = filterChains != null ? new LinkedHashMap<String, NamedFilterList>(filterChains) : null;
+        modificationCount.incrementAndGet();
     }
 
     public Filter getFilter(String name) {
@@ -345,6 +365,7 @@ public class DefaultFilterChainManager implements FilterChainManager {
         if (chain == null) {
             chain = new SimpleNamedFilterList(chainName);
             this.filterChains.put(chainName, chain);
+            modificationCount.incrementAndGet();
         }
         return chain;
     }
@@ -361,6 +382,17 @@ public class DefaultFilterChainManager implements FilterChainManager {
         return this.filterChains != null ? this.filterChains.keySet() : Set.of();
     }
 
+    /**
+     * Returns the number of times a chain was added or the chains were {@link #setFilterChains(Map) replaced}.
+     *
+     * @return a number that changes whenever the chain names may have changed.
+     * @since 2.0
+     */
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
     public FilterChain proxy(FilterChain original, String chainName) {
         NamedFilterList configured = getChain(chainName);
         if (configured == null) {
@@ -66,6 +66,19 @@ public interface FilterChainManager {
      */
     Set<String> getChainNames();
 
+    /**
+     * Returns a number that changes whenever the {@link #getChainNames() chain names} may have changed, so that
+     * callers can reuse what they derived from the chain names without comparing them, or {@code -1} if this manager
+     * does not track its changes.  The default implementation returns {@code -1}.
+     *
+     * @return a number that changes whenever the chain names may have changed, or {@code -1} if changes are not
+     * tracked.
+     * @since 2.0
+     */
+    default long getModificationCount() {
+        return -1L;
+    }
+
     /**
      * Proxies the specified {@code original} FilterChain with the named chain.  The returned
      * {@code FilterChain} instance will first execute the configured named chain and then lastly invoke the given
@@ -29,6 +29,7 @@ import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import java.util.Set;
 
 /**
  * A {@code FilterChainResolver} that resolves {@link FilterChain}s based on url path
@@ -38,6 +39,12 @@ import javax.servlet.ServletResponse;
  * for all configured filter chains (keyed
  * by configured path pattern).  If an incoming Request path matches one of the configured path patterns (via
  * the {@code PathMatcher}, the corresponding configured {@code FilterChain} is returned.
+ * <p/>
+ * When the default {@link AntPathMatcher AntPathMatcher} (with the default path separator) is used and the
+ * {@link #isPatternTrieSupported() pattern trie is supported}, all path patterns are compiled once into a trie of path
+ * segments, and each request path is resolved in a single pass over its segments instead of matching it against
+ * every pattern in turn.  The trie is recompiled automatically when the configured chains change, and the result is
+ * identical to sequential matching: the first matching pattern, in configuration order, wins.
  *
  * @since 1.0
  */
@@ -51,6 +58,8 @@ public class PathMatchingFilterChainResolver implements FilterChainResolver {
 
     private PatternMatcher pathMatcher;
 
+    private volatile PathPatternTrie patternTrie;
+
     public PathMatchingFilterChainResolver() {
         this.pathMatcher = new AntPathMatcher();
         this.filterChainManager = new DefaultFilterChainManager();
@@ -101,6 +110,20 @@ public class PathMatchingFilterChainResolver implements FilterChainResolver {
         }
 
         final String requestURI = getPathWithinApplication(request);
+
+        PathPatternTrie trie = getPatternTrie(filterChainManager);
+        if (trie != null) {
+            String pathPattern = trie.match(requestURI);
+            if (pathPattern == null) {
+                return null;
+            }
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("Matched path pattern [{}] for requestURI [{}].  "
+                        + "Utilizing corresponding filter chain...", pathPattern, Encode.forHtml(requestURI));
+            }
+            return filterChainManager.proxy(originalChain, pathPattern);
+        }
+
         final String requestURINoTrailingSlash = removeTrailingSlash(requestURI);
 
         //the 'chain names' in this implementation are actually path patterns defined by the user.  We just use them
@@ -135,6 +158,53 @@ public class PathMatchingFilterChainResolver implements FilterChainResolver {
         return null;
     }
 
+    /**
+     * Returns the trie compiled from the current chain names, compiling it first if the chains changed, or
+     * {@code null} if patterns are not matched by the default {@code AntPathMatcher} rules.  The chain names are only
+     * compared to the trie's patterns if the manager's {@link FilterChainManager#getModificationCount() modification
+     * count} changed or is not tracked.
+     */
+    private PathPatternTrie getPatternTrie(FilterChainManager filterChainManager) {
+        PatternMatcher matcher = getPathMatcher();
+        if (matcher == null || matcher.getClass() != AntPathMatcher.class
+                || !AntPathMatcher.DEFAULT_PATH_SEPARATOR.equals(((AntPathMatcher) matcher).getPathSeparator())
+                || !isPatternTrieSupported()) {
+            return null;
+        }
+        // read before the names, so that a concurrent change leaves the trie marked as outdated:
+        long modificationCount = filterChainManager.getModificationCount();
+        Set<String> chainNames = filterChainManager.getChainNames();
+        PathPatternTrie trie = this.patternTrie;
+        if (trie != null && trie.isCurrent(chainNames, modificationCount)) {
+            return trie;
+        }
+        if (trie != null && trie.isCompiledFrom(chainNames)) {
+            if (modificationCount >= 0) {
+                trie = trie.withSource(chainNames, modificationCount);
+                this.patternTrie = trie;
+            }
+            return trie;
+        }
+        trie = PathPatternTrie.compile(chainNames, modificationCount);
+        this.patternTrie = trie;
+        return trie;
+    }
+
+    /**
+     * Returns {@code true} if the configured path patterns may be resolved via a compiled trie when the default
+     * {@link AntPathMatcher AntPathMatcher} is used, {@code false} if every pattern must be matched via
+     * {@link #pathMatches(String, String)} in turn.
+     * <p/>
+     * Subclasses that override {@link #pathMatches(String, String)} must override this method to return
+     * {@code false}, so that their matching logic is applied to every request.
+     *
+     * @return {@code true} by default.
+     * @since 2.0
+     */
+    protected boolean isPatternTrieSupported() {
+        return true;
+    }
+
     /**
      * Returns {@code true} if an incoming request path (the {@code path} argument)
      * matches a configured filter chain path (the {@code pattern} argument), {@code false} otherwise.
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.mgt;
+
+import org.apache.shiro.util.AntPathSegment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The filter chain path patterns of a {@link PathMatchingFilterChainResolver}, compiled into a trie of path segments
+ * that finds the first pattern matching a request path in a single pass over the path's segments.
+ * <p/>
+ * Each pattern is split into its segments once, and every segment becomes an edge of the trie: a <em>literal</em>
+ * edge (looked up by hash), a {@code *} edge (matching any segment), a {@code **} edge (matching any number of
+ * segments, including none) or a <em>glob</em> edge for segments such as {@code *.jsp} or {@code page?}.  Matching
+ * walks all applicable edges in parallel, so a path is visited once regardless of the number of patterns.  The
+ * patterns that match are then ranked by their configuration order, so the first matching pattern wins, exactly as
+ * when calling {@link org.apache.shiro.util.AntPathMatcher AntPathMatcher} for each pattern in turn.
+ * <p/>
+ * The results, including the {@code AntPathMatcher} rules for leading and trailing separators and the resolver's
+ * retry with the trailing separators of both the pattern and the path removed, are identical to those of
+ * {@link PathMatchingFilterChainResolver}'s sequential matching with a default {@code AntPathMatcher}.
+ * <p/>
+ * Instances are immutable and thread-safe.
+ *
+ * @since 2.0
+ */
+final class PathPatternTrie {
+
+    private static final char SEPARATOR = '/';
+    private static final String SEPARATOR_STRING = "/";
+    private static final String STAR = "*";
+    private static final String DOUBLE_STAR = "**";
+
+    private final String[] patterns;
+
+    /**
+     * Root for patterns (and paths) without a leading separator.
+     */
+    private final Node relativeRoot;
+
+    /**
+     * Root for patterns (and paths) with a leading separator.
+     */
+    private final Node absoluteRoot;
+
+    private final int nodeCount;
+
+    /**
+     * The chain names and the {@link FilterChainManager#getModificationCount() modification count} of their manager
+     * at the time the trie was compiled.
+     */
+    private final Collection<String> chainNames;
+    private final long modificationCount;
+
+    private PathPatternTrie(String[] patterns, Node relativeRoot, Node absoluteRoot, int nodeCount,
+                            Collection<String> chainNames, long modificationCount) {
+        this.patterns = patterns;
+        this.relativeRoot = relativeRoot;
+        this.absoluteRoot = absoluteRoot;
+        this.nodeCount = nodeCount;
+        this.chainNames = chainNames;
+        this.modificationCount = modificationCount;
+    }
+
+    static PathPatternTrie compile(Collection<String> chainNames) {
+        return compile(chainNames, -1L);
+    }
+
+    static PathPatternTrie compile(Collection<String> chainNames, long modificationCount) {
+        String[] patterns = chainNames.toArray(new String[0]);
+        int[] ids = {0};
+        Node relativeRoot = new Node(ids[0]++, false);
+        Node absoluteRoot = new Node(ids[0]++, false);
+        for (int i = 0; i < patterns.length; i++) {
+            String pattern = patterns[i];
+            if (pattern == null) {
+                continue;
+            }
+            Node node = pattern.startsWith(SEPARATOR_STRING) ? absoluteRoot : relativeRoot;
+            boolean doubleStar = false;
+            for (String segment : segments(pattern)) {
+                doubleStar |= DOUBLE_STAR.equals(segment);
+                node = node.child(segment, ids);
+            }
+            node.addTerminal(new Terminal(i, doubleStar, pattern.endsWith(SEPARATOR_STRING),
+                    removeTrailingSeparator(pattern).endsWith(SEPARATOR_STRING)));
+        }
+        return new PathPatternTrie(patterns, relativeRoot, absoluteRoot, ids[0], chainNames, modificationCount);
+    }
+
+    /**
+     * Returns {@code true} if the specified chain names are the same instance this trie was compiled from and their
+     * manager reports the same, tracked, modification count, without comparing the names themselves.
+     */
+    boolean isCurrent(Collection<String> names, long count) {
+        return count >= 0 && count == this.modificationCount && names == this.chainNames
+                && names.size() == patterns.length;
+    }
+
+    /**
+     * Returns this trie recorded as compiled from the specified chain names at the specified modification count,
+     * which must have been verified to be {@link #isCompiledFrom(Collection) equal} to this trie's patterns.
+     */
+    PathPatternTrie withSource(Collection<String> names, long count) {
+        return new PathPatternTrie(patterns, relativeRoot, absoluteRoot, nodeCount, names, count);
+    }
+
+    /**
+     * Returns {@code true} if this trie was compiled from exactly the specified chain names, in the same order.
+     */
+    boolean isCompiledFrom(Collection<String> chainNames) {
+        if (chainNames.size() != patterns.length) {
+            return false;
+        }
+        Iterator<String> names = chainNames.iterator();
+        for (String pattern : patterns) {
+            String name = names.next();
+            if (name != pattern && (name == null || !name.equals(pattern))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name of the chain to use for the specified path, or {@code null} if no pattern matches.  If a
+     * pattern only matches once the trailing separators are removed, the returned name is the pattern without its
+     * trailing separator, as with the resolver's sequential matching.
+     */
+    String match(String path) {
+        if (path == null) {
+            return null;
+        }
+        boolean trailing = path.endsWith(SEPARATOR_STRING);
+        boolean strippedTrailing = removeTrailingSeparator(path).endsWith(SEPARATOR_STRING);
+
+        List<Node> states = walk(path);
+
+        // lowest (index << 1) wins, the low bit is set if only the pattern without a trailing separator matched:
+        int best = Integer.MAX_VALUE;
+        for (Node state : states) {
+            best = state.best(trailing, strippedTrailing, best);
+        }
+        if (best == Integer.MAX_VALUE) {
+            return null;
+        }
+        String pattern = patterns[best >>> 1];
+        return (best & 1) == 0 ? pattern : removeTrailingSeparator(pattern);
+    }
+
+    /**
+     * Returns the nodes reached after consuming all segments of the specified path.
+     */
+    private List<Node> walk(String path) {
+        BitSet seen = new BitSet(nodeCount);
+        List<Node> states = new ArrayList<Node>();
+        add(path.startsWith(SEPARATOR_STRING) ? absoluteRoot : relativeRoot, states, seen);
+
+        int length = path.length();
+        int start = 0;
+        while (start < length && !states.isEmpty()) {
+            int end = path.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                String segment = path.substring(start, end);
+                seen.clear();
+                List<Node> next = new ArrayList<Node>(states.size() + 1);
+                for (Node state : states) {
+                    state.step(segment, next, seen);
+                }
+                states = next;
+            }
+            start = end + 1;
+        }
+        return states;
+    }
+
+    private static void add(Node node, List<Node> states, BitSet seen) {
+        if (seen.get(node.id)) {
+            return;
+        }
+        seen.set(node.id);
+        states.add(node);
+        if (node.doubleStar != null) {
+            // '**' may match no segment at all
+            add(node.doubleStar, states, seen);
+        }
+    }
+
+    /**
+     * Splits the specified path into its non-empty segments, exactly like the {@code AntPathMatcher}.
+     */
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<String>();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    static String removeTrailingSeparator(String path) {
+        if (path != null && !SEPARATOR_STRING.equals(path) && path.endsWith(SEPARATOR_STRING)) {
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * A pattern ending at a trie node.
+     */
+    private static final class Terminal {
+        private final int index;
+        private final boolean doubleStar;
+        private final boolean trailing;
+        private final boolean strippedTrailing;
+
+        private Terminal(int index, boolean doubleStar, boolean trailing, boolean strippedTrailing) {
+            this.index = index;
+            this.doubleStar = doubleStar;
+            this.trailing = trailing;
+            this.strippedTrailing = strippedTrailing;
+        }
+
+        /**
+         * Patterns containing {@code **} ignore trailing separators, all others require the pattern and the path to
+         * agree on them.
+         */
+        private int rank(boolean pathTrailing, boolean pathStrippedTrailing, int best) {
+            if (doubleStar || trailing == pathTrailing) {
+                return Math.min(best, index << 1);
+            }
+            if (strippedTrailing == pathStrippedTrailing) {
+                return Math.min(best, (index << 1) | 1);
+            }
+            return best;
+        }
+
+        /**
+         * A pattern without {@code **} whose last segment is {@code *} also matches a path that ends with a separator
+         * right before that segment, e.g. {@code /foo/*} matches {@code /foo/}.
+         */
+        private int rankEmptyLastSegment(boolean pathTrailing, boolean pathStrippedTrailing, int best) {
+            if (doubleStar) {
+                return best;
+            }
+            if (pathTrailing) {
+                return Math.min(best, index << 1);
+            }
+            if (pathStrippedTrailing) {
+                return Math.min(best, (index << 1) | 1);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A trie node, immutable once compiled.
+     */
+    private static final class Node {
+
+        private static final Terminal[] NO_TERMINALS = new Terminal[0];
+
+        private final int id;
+
+        /**
+         * {@code true} if this node is reached via a {@code **} edge and therefore also matches further segments.
+         */
+        private final boolean repeating;
+
+        private Map<String, Node> literals;
+        private Node star;
+        private Node doubleStar;
+        private String[] globs = new String[0];
+        private AntPathSegment[] globSegments = new AntPathSegment[0];
+        private Node[] globNodes = new Node[0];
+        private Terminal[] terminals = NO_TERMINALS;
+
+        private Node(int id, boolean repeating) {
+            this.id = id;
+            this.repeating = repeating;
+        }
+
+        private Node child(String segment, int[] ids) {
+            if (DOUBLE_STAR.equals(segment)) {
+                if (doubleStar == null) {
+                    doubleStar = new Node(ids[0]++, true);
+                }
+                return doubleStar;
+            }
+            if (STAR.equals(segment)) {
+                if (star == null) {
+                    star = new Node(ids[0]++, false);
+                }
+                return star;
+            }
+            if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                int i = Arrays.asList(globs).indexOf(segment);
+                if (i < 0) {
+                    i = globs.length;
+                    globs = Arrays.copyOf(globs, i + 1);
+                    globSegments = Arrays.copyOf(globSegments, i + 1);
+                    globNodes = Arrays.copyOf(globNodes, i + 1);
+                    globs[i] = segment;
+                    globSegments[i] = new AntPathSegment(segment);
+                    globNodes[i] = new Node(ids[0]++, false);
+                }
+                return globNodes[i];
+            }
+            if (literals == null) {
+                literals = new HashMap<String, Node>();
+            }
+            return literals.computeIfAbsent(segment, s -> new Node(ids[0]++, false));
+        }
+
+        private void addTerminal(Terminal terminal) {
+            terminals = Arrays.copyOf(terminals, terminals.length + 1);
+            terminals[terminals.length - 1] = terminal;
+        }
+
+        private void step(String segment, List<Node> next, BitSet seen) {
+            if (repeating) {
+                add(this, next, seen);
+            }
+            if (literals != null) {
+                Node literal = literals.get(segment);
+                if (literal != null) {
+                    add(literal, next, seen);
+                }
+            }
+            if (star != null) {
+                add(star, next, seen);
+            }
+            for (int i = 0; i < globs.length; i++) {
+                if (globSegments[i].matches(segment)) {
+                    add(globNodes[i], next, seen);
+                }
+            }
+        }
+
+        private int best(boolean pathTrailing, boolean pathStrippedTrailing, int best) {
+            int result = best;
+            for (Terminal terminal : terminals) {
+                result = terminal.rank(pathTrailing, pathStrippedTrailing, result);
+            }
+            if (star != null) {
+                for (Terminal terminal : star.terminals) {
+                    result = terminal.rankEmptyLastSegment(pathTrailing, pathStrippedTrailing, result);
+                }
+            }
+            return result;
+        }
+    }
+}
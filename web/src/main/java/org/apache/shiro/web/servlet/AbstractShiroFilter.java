@@ -19,7 +19,11 @@
 package org.apache.shiro.web.servlet;
 
 import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.mgt.SessionsSecurityManager;
 import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.AbstractNativeSessionManager;
+import org.apache.shiro.session.mgt.SessionManager;
+import org.apache.shiro.session.mgt.SessionUnitOfWork;
 import org.apache.shiro.subject.ExecutionException;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.web.config.ShiroFilterConfiguration;
@@ -337,10 +341,39 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
         }
     }
 
+    /**
+     * Begins a {@link SessionUnitOfWork SessionUnitOfWork} spanning the current request, so that every 'native'
+     * session is read from the session store once and all of its changes are written once, at the end of the request.
+     * <p/>
+     * This implementation returns {@code null} if the {@code SecurityManager} does not use an
+     * {@link AbstractNativeSessionManager AbstractNativeSessionManager}, otherwise it returns the result of its
+     * {@link AbstractNativeSessionManager#beginUnitOfWork() beginUnitOfWork()} call, which only begins a unit of work
+     * if the session manager's {@link AbstractNativeSessionManager#setUnitOfWorkEnabled(boolean) unitOfWorkEnabled}
+     * property is {@code true}.
+     *
+     * @param request  incoming request - ignored, but available to subclasses that might wish to override this method
+     * @param response outgoing response - ignored, but available to subclasses that might wish to override this method
+     * @return the unit of work to close at the end of the request, or {@code null} if there is none.
+     * @since 2.0
+     */
+    @SuppressWarnings({"UnusedDeclaration"})
+    protected SessionUnitOfWork beginSessionUnitOfWork(ServletRequest request, ServletResponse response) {
+        if (isHttpSessions() || !(getSecurityManager() instanceof SessionsSecurityManager)) {
+            return null;
+        }
+        SessionManager sessionManager = ((SessionsSecurityManager) getSecurityManager()).getSessionManager();
+        if (sessionManager instanceof AbstractNativeSessionManager) {
+            return ((AbstractNativeSessionManager) sessionManager).beginUnitOfWork();
+        }
+        return null;
+    }
+
     /**
      * {@code doFilterInternal} implementation that sets-up, executes, and cleans-up a Shiro-filtered request.  It
      * performs the following ordered operations:
      * <ol>
+     * <li>{@link #beginSessionUnitOfWork(ServletRequest, ServletResponse) Begins} a session unit of work, which is
+     * closed once the request has been processed</li>
      * <li>{@link #prepareServletRequest(ServletRequest, ServletResponse, FilterChain) Prepares}
      * the incoming {@code ServletRequest} for use during Shiro's processing</li>
      * <li>{@link #prepareServletResponse(ServletRequest, ServletResponse, FilterChain) Prepares}
@@ -353,7 +386,7 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
      * methods</li>
      * </ol>
      * <p/>
-     * The {@code Subject.}{@link Subject#execute(Runnable) execute(Runnable)} call in step #4 is used as an
+     * The {@code Subject.}{@link Subject#execute(Runnable) execute(Runnable)} call in step #5 is used as an
      * implementation technique to guarantee proper thread binding and restoration is completed successfully.
      *
      * @param servletRequest  the incoming {@code ServletRequest}
@@ -367,7 +400,7 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
 
         Throwable t = null;
 
-        try {
+        try (SessionUnitOfWork unitOfWork = beginSessionUnitOfWork(servletRequest, servletResponse)) {
             final ServletRequest request = prepareServletRequest(servletRequest, servletResponse, chain);
             final ServletResponse response = prepareServletResponse(request, servletResponse, chain);
 
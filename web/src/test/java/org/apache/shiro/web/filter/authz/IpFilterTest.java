@@ -21,14 +21,23 @@ package org.apache.shiro.web.filter.authz;
 import org.junit.jupiter.api.Test;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test cases for the {@link AuthorizationFilter} class.
@@ -100,4 +109,108 @@ public class IpFilterTest {
         assertFalse(filter.isAccessAllowed(request, null, null));
         verify(request);
     }
+
+    @Test
+    void ipSourceChangesAreAppliedWithoutRestart() throws Exception {
+        AtomicReference<Set<String>> authorized = new AtomicReference<Set<String>>(Collections.singleton("10.0.0.0/8"));
+        IpSource source = new IpSource() {
+            public Collection<String> getAuthorizedIps() {
+                return authorized.get();
+            }
+
+            public Collection<String> getDeniedIps() {
+                return Collections.emptySet();
+            }
+        };
+        IpFilter filter = new IpFilter();
+        filter.setIpSource(source);
+        assertTrue(filter.isAccessAllowed(request("10.1.2.3"), null, null));
+        assertFalse(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+
+        authorized.set(new HashSet<String>(Arrays.asList("10.0.0.0/8", "192.168.0.0/16")));
+        assertTrue(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+
+        filter.setIpSourceRefreshInterval(TimeUnit.HOURS.toMillis(1));
+        authorized.set(Collections.<String>emptySet());
+        assertTrue(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+        filter.refreshIpSource();
+        assertFalse(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+    }
+
+    @Test
+    void ipSourceCollectionsModifiedInPlaceTakeEffect() throws Exception {
+        Set<String> authorized = new HashSet<String>(Collections.singleton("10.0.0.0/8"));
+        Set<String> denied = new HashSet<String>();
+        IpSource source = new IpSource() {
+            public Collection<String> getAuthorizedIps() {
+                return authorized;
+            }
+
+            public Collection<String> getDeniedIps() {
+                return denied;
+            }
+        };
+        IpFilter filter = new IpFilter();
+        filter.setIpSource(source);
+        assertFalse(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+
+        authorized.add("192.168.0.0/16");
+        assertTrue(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+
+        // same number of ranges, different content:
+        denied.add("192.168.1.0/24");
+        assertFalse(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+        denied.remove("192.168.1.0/24");
+        denied.add("192.168.2.0/24");
+        assertTrue(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+        assertFalse(filter.isAccessAllowed(request("192.168.2.1"), null, null));
+    }
+
+    @Test
+    void versionedIpSourceIsOnlyReadWhenItsVersionChanges() throws Exception {
+        AtomicLong version = new AtomicLong();
+        AtomicInteger reads = new AtomicInteger();
+        Set<String> authorized = new HashSet<String>(Collections.singleton("10.0.0.0/8"));
+        IpSource source = new IpSource() {
+            public Collection<String> getAuthorizedIps() {
+                reads.incrementAndGet();
+                return authorized;
+            }
+
+            public Collection<String> getDeniedIps() {
+                return Collections.emptySet();
+            }
+
+            public long getVersion() {
+                return version.get();
+            }
+        };
+        IpFilter filter = new IpFilter();
+        filter.setIpSource(source);
+        assertTrue(filter.isAccessAllowed(request("10.1.2.3"), null, null));
+        assertTrue(filter.isAccessAllowed(request("10.1.2.3"), null, null));
+        assertEquals(1, reads.get());
+
+        authorized.add("192.168.0.0/16");
+        version.incrementAndGet();
+        assertTrue(filter.isAccessAllowed(request("192.168.1.1"), null, null));
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void ipv6RangesAreSupported() throws Exception {
+        IpFilter filter = new IpFilter();
+        filter.setAuthorizedIps("2001:db8::/32, 10.0.0.0/8");
+        filter.setDeniedIps("2001:db8:1::/48");
+        assertTrue(filter.isAccessAllowed(request("2001:db8:2::1"), null, null));
+        assertFalse(filter.isAccessAllowed(request("2001:db8:1::1"), null, null));
+        assertFalse(filter.isAccessAllowed(request("2001:db9::1"), null, null));
+    }
+
+    private static HttpServletRequest request(String remoteAddr) {
+        HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        expect(request.getRemoteAddr()).andReturn(remoteAddr);
+        replay(request);
+        return request;
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.authz;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class IpRangeTrieTest {
+
+    @Test
+    void testMatchesIpAddressMatchers() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<String> ranges = new ArrayList<String>();
+            for (int i = 0; i < 40; i++) {
+                ranges.add(randomRange(random));
+            }
+            List<IpAddressMatcher> matchers = new ArrayList<IpAddressMatcher>();
+            for (String range : ranges) {
+                matchers.add(new IpAddressMatcher(range));
+            }
+            IpRangeTrie trie = IpRangeTrie.compile(ranges);
+            assertEquals(ranges.size(), trie.size());
+            for (int i = 0; i < 500; i++) {
+                String address = random.nextBoolean() ? mutate(random, ranges.get(random.nextInt(ranges.size())))
+                        : randomAddress(random);
+                boolean expected = false;
+                for (IpAddressMatcher matcher : matchers) {
+                    expected |= matcher.matches(address);
+                }
+                assertEquals(expected, trie.matches(address), "Mismatch for " + address + " in " + ranges);
+            }
+        }
+    }
+
+    @Test
+    void testIpv4AndIpv6AreSeparate() {
+        IpRangeTrie trie = IpRangeTrie.compile(Arrays.asList("0.0.0.0/0"));
+        assertTrue(trie.matches("10.1.2.3"));
+        assertTrue(trie.matches("::ffff:10.1.2.3"));
+        assertFalse(trie.matches("2001:db8::1"));
+
+        trie = IpRangeTrie.compile(Arrays.asList("2001:db8::/32", "fe80::21f:5bff:fe33:bd68"));
+        assertTrue(trie.matches("2001:DB8:0:0:0:0:0:1"));
+        assertTrue(trie.matches("fe80::21f:5bff:fe33:bd68"));
+        assertFalse(trie.matches("fe80::21f:5bff:fe33:bd69"));
+        assertFalse(trie.matches("32.1.13.184"));
+    }
+
+    @Test
+    void testShorterPrefixCoversLongerOnes() {
+        IpRangeTrie trie = IpRangeTrie.compile(Arrays.asList("10.1.2.3", "10.0.0.0/8", "10.1.0.0/16"));
+        assertTrue(trie.matches("10.200.0.1"));
+        assertTrue(trie.matches("10.1.2.3"));
+        assertFalse(trie.matches("11.0.0.0"));
+    }
+
+    @Test
+    void testAddressParsing() throws Exception {
+        assertArrayEquals(new byte[] {(byte) 192, (byte) 168, 0, 1}, IpRangeTrie.toBytes("192.168.0.1"));
+        for (String address : new String[] {"0.0.0.0", "255.255.255.255", "1.2.3.4", "1.2.3", "::1", "::ffff:1.2.3.4"}) {
+            assertArrayEquals(InetAddress.getByName(address).getAddress(), IpRangeTrie.toBytes(address), address);
+        }
+    }
+
+    @Test
+    void testInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> IpRangeTrie.compile(Arrays.asList("10.0.0.0/33")));
+        assertThrows(IllegalArgumentException.class, () -> IpRangeTrie.compile(Arrays.asList("10.0.0.0/x")));
+        assertThrows(IllegalArgumentException.class, () -> IpRangeTrie.compile(Arrays.asList("1:2:3:4:5:6:7:8:9")));
+    }
+
+    @Test
+    void testEmpty() {
+        IpRangeTrie trie = IpRangeTrie.compile(Collections.<String>emptyList());
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.matches("not an address"));
+        assertTrue(IpRangeTrie.compile(null).isEmpty());
+    }
+
+    private static String randomRange(Random random) {
+        String address = randomAddress(random);
+        int bits = address.indexOf(':') >= 0 ? 128 : 32;
+        return random.nextInt(4) == 0 ? address : address + "/" + random.nextInt(bits + 1);
+    }
+
+    private static String randomAddress(Random random) {
+        if (random.nextInt(3) == 0) {
+            StringBuilder sb = new StringBuilder("2001:db8");
+            for (int i = 0; i < 6; i++) {
+                sb.append(':').append(Integer.toHexString(random.nextInt(4) == 0 ? random.nextInt(65536) : random.nextInt(4)));
+            }
+            return sb.toString();
+        }
+        return (10 + random.nextInt(2)) + "." + random.nextInt(4) + "." + random.nextInt(256) + "." + random.nextInt(256);
+    }
+
+    /**
+     * Returns an address close to the specified range, to exercise prefix boundaries.
+     */
+    private static String mutate(Random random, String range) {
+        int i = range.indexOf('/');
+        String address = i > 0 ? range.substring(0, i) : range;
+        if (random.nextBoolean()) {
+            return address;
+        }
+        byte[] bytes = IpRangeTrie.toBytes(address);
+        int bit = random.nextInt(bytes.length * 8);
+        bytes[bit / 8] ^= (byte) (0x80 >>> (bit % 8));
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
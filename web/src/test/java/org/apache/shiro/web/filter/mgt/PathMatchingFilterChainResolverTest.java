@@ -29,12 +29,15 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -295,4 +298,64 @@ public class PathMatchingFilterChainResolverTest extends WebTest {
         assertNotNull(resolved);
         verify(request).getServletPath();
     }
+
+    @Test
+    void testChainsAddedAfterFirstRequest() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        when(request.getServletPath()).thenReturn("");
+        when(request.getPathInfo()).thenReturn("/admin/index.html");
+
+        resolver.getFilterChainManager().addToChain("/public/**", "anon");
+        assertNull(resolver.getChain(request, response, chain));
+
+        resolver.getFilterChainManager().addToChain("/admin/**", "authcBasic");
+        assertNotNull(resolver.getChain(request, response, chain));
+    }
+
+    @Test
+    void testChainsReplacedInFilterChainsMap() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        when(request.getServletPath()).thenReturn("");
+        when(request.getPathInfo()).thenReturn("/admin/index.html");
+
+        DefaultFilterChainManager manager = (DefaultFilterChainManager) resolver.getFilterChainManager();
+        manager.addToChain("/public/**", "anon");
+        assertNull(resolver.getChain(request, response, chain));
+
+        // same number of chains, so only the modification count reveals the change:
+        Map<String, NamedFilterList> chains = new LinkedHashMap<>(manager.getFilterChains());
+        NamedFilterList replaced = chains.remove("/public/**");
+        chains.put("/admin/**", replaced);
+        manager.setFilterChains(chains);
+        assertNotNull(resolver.getChain(request, response, chain));
+
+        assertThrows(UnsupportedOperationException.class, () -> manager.getFilterChains().remove("/admin/**"));
+    }
+
+    @Test
+    void testCustomPathMatchesIsHonored() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        when(request.getServletPath()).thenReturn("");
+        when(request.getPathInfo()).thenReturn("/INDEX.html");
+
+        resolver = new PathMatchingFilterChainResolver() {
+            @Override
+            protected boolean pathMatches(String pattern, String path) {
+                return super.pathMatches(pattern.toLowerCase(), path.toLowerCase());
+            }
+
+            @Override
+            protected boolean isPatternTrieSupported() {
+                return false;
+            }
+        };
+        resolver.getFilterChainManager().addToChain("/index.html", "authcBasic");
+        assertNotNull(resolver.getChain(request, response, chain));
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.mgt;
+
+import org.apache.shiro.util.AntPathMatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 2.0
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class PathPatternTrieTest {
+
+    private static final String[] PATTERN_SEGMENTS = {"a", "b", "ab", "*", "**", "a*", "?b", "*.jsp", "x.jsp", "*b*", "***"};
+
+    private static final String[] PATH_SEGMENTS = {"a", "b", "ab", "bb", "x.jsp", "y.jsp", "c", "aab"};
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    /**
+     * The sequential matching of {@link PathMatchingFilterChainResolver#getChain}.
+     */
+    private String sequential(List<String> patterns, String path) {
+        String pathNoTrailingSlash = PathPatternTrie.removeTrailingSeparator(path);
+        for (String pattern : patterns) {
+            if (matcher.matches(pattern, path)) {
+                return pattern;
+            }
+            String patternNoTrailingSlash = PathPatternTrie.removeTrailingSeparator(pattern);
+            if (matcher.matches(patternNoTrailingSlash, pathNoTrailingSlash)) {
+                return patternNoTrailingSlash;
+            }
+        }
+        return null;
+    }
+
+    private static String randomPath(Random random, String[] segments, int maxSegments) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextInt(5) > 0) {
+            sb.append('/');
+        }
+        int count = random.nextInt(maxSegments + 1);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(random.nextInt(10) == 0 ? "//" : "/");
+            }
+            sb.append(segments[random.nextInt(segments.length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testMatchesSequentialAntPathMatching() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            Set<String> patterns = new LinkedHashSet<String>();
+            int count = 1 + random.nextInt(20);
+            while (patterns.size() < count) {
+                patterns.add(randomPath(random, PATTERN_SEGMENTS, 4));
+            }
+            List<String> list = new ArrayList<String>(patterns);
+            PathPatternTrie trie = PathPatternTrie.compile(list);
+            for (int i = 0; i < 50; i++) {
+                String path = randomPath(random, PATH_SEGMENTS, 5);
+                assertEquals(sequential(list, path), trie.match(path), "patterns " + list + ", path [" + path + "]");
+            }
+        }
+    }
+
+    @Test
+    void testFirstMatchWins() {
+        List<String> patterns = Arrays.asList("/admin/login", "/admin/**", "/**/*.jsp", "/**");
+        PathPatternTrie trie = PathPatternTrie.compile(patterns);
+        assertEquals("/admin/login", trie.match("/admin/login"));
+        assertEquals("/admin/**", trie.match("/admin/page.jsp"));
+        assertEquals("/**/*.jsp", trie.match("/public/page.jsp"));
+        assertEquals("/**", trie.match("/"));
+        assertEquals("/admin/login", trie.match("/admin/login/"));
+        assertNull(trie.match("admin"));
+        assertNull(trie.match(null));
+    }
+
+    @Test
+    void testTrailingSlashPatternOnlyMatchedWithoutIt() {
+        PathPatternTrie trie = PathPatternTrie.compile(Arrays.asList("/resource/menus/"));
+        assertEquals("/resource/menus/", trie.match("/resource/menus/"));
+        assertEquals("/resource/menus", trie.match("/resource/menus"));
+    }
+
+    @Test
+    void testIsCompiledFrom() {
+        List<String> patterns = new ArrayList<String>(Arrays.asList("/a", "/b"));
+        PathPatternTrie trie = PathPatternTrie.compile(patterns);
+        assertTrue(trie.isCompiledFrom(patterns));
+        assertTrue(trie.isCompiledFrom(Arrays.asList("/a", "/b")));
+        assertFalse(trie.isCompiledFrom(Arrays.asList("/b", "/a")));
+        patterns.add("/c");
+        assertFalse(trie.isCompiledFrom(patterns));
+    }
+
+    @Test
+    void testIsCurrent() {
+        List<String> patterns = new ArrayList<String>(Arrays.asList("/a", "/b"));
+        PathPatternTrie trie = PathPatternTrie.compile(patterns, 1L);
+        assertTrue(trie.isCurrent(patterns, 1L));
+        assertFalse(trie.isCurrent(patterns, 2L));
+        assertFalse(trie.isCurrent(Arrays.asList("/a", "/b"), 1L));
+        assertTrue(trie.withSource(patterns, 2L).isCurrent(patterns, 2L));
+        assertFalse(PathPatternTrie.compile(patterns).isCurrent(patterns, -1L));
+    }
+}